@@ -317,6 +317,10 @@ public class BBSModClient implements ClientModInitializer
         BBSMod.setupConfig(Icons.KEY_CAP, "keybinds", new File(BBSMod.getSettingsFolder(), "keybinds.json"), KeybindSettings::register);
 
         BBSSettings.language.postCallback((v, f) -> reloadLanguage(getLanguageKey()));
+        BBSSettings.multiskinCacheSize.postCallback((v, f) -> textures.setupMultiLinks());
+        BBSSettings.multiskinCacheDisk.postCallback((v, f) -> textures.setupMultiLinks());
+        BBSSettings.multiskinCacheDiskSize.postCallback((v, f) -> textures.setupMultiLinks());
+        textures.setupMultiLinks();
         BBSSettings.editorSeconds.postCallback((v, f) ->
         {
             if (dashboard != null && dashboard.getPanels().panel instanceof UIFilmPanel panel)
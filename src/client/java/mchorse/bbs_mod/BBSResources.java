@@ -21,6 +21,9 @@ public class BBSResources
         File assetsFolder = BBSMod.getAssetsFolder();
 
         watchDog = new WatchDog(assetsFolder, false, (runnable) -> MinecraftClient.getInstance().execute(runnable));
+
+        /* Asset index has to be updated before other listeners list assets */
+        watchDog.getProxy().register(BBSMod.getOriginalSourcePack());
         watchDog.getProxy().register(BBSModClient.getTextures());
         watchDog.getProxy().register(BBSModClient.getModels());
         watchDog.getProxy().register(BBSModClient.getSounds());
@@ -36,6 +39,8 @@ public class BBSResources
             watchDog.stop();
             watchDog = null;
         }
+
+        BBSMod.getOriginalSourcePack().saveIndex();
     }
 
     public static void tick()
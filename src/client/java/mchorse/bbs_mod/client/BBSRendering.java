@@ -9,9 +9,11 @@ import mchorse.bbs_mod.camera.clips.misc.CurveClip;
 import mchorse.bbs_mod.camera.clips.misc.SubtitleClip;
 import mchorse.bbs_mod.camera.controller.CameraWorkCameraController;
 import mchorse.bbs_mod.camera.controller.PlayCameraController;
+import mchorse.bbs_mod.client.renderer.ModelBlockEntityRenderer;
 import mchorse.bbs_mod.events.ModelBlockEntityUpdateCallback;
 import mchorse.bbs_mod.forms.renderers.utils.RecolorVertexConsumer;
 import mchorse.bbs_mod.graphics.texture.Texture;
+import mchorse.bbs_mod.graphics.texture.TextureManager;
 import mchorse.bbs_mod.graphics.texture.TextureFormat;
 import mchorse.bbs_mod.ui.UIKeys;
 import mchorse.bbs_mod.ui.dashboard.UIDashboard;
@@ -302,6 +304,19 @@ public class BBSRendering
 
     /* Rendering */
 
+    /**
+     * Called at the start of every frame, even when the world isn't rendered.
+     */
+    public static void onRenderFrame()
+    {
+        TextureManager textures = BBSModClient.getTextures();
+
+        if (textures != null)
+        {
+            textures.processUploads();
+        }
+    }
+
     public static void onWorldRenderBegin()
     {
         MinecraftClient mc = MinecraftClient.getInstance();
@@ -316,6 +331,8 @@ public class BBSRendering
 
         renderingWorld = true;
 
+        ModelBlockEntityRenderer.getCulling().resetCounters();
+
         if (!customSize)
         {
             return;
@@ -3,14 +3,18 @@ package mchorse.bbs_mod.client.renderer;
 import com.mojang.blaze3d.systems.RenderSystem;
 import mchorse.bbs_mod.BBSMod;
 import mchorse.bbs_mod.BBSSettings;
+import mchorse.bbs_mod.blocks.entities.ModelBlockCulling;
 import mchorse.bbs_mod.blocks.entities.ModelBlockEntity;
 import mchorse.bbs_mod.blocks.entities.ModelProperties;
+import mchorse.bbs_mod.client.BBSRendering;
 import mchorse.bbs_mod.entity.ActorEntity;
 import mchorse.bbs_mod.forms.FormUtilsClient;
+import mchorse.bbs_mod.forms.forms.Form;
 import mchorse.bbs_mod.forms.renderers.FormRenderType;
 import mchorse.bbs_mod.forms.renderers.FormRenderingContext;
 import mchorse.bbs_mod.graphics.Draw;
 import mchorse.bbs_mod.mixin.client.EntityRendererDispatcherInvoker;
+import mchorse.bbs_mod.mixin.client.WorldRendererAccessor;
 import mchorse.bbs_mod.ui.dashboard.UIDashboard;
 import mchorse.bbs_mod.ui.framework.UIBaseMenu;
 import mchorse.bbs_mod.ui.framework.UIScreen;
@@ -19,6 +23,7 @@ import mchorse.bbs_mod.utils.MatrixStackUtils;
 import mchorse.bbs_mod.utils.pose.Transform;
 import net.minecraft.client.MinecraftClient;
 import net.minecraft.client.render.Camera;
+import net.minecraft.client.render.Frustum;
 import net.minecraft.client.render.VertexConsumerProvider;
 import net.minecraft.client.render.WorldRenderer;
 import net.minecraft.client.render.block.entity.BlockEntityRenderer;
@@ -26,11 +31,23 @@ import net.minecraft.client.render.block.entity.BlockEntityRendererFactory;
 import net.minecraft.client.util.math.MatrixStack;
 import net.minecraft.client.world.ClientWorld;
 import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.Box;
+import net.minecraft.util.math.Vec3d;
+import org.joml.Vector3f;
 
 public class ModelBlockEntityRenderer implements BlockEntityRenderer<ModelBlockEntity>
 {
     private static ActorEntity entity;
 
+    private static final ModelBlockCulling culling = new ModelBlockCulling();
+    private static final Vector3f min = new Vector3f();
+    private static final Vector3f max = new Vector3f();
+
+    public static ModelBlockCulling getCulling()
+    {
+        return culling;
+    }
+
     public static void renderShadow(VertexConsumerProvider provider, MatrixStack matrices, float tickDelta, double x, double y, double z, float tx, float ty, float tz)
     {
         renderShadow(provider, matrices, tickDelta, x, y, z, tx, ty, tz, 0.5F, 1F);
@@ -80,6 +97,14 @@ public class ModelBlockEntityRenderer implements BlockEntityRenderer<ModelBlockE
         ModelProperties properties = entity.getProperties();
         Transform transform = properties.getTransform();
         BlockPos pos = entity.getPos();
+        ModelBlockCulling.Level level = this.getLevel(entity);
+
+        entity.setLevel(level);
+
+        if (level == ModelBlockCulling.Level.CULLED || (!level.shadows && BBSRendering.isIrisShadowPass()))
+        {
+            return;
+        }
 
         matrices.push();
         matrices.translate(0.5F, 0F, 0.5F);
@@ -96,7 +121,8 @@ public class ModelBlockEntityRenderer implements BlockEntityRenderer<ModelBlockE
             RenderSystem.enableDepthTest();
             FormUtilsClient.render(properties.getForm(), new FormRenderingContext()
                 .set(FormRenderType.MODEL_BLOCK, entity.getEntity(), matrices, lightAbove, overlay, tickDelta)
-                .camera(camera));
+                .camera(camera)
+                .bodyParts(level.bodyParts));
             RenderSystem.disableDepthTest();
 
             if (this.canRenderAxes(entity) && UIBaseMenu.renderAxes)
@@ -119,7 +145,7 @@ public class ModelBlockEntityRenderer implements BlockEntityRenderer<ModelBlockE
 
         matrices.pop();
 
-        if (properties.isShadow())
+        if (properties.isShadow() && level.shadows)
         {
             float tx = 0.5F + transform.translate.x;
             float ty = transform.translate.y;
@@ -135,7 +161,47 @@ public class ModelBlockEntityRenderer implements BlockEntityRenderer<ModelBlockE
     @Override
     public int getRenderDistance()
     {
-        return 196;
+        return BBSSettings.modelBlocksRenderDistance.get();
+    }
+
+    /**
+     * Get level of detail of given model block based on distance to its
+     * form's bounds and whether these bounds are in the view frustum.
+     */
+    private ModelBlockCulling.Level getLevel(ModelBlockEntity entity)
+    {
+        ModelProperties properties = entity.getProperties();
+        Form form = properties.getForm();
+
+        if (form == null || !BBSSettings.modelBlocksCulling.get())
+        {
+            return ModelBlockCulling.Level.FULL;
+        }
+
+        MinecraftClient mc = MinecraftClient.getInstance();
+        BlockPos pos = entity.getPos();
+        Vec3d camera = mc.gameRenderer.getCamera().getPos();
+
+        culling.setup(BBSSettings.modelBlocksReducedDistance.get(), BBSSettings.modelBlocksLowDistance.get(), BBSSettings.modelBlocksRenderDistance.get());
+        boolean known = culling.computeBounds(form, properties.getTransform(), BBSSettings.modelBlocksCullingPadding.get(), min, max);
+
+        Box box = new Box(
+            pos.getX() + 0.5D + min.x, pos.getY() + min.y, pos.getZ() + 0.5D + min.z,
+            pos.getX() + 0.5D + max.x, pos.getY() + max.y, pos.getZ() + 0.5D + max.z
+        );
+        double distance = ModelBlockCulling.distance(camera.x, camera.y, camera.z, box.minX, box.minY, box.minZ, box.maxX, box.maxY, box.maxZ);
+
+        /* Camera's frustum isn't the shadow pass' frustum, and shadow pass
+         * shouldn't be counted as a separate frame */
+        if (BBSRendering.isIrisShadowPass())
+        {
+            return culling.getLevel(distance, true);
+        }
+
+        Frustum frustum = ((WorldRendererAccessor) mc.worldRenderer).bbs$getFrustum();
+
+        /* Forms with unknown geometry can't be rejected by the frustum */
+        return culling.evaluate(distance, !known || frustum == null || frustum.isVisible(box));
     }
 
     private boolean canRenderAxes(ModelBlockEntity entity)
@@ -8,13 +8,16 @@ import mchorse.bbs_mod.cubic.data.model.ModelGroup;
 import mchorse.bbs_mod.cubic.model.ArmorSlot;
 import mchorse.bbs_mod.cubic.model.ArmorType;
 import mchorse.bbs_mod.cubic.model.bobj.BOBJModel;
+import mchorse.bbs_mod.cubic.render.CubicBoundsRenderer;
 import mchorse.bbs_mod.cubic.render.CubicCubeRenderer;
 import mchorse.bbs_mod.cubic.render.CubicMatrixRenderer;
 import mchorse.bbs_mod.cubic.render.CubicRenderer;
 import mchorse.bbs_mod.cubic.render.CubicVAOBuilderRenderer;
 import mchorse.bbs_mod.cubic.render.CubicVAORenderer;
 import mchorse.bbs_mod.cubic.render.vao.BOBJModelVAO;
-import mchorse.bbs_mod.cubic.render.vao.ModelVAO;
+import mchorse.bbs_mod.cubic.render.vao.IModelVAO;
+import mchorse.bbs_mod.cubic.render.vao.MergedModelVAO;
+import mchorse.bbs_mod.cubic.render.vao.ModelVAOData;
 import mchorse.bbs_mod.data.DataStorageUtils;
 import mchorse.bbs_mod.data.types.BaseType;
 import mchorse.bbs_mod.data.types.ListType;
@@ -41,6 +44,7 @@ import org.joml.Vector3f;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.function.Supplier;
@@ -71,7 +75,12 @@ public class ModelInstance implements IModelInstance
     public ArmorSlot fpMain;
     public ArmorSlot fpOffhand;
 
-    private Map<ModelGroup, ModelVAO> vaos = new HashMap<>();
+    private Map<ModelGroup, IModelVAO> vaos = new HashMap<>();
+    private MergedModelVAO mergedVao;
+    private MatrixStack paletteStack = new MatrixStack();
+
+    private Vector3f boundsMin;
+    private Vector3f boundsMax;
 
     public ModelInstance(String id, IModel model, Animations animations, Link texture)
     {
@@ -101,7 +110,7 @@ public class ModelInstance implements IModelInstance
         return this.animations;
     }
 
-    public Map<ModelGroup, ModelVAO> getVaos()
+    public Map<ModelGroup, IModelVAO> getVaos()
     {
         return this.vaos;
     }
@@ -227,11 +236,70 @@ public class ModelInstance implements IModelInstance
         {
             MinecraftClient.getInstance().execute(() ->
             {
-                CubicRenderer.processRenderModel(new CubicVAOBuilderRenderer(this.vaos), null, new MatrixStack(), model);
+                Map<ModelGroup, ModelVAOData> data = new LinkedHashMap<>();
+
+                CubicRenderer.processRenderModel(new CubicVAOBuilderRenderer(data), null, new MatrixStack(), model);
+
+                if (!data.isEmpty())
+                {
+                    this.mergedVao = new MergedModelVAO(data, model.getOrderedGroups().size());
+                    this.vaos.putAll(this.mergedVao.getGroups());
+                }
             });
         }
     }
 
+    /**
+     * Get bounds of model's geometry in the rest pose, in the same space
+     * the model gets rendered in {@link #render}.
+     */
+    public boolean getBounds(Vector3f min, Vector3f max)
+    {
+        if (this.boundsMin == null)
+        {
+            this.boundsMin = new Vector3f(Float.POSITIVE_INFINITY);
+            this.boundsMax = new Vector3f(Float.NEGATIVE_INFINITY);
+
+            if (this.model instanceof Model model)
+            {
+                CubicBoundsRenderer renderer = new CubicBoundsRenderer();
+
+                CubicRenderer.processRenderModel(renderer, null, new MatrixStack(), model);
+                this.boundsMin.set(renderer.min);
+                this.boundsMax.set(renderer.max);
+            }
+            else if (this.model instanceof BOBJModel model)
+            {
+                float[] posData = model.getMeshData().posData;
+                Vector3f vertex = new Vector3f();
+
+                /* BOBJ models get rotated 180 degrees around Y axis */
+                for (int i = 0; i < posData.length / 3; i++)
+                {
+                    vertex.set(-posData[i * 3], posData[i * 3 + 1], -posData[i * 3 + 2]);
+                    this.boundsMin.min(vertex);
+                    this.boundsMax.max(vertex);
+                }
+            }
+            else
+            {
+                return false;
+            }
+
+            /* No geometry at all */
+            if (this.boundsMin.x > this.boundsMax.x)
+            {
+                this.boundsMin.set(0F);
+                this.boundsMax.set(0F);
+            }
+        }
+
+        min.set(this.boundsMin);
+        max.set(this.boundsMax);
+
+        return true;
+    }
+
     public boolean isVAORendered()
     {
         return !this.vaos.isEmpty() || this.model instanceof BOBJModel;
@@ -239,9 +307,11 @@ public class ModelInstance implements IModelInstance
 
     public void delete()
     {
-        for (ModelVAO value : this.vaos.values())
+        if (this.mergedVao != null)
         {
-            value.delete();
+            this.mergedVao.delete();
+
+            this.mergedVao = null;
         }
 
         this.vaos.clear();
@@ -308,13 +378,25 @@ public class ModelInstance implements IModelInstance
         if (this.model instanceof Model model)
         {
             boolean isVao = this.isVAORendered();
+            ShaderProgram shader = program.get();
             CubicCubeRenderer renderProcessor = isVao
-                ? new CubicVAORenderer(program.get(), this, light, overlay, stencilMap, keys)
+                ? new CubicVAORenderer(shader, this, light, overlay, stencilMap, keys)
                 : new CubicCubeRenderer(light, overlay, stencilMap, keys);
 
             renderProcessor.setColor(color.r, color.g, color.b, color.a);
 
-            if (isVao)
+            if (isVao && this.mergedVao != null && MergedModelVAO.supportsPalette(shader))
+            {
+                /* Collect group palette relative to the model, and render
+                 * the whole model at once, skinned in the vertex shader */
+                ((CubicVAORenderer) renderProcessor).setPalette(this.mergedVao);
+
+                this.mergedVao.resetPalette();
+                CubicRenderer.processRenderModel(renderProcessor, null, this.paletteStack, model);
+                this.mergedVao.update();
+                this.mergedVao.render(shader, stack, overlay);
+            }
+            else if (isVao)
             {
                 CubicRenderer.processRenderModel(renderProcessor, null, stack, model);
             }
@@ -18,6 +18,7 @@ import mchorse.bbs_mod.utils.StringUtils;
 import mchorse.bbs_mod.utils.pose.PoseManager;
 import mchorse.bbs_mod.utils.pose.ShapeKeysManager;
 import mchorse.bbs_mod.utils.watchdog.IWatchDogListener;
+import mchorse.bbs_mod.utils.watchdog.WatchDogChange;
 import mchorse.bbs_mod.utils.watchdog.WatchDogEvent;
 
 import java.io.InputStream;
@@ -26,6 +27,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -188,22 +190,58 @@ public class ModelManager implements IWatchDogListener
     @Override
     public void accept(Path path, WatchDogEvent event)
     {
-        Link link = BBSMod.getProvider().getLink(path.toFile());
+        String key = this.getChangedModel(path);
 
-        if (link == null)
+        if (key != null)
         {
-            return;
+            this.unload(key);
         }
+    }
+
+    /**
+     * Unload every changed model only once per batch, since saving a model
+     * usually changes several of its files at once.
+     */
+    @Override
+    public void accept(List<WatchDogChange> changes)
+    {
+        Set<String> keys = new LinkedHashSet<>();
 
-        if (this.isRelodable(link))
+        for (WatchDogChange change : changes)
         {
-            String key = StringUtils.parentPath(link.path.substring(MODELS_PREFIX.length()));
-            ModelInstance model = this.models.remove(key);
+            String key = this.getChangedModel(change.path);
 
-            if (model != null)
+            if (key != null)
             {
-                model.delete();
+                keys.add(key);
             }
         }
+
+        for (String key : keys)
+        {
+            this.unload(key);
+        }
+    }
+
+    private String getChangedModel(Path path)
+    {
+        Link link = BBSMod.getProvider().getLink(path.toFile());
+
+        if (link == null || !this.isRelodable(link))
+        {
+            return null;
+        }
+
+        return StringUtils.parentPath(link.path.substring(MODELS_PREFIX.length()));
+    }
+
+    private void unload(String key)
+    {
+        ModelInstance model = this.models.remove(key);
+
+        if (model != null)
+        {
+            model.delete();
+        }
     }
 }
\ No newline at end of file
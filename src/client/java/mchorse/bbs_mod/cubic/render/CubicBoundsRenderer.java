@@ -0,0 +1,96 @@
+package mchorse.bbs_mod.cubic.render;
+
+import mchorse.bbs_mod.cubic.data.model.Model;
+import mchorse.bbs_mod.cubic.data.model.ModelCube;
+import mchorse.bbs_mod.cubic.data.model.ModelGroup;
+import mchorse.bbs_mod.cubic.data.model.ModelMesh;
+import mchorse.bbs_mod.cubic.data.model.ModelQuad;
+import mchorse.bbs_mod.cubic.data.model.ModelVertex;
+import mchorse.bbs_mod.utils.MatrixStackUtils;
+import mchorse.bbs_mod.utils.MathUtils;
+import mchorse.bbs_mod.utils.pose.Transform;
+import net.minecraft.client.render.BufferBuilder;
+import net.minecraft.client.util.math.MatrixStack;
+import net.minecraft.util.math.RotationAxis;
+import org.joml.Vector3f;
+
+/**
+ * Cubic bounds renderer
+ *
+ * Computes bounds of model's cubes and meshes in the rest pose, so they
+ * don't depend on the animation that's currently applied.
+ */
+public class CubicBoundsRenderer implements ICubicRenderer
+{
+    public final Vector3f min = new Vector3f(Float.POSITIVE_INFINITY);
+    public final Vector3f max = new Vector3f(Float.NEGATIVE_INFINITY);
+
+    private Vector3f vertex = new Vector3f();
+    private Vector3f mesh = new Vector3f();
+
+    @Override
+    public void applyGroupTransformations(MatrixStack stack, ModelGroup group)
+    {
+        Transform initial = group.initial;
+
+        ICubicRenderer.moveToGroupPivot(stack, group);
+
+        if (initial.rotate.z != 0F) stack.multiply(RotationAxis.POSITIVE_Z.rotation(MathUtils.toRad(initial.rotate.z)));
+        if (initial.rotate.y != 0F) stack.multiply(RotationAxis.POSITIVE_Y.rotation(MathUtils.toRad(initial.rotate.y)));
+        if (initial.rotate.x != 0F) stack.multiply(RotationAxis.POSITIVE_X.rotation(MathUtils.toRad(initial.rotate.x)));
+
+        if (initial.rotate2.z != 0F) stack.multiply(RotationAxis.POSITIVE_Z.rotation(MathUtils.toRad(initial.rotate2.z)));
+        if (initial.rotate2.y != 0F) stack.multiply(RotationAxis.POSITIVE_Y.rotation(MathUtils.toRad(initial.rotate2.y)));
+        if (initial.rotate2.x != 0F) stack.multiply(RotationAxis.POSITIVE_X.rotation(MathUtils.toRad(initial.rotate2.x)));
+
+        MatrixStackUtils.scaleStack(stack, initial.scale.x, initial.scale.y, initial.scale.z);
+        ICubicRenderer.moveBackFromGroupPivot(stack, group);
+    }
+
+    @Override
+    public boolean renderGroup(BufferBuilder builder, MatrixStack stack, ModelGroup group, Model model)
+    {
+        for (ModelCube cube : group.cubes)
+        {
+            stack.push();
+            CubicCubeRenderer.moveToPivot(stack, cube.pivot);
+            CubicCubeRenderer.rotate(stack, cube.rotate);
+            CubicCubeRenderer.moveBackFromPivot(stack, cube.pivot);
+
+            for (ModelQuad quad : cube.quads)
+            {
+                for (ModelVertex vertex : quad.vertices)
+                {
+                    this.add(stack, vertex.vertex);
+                }
+            }
+
+            stack.pop();
+        }
+
+        for (ModelMesh mesh : group.meshes)
+        {
+            stack.push();
+            CubicCubeRenderer.moveToPivot(stack, mesh.origin);
+            CubicCubeRenderer.rotate(stack, mesh.rotate);
+            CubicCubeRenderer.moveBackFromPivot(stack, mesh.origin);
+
+            for (Vector3f vertex : mesh.baseData.vertices)
+            {
+                this.add(stack, this.mesh.set(vertex).div(16F));
+            }
+
+            stack.pop();
+        }
+
+        return false;
+    }
+
+    private void add(MatrixStack stack, Vector3f vertex)
+    {
+        stack.peek().getPositionMatrix().transformPosition(vertex, this.vertex);
+
+        this.min.min(this.vertex);
+        this.max.max(this.vertex);
+    }
+}
@@ -1,7 +1,6 @@
 package mchorse.bbs_mod.cubic.render;
 
 import mchorse.bbs_mod.client.BBSRendering;
-import mchorse.bbs_mod.cubic.render.vao.ModelVAO;
 import mchorse.bbs_mod.cubic.render.vao.ModelVAOData;
 import mchorse.bbs_mod.cubic.data.model.Model;
 import mchorse.bbs_mod.cubic.data.model.ModelCube;
@@ -35,14 +34,14 @@ public class CubicVAOBuilderRenderer implements ICubicRenderer
     private final static Vector2f u2 = new Vector2f();
     private final static Vector2f u3 = new Vector2f();
 
-    private Map<ModelGroup, ModelVAO> model;
+    private Map<ModelGroup, ModelVAOData> model;
 
     /* Temporary variables to avoid allocating and GC vectors */
     private ModelVertex modelVertex = new ModelVertex();
     private Vector3f normal = new Vector3f();
     private Vector4f vertex = new Vector4f();
 
-    public CubicVAOBuilderRenderer(Map<ModelGroup, ModelVAO> model)
+    public CubicVAOBuilderRenderer(Map<ModelGroup, ModelVAOData> model)
     {
         this.model = model;
     }
@@ -75,7 +74,7 @@ public class CubicVAOBuilderRenderer implements ICubicRenderer
             float[] u = CollectionUtils.toArray(uvs);
             float[] t = BBSRendering.calculateTangents(v, n, u);
 
-            this.model.put(group, new ModelVAO(new ModelVAOData(v, n, t, u)));
+            this.model.put(group, new ModelVAOData(v, n, t, u));
         }
 
         return false;
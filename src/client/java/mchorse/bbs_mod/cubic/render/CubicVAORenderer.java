@@ -3,7 +3,8 @@ package mchorse.bbs_mod.cubic.render;
 import mchorse.bbs_mod.cubic.ModelInstance;
 import mchorse.bbs_mod.cubic.data.model.Model;
 import mchorse.bbs_mod.cubic.data.model.ModelGroup;
-import mchorse.bbs_mod.cubic.render.vao.ModelVAO;
+import mchorse.bbs_mod.cubic.render.vao.IModelVAO;
+import mchorse.bbs_mod.cubic.render.vao.MergedModelVAO;
 import mchorse.bbs_mod.cubic.render.vao.ModelVAORenderer;
 import mchorse.bbs_mod.obj.shapes.ShapeKeys;
 import mchorse.bbs_mod.ui.framework.elements.utils.StencilMap;
@@ -19,6 +20,7 @@ public class CubicVAORenderer extends CubicCubeRenderer
 {
     private ShaderProgram program;
     private ModelInstance model;
+    private MergedModelVAO palette;
 
     public CubicVAORenderer(ShaderProgram program, ModelInstance model, int light, int overlay, StencilMap stencilMap, ShapeKeys shapeKeys)
     {
@@ -28,10 +30,19 @@ public class CubicVAORenderer extends CubicCubeRenderer
         this.model = model;
     }
 
+    /**
+     * Instead of rendering groups one by one, collect their transforms
+     * into given merged VAO's palette.
+     */
+    public void setPalette(MergedModelVAO palette)
+    {
+        this.palette = palette;
+    }
+
     @Override
     public boolean renderGroup(BufferBuilder builder, MatrixStack stack, ModelGroup group, Model model)
     {
-        ModelVAO modelVAO = this.model.getVaos().get(group);
+        IModelVAO modelVAO = this.model.getVaos().get(group);
 
         if (modelVAO != null && group.visible)
         {
@@ -53,7 +64,14 @@ public class CubicVAORenderer extends CubicCubeRenderer
                 light = u | v << 16;
             }
 
-            ModelVAORenderer.render(this.program, modelVAO, stack, r, g, b, a, light, this.overlay);
+            if (this.palette != null)
+            {
+                this.palette.setGroup(group.index, stack.peek(), r, g, b, a, light);
+            }
+            else
+            {
+                ModelVAORenderer.render(this.program, modelVAO, stack, r, g, b, a, light, this.overlay);
+            }
         }
 
         return false;
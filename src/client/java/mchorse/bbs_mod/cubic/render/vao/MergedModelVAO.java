@@ -0,0 +1,349 @@
+package mchorse.bbs_mod.cubic.render.vao;
+
+import com.mojang.blaze3d.platform.GlStateManager;
+import com.mojang.blaze3d.systems.RenderSystem;
+import mchorse.bbs_mod.cubic.data.model.ModelGroup;
+import net.minecraft.client.gl.GlUniform;
+import net.minecraft.client.gl.ShaderProgram;
+import net.minecraft.client.render.VertexFormat;
+import net.minecraft.client.render.VertexFormats;
+import net.minecraft.client.util.math.MatrixStack;
+import org.joml.Matrix3f;
+import org.joml.Matrix4f;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL13;
+import org.lwjgl.opengl.GL15;
+import org.lwjgl.opengl.GL30;
+import org.lwjgl.opengl.GL31;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Merged model VAO
+ *
+ * All groups of a cubic model stored in one set of static buffers. With
+ * BBS' model shaders (model and picker_models), the whole model gets rendered
+ * with one draw call: every frame a palette of group matrices, colors and
+ * lighting gets uploaded into a buffer texture, and the vertex shader skins
+ * every vertex by its group index (fetched by gl_VertexID from another buffer
+ * texture). Hidden groups get a zero matrix, so they collapse into
+ * degenerate triangles.
+ *
+ * Shaders without the palette (i.e. Iris') render group ranges of the same
+ * buffers one by one, see {@link #getGroups()}.
+ */
+public class MergedModelVAO implements IModelVAO
+{
+    /* Texture units of palette buffer textures, must match "Palette" and
+     * "Groups" uniforms in model.json and picker_models.json */
+    public static final int PALETTE_UNIT = 12;
+    public static final int GROUPS_UNIT = 13;
+
+    /* Group's matrix (4), normal matrix (3), color (1) and light (1) */
+    private static final int TEXELS = 9;
+
+    private int vao;
+    private int vao2;
+    private int count;
+
+    private int vertexBuffer;
+    private int normalBuffer;
+    private int tangentBuffer;
+    private int texCoordBuffer;
+    private int groupBuffer;
+    private int paletteBuffer;
+    private int groupTexture;
+    private int paletteTexture;
+
+    private float[] palette;
+    private Map<ModelGroup, IModelVAO> groups = new HashMap<>();
+
+    private Matrix3f normal = new Matrix3f();
+
+    public static boolean supportsPalette(ShaderProgram shader)
+    {
+        return shader != null && shader.getUniform("UsePalette") != null;
+    }
+
+    public MergedModelVAO(Map<ModelGroup, ModelVAOData> data, int groups)
+    {
+        /* Last slot is never set, so it stays hidden for groups without index */
+        this.palette = new float[(groups + 1) * TEXELS * 4];
+
+        int currentVAO = GL30.glGetInteger(GL30.GL_VERTEX_ARRAY_BINDING);
+
+        this.upload(data, groups);
+
+        GL30.glBindVertexArray(currentVAO);
+    }
+
+    /**
+     * Group ranges of the merged buffers that can be rendered separately.
+     */
+    public Map<ModelGroup, IModelVAO> getGroups()
+    {
+        return this.groups;
+    }
+
+    private void upload(Map<ModelGroup, ModelVAOData> data, int groups)
+    {
+        int count = 0;
+
+        for (ModelVAOData value : data.values())
+        {
+            count += value.vertices().length / 3;
+        }
+
+        float[] vertices = new float[count * 3];
+        float[] normals = new float[count * 3];
+        float[] tangents = new float[count * 4];
+        float[] texCoords = new float[count * 2];
+        int[] indices = new int[count];
+        int offset = 0;
+
+        for (Map.Entry<ModelGroup, ModelVAOData> entry : data.entrySet())
+        {
+            ModelVAOData value = entry.getValue();
+            int index = entry.getKey().index;
+            int size = value.vertices().length / 3;
+
+            System.arraycopy(value.vertices(), 0, vertices, offset * 3, size * 3);
+            System.arraycopy(value.normals(), 0, normals, offset * 3, size * 3);
+            System.arraycopy(value.tangents(), 0, tangents, offset * 4, size * 4);
+            System.arraycopy(value.texCoords(), 0, texCoords, offset * 2, size * 2);
+            Arrays.fill(indices, offset, offset + size, index < 0 || index >= groups ? groups : index);
+
+            this.groups.put(entry.getKey(), new Range(offset, size));
+
+            offset += size;
+        }
+
+        this.count = count;
+        this.vao = GL30.glGenVertexArrays();
+        this.vao2 = GL30.glGenVertexArrays();
+
+        this.vertexBuffer = GL30.glGenBuffers();
+        this.normalBuffer = GL30.glGenBuffers();
+        this.tangentBuffer = GL30.glGenBuffers();
+        this.texCoordBuffer = GL30.glGenBuffers();
+
+        GL30.glBindVertexArray(this.vao);
+
+        GL30.glBindBuffer(GL30.GL_ARRAY_BUFFER, this.vertexBuffer);
+        GL30.glBufferData(GL30.GL_ARRAY_BUFFER, vertices, GL30.GL_STATIC_DRAW);
+        GL30.glVertexAttribPointer(Attributes.POSITION, 3, GL30.GL_FLOAT, false, 0, 0);
+
+        GL30.glBindBuffer(GL30.GL_ARRAY_BUFFER, this.normalBuffer);
+        GL30.glBufferData(GL30.GL_ARRAY_BUFFER, normals, GL30.GL_STATIC_DRAW);
+        GL30.glVertexAttribPointer(Attributes.NORMAL, 3, GL30.GL_FLOAT, false, 0, 0);
+
+        GL30.glBindBuffer(GL30.GL_ARRAY_BUFFER, this.texCoordBuffer);
+        GL30.glBufferData(GL30.GL_ARRAY_BUFFER, texCoords, GL30.GL_STATIC_DRAW);
+        GL30.glVertexAttribPointer(Attributes.TEXTURE_UV, 2, GL30.GL_FLOAT, false, 0, 0);
+        GL30.glVertexAttribPointer(Attributes.MID_TEXTURE_UV, 2, GL30.GL_FLOAT, false, 0, 0);
+
+        GL30.glBindBuffer(GL30.GL_ARRAY_BUFFER, this.tangentBuffer);
+        GL30.glBufferData(GL30.GL_ARRAY_BUFFER, tangents, GL30.GL_STATIC_DRAW);
+        GL30.glVertexAttribPointer(Attributes.TANGENTS, 4, GL30.GL_FLOAT, false, 0, 0);
+
+        GL30.glEnableVertexAttribArray(Attributes.POSITION);
+        GL30.glEnableVertexAttribArray(Attributes.TEXTURE_UV);
+        GL30.glEnableVertexAttribArray(Attributes.NORMAL);
+
+        GL30.glDisableVertexAttribArray(Attributes.COLOR);
+        GL30.glDisableVertexAttribArray(Attributes.OVERLAY_UV);
+        GL30.glDisableVertexAttribArray(Attributes.LIGHTMAP_UV);
+        GL30.glDisableVertexAttribArray(Attributes.TANGENTS);
+        GL30.glDisableVertexAttribArray(Attributes.MID_TEXTURE_UV);
+
+        /* VertexFormats.POSITION_TEXTURE_LIGHT_COLOR */
+        GL30.glBindVertexArray(this.vao2);
+
+        GL30.glBindBuffer(GL30.GL_ARRAY_BUFFER, this.vertexBuffer);
+        GL30.glVertexAttribPointer(0, 3, GL30.GL_FLOAT, false, 0, 0);
+
+        GL30.glBindBuffer(GL30.GL_ARRAY_BUFFER, this.texCoordBuffer);
+        GL30.glVertexAttribPointer(1, 2, GL30.GL_FLOAT, false, 0, 0);
+
+        GL30.glEnableVertexAttribArray(0);
+        GL30.glEnableVertexAttribArray(1);
+        GL30.glDisableVertexAttribArray(2);
+        GL30.glDisableVertexAttribArray(3);
+
+        /* Palette buffer textures */
+        this.groupBuffer = GL30.glGenBuffers();
+        this.paletteBuffer = GL30.glGenBuffers();
+        this.groupTexture = GL11.glGenTextures();
+        this.paletteTexture = GL11.glGenTextures();
+
+        GL15.glBindBuffer(GL31.GL_TEXTURE_BUFFER, this.groupBuffer);
+        GL15.glBufferData(GL31.GL_TEXTURE_BUFFER, indices, GL15.GL_STATIC_DRAW);
+        GL15.glBindBuffer(GL31.GL_TEXTURE_BUFFER, this.paletteBuffer);
+        GL15.glBufferData(GL31.GL_TEXTURE_BUFFER, this.palette, GL15.GL_DYNAMIC_DRAW);
+        GL15.glBindBuffer(GL31.GL_TEXTURE_BUFFER, 0);
+
+        GL11.glBindTexture(GL31.GL_TEXTURE_BUFFER, this.groupTexture);
+        GL31.glTexBuffer(GL31.GL_TEXTURE_BUFFER, GL30.GL_R32I, this.groupBuffer);
+        GL11.glBindTexture(GL31.GL_TEXTURE_BUFFER, this.paletteTexture);
+        GL31.glTexBuffer(GL31.GL_TEXTURE_BUFFER, GL30.GL_RGBA32F, this.paletteBuffer);
+        GL11.glBindTexture(GL31.GL_TEXTURE_BUFFER, 0);
+    }
+
+    public void delete()
+    {
+        GL30.glDeleteVertexArrays(this.vao);
+        GL30.glDeleteVertexArrays(this.vao2);
+
+        GL15.glDeleteBuffers(this.vertexBuffer);
+        GL15.glDeleteBuffers(this.normalBuffer);
+        GL15.glDeleteBuffers(this.tangentBuffer);
+        GL15.glDeleteBuffers(this.texCoordBuffer);
+        GL15.glDeleteBuffers(this.groupBuffer);
+        GL15.glDeleteBuffers(this.paletteBuffer);
+        GL11.glDeleteTextures(this.groupTexture);
+        GL11.glDeleteTextures(this.paletteTexture);
+
+        this.groups.clear();
+    }
+
+    /* Palette */
+
+    /**
+     * Hide all groups, groups that will be rendered this frame should be
+     * set with {@link #setGroup(int, MatrixStack.Entry, float, float, float, float, int)}.
+     */
+    public void resetPalette()
+    {
+        Arrays.fill(this.palette, 0F);
+    }
+
+    /**
+     * Set group's transformation (relative to the model), color and packed
+     * light (or stencil index).
+     */
+    public void setGroup(int index, MatrixStack.Entry entry, float r, float g, float b, float a, int light)
+    {
+        int offset = index * TEXELS * 4;
+
+        if (index < 0 || offset >= this.palette.length - TEXELS * 4)
+        {
+            return;
+        }
+
+        Matrix4f matrix = entry.getPositionMatrix();
+
+        matrix.get(this.palette, offset);
+        this.normal.set(entry.getNormalMatrix());
+
+        /* mat3 columns padded to vec4 texels */
+        this.palette[offset + 16] = this.normal.m00;
+        this.palette[offset + 17] = this.normal.m01;
+        this.palette[offset + 18] = this.normal.m02;
+        this.palette[offset + 20] = this.normal.m10;
+        this.palette[offset + 21] = this.normal.m11;
+        this.palette[offset + 22] = this.normal.m12;
+        this.palette[offset + 24] = this.normal.m20;
+        this.palette[offset + 25] = this.normal.m21;
+        this.palette[offset + 26] = this.normal.m22;
+
+        this.palette[offset + 28] = r;
+        this.palette[offset + 29] = g;
+        this.palette[offset + 30] = b;
+        this.palette[offset + 31] = a;
+        this.palette[offset + 32] = light & '\uffff';
+        this.palette[offset + 33] = light >> 16 & '\uffff';
+    }
+
+    /**
+     * Upload the palette (it's just a few floats per group).
+     */
+    public void update()
+    {
+        GL15.glBindBuffer(GL31.GL_TEXTURE_BUFFER, this.paletteBuffer);
+        GL15.glBufferSubData(GL31.GL_TEXTURE_BUFFER, 0, this.palette);
+        GL15.glBindBuffer(GL31.GL_TEXTURE_BUFFER, 0);
+    }
+
+    /**
+     * Render the whole model at once, skinned with the palette. Given shader
+     * must {@link #supportsPalette(ShaderProgram) support the palette}.
+     */
+    public void render(ShaderProgram shader, MatrixStack stack, int overlay)
+    {
+        GlUniform usePalette = shader.getUniform("UsePalette");
+
+        usePalette.set(1);
+        this.bindPalette();
+
+        ModelVAORenderer.render(shader, this, stack, 1F, 1F, 1F, 1F, 0, overlay);
+
+        /* Group ranges may be rendered with the same shader later */
+        usePalette.set(0);
+    }
+
+    private void bindPalette()
+    {
+        int active = GlStateManager._getActiveTexture();
+
+        RenderSystem.activeTexture(GL13.GL_TEXTURE0 + GROUPS_UNIT);
+        GL11.glBindTexture(GL31.GL_TEXTURE_BUFFER, this.groupTexture);
+        RenderSystem.activeTexture(GL13.GL_TEXTURE0 + PALETTE_UNIT);
+        GL11.glBindTexture(GL31.GL_TEXTURE_BUFFER, this.paletteTexture);
+        RenderSystem.activeTexture(active);
+    }
+
+    @Override
+    public void render(VertexFormat format, float r, float g, float b, float a, int light, int overlay)
+    {
+        this.render(format, 0, this.count, r, g, b, a, light, overlay);
+    }
+
+    private void render(VertexFormat format, int first, int count, float r, float g, float b, float a, int light, int overlay)
+    {
+        boolean hasShaders = ModelVAO.isShadersEnabled();
+        int vao = hasShaders || format == VertexFormats.POSITION_COLOR_TEXTURE_OVERLAY_LIGHT_NORMAL ? this.vao : this.vao2;
+
+        GL30.glBindVertexArray(vao);
+
+        if (vao == this.vao)
+        {
+            GL30.glVertexAttrib4f(Attributes.COLOR, r, g, b, a);
+            GL30.glVertexAttribI2i(Attributes.OVERLAY_UV, overlay & '\uffff', overlay >> 16 & '\uffff');
+            GL30.glVertexAttribI2i(Attributes.LIGHTMAP_UV, light & '\uffff', light >> 16 & '\uffff');
+        }
+        else
+        {
+            GL30.glVertexAttribI2i(2, light & '\uffff', light >> 16 & '\uffff');
+            GL30.glVertexAttrib4f(3, r, g, b, a);
+        }
+
+        if (hasShaders) GL30.glEnableVertexAttribArray(Attributes.MID_TEXTURE_UV);
+        else GL30.glDisableVertexAttribArray(Attributes.MID_TEXTURE_UV);
+
+        if (hasShaders) GL30.glEnableVertexAttribArray(Attributes.TANGENTS);
+        else GL30.glDisableVertexAttribArray(Attributes.TANGENTS);
+
+        GL30.glDrawArrays(GL30.GL_TRIANGLES, first, count);
+        GL30.glBindVertexArray(0);
+    }
+
+    private class Range implements IModelVAO
+    {
+        private final int first;
+        private final int count;
+
+        public Range(int first, int count)
+        {
+            this.first = first;
+            this.count = count;
+        }
+
+        @Override
+        public void render(VertexFormat format, float r, float g, float b, float a, int light, int overlay)
+        {
+            MergedModelVAO.this.render(format, this.first, this.count, r, g, b, a, light, overlay);
+        }
+    }
+}
@@ -199,11 +199,6 @@ public class Films
 
         if (recorder != null)
         {
-            for (KeyframeChannel<?> channel : recorder.keyframes.getChannels())
-            {
-                channel.simplify();
-            }
-
             if (ClientNetwork.isIsBBSModOnServer())
             {
                 ClientNetwork.sendActionRecording(recorder.film.getId(), recorder.exception, recorder.initialTick, 0, false);
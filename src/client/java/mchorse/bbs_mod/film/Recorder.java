@@ -7,6 +7,7 @@ import mchorse.bbs_mod.camera.utils.TimeUtils;
 import mchorse.bbs_mod.client.BBSRendering;
 import mchorse.bbs_mod.film.replays.FormProperties;
 import mchorse.bbs_mod.film.replays.Inventory;
+import mchorse.bbs_mod.film.replays.RecordingBuffer;
 import mchorse.bbs_mod.film.replays.ReplayKeyframes;
 import mchorse.bbs_mod.forms.FormUtils;
 import mchorse.bbs_mod.forms.forms.Form;
@@ -17,6 +18,7 @@ import mchorse.bbs_mod.utils.MathUtils;
 import mchorse.bbs_mod.utils.PlayerUtils;
 import mchorse.bbs_mod.utils.joml.Matrices;
 import mchorse.bbs_mod.utils.joml.Vectors;
+import mchorse.bbs_mod.utils.keyframes.KeyframeReducer;
 import net.fabricmc.fabric.api.client.rendering.v1.WorldRenderContext;
 import net.minecraft.client.MinecraftClient;
 import net.minecraft.client.network.ClientPlayerEntity;
@@ -34,7 +36,7 @@ import org.joml.Vector4f;
 
 public class Recorder extends WorldFilmController
 {
-    public ReplayKeyframes keyframes = new ReplayKeyframes("keyframes");
+    public final RecordingBuffer buffer = new RecordingBuffer();
     public FormProperties properties = new FormProperties("properties");
     public Inventory inventory = new Inventory("inventory");
     public float hp;
@@ -51,6 +53,9 @@ public class Recorder extends WorldFilmController
     public int countdown;
     public final int initialTick;
 
+    private ReplayKeyframes keyframes;
+    private KeyframeReducer.Report report;
+
     public static void renderCameraPreview(Position position, Camera camera, MatrixStack stack)
     {
         if (!BBSSettings.recordingOverlays.get())
@@ -119,6 +124,32 @@ public class Recorder extends WorldFilmController
         this.initialTick = tick;
     }
 
+    /**
+     * Get recorded keyframes, which are created (and reduced) out of the
+     * recording buffer only once they're requested.
+     */
+    public ReplayKeyframes getKeyframes()
+    {
+        if (this.keyframes == null)
+        {
+            this.keyframes = new ReplayKeyframes("keyframes");
+
+            this.report = this.buffer.apply(this.keyframes);
+        }
+
+        return this.keyframes;
+    }
+
+    /**
+     * Get the report of how recorded samples were reduced into keyframes.
+     */
+    public KeyframeReducer.Report getReport()
+    {
+        this.getKeyframes();
+
+        return this.report;
+    }
+
     public boolean hasNotStarted()
     {
         return this.countdown > 0;
@@ -151,7 +182,8 @@ public class Recorder extends WorldFilmController
         {
             Morph morph = Morph.getMorph(player);
 
-            this.keyframes.record(this.tick, morph.entity, null);
+            this.buffer.record(this.tick, morph.entity, null);
+            this.keyframes = null;
         }
 
         super.update();
@@ -0,0 +1,238 @@
+package mchorse.bbs_mod.font;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Glyph atlas
+ *
+ * Shelf allocator of rectangular slots within a fixed size texture. Slots
+ * are placed left to right on horizontal shelves, and a new shelf is opened
+ * below the last one when no existing shelf fits. When the atlas is full,
+ * the least recently used shelf (that is tall enough) gets evicted along
+ * with all of its slots, and {@link #getGeneration()} gets incremented, so
+ * anything that refers to slots (like laid out text) knows it's outdated.
+ *
+ * It doesn't touch any GL state, so it can be used (and tested) headlessly.
+ */
+public class GlyphAtlas
+{
+    public final int width;
+    public final int height;
+
+    private final List<Shelf> shelves = new ArrayList<>();
+    private final Map<Integer, Slot> slots = new HashMap<>();
+    private int generation;
+    private long clock;
+
+    public GlyphAtlas(int width, int height)
+    {
+        this.width = width;
+        this.height = height;
+    }
+
+    public int getGeneration()
+    {
+        return this.generation;
+    }
+
+    public int getSlotCount()
+    {
+        return this.slots.size();
+    }
+
+    public int getShelfCount()
+    {
+        return this.shelves.size();
+    }
+
+    /**
+     * Get slot by given key, and mark it as recently used.
+     */
+    public Slot get(int key)
+    {
+        Slot slot = this.slots.get(key);
+
+        if (slot != null)
+        {
+            this.touch(slot);
+        }
+
+        return slot;
+    }
+
+    public void touch(Slot slot)
+    {
+        slot.shelf.used = ++this.clock;
+    }
+
+    /**
+     * Allocate a slot of given size for given key.
+     *
+     * @return allocated slot, or null if given size doesn't fit into the atlas at all.
+     */
+    public Slot allocate(int key, int w, int h)
+    {
+        if (w <= 0 || h <= 0 || w > this.width || h > this.height)
+        {
+            return null;
+        }
+
+        Slot old = this.slots.remove(key);
+
+        if (old != null)
+        {
+            old.shelf.slots.remove(old);
+        }
+
+        Shelf shelf = this.findShelf(w, h);
+
+        if (shelf == null)
+        {
+            shelf = this.openShelf(h);
+        }
+
+        if (shelf == null)
+        {
+            shelf = this.evictShelf(w, h);
+        }
+
+        if (shelf == null)
+        {
+            this.clear();
+
+            shelf = this.openShelf(h);
+        }
+
+        Slot slot = new Slot(key, shelf.x, shelf.y, w, h, shelf);
+
+        shelf.x += w;
+        shelf.slots.add(slot);
+        this.slots.put(key, slot);
+        this.touch(slot);
+
+        return slot;
+    }
+
+    /**
+     * Find a shelf with enough space that wastes the least height.
+     */
+    private Shelf findShelf(int w, int h)
+    {
+        Shelf best = null;
+
+        for (Shelf shelf : this.shelves)
+        {
+            if (shelf.height >= h && shelf.height <= h * 3 / 2 + 1 && this.width - shelf.x >= w)
+            {
+                if (best == null || shelf.height < best.height)
+                {
+                    best = shelf;
+                }
+            }
+        }
+
+        return best;
+    }
+
+    private Shelf openShelf(int h)
+    {
+        int y = 0;
+
+        if (!this.shelves.isEmpty())
+        {
+            Shelf last = this.shelves.get(this.shelves.size() - 1);
+
+            y = last.y + last.height;
+        }
+
+        if (y + h > this.height)
+        {
+            return null;
+        }
+
+        Shelf shelf = new Shelf(y, h);
+
+        this.shelves.add(shelf);
+
+        return shelf;
+    }
+
+    /**
+     * Evict the least recently used shelf which is tall enough, and reuse
+     * it for given size.
+     */
+    private Shelf evictShelf(int w, int h)
+    {
+        Shelf oldest = null;
+
+        for (Shelf shelf : this.shelves)
+        {
+            if (shelf.height >= h && (oldest == null || shelf.used < oldest.used))
+            {
+                oldest = shelf;
+            }
+        }
+
+        if (oldest == null)
+        {
+            return null;
+        }
+
+        for (Slot slot : oldest.slots)
+        {
+            this.slots.remove(slot.key);
+        }
+
+        oldest.slots.clear();
+        oldest.x = 0;
+        this.generation += 1;
+
+        return oldest;
+    }
+
+    public void clear()
+    {
+        this.shelves.clear();
+        this.slots.clear();
+        this.generation += 1;
+    }
+
+    public static class Slot
+    {
+        public final int key;
+        public final int x;
+        public final int y;
+        public final int w;
+        public final int h;
+
+        private final Shelf shelf;
+
+        private Slot(int key, int x, int y, int w, int h, Shelf shelf)
+        {
+            this.key = key;
+            this.x = x;
+            this.y = y;
+            this.w = w;
+            this.h = h;
+            this.shelf = shelf;
+        }
+    }
+
+    private static class Shelf
+    {
+        public final int y;
+        public final int height;
+        public int x;
+        public long used;
+        public final List<Slot> slots = new ArrayList<>();
+
+        public Shelf(int y, int height)
+        {
+            this.y = y;
+            this.height = height;
+        }
+    }
+}
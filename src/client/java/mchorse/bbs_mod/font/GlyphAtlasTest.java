@@ -0,0 +1,153 @@
+package mchorse.bbs_mod.font;
+
+import com.ibm.icu.impl.Assert;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class GlyphAtlasTest
+{
+    public static void main(String[] args)
+    {
+        testPacking();
+        testEviction();
+        testLayout();
+        testLayoutCache();
+    }
+
+    private static void testPacking()
+    {
+        GlyphAtlas atlas = new GlyphAtlas(32, 32);
+        GlyphAtlas.Slot a = atlas.allocate(1, 10, 8);
+        GlyphAtlas.Slot b = atlas.allocate(2, 10, 8);
+        GlyphAtlas.Slot c = atlas.allocate(3, 10, 8);
+        GlyphAtlas.Slot d = atlas.allocate(4, 10, 8);
+        GlyphAtlas.Slot tall = atlas.allocate(5, 4, 16);
+
+        /* Same height glyphs share a shelf until it's full */
+        Assert.assrt(a.x == 0 && a.y == 0);
+        Assert.assrt(b.x == 10 && b.y == 0);
+        Assert.assrt(c.x == 20 && c.y == 0);
+        Assert.assrt(d.x == 0 && d.y == 8);
+
+        /* Much taller glyph gets its own shelf */
+        Assert.assrt(tall.x == 0 && tall.y == 16);
+        Assert.assrt(atlas.getShelfCount() == 3);
+        Assert.assrt(atlas.get(3) == c);
+        Assert.assrt(atlas.allocate(6, 33, 1) == null);
+        Assert.assrt(atlas.getGeneration() == 0);
+
+        for (GlyphAtlas.Slot slot : new GlyphAtlas.Slot[] {a, b, c, d, tall})
+        {
+            Assert.assrt(slot.x + slot.w <= atlas.width && slot.y + slot.h <= atlas.height);
+        }
+    }
+
+    private static void testEviction()
+    {
+        GlyphAtlas atlas = new GlyphAtlas(16, 16);
+
+        atlas.allocate(1, 16, 8);
+        atlas.allocate(2, 16, 8);
+
+        /* Use first shelf, so second one is the least recently used */
+        atlas.get(1);
+
+        GlyphAtlas.Slot slot = atlas.allocate(3, 8, 8);
+
+        Assert.assrt(slot.y == 8);
+        Assert.assrt(atlas.get(2) == null);
+        Assert.assrt(atlas.get(1) != null);
+        Assert.assrt(atlas.getGeneration() == 1);
+
+        /* Nothing is tall enough, so everything gets evicted */
+        GlyphAtlas.Slot big = atlas.allocate(4, 16, 16);
+
+        Assert.assrt(big.x == 0 && big.y == 0);
+        Assert.assrt(atlas.getSlotCount() == 1);
+        Assert.assrt(atlas.getGeneration() == 2);
+    }
+
+    private static void testLayout()
+    {
+        FakeGlyphs glyphs = new FakeGlyphs();
+        TextLayout layout = new TextLayout(new GlyphAtlas(64, 64), glyphs, 16);
+        TextLayout.TextRun run = layout.get("AV A");
+
+        /* Space doesn't produce a quad, but it does advance */
+        Assert.assrt(run.count == 3);
+        Assert.assrt(glyphs.uploaded.size() == 2);
+
+        /* A (advance 6) + kerning -1 + V (advance 6) + space (advance 3) + A (advance 6) */
+        Assert.assrt(run.width == 20);
+        Assert.assrt(layout.getWidth("AV A") == 20);
+
+        /* V is placed after kerning, with its bearing */
+        Assert.assrt(run.quads[TextLayout.STRIDE] == 5 + 1);
+        Assert.assrt(run.quads[TextLayout.STRIDE + 1] == -7);
+        Assert.assrt(run.quads[TextLayout.STRIDE + 2] == 5 + 1 + 4);
+
+        /* Second A shares the atlas slot of the first A */
+        Assert.assrt(run.quads[4] == run.quads[2 * TextLayout.STRIDE + 4]);
+        Assert.assrt(run.quads[4] == TextLayout.PADDING / 64F);
+
+        /* Unknown code points are skipped */
+        Assert.assrt(layout.get("A?").count == 1);
+    }
+
+    private static void testLayoutCache()
+    {
+        FakeGlyphs glyphs = new FakeGlyphs();
+        GlyphAtlas atlas = new GlyphAtlas(64, 64);
+        TextLayout layout = new TextLayout(atlas, glyphs, 2);
+        TextLayout.TextRun run = layout.get("AVA");
+
+        Assert.assrt(layout.get("AVA") == run);
+        Assert.assrt(layout.getLayouts() == 1);
+
+        /* Evicting glyphs invalidates runs */
+        atlas.clear();
+
+        TextLayout.TextRun next = layout.get("AVA");
+
+        Assert.assrt(next != run);
+        Assert.assrt(layout.getLayouts() == 2);
+        Assert.assrt(glyphs.uploaded.size() == 4);
+
+        /* Least recently used runs are dropped beyond capacity */
+        layout.get("A");
+        layout.get("V");
+
+        Assert.assrt(layout.getCachedRuns() == 2);
+        Assert.assrt(layout.get("AVA") != next);
+    }
+
+    private static class FakeGlyphs implements TextLayout.IGlyphSource
+    {
+        public final List<Integer> uploaded = new ArrayList<>();
+
+        @Override
+        public TextLayout.Glyph getGlyph(int codePoint)
+        {
+            if (codePoint == 'A') return new TextLayout.Glyph(codePoint, 1, 6, 0, -7, 5, 7);
+            if (codePoint == 'V') return new TextLayout.Glyph(codePoint, 2, 6, 1, -7, 4, 7);
+            if (codePoint == ' ') return new TextLayout.Glyph(codePoint, 3, 3, 0, 0, 0, 0);
+
+            return null;
+        }
+
+        @Override
+        public int getKerning(int a, int b)
+        {
+            return a == 'A' && b == 'V' ? -1 : 0;
+        }
+
+        @Override
+        public void upload(TextLayout.Glyph glyph, GlyphAtlas.Slot slot)
+        {
+            Assert.assrt(slot.w == glyph.width + TextLayout.PADDING * 2);
+
+            this.uploaded.add(glyph.codePoint);
+        }
+    }
+}
@@ -1,6 +1,5 @@
 package mchorse.bbs_mod.font;
 
-import net.minecraft.client.texture.NativeImage;
 import org.lwjgl.BufferUtils;
 import org.lwjgl.stb.STBTTFontinfo;
 import org.lwjgl.stb.STBTruetype;
@@ -103,41 +102,6 @@ public class TTFRenderer
         }
     }
 
-    /**
-     * Get the width of a text string when rendered with this font.
-     */
-    public int getTextWidth(String text)
-    {
-        if (!this.initialized || text == null || text.isEmpty())
-        {
-            return 0;
-        }
-
-        int width = 0;
-        for (int i = 0; i < text.length(); i++)
-        {
-            int codePoint = text.codePointAt(i);
-            int glyphIndex = STBTruetype.stbtt_FindGlyphIndex(this.fontInfo, codePoint);
-            
-            int[] advanceWidth = new int[1];
-            int[] leftSideBearing = new int[1];
-            STBTruetype.stbtt_GetGlyphHMetrics(this.fontInfo, glyphIndex, advanceWidth, leftSideBearing);
-            
-            width += Math.round(advanceWidth[0] * this.scale);
-
-            // Add kerning if there's a next character
-            if (i + 1 < text.length())
-            {
-                int nextCodePoint = text.codePointAt(i + 1);
-                int nextGlyphIndex = STBTruetype.stbtt_FindGlyphIndex(this.fontInfo, nextCodePoint);
-                int kern = STBTruetype.stbtt_GetGlyphKernAdvance(this.fontInfo, glyphIndex, nextGlyphIndex);
-                width += Math.round(kern * this.scale);
-            }
-        }
-
-        return width;
-    }
-
     /**
      * Get the line height of this font.
      */
@@ -147,10 +111,9 @@ public class TTFRenderer
     }
 
     /**
-     * Render a glyph to a NativeImage.
-     * This is what would be used to create glyph textures for Minecraft.
+     * Get metrics of a glyph, or null if the font doesn't have given code point.
      */
-    public GlyphData renderGlyph(int codePoint)
+    public TextLayout.Glyph getGlyph(int codePoint)
     {
         if (!this.initialized)
         {
@@ -158,54 +121,44 @@ public class TTFRenderer
         }
 
         int glyphIndex = STBTruetype.stbtt_FindGlyphIndex(this.fontInfo, codePoint);
+
         if (glyphIndex == 0)
         {
-            return null; // Glyph not found
+            return null;
         }
 
-        // Get glyph metrics
         int[] advanceWidth = new int[1];
         int[] leftSideBearing = new int[1];
-        STBTruetype.stbtt_GetGlyphHMetrics(this.fontInfo, glyphIndex, advanceWidth, leftSideBearing);
-
-        // Get glyph bounding box
         int[] x0 = new int[1], y0 = new int[1], x1 = new int[1], y1 = new int[1];
+
+        STBTruetype.stbtt_GetGlyphHMetrics(this.fontInfo, glyphIndex, advanceWidth, leftSideBearing);
         STBTruetype.stbtt_GetGlyphBitmapBox(this.fontInfo, glyphIndex, this.scale, this.scale, x0, y0, x1, y1);
 
-        int width = x1[0] - x0[0];
-        int height = y1[0] - y0[0];
+        return new TextLayout.Glyph(codePoint, glyphIndex, Math.round(advanceWidth[0] * this.scale), x0[0], y0[0], x1[0] - x0[0], y1[0] - y0[0]);
+    }
 
-        if (width <= 0 || height <= 0)
+    /**
+     * Get kerning (in pixels) between two code points.
+     */
+    public int getKerning(int a, int b)
+    {
+        if (!this.initialized)
         {
-            // Whitespace character or empty glyph
-            return new GlyphData(null, Math.round(advanceWidth[0] * this.scale), 0, 0, 0, 0);
+            return 0;
         }
 
-        // Render glyph to bitmap
-        ByteBuffer bitmap = BufferUtils.createByteBuffer(width * height);
-        STBTruetype.stbtt_MakeGlyphBitmap(this.fontInfo, bitmap, width, height, width, this.scale, this.scale, glyphIndex);
+        int kern = STBTruetype.stbtt_GetCodepointKernAdvance(this.fontInfo, a, b);
 
-        // Convert to NativeImage (RGBA format for Minecraft)
-        NativeImage image = new NativeImage(NativeImage.Format.RGBA, width, height, false);
-        for (int y = 0; y < height; y++)
-        {
-            for (int x = 0; x < width; x++)
-            {
-                int alpha = bitmap.get(y * width + x) & 0xFF;
-                // White glyph with alpha channel
-                int color = (alpha << 24) | 0x00FFFFFF;
-                image.setColor(x, y, color);
-            }
-        }
+        return Math.round(kern * this.scale);
+    }
 
-        return new GlyphData(
-            image,
-            Math.round(advanceWidth[0] * this.scale),
-            x0[0],
-            y0[0],
-            width,
-            height
-        );
+    /**
+     * Render glyph's bitmap into given single channel (alpha) buffer with
+     * given stride.
+     */
+    public void renderGlyph(TextLayout.Glyph glyph, ByteBuffer output, int stride)
+    {
+        STBTruetype.stbtt_MakeGlyphBitmap(this.fontInfo, output, glyph.width, glyph.height, stride, this.scale, this.scale, glyph.index);
     }
 
     /**
@@ -220,27 +173,4 @@ public class TTFRenderer
         }
         this.initialized = false;
     }
-
-    /**
-     * Data class to hold rendered glyph information.
-     */
-    public static class GlyphData
-    {
-        public final NativeImage image; // Can be null for whitespace
-        public final int advanceWidth;
-        public final int bearingX;
-        public final int bearingY;
-        public final int width;
-        public final int height;
-
-        public GlyphData(NativeImage image, int advanceWidth, int bearingX, int bearingY, int width, int height)
-        {
-            this.image = image;
-            this.advanceWidth = advanceWidth;
-            this.bearingX = bearingX;
-            this.bearingY = bearingY;
-            this.width = width;
-            this.height = height;
-        }
-    }
 }
@@ -1,28 +1,59 @@
 package mchorse.bbs_mod.font;
 
+import com.mojang.blaze3d.platform.GlStateManager;
 import com.mojang.blaze3d.systems.RenderSystem;
+import mchorse.bbs_mod.graphics.texture.Texture;
 import net.minecraft.client.font.TextRenderer;
 import net.minecraft.client.render.*;
-import net.minecraft.client.texture.NativeImage;
 import net.minecraft.client.util.math.MatrixStack;
 import org.joml.Matrix4f;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.system.MemoryUtil;
+
+import java.nio.ByteBuffer;
 
 /**
  * Custom text renderer that uses TTFRenderer for rendering text.
  * This wraps around a fallback TextRenderer but uses STBTruetype for actual rendering.
+ *
+ * Glyphs are packed into a single atlas texture ({@link GlyphAtlas}), and
+ * strings are laid out once and cached ({@link TextLayout}), so drawing a
+ * string (along with its shadow) is a single buffer draw.
  */
-public class TTFTextRenderer
+public class TTFTextRenderer implements TextLayout.IGlyphSource
 {
+    public static final int ATLAS_SIZE = 512;
+    public static final int CACHED_RUNS = 1024;
+
     private final TTFRenderer ttfRenderer;
     private final TextRenderer fallbackRenderer;
-    
-    // Glyph texture cache
-    private final java.util.Map<Integer, GlyphTexture> glyphCache = new java.util.HashMap<>();
+    private final TextLayout layout;
+
+    private Texture texture;
 
     public TTFTextRenderer(TTFRenderer ttfRenderer, TextRenderer fallbackRenderer)
     {
         this.ttfRenderer = ttfRenderer;
         this.fallbackRenderer = fallbackRenderer;
+        this.layout = new TextLayout(new GlyphAtlas(ATLAS_SIZE, ATLAS_SIZE), this, CACHED_RUNS);
+    }
+
+    public TextLayout getLayout()
+    {
+        return this.layout;
+    }
+
+    private Texture getTexture()
+    {
+        if (this.texture == null)
+        {
+            this.texture = new Texture();
+            this.texture.setFilter(GL11.GL_NEAREST);
+            this.texture.setSize(ATLAS_SIZE, ATLAS_SIZE);
+            this.texture.unbind();
+        }
+
+        return this.texture;
     }
 
     /**
@@ -30,155 +61,122 @@ public class TTFTextRenderer
      */
     public int drawWithShadow(MatrixStack matrices, String text, int x, int y, int color)
     {
-        // Draw shadow
-        this.draw(matrices, text, x + 1, y + 1, (color & 0xFCFCFC) >> 2 | color & 0xFF000000);
-        
-        // Draw main text
-        return this.draw(matrices, text, x, y, color);
+        return this.draw(matrices, text, x, y, color, true);
     }
 
     /**
      * Draw text at the specified position.
      */
     public int draw(MatrixStack matrices, String text, float x, float y, int color)
+    {
+        return this.draw(matrices, text, x, y, color, false);
+    }
+
+    private int draw(MatrixStack matrices, String text, float x, float y, int color, boolean shadow)
     {
         if (text == null || text.isEmpty())
         {
             return 0;
         }
 
-        float currentX = x;
-        
-        // Extract ARGB color components (normalized to 0-1)
-        float alpha = ((color >> 24) & 0xFF) / 255.0f;
-        float red = ((color >> 16) & 0xFF) / 255.0f;
-        float green = ((color >> 8) & 0xFF) / 255.0f;
-        float blue = (color & 0xFF) / 255.0f;
+        TextLayout.TextRun run = this.layout.get(text);
+
+        if (run.count == 0)
+        {
+            return run.width;
+        }
+
+        Matrix4f matrix = matrices.peek().getPositionMatrix();
+        BufferBuilder builder = Tessellator.getInstance().getBuffer();
 
-        // Set up rendering state
         RenderSystem.enableBlend();
         RenderSystem.defaultBlendFunc();
-        RenderSystem.setShaderColor(red, green, blue, alpha);
+        RenderSystem.setShaderTexture(0, this.getTexture().id);
+        RenderSystem.setShader(GameRenderer::getPositionTexColorProgram);
+
+        builder.begin(VertexFormat.DrawMode.QUADS, VertexFormats.POSITION_TEXTURE_COLOR);
 
-        for (int i = 0; i < text.length(); i++)
+        if (shadow)
         {
-            int codePoint = text.codePointAt(i);
-            
-            // Get or create glyph texture
-            GlyphTexture glyphTex = this.getOrCreateGlyphTexture(codePoint);
-            
-            if (glyphTex != null && glyphTex.textureId > 0)
-            {
-                // Draw the glyph
-                this.drawGlyph(matrices, glyphTex, currentX, y);
-                currentX += glyphTex.advanceWidth;
-            }
-            else
-            {
-                // Fallback for missing glyphs (e.g., spaces)
-                TTFRenderer.GlyphData glyphData = this.ttfRenderer.renderGlyph(codePoint);
-                if (glyphData != null)
-                {
-                    currentX += glyphData.advanceWidth;
-                }
-            }
+            this.fillRun(builder, matrix, run, x + 1, y + 1, (color & 0xFCFCFC) >> 2 | color & 0xFF000000);
         }
 
-        // Restore rendering state
-        RenderSystem.setShaderColor(1.0f, 1.0f, 1.0f, 1.0f);
+        this.fillRun(builder, matrix, run, x, y, color);
+
+        BufferRenderer.drawWithGlobalProgram(builder.end());
         RenderSystem.disableBlend();
 
-        return (int) (currentX - x);
+        return run.width;
     }
 
-    /**
-     * Get or create a texture for a glyph.
-     */
-    private GlyphTexture getOrCreateGlyphTexture(int codePoint)
+    private void fillRun(BufferBuilder builder, Matrix4f matrix, TextLayout.TextRun run, float x, float y, int color)
     {
-        // Check cache
-        if (this.glyphCache.containsKey(codePoint))
-        {
-            return this.glyphCache.get(codePoint);
-        }
+        float a = ((color >> 24) & 0xFF) / 255F;
+        float r = ((color >> 16) & 0xFF) / 255F;
+        float g = ((color >> 8) & 0xFF) / 255F;
+        float b = (color & 0xFF) / 255F;
+        float[] quads = run.quads;
 
-        // Render glyph
-        TTFRenderer.GlyphData glyphData = this.ttfRenderer.renderGlyph(codePoint);
-        
-        if (glyphData == null || glyphData.image == null)
+        for (int i = 0, c = run.count * TextLayout.STRIDE; i < c; i += TextLayout.STRIDE)
         {
-            // Cache null for whitespace characters
-            this.glyphCache.put(codePoint, null);
-            return null;
+            float x1 = x + quads[i];
+            float y1 = y + quads[i + 1];
+            float x2 = x + quads[i + 2];
+            float y2 = y + quads[i + 3];
+
+            builder.vertex(matrix, x1, y1, 0).texture(quads[i + 4], quads[i + 5]).color(r, g, b, a).next();
+            builder.vertex(matrix, x1, y2, 0).texture(quads[i + 4], quads[i + 7]).color(r, g, b, a).next();
+            builder.vertex(matrix, x2, y2, 0).texture(quads[i + 6], quads[i + 7]).color(r, g, b, a).next();
+            builder.vertex(matrix, x2, y1, 0).texture(quads[i + 6], quads[i + 5]).color(r, g, b, a).next();
         }
+    }
+
+    /* Glyph source implementation */
 
-        // Upload to GPU
-        int textureId = this.uploadGlyphTexture(glyphData.image);
-        
-        GlyphTexture glyphTex = new GlyphTexture(
-            textureId,
-            glyphData.advanceWidth,
-            glyphData.bearingX,
-            glyphData.bearingY,
-            glyphData.width,
-            glyphData.height
-        );
-        
-        this.glyphCache.put(codePoint, glyphTex);
-        
-        // Clean up the NativeImage (texture is now on GPU)
-        glyphData.image.close();
-        
-        return glyphTex;
+    @Override
+    public TextLayout.Glyph getGlyph(int codePoint)
+    {
+        return this.ttfRenderer.getGlyph(codePoint);
     }
 
-    /**
-     * Upload a glyph image to GPU and return texture ID.
-     */
-    private int uploadGlyphTexture(NativeImage image)
+    @Override
+    public int getKerning(int a, int b)
     {
-        int textureId = com.mojang.blaze3d.platform.GlStateManager._genTexture();
-        
-        RenderSystem.bindTexture(textureId);
-        
-        // Set texture parameters
-        RenderSystem.texParameter(3553, 10241, 9728); // GL_TEXTURE_2D, GL_TEXTURE_MIN_FILTER, GL_NEAREST
-        RenderSystem.texParameter(3553, 10240, 9728); // GL_TEXTURE_2D, GL_TEXTURE_MAG_FILTER, GL_NEAREST
-        
-        // Upload texture data
-        image.upload(0, 0, 0, false);
-        
-        return textureId;
+        return this.ttfRenderer.getKerning(a, b);
     }
 
-    /**
-     * Draw a single glyph quad using immediate mode rendering.
-     */
-    private void drawGlyph(MatrixStack matrices, GlyphTexture glyph, float x, float y)
+    @Override
+    public void upload(TextLayout.Glyph glyph, GlyphAtlas.Slot slot)
     {
-        Matrix4f matrix = matrices.peek().getPositionMatrix();
-        
-        float x1 = x + glyph.bearingX;
-        float y1 = y + glyph.bearingY;
-        float x2 = x1 + glyph.width;
-        float y2 = y1 + glyph.height;
-
-        // Bind glyph texture
-        RenderSystem.setShaderTexture(0, glyph.textureId);
-
-        // Use position_tex shader
-        RenderSystem.setShader(GameRenderer::getPositionTexProgram);
-
-        // Draw textured quad
-        BufferBuilder bufferBuilder = Tessellator.getInstance().getBuffer();
-        bufferBuilder.begin(VertexFormat.DrawMode.QUADS, VertexFormats.POSITION_TEXTURE);
-        
-        bufferBuilder.vertex(matrix, x1, y1, 0).texture(0, 0).next();
-        bufferBuilder.vertex(matrix, x1, y2, 0).texture(0, 1).next();
-        bufferBuilder.vertex(matrix, x2, y2, 0).texture(1, 1).next();
-        bufferBuilder.vertex(matrix, x2, y1, 0).texture(1, 0).next();
-        
-        BufferRenderer.drawWithGlobalProgram(bufferBuilder.end());
+        int padding = TextLayout.PADDING;
+        ByteBuffer alpha = MemoryUtil.memCalloc(slot.w * slot.h);
+        ByteBuffer rgba = MemoryUtil.memAlloc(slot.w * slot.h * 4);
+
+        alpha.position(padding * slot.w + padding);
+        this.ttfRenderer.renderGlyph(glyph, alpha, slot.w);
+        alpha.position(0);
+
+        /* White glyph with alpha channel, padding is uploaded as well, so
+         * leftovers of evicted glyphs get cleared */
+        for (int i = 0, c = slot.w * slot.h; i < c; i++)
+        {
+            rgba.put((byte) 0xff).put((byte) 0xff).put((byte) 0xff).put(alpha.get(i));
+        }
+
+        rgba.flip();
+
+        Texture texture = this.getTexture();
+
+        texture.bind();
+        GlStateManager._pixelStore(GL11.GL_UNPACK_ROW_LENGTH, 0);
+        GlStateManager._pixelStore(GL11.GL_UNPACK_SKIP_PIXELS, 0);
+        GlStateManager._pixelStore(GL11.GL_UNPACK_SKIP_ROWS, 0);
+        GlStateManager._pixelStore(GL11.GL_UNPACK_ALIGNMENT, 4);
+        GL11.glTexSubImage2D(texture.target, 0, slot.x, slot.y, slot.w, slot.h, GL11.GL_RGBA, GL11.GL_UNSIGNED_BYTE, rgba);
+        texture.unbind();
+
+        MemoryUtil.memFree(alpha);
+        MemoryUtil.memFree(rgba);
     }
 
     /**
@@ -186,7 +184,7 @@ public class TTFTextRenderer
      */
     public int getWidth(String text)
     {
-        return this.ttfRenderer.getTextWidth(text);
+        return this.layout.getWidth(text);
     }
 
     /**
@@ -206,41 +204,16 @@ public class TTFTextRenderer
     }
 
     /**
-     * Clean up glyph textures.
+     * Clean up glyph atlas.
      */
     public void cleanup()
     {
-        for (GlyphTexture glyph : this.glyphCache.values())
+        if (this.texture != null)
         {
-            if (glyph != null && glyph.textureId > 0)
-            {
-                com.mojang.blaze3d.platform.GlStateManager._deleteTexture(glyph.textureId);
-            }
+            this.texture.delete();
+            this.texture = null;
         }
-        this.glyphCache.clear();
-    }
 
-    /**
-     * Cached glyph texture data.
-     */
-    private static class GlyphTexture
-    {
-        final int textureId;
-        final int advanceWidth;
-        final int bearingX;
-        final int bearingY;
-        final int width;
-        final int height;
-
-        GlyphTexture(int textureId, int advanceWidth, int bearingX, int bearingY, int width, int height)
-        {
-            this.textureId = textureId;
-            this.advanceWidth = advanceWidth;
-            this.bearingX = bearingX;
-            this.bearingY = bearingY;
-            this.width = width;
-            this.height = height;
-        }
+        this.layout.clear();
     }
 }
-
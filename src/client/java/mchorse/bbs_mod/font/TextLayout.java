@@ -0,0 +1,261 @@
+package mchorse.bbs_mod.font;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Text layout
+ *
+ * Lays out strings of one font (of one size) into runs of textured quads
+ * (positions and UVs within {@link GlyphAtlas}, with kerning applied), and
+ * caches the runs by string, so text that is drawn every frame gets laid
+ * out only once. Runs are laid out again when the atlas evicts glyphs.
+ *
+ * Glyph metrics, kerning and uploading of glyph bitmaps are provided by
+ * {@link IGlyphSource}, so layout can be tested headlessly.
+ */
+public class TextLayout
+{
+    /**
+     * Transparent border around every glyph in the atlas, so neighbouring
+     * glyphs don't bleed into each other.
+     */
+    public static final int PADDING = 1;
+
+    /**
+     * Amount of floats per glyph quad: x1, y1, x2, y2, u1, v1, u2, v2.
+     */
+    public static final int STRIDE = 8;
+
+    private final GlyphAtlas atlas;
+    private final IGlyphSource source;
+    private final Map<Integer, Glyph> glyphs = new HashMap<>();
+    private final Map<String, TextRun> runs;
+
+    private int layouts;
+
+    public TextLayout(GlyphAtlas atlas, IGlyphSource source, int capacity)
+    {
+        this.atlas = atlas;
+        this.source = source;
+        this.runs = new LinkedHashMap<>(16, 0.75F, true)
+        {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, TextRun> eldest)
+            {
+                return this.size() > capacity;
+            }
+        };
+    }
+
+    public GlyphAtlas getAtlas()
+    {
+        return this.atlas;
+    }
+
+    /**
+     * How many times strings were laid out (i.e. cache misses).
+     */
+    public int getLayouts()
+    {
+        return this.layouts;
+    }
+
+    public int getCachedRuns()
+    {
+        return this.runs.size();
+    }
+
+    public Glyph getGlyph(int codePoint)
+    {
+        return this.glyphs.computeIfAbsent(codePoint, this.source::getGlyph);
+    }
+
+    /**
+     * Get laid out run of given text.
+     */
+    public TextRun get(String text)
+    {
+        TextRun run = this.runs.get(text);
+
+        if (run != null && run.generation == this.atlas.getGeneration())
+        {
+            for (GlyphAtlas.Slot slot : run.slots)
+            {
+                this.atlas.touch(slot);
+            }
+
+            return run;
+        }
+
+        run = this.layout(text);
+
+        /* Laying out might evict glyphs of the same run if the atlas is
+         * really tight, so try again once */
+        if (run.generation != this.atlas.getGeneration())
+        {
+            run = this.layout(text);
+        }
+
+        this.runs.put(text, run);
+
+        return run;
+    }
+
+    public int getWidth(String text)
+    {
+        return text == null || text.isEmpty() ? 0 : this.get(text).width;
+    }
+
+    private TextRun layout(String text)
+    {
+        int generation = this.atlas.getGeneration();
+        int[] codePoints = text.codePoints().toArray();
+        float[] quads = new float[codePoints.length * STRIDE];
+        GlyphAtlas.Slot[] slots = new GlyphAtlas.Slot[codePoints.length];
+        int count = 0;
+        int x = 0;
+
+        this.layouts += 1;
+
+        for (int i = 0; i < codePoints.length; i++)
+        {
+            Glyph glyph = this.getGlyph(codePoints[i]);
+
+            if (i > 0)
+            {
+                x += this.source.getKerning(codePoints[i - 1], codePoints[i]);
+            }
+
+            if (glyph == null)
+            {
+                continue;
+            }
+
+            GlyphAtlas.Slot slot = glyph.isEmpty() ? null : this.getSlot(glyph);
+
+            if (slot != null)
+            {
+                int offset = count * STRIDE;
+                float u = slot.x + PADDING;
+                float v = slot.y + PADDING;
+
+                quads[offset] = x + glyph.bearingX;
+                quads[offset + 1] = glyph.bearingY;
+                quads[offset + 2] = x + glyph.bearingX + glyph.width;
+                quads[offset + 3] = glyph.bearingY + glyph.height;
+                quads[offset + 4] = u / this.atlas.width;
+                quads[offset + 5] = v / this.atlas.height;
+                quads[offset + 6] = (u + glyph.width) / this.atlas.width;
+                quads[offset + 7] = (v + glyph.height) / this.atlas.height;
+                slots[count] = slot;
+                count += 1;
+            }
+
+            x += glyph.advance;
+        }
+
+        if (count < slots.length)
+        {
+            GlyphAtlas.Slot[] trimmed = new GlyphAtlas.Slot[count];
+
+            System.arraycopy(slots, 0, trimmed, 0, count);
+            slots = trimmed;
+        }
+
+        return new TextRun(quads, count, x, slots, generation);
+    }
+
+    private GlyphAtlas.Slot getSlot(Glyph glyph)
+    {
+        GlyphAtlas.Slot slot = this.atlas.get(glyph.codePoint);
+
+        if (slot == null)
+        {
+            slot = this.atlas.allocate(glyph.codePoint, glyph.width + PADDING * 2, glyph.height + PADDING * 2);
+
+            if (slot != null)
+            {
+                this.source.upload(glyph, slot);
+            }
+        }
+
+        return slot;
+    }
+
+    public void clear()
+    {
+        this.runs.clear();
+        this.glyphs.clear();
+        this.atlas.clear();
+    }
+
+    public static interface IGlyphSource
+    {
+        /**
+         * @return metrics of given code point, or null if the font doesn't have it.
+         */
+        public Glyph getGlyph(int codePoint);
+
+        public int getKerning(int a, int b);
+
+        /**
+         * Write glyph's bitmap into given slot of the atlas (slot includes
+         * {@link #PADDING}).
+         */
+        public void upload(Glyph glyph, GlyphAtlas.Slot slot);
+    }
+
+    public static class Glyph
+    {
+        public final int codePoint;
+        public final int index;
+        public final int advance;
+        public final int bearingX;
+        public final int bearingY;
+        public final int width;
+        public final int height;
+
+        public Glyph(int codePoint, int index, int advance, int bearingX, int bearingY, int width, int height)
+        {
+            this.codePoint = codePoint;
+            this.index = index;
+            this.advance = advance;
+            this.bearingX = bearingX;
+            this.bearingY = bearingY;
+            this.width = width;
+            this.height = height;
+        }
+
+        /**
+         * Whether glyph has nothing to draw (like space).
+         */
+        public boolean isEmpty()
+        {
+            return this.width <= 0 || this.height <= 0;
+        }
+    }
+
+    public static class TextRun
+    {
+        /**
+         * Glyph quads relative to run's origin, see {@link #STRIDE}.
+         */
+        public final float[] quads;
+        public final int count;
+        public final int width;
+
+        private final GlyphAtlas.Slot[] slots;
+        private final int generation;
+
+        public TextRun(float[] quads, int count, int width, GlyphAtlas.Slot[] slots, int generation)
+        {
+            this.quads = quads;
+            this.count = count;
+            this.width = width;
+            this.slots = slots;
+            this.generation = generation;
+        }
+    }
+}
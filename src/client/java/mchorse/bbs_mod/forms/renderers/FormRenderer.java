@@ -48,6 +48,9 @@ public abstract class FormRenderer <T extends Form>
 
     public final void renderUI(UIContext context, int x1, int y1, int x2, int y2)
     {
+        /* Forms are rendered directly, so pending UI primitives must be drawn first */
+        context.batcher.getBuffer().flush();
+
         this.renderInUI(context, x1, y1, x2, y2);
 
         FontRenderer font = context.batcher.getFont();
@@ -116,7 +119,10 @@ public abstract class FormRenderer <T extends Form>
             this.updateStencilMap(context);
         }
 
-        this.renderBodyParts(context);
+        if (context.bodyParts)
+        {
+            this.renderBodyParts(context);
+        }
 
         context.stack.pop();
 
@@ -20,6 +20,7 @@ public class FormRenderingContext
     public boolean ui;
     public int color;
     public boolean modelRenderer;
+    public boolean bodyParts = true;
 
     public FormRenderingContext()
     {}
@@ -35,6 +36,7 @@ public class FormRenderingContext
         this.stencilMap = null;
         this.ui = false;
         this.color = 0xffffffff;
+        this.bodyParts = true;
 
         return this;
     }
@@ -85,6 +87,13 @@ public class FormRenderingContext
         return this;
     }
 
+    public FormRenderingContext bodyParts(boolean bodyParts)
+    {
+        this.bodyParts = bodyParts;
+
+        return this;
+    }
+
     public float getTransition()
     {
         return this.transition;
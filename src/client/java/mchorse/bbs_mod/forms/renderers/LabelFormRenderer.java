@@ -53,19 +53,7 @@ public class LabelFormRenderer extends FormRenderer<LabelForm>
         mchorse.bbs_mod.ui.framework.elements.utils.FontRenderer fontRenderer = (this.form.font.get() != null)
             ? FontManager.get().getFontRenderer(this.form.font.get())
             : context.batcher.getFont();
-        
-        // Debug: Log what font is being used
-        if (this.form.font.get() != null)
-        {
-            System.out.println("[LabelForm] Custom font link: " + this.form.font.get());
-            System.out.println("[LabelForm] FontRenderer.getFont() is null? " + (fontRenderer.getFont() == null));
-            if (fontRenderer.getFont() != null)
-            {
-                System.out.println("[LabelForm] Font display name: " + fontRenderer.getFont().getDisplayName());
-                System.out.println("[LabelForm] Is TTF: " + fontRenderer.getFont().isTTFFont());
-            }
-        }
-        
+
         int color = this.form.color.get().getARGBColor();
         String text = StringUtils.processColoredText(this.form.text.get());
         List<String> wrap = fontRenderer.wrap(text, x2 - x1 - 4);
@@ -80,24 +68,10 @@ public class LabelFormRenderer extends FormRenderer<LabelForm>
             // Use TTF text renderer if available, otherwise use standard renderer
             if (fontRenderer.getFont() != null && fontRenderer.getFont().isTTFFont() && fontRenderer.getFont().getTTFTextRenderer() != null)
             {
-                System.out.println("[LabelForm] ✓ Using TTF renderer for: " + s);
                 fontRenderer.getFont().getTTFTextRenderer().drawWithShadow(context.batcher.getContext().getMatrices(), s, x1 + 2, y, color);
             }
             else
             {
-                if (fontRenderer.getFont() == null)
-                {
-                    System.out.println("[LabelForm] ✗ Font object is NULL for: " + s);
-                }
-                else if (!fontRenderer.getFont().isTTFFont())
-                {
-                    System.out.println("[LabelForm] ✗ Not TTF font (is " + fontRenderer.getFont().getDisplayName() + ") for: " + s);
-                }
-                else
-                {
-                    System.out.println("[LabelForm] ✗ TTF renderer is NULL for: " + s);
-                }
-                
                 context.batcher.getContext().drawText(fontRenderer.getRenderer(), s, x1 + 2, y, color, true);
             }
 
@@ -18,6 +18,7 @@ import mchorse.bbs_mod.cubic.model.bobj.BOBJModel;
 import mchorse.bbs_mod.forms.CustomVertexConsumerProvider;
 import mchorse.bbs_mod.forms.FormUtils;
 import mchorse.bbs_mod.forms.FormUtilsClient;
+import mchorse.bbs_mod.forms.IBounded;
 import mchorse.bbs_mod.forms.ITickable;
 import mchorse.bbs_mod.forms.entities.IEntity;
 import mchorse.bbs_mod.forms.entities.StubEntity;
@@ -50,6 +51,7 @@ import net.minecraft.item.Items;
 import net.minecraft.util.Hand;
 import net.minecraft.util.math.RotationAxis;
 import org.joml.Matrix4f;
+import org.joml.Vector3f;
 import org.lwjgl.opengl.GL11;
 
 import java.util.ArrayList;
@@ -60,7 +62,7 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.function.Supplier;
 
-public class ModelFormRenderer extends FormRenderer<ModelForm> implements ITickable
+public class ModelFormRenderer extends FormRenderer<ModelForm> implements ITickable, IBounded
 {
     private static Matrix4f uiMatrix = new Matrix4f();
 
@@ -664,4 +666,44 @@ public class ModelFormRenderer extends FormRenderer<ModelForm> implements ITicka
             this.animator.update(entity);
         }
     }
+
+    @Override
+    public boolean isAnimated()
+    {
+        ModelInstance model = this.getModel();
+
+        /* Model might be still loading */
+        if (model == null || model.procedural)
+        {
+            return true;
+        }
+
+        return model.animations != null && !model.animations.animations.isEmpty();
+    }
+
+    @Override
+    public boolean getBounds(Vector3f min, Vector3f max)
+    {
+        ModelInstance model = this.getModel();
+
+        /* Model might be still loading */
+        if (model == null || !model.getBounds(min, max))
+        {
+            return false;
+        }
+
+        /* Model gets rotated 180 degrees around Y axis in render3D() and
+         * scaled in applyTransforms() */
+        float minX = -max.x * model.scale.x;
+        float maxX = -min.x * model.scale.x;
+        float minY = min.y * model.scale.y;
+        float maxY = max.y * model.scale.y;
+        float minZ = -max.z * model.scale.z;
+        float maxZ = -min.z * model.scale.z;
+
+        min.set(Math.min(minX, maxX), Math.min(minY, maxY), Math.min(minZ, maxZ));
+        max.set(Math.max(minX, maxX), Math.max(minY, maxY), Math.max(minZ, maxZ));
+
+        return true;
+    }
 }
\ No newline at end of file
@@ -77,25 +77,46 @@ public class LineBuilder <T>
         return output;
     }
 
+    /**
+     * Render all lines in one draw call. Separate lines are joined into one
+     * triangle strip with degenerate triangles.
+     */
     public void render(Batcher2D batcher2D, ILineRenderer<T> renderer)
     {
         Matrix4f matrix = batcher2D.getContext().getMatrices().peek().getPositionMatrix();
         List<List<LinePoint<T>>> build = this.build();
 
-        for (List<LinePoint<T>> points : build)
+        if (build.isEmpty())
         {
-            BufferBuilder builder = Tessellator.getInstance().getBuffer();
+            return;
+        }
+
+        BufferBuilder builder = Tessellator.getInstance().getBuffer();
+
+        RenderSystem.setShader(GameRenderer::getPositionColorProgram);
+        RenderSystem.enableBlend();
+        builder.begin(VertexFormat.DrawMode.TRIANGLE_STRIP, VertexFormats.POSITION_COLOR);
+
+        for (int i = 0; i < build.size(); i++)
+        {
+            List<LinePoint<T>> points = build.get(i);
 
-            RenderSystem.setShader(GameRenderer::getPositionColorProgram);
-            RenderSystem.enableBlend();
-            builder.begin(VertexFormat.DrawMode.TRIANGLE_STRIP, VertexFormats.POSITION_COLOR);
+            if (i > 0)
+            {
+                renderer.render(builder, matrix, points.get(0));
+            }
 
             for (LinePoint<T> point : points)
             {
                 renderer.render(builder, matrix, point);
             }
 
-            BufferRenderer.drawWithGlobalProgram(builder.end());
+            if (i < build.size() - 1)
+            {
+                renderer.render(builder, matrix, points.get(points.size() - 1));
+            }
         }
+
+        BufferRenderer.drawWithGlobalProgram(builder.end());
     }
-}
\ No newline at end of file
+}
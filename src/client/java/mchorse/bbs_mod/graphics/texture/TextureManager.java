@@ -2,22 +2,34 @@ package mchorse.bbs_mod.graphics.texture;
 
 import com.mojang.blaze3d.systems.RenderSystem;
 import mchorse.bbs_mod.BBSMod;
+import mchorse.bbs_mod.BBSSettings;
 import mchorse.bbs_mod.client.BBSRendering;
 import mchorse.bbs_mod.resources.AssetProvider;
 import mchorse.bbs_mod.resources.Link;
 import mchorse.bbs_mod.utils.StringUtils;
 import mchorse.bbs_mod.utils.colors.Color;
+import mchorse.bbs_mod.utils.resources.AsyncLoader;
+import mchorse.bbs_mod.utils.resources.FilteredLink;
 import mchorse.bbs_mod.utils.resources.MultiLink;
-import mchorse.bbs_mod.utils.resources.MultiLinkThread;
+import mchorse.bbs_mod.utils.resources.MultiLinkCache;
 import mchorse.bbs_mod.utils.resources.Pixels;
 import mchorse.bbs_mod.utils.watchdog.IWatchDogListener;
+import mchorse.bbs_mod.utils.watchdog.WatchDogChange;
 import mchorse.bbs_mod.utils.watchdog.WatchDogEvent;
 import org.lwjgl.opengl.GL11;
 
+import java.io.ByteArrayInputStream;
 import java.io.InputStream;
 import java.nio.file.Path;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class TextureManager implements IWatchDogListener
 {
@@ -27,12 +39,50 @@ public class TextureManager implements IWatchDogListener
     public AssetProvider provider;
 
     private Texture error;
+    private Texture placeholder;
     private TextureExtruder extruder = new TextureExtruder();
     private int tick;
 
+    private final ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2)), (runnable) ->
+    {
+        Thread thread = new Thread(runnable, "BBS texture loader");
+
+        thread.setDaemon(true);
+
+        return thread;
+    });
+    private final AsyncLoader<Link, LoadedTexture> loader = new AsyncLoader<>(this.executor);
+    private final Uploader uploader = new Uploader();
+    private final MultiLinkCache multiLinks;
+    private final ThumbnailManager thumbnails;
+
     public TextureManager(AssetProvider provider)
     {
         this.provider = provider;
+        this.multiLinks = new MultiLinkCache(provider);
+        this.thumbnails = new ThumbnailManager(provider, this.executor);
+    }
+
+    public MultiLinkCache getMultiLinks()
+    {
+        return this.multiLinks;
+    }
+
+    /**
+     * Apply multi-skin cache settings.
+     */
+    public void setupMultiLinks()
+    {
+        this.multiLinks.setup(
+            BBSSettings.multiskinCacheSize.get() * 1024L * 1024L,
+            BBSSettings.multiskinCacheDisk.get() ? BBSMod.getSettingsPath("cache/multiskin") : null,
+            BBSSettings.multiskinCacheDiskSize.get() * 1024L * 1024L
+        );
+    }
+
+    public ThumbnailManager getThumbnails()
+    {
+        return this.thumbnails;
     }
 
     public TextureExtruder getExtruder()
@@ -83,6 +133,28 @@ public class TextureManager implements IWatchDogListener
         return this.error;
     }
 
+    /**
+     * Transparent texture that is returned while a texture is being loaded.
+     */
+    public Texture getPlaceholder()
+    {
+        if (this.placeholder == null)
+        {
+            Pixels pixels = Pixels.fromSize(1, 1);
+
+            pixels.rewindBuffer();
+
+            this.placeholder = Texture.textureFromPixels(pixels, GL11.GL_NEAREST);
+        }
+
+        return this.placeholder;
+    }
+
+    public boolean isLoading(Link link)
+    {
+        return this.loader.isPending(link);
+    }
+
     public void bindTexture(Link texture)
     {
         this.bindTexture(texture, 0);
@@ -115,6 +187,12 @@ public class TextureManager implements IWatchDogListener
         this.getTexture(texture).bind(unit);
     }
 
+    /**
+     * @return true if given texture was loaded successfully. While it's
+     *         still being loaded (see {@link #isLoading(Link)}) it's not
+     *         known yet, so false is returned as well; use
+     *         {@link #getLoadedTexture(Link)} beforehand to wait for it.
+     */
     public boolean has(Link link)
     {
         // Check if this is a video file - they're valid but handled separately
@@ -127,11 +205,15 @@ public class TextureManager implements IWatchDogListener
             return true;
         }
         
-        return this.getTexture(link) != this.getError();
+        Texture texture = this.getTexture(link);
+
+        return texture != this.getError() && !this.isLoading(link);
     }
 
     public void delete(Link link)
     {
+        this.loader.cancel(link);
+
         Texture texture = this.textures.remove(link);
 
         if (texture != null)
@@ -171,9 +253,14 @@ public class TextureManager implements IWatchDogListener
     {
         Pixels pixels;
 
-        if (link instanceof MultiLink)
+        if (link instanceof MultiLink multiLink)
         {
-            pixels = MultiLinkThread.getStreamForMultiLink((MultiLink) link);
+            if (multiLink.children.isEmpty())
+            {
+                throw new IllegalStateException("Given MultiLink is empty!");
+            }
+
+            pixels = this.multiLinks.get(multiLink);
         }
         else
         {
@@ -217,7 +304,19 @@ public class TextureManager implements IWatchDogListener
                     this.textures.put(link, this.getError());
                     return this.getError();
                 }
-                
+
+                if (this.loader.isPending(link))
+                {
+                    return this.getPlaceholder();
+                }
+
+                if (this.isAsync(link))
+                {
+                    this.loader.request(link, () -> this.load(link, filter, silent));
+
+                    return this.getPlaceholder();
+                }
+
                 Pixels pixels = this.getPixels(link);
 
                 if (pixels != null)
@@ -269,6 +368,88 @@ public class TextureManager implements IWatchDogListener
         return texture;
     }
 
+    public Texture getLoadedTexture(Link link)
+    {
+        return this.getLoadedTexture(link, GL11.GL_NEAREST);
+    }
+
+    /**
+     * Get texture, and if it gets loaded asynchronously, wait until it's
+     * loaded instead of returning the placeholder. It's meant for callers
+     * that need the actual texture right away (i.e. its size or pixels),
+     * rather than the ones that render it every frame.
+     */
+    public Texture getLoadedTexture(Link link, int filter)
+    {
+        Texture texture = this.getTexture(link, filter);
+
+        if (this.loader.finish(link, this.uploader))
+        {
+            texture = this.getTexture(link, filter);
+        }
+
+        return texture;
+    }
+
+    private boolean isAsync(Link link)
+    {
+        return link instanceof MultiLink ? BBSSettings.multiskinMultiThreaded.get() : BBSSettings.texturesAsync.get();
+    }
+
+    /**
+     * Decode texture's pixels (and read its animation meta data). It's
+     * called on loader's worker threads, so it must not touch any GL state.
+     */
+    private LoadedTexture load(Link link, int filter, boolean silent)
+    {
+        Pixels pixels;
+        byte[] meta = null;
+
+        try
+        {
+            pixels = this.getPixels(link);
+        }
+        catch (Exception e)
+        {
+            if (!silent)
+            {
+                e.printStackTrace();
+            }
+
+            pixels = null;
+        }
+
+        if (pixels == null)
+        {
+            return new LoadedTexture(null, null, filter);
+        }
+
+        if (!link.source.startsWith("http") && !(link instanceof MultiLink))
+        {
+            try (InputStream stream = this.provider.getAsset(new Link(link.source, link.path + ".mcmeta")))
+            {
+                meta = stream.readAllBytes();
+            }
+            catch (Exception e)
+            {}
+        }
+
+        return new LoadedTexture(pixels, meta, filter);
+    }
+
+    /**
+     * Upload textures that were decoded on worker threads. The amount of
+     * uploaded data per call is limited by texture upload budget, so loading
+     * a lot of textures at once gets spread across several frames.
+     */
+    public void processUploads()
+    {
+        long budget = BBSSettings.texturesUploadBudget.get() * 1024L * 1024L;
+
+        this.loader.process(budget, this.uploader);
+        this.thumbnails.processUploads(budget);
+    }
+
     private Texture get(Link link)
     {
         if (this.animatedTextures.containsKey(link))
@@ -283,6 +464,8 @@ public class TextureManager implements IWatchDogListener
 
     public void delete()
     {
+        this.loader.cancelAll();
+
         for (Texture texture : this.textures.values())
         {
             texture.delete();
@@ -302,6 +485,7 @@ public class TextureManager implements IWatchDogListener
         this.animatedTextures.clear();
         this.videoTextures.clear();
         this.extruder.deleteAll();
+        this.thumbnails.delete();
     }
 
     public void update()
@@ -316,32 +500,177 @@ public class TextureManager implements IWatchDogListener
     @Override
     public void accept(Path path, WatchDogEvent event)
     {
-        Link link = BBSMod.getProvider().getLink(path.toFile());
+        Link link = this.getChangedLink(path);
+
+        if (link != null)
+        {
+            this.reload(Collections.singleton(link));
+        }
+    }
+
+    /**
+     * Reload every changed texture once per batch (i.e. a texture along
+     * with its .mcmeta), and look up loaded multi-skins only once.
+     */
+    @Override
+    public void accept(List<WatchDogChange> changes)
+    {
+        Set<Link> links = new LinkedHashSet<>();
 
-        if (link == null)
+        for (WatchDogChange change : changes)
         {
-            return;
+            Link link = this.getChangedLink(change.path);
+
+            if (link != null)
+            {
+                links.add(link);
+            }
         }
 
-        if (link.path.endsWith(".mcmeta"))
+        if (!links.isEmpty())
+        {
+            this.reload(links);
+        }
+    }
+
+    private Link getChangedLink(Path path)
+    {
+        Link link = BBSMod.getProvider().getLink(path.toFile());
+
+        if (link != null && link.path.endsWith(".mcmeta"))
         {
             link = new Link(link.source, StringUtils.removeExtension(link.path));
         }
 
-        Texture texture = this.textures.remove(link);
+        return link;
+    }
 
-        if (texture != null)
+    private void reload(Set<Link> links)
+    {
+        Set<MultiLink> multiLinks = new HashSet<>();
+
+        for (Link link : links)
         {
-            texture.delete();
+            this.loader.cancel(link);
+
+            Texture texture = this.textures.remove(link);
+
+            if (texture != null)
+            {
+                texture.delete();
+            }
+
+            multiLinks.addAll(this.multiLinks.invalidate(link));
+
+            AnimatedTexture remove = this.animatedTextures.remove(link);
+
+            if (remove != null)
+            {
+                remove.delete();
+            }
+
+            this.extruder.delete(link);
+            this.thumbnails.invalidate(link);
         }
 
-        AnimatedTexture remove = this.animatedTextures.remove(link);
+        /* Recomposite multi-skins that use changed textures (including the
+         * loaded ones, which composites were already evicted from cache) */
+        for (Link key : this.textures.keySet())
+        {
+            if (key instanceof MultiLink multiLink && uses(multiLink, links))
+            {
+                multiLinks.add(multiLink);
+            }
+        }
 
-        if (remove != null)
+        for (MultiLink multiLink : multiLinks)
         {
-            remove.delete();
+            this.delete(multiLink);
         }
+    }
+
+    private static boolean uses(MultiLink multiLink, Set<Link> links)
+    {
+        for (FilteredLink child : multiLink.children)
+        {
+            if (links.contains(child.path))
+            {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static class LoadedTexture
+    {
+        public final Pixels pixels;
+        public final byte[] meta;
+        public final int filter;
+
+        public LoadedTexture(Pixels pixels, byte[] meta, int filter)
+        {
+            this.pixels = pixels;
+            this.meta = meta;
+            this.filter = filter;
+        }
+    }
+
+    private class Uploader implements AsyncLoader.IProcessor<Link, LoadedTexture>
+    {
+        @Override
+        public long process(Link link, LoadedTexture loaded)
+        {
+            TextureManager manager = TextureManager.this;
+
+            if (loaded.pixels == null)
+            {
+                manager.textures.put(link, manager.getError());
+
+                return 0;
+            }
 
-        this.extruder.delete(link);
+            Pixels pixels = loaded.pixels;
+            long size = (long) pixels.width * pixels.height * pixels.bits;
+
+            if (loaded.meta != null)
+            {
+                try
+                {
+                    AnimatedTexture animatedTexture = AnimatedTexture.load(new ByteArrayInputStream(loaded.meta), pixels);
+
+                    System.out.println("Animated texture \"" + link + "\" was loaded!");
+
+                    manager.animatedTextures.put(link, animatedTexture);
+
+                    return size;
+                }
+                catch (Exception e)
+                {}
+            }
+
+            System.out.println("Texture \"" + link + "\" was loaded!");
+
+            manager.textures.put(link, Texture.textureFromPixels(pixels, loaded.filter));
+
+            return size;
+        }
+
+        @Override
+        public void fail(Link link, Exception e)
+        {
+            e.printStackTrace();
+
+            TextureManager.this.textures.put(link, TextureManager.this.getError());
+        }
+
+        @Override
+        public void discard(Link link, LoadedTexture loaded)
+        {
+            if (loaded.pixels != null)
+            {
+                loaded.pixels.delete();
+            }
+        }
     }
-}
\ No newline at end of file
+}
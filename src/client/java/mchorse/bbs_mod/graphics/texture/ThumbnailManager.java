@@ -0,0 +1,191 @@
+package mchorse.bbs_mod.graphics.texture;
+
+import mchorse.bbs_mod.BBSMod;
+import mchorse.bbs_mod.BBSSettings;
+import mchorse.bbs_mod.resources.AssetProvider;
+import mchorse.bbs_mod.resources.Link;
+import mchorse.bbs_mod.utils.resources.AsyncLoader;
+import mchorse.bbs_mod.utils.resources.MultiLink;
+import mchorse.bbs_mod.utils.resources.Pixels;
+import mchorse.bbs_mod.utils.resources.Thumbnail;
+import mchorse.bbs_mod.utils.resources.ThumbnailAtlas;
+import mchorse.bbs_mod.utils.resources.ThumbnailCache;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.system.MemoryUtil;
+
+import java.io.File;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+/**
+ * Thumbnail manager
+ *
+ * Provides small previews of PNG textures without loading them as full
+ * textures. Thumbnails are read from the disk cache (or decoded and
+ * downscaled) on worker threads, and uploaded into cells of a single atlas
+ * texture, where least recently used thumbnails get replaced by new ones.
+ */
+public class ThumbnailManager
+{
+    public static final int SIZE = 128;
+
+    private final AssetProvider provider;
+    private final ThumbnailCache cache = new ThumbnailCache(SIZE);
+    private final ThumbnailAtlas<Link> atlas = new ThumbnailAtlas<>(8, 8, SIZE);
+    private final AsyncLoader<Link, Thumbnail> loader;
+    private final Uploader uploader = new Uploader();
+    private final Set<Link> failed = new HashSet<>();
+
+    private Texture texture;
+
+    public ThumbnailManager(AssetProvider provider, Executor executor)
+    {
+        this.provider = provider;
+        this.loader = new AsyncLoader<>(executor);
+    }
+
+    public ThumbnailCache getCache()
+    {
+        return this.cache;
+    }
+
+    public ThumbnailAtlas<Link> getAtlas()
+    {
+        return this.atlas;
+    }
+
+    public Texture getTexture()
+    {
+        if (this.texture == null)
+        {
+            this.texture = new Texture();
+            this.texture.setFilter(GL11.GL_NEAREST);
+            this.texture.setSize(this.atlas.getWidth(), this.atlas.getHeight());
+            this.texture.unbind();
+        }
+
+        return this.texture;
+    }
+
+    /**
+     * Whether given link can have a thumbnail.
+     */
+    public boolean supports(Link link)
+    {
+        return link != null && !(link instanceof MultiLink) && link.path.toLowerCase().endsWith(".png");
+    }
+
+    /**
+     * Get region of given link's thumbnail in the atlas texture. If it's not
+     * there yet, it gets requested, and null is returned until it's loaded.
+     */
+    public ThumbnailAtlas.Region get(Link link)
+    {
+        if (!this.supports(link) || this.failed.contains(link))
+        {
+            return null;
+        }
+
+        ThumbnailAtlas.Region region = this.atlas.get(link);
+
+        if (region == null)
+        {
+            this.loader.request(link, () -> this.load(link));
+        }
+
+        return region;
+    }
+
+    private Thumbnail load(Link link) throws Exception
+    {
+        int diskSize = BBSSettings.texturesThumbnailsCache.get();
+        File file = this.provider.getFile(link);
+        long modified = file != null && file.isFile() ? file.lastModified() : -1;
+        long length = file != null ? file.length() : 0;
+
+        this.cache.setup(diskSize > 0 ? BBSMod.getSettingsPath("cache/thumbnails") : null, diskSize * 1024L * 1024L);
+
+        return this.cache.get(link.toString(), modified, length, () ->
+        {
+            try (InputStream stream = this.provider.getAsset(link))
+            {
+                Pixels pixels = Pixels.fromPNGStream(stream);
+
+                try
+                {
+                    return Thumbnail.fromPixels(pixels);
+                }
+                finally
+                {
+                    pixels.delete();
+                }
+            }
+        });
+    }
+
+    /**
+     * Upload thumbnails that were loaded on worker threads (within given
+     * budget in bytes).
+     */
+    public void processUploads(long budget)
+    {
+        this.loader.process(budget, this.uploader);
+    }
+
+    /**
+     * Forget given link's thumbnail (e.g. when its file was changed).
+     */
+    public void invalidate(Link link)
+    {
+        this.loader.cancel(link);
+        this.atlas.remove(link);
+        this.failed.remove(link);
+    }
+
+    public void delete()
+    {
+        this.loader.cancelAll();
+        this.atlas.clear();
+        this.failed.clear();
+
+        if (this.texture != null)
+        {
+            this.texture.delete();
+            this.texture = null;
+        }
+    }
+
+    private class Uploader implements AsyncLoader.IProcessor<Link, Thumbnail>
+    {
+        @Override
+        public long process(Link link, Thumbnail thumbnail)
+        {
+            ThumbnailManager manager = ThumbnailManager.this;
+            ThumbnailAtlas.Region region = manager.atlas.allocate(link, thumbnail.width, thumbnail.height);
+            Texture texture = manager.getTexture();
+            ByteBuffer buffer = MemoryUtil.memAlloc(thumbnail.data.length);
+
+            buffer.put(thumbnail.data);
+            buffer.flip();
+
+            texture.bind();
+            GL11.glPixelStorei(GL11.GL_UNPACK_ALIGNMENT, 1);
+            GL11.glPixelStorei(GL11.GL_UNPACK_ROW_LENGTH, 0);
+            GL11.glTexSubImage2D(texture.target, 0, region.x, region.y, region.width, region.height, GL11.GL_RGBA, GL11.GL_UNSIGNED_BYTE, buffer);
+            texture.unbind();
+
+            MemoryUtil.memFree(buffer);
+
+            return thumbnail.data.length;
+        }
+
+        @Override
+        public void fail(Link link, Exception e)
+        {
+            ThumbnailManager.this.failed.add(link);
+        }
+    }
+}
@@ -1,9 +1,11 @@
 package mchorse.bbs_mod.graphics.texture;
 
 import mchorse.bbs_mod.BBSMod;
+import mchorse.bbs_mod.BBSModClient;
+import mchorse.bbs_mod.BBSSettings;
 import mchorse.bbs_mod.graphics.video.JavaCVVideoDecoder;
-import mchorse.bbs_mod.graphics.video.VideoDecoder;
 import mchorse.bbs_mod.graphics.video.VideoFrame;
+import mchorse.bbs_mod.graphics.video.VideoStream;
 import mchorse.bbs_mod.resources.Link;
 import mchorse.bbs_mod.utils.resources.Pixels;
 
@@ -12,12 +14,18 @@ import java.io.File;
 /**
  * Texture wrapper for video playback.
  * Handles frame updates and timeline synchronization.
+ * 
+ * Frames are decoded and prefetched in the background by a {@link VideoStream}
+ * on the shared decoding pool, if a frame isn't decoded yet, previous frame
+ * stays on the texture (unless a video is being recorded).
  */
 public class VideoTexture
 {
     private final Link videoPath;
     private Texture texture;
-    private VideoDecoder decoder;
+    private JavaCVVideoDecoder decoder;
+    private VideoStream stream;
+    private VideoFrame firstFrame;
     
     private int width;
     private int height;
@@ -33,7 +41,7 @@ public class VideoTexture
     private float playbackSpeed = 1f;
     private boolean loop = false;
     
-    private boolean loaded = false;
+    private volatile boolean loaded = false;
     
     public VideoTexture(Link videoPath)
     {
@@ -64,18 +72,43 @@ public class VideoTexture
         this.framerate = this.decoder.getFramerate();
         this.duration = this.decoder.getDuration();
         
-        // Load first frame to create OpenGL texture
+        // Decode first frame directly (loading can happen on the decoding
+        // pool itself), the OpenGL texture is created from it later on the
+        // render thread
         VideoFrame firstFrame = this.decoder.getFrame(0);
+        
         if (firstFrame == null)
         {
             throw new RuntimeException("Failed to decode first frame");
         }
         
+        this.stream = VideoTextureManager.getInstance().getService().open(
+            this.decoder,
+            BBSSettings.videoFrameCache.get() * 1024L * 1024L,
+            BBSSettings.videoPrefetch.get()
+        );
+        
+        this.firstFrame = firstFrame;
+        this.lastRenderedFrame = 0;
+        this.loaded = true;
+    }
+    
+    /**
+     * Create OpenGL texture from the first frame (must be called on the
+     * render thread)
+     */
+    private void createTexture()
+    {
+        if (this.texture != null || this.firstFrame == null)
+        {
+            return;
+        }
+        
         // Create BBS texture from first frame
         this.texture = new Texture();
         
         // Set format before uploading
-        Pixels pixels = firstFrame.pixels;
+        Pixels pixels = this.firstFrame.pixels;
         this.texture.setFormat(pixels.bits == 4 ? TextureFormat.RGBA_U8 : TextureFormat.RGB_U8);
         
         // Force dimensions to 0 so updateTexture uses the slow path (glTexImage2D) for first frame
@@ -86,13 +119,12 @@ public class VideoTexture
         this.texture.bind();
         
         // Now updateTexture will properly allocate the texture with glTexImage2D
-        this.texture.updateTexture(firstFrame.pixels);
+        this.texture.updateTexture(pixels);
         
         // Unbind to restore GL state
         this.texture.unbind();
         
-        this.lastRenderedFrame = 0;
-        this.loaded = true;
+        this.firstFrame = null;
     }
     
     /**
@@ -100,11 +132,13 @@ public class VideoTexture
      */
     public void updateFrame(int frameNumber) throws Exception
     {
-        if (!this.loaded || this.decoder == null || !this.decoder.isOpen())
+        if (!this.loaded || this.stream == null || !this.decoder.isOpen())
         {
             return;
         }
         
+        this.createTexture();
+        
         // Clamp frame number
         frameNumber = Math.max(0, Math.min(frameNumber, this.totalFrames - 1));
         
@@ -114,12 +148,17 @@ public class VideoTexture
             return;
         }
         
-        // Get frame from decoder (uses cache internally)
-        VideoFrame frame = this.decoder.getFrame(frameNumber);
+        // Get frame from the stream, when recording a video, every frame
+        // has to be exact, so wait for it
+        VideoFrame frame = this.stream.request(frameNumber);
+        
+        if (frame == null && BBSModClient.getVideoRecorder().isRecording())
+        {
+            frame = this.stream.await(frameNumber, 5000);
+        }
         
         if (frame == null)
         {
-            System.err.println("Failed to decode frame " + frameNumber + " for video: " + this.videoPath);
             return;
         }
         
@@ -199,9 +238,16 @@ public class VideoTexture
      */
     public Texture getTexture()
     {
+        this.createTexture();
+        
         return this.texture;
     }
     
+    public VideoStream getStream()
+    {
+        return this.stream;
+    }
+    
     public boolean isLoaded()
     {
         return this.loaded;
@@ -248,12 +294,20 @@ public class VideoTexture
             this.texture = null;
         }
         
+        if (this.stream != null)
+        {
+            VideoTextureManager.getInstance().getService().close(this.stream);
+            this.stream = null;
+        }
+        
         if (this.decoder != null)
         {
             this.decoder.close();
             this.decoder = null;
         }
         
+        this.firstFrame = null;
+        
         this.loaded = false;
         
         System.out.println("Video texture deleted: " + this.videoPath);
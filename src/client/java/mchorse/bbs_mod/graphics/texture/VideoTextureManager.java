@@ -1,11 +1,12 @@
 package mchorse.bbs_mod.graphics.texture;
 
+import mchorse.bbs_mod.BBSSettings;
+import mchorse.bbs_mod.graphics.video.VideoDecodingService;
 import mchorse.bbs_mod.resources.Link;
 
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Manages video texture lifecycle and caching.
@@ -17,12 +18,13 @@ public class VideoTextureManager
     
     private final Map<Link, VideoTexture> loadedVideos;
     private final Set<Link> preloadingVideos;
+    private VideoDecodingService service;
     private int currentTick = 0;
     
     private VideoTextureManager()
     {
-        this.loadedVideos = new HashMap<>();
-        this.preloadingVideos = new HashSet<>();
+        this.loadedVideos = new ConcurrentHashMap<>();
+        this.preloadingVideos = ConcurrentHashMap.newKeySet();
     }
     
     /**
@@ -38,6 +40,27 @@ public class VideoTextureManager
         return INSTANCE;
     }
     
+    /**
+     * Shared decoding pool for all video textures
+     */
+    public synchronized VideoDecodingService getService()
+    {
+        if (this.service == null)
+        {
+            this.service = new VideoDecodingService(BBSSettings.videoDecoderThreads.get());
+        }
+        
+        return this.service;
+    }
+    
+    /**
+     * Get already loaded video texture (without loading it)
+     */
+    public VideoTexture getLoadedVideoTexture(Link videoPath)
+    {
+        return this.loadedVideos.get(videoPath);
+    }
+    
     /**
      * Get or load a video texture.
      * Called by BillboardFormRenderer.
@@ -52,6 +75,12 @@ public class VideoTextureManager
             return video;
         }
         
+        // Being loaded in the background, don't load it twice
+        if (this.preloadingVideos.contains(videoPath))
+        {
+            return null;
+        }
+        
         // Load video
         System.out.println("[VIDEO] Loading: " + videoPath);
         try
@@ -85,8 +114,8 @@ public class VideoTextureManager
         
         this.preloadingVideos.add(videoPath);
         
-        // Load in background thread to avoid blocking
-        Thread preloadThread = new Thread(() -> {
+        // Load on the decoding pool to avoid blocking
+        this.getService().execute(() -> {
             try
             {
                 VideoTexture video = new VideoTexture(videoPath);
@@ -104,10 +133,7 @@ public class VideoTextureManager
             {
                 this.preloadingVideos.remove(videoPath);
             }
-        }, "Video-Preload-" + videoPath.toString());
-        
-        preloadThread.setDaemon(true);
-        preloadThread.start();
+        });
     }
     
     /**
@@ -0,0 +1,122 @@
+package mchorse.bbs_mod.graphics.video;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Frame ring
+ *
+ * Byte budgeted storage of decoded frames of one video around the playhead.
+ * When over budget, frames which are the farthest from the playhead get
+ * evicted first, and frames behind the playhead (relatively to playback
+ * direction) count as twice as far, since they are least likely to be
+ * needed again.
+ */
+public class FrameRing
+{
+    private final Map<Integer, VideoFrame> frames = new HashMap<>();
+    private final long budget;
+    private long bytes;
+
+    private int playhead;
+    private int direction = 1;
+
+    public static long getSize(VideoFrame frame)
+    {
+        return (long) frame.pixels.width * frame.pixels.height * frame.pixels.bits;
+    }
+
+    public FrameRing(long budget)
+    {
+        this.budget = budget;
+    }
+
+    public long getBudget()
+    {
+        return this.budget;
+    }
+
+    public long getBytes()
+    {
+        return this.bytes;
+    }
+
+    public int size()
+    {
+        return this.frames.size();
+    }
+
+    public void setPlayhead(int playhead, int direction)
+    {
+        this.playhead = playhead;
+        this.direction = direction < 0 ? -1 : 1;
+    }
+
+    public boolean contains(int frame)
+    {
+        return this.frames.containsKey(frame);
+    }
+
+    public VideoFrame get(int frame)
+    {
+        return this.frames.get(frame);
+    }
+
+    /**
+     * Add a frame, and evict the farthest frames if the ring is over the
+     * budget (which might be the added frame itself). The closest frame to
+     * the playhead is always kept, even if it alone exceeds the budget.
+     *
+     * @return whether given frame was kept.
+     */
+    public boolean put(VideoFrame frame)
+    {
+        VideoFrame old = this.frames.put(frame.frameNumber, frame);
+
+        if (old != null)
+        {
+            this.bytes -= getSize(old);
+        }
+
+        this.bytes += getSize(frame);
+
+        while (this.bytes > this.budget && this.frames.size() > 1)
+        {
+            this.evict();
+        }
+
+        return this.frames.containsKey(frame.frameNumber);
+    }
+
+    private void evict()
+    {
+        int farthest = 0;
+        int max = -1;
+
+        for (int frame : this.frames.keySet())
+        {
+            int distance = this.getDistance(frame);
+
+            if (distance > max)
+            {
+                max = distance;
+                farthest = frame;
+            }
+        }
+
+        this.bytes -= getSize(this.frames.remove(farthest));
+    }
+
+    private int getDistance(int frame)
+    {
+        int offset = (frame - this.playhead) * this.direction;
+
+        return offset < 0 ? -offset * 2 : offset;
+    }
+
+    public void clear()
+    {
+        this.frames.clear();
+        this.bytes = 0;
+    }
+}
@@ -0,0 +1,35 @@
+package mchorse.bbs_mod.graphics.video;
+
+/**
+ * Sequential frame source
+ *
+ * Low level access to a video stream: seeking is expensive (decoder has to
+ * go back to the keyframe before the target frame and decode everything up
+ * to it), while grabbing the next frame is cheap. {@link VideoStream} uses
+ * this to decide whether to seek or to decode forward.
+ */
+public interface IFrameSource
+{
+    public int getTotalFrames();
+
+    /**
+     * @return index of the frame that will be returned by {@link #grab()}.
+     */
+    public int getPosition();
+
+    /**
+     * @return (estimated) distance between keyframes in frames.
+     */
+    public int getKeyframeInterval();
+
+    public void seek(int frame) throws Exception;
+
+    /**
+     * Decode frame at current position and advance to the next one.
+     *
+     * @return decoded frame, or null if the end of the video was reached.
+     */
+    public VideoFrame grab() throws Exception;
+
+    public void close();
+}
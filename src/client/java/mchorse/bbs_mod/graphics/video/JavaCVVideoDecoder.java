@@ -10,18 +10,15 @@ import java.awt.image.DataBufferInt;
 import java.io.File;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
-import java.util.LinkedHashMap;
-import java.util.Map;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
-import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * JavaCV-based video decoder for high-performance frame extraction.
  * Much faster than FFmpeg CLI approach - no process spawning or temp files.
+ * 
+ * Decoding is synchronous, caching and prefetching of frames is done by
+ * {@link VideoStream} on the shared decoding pool.
  */
-public class JavaCVVideoDecoder implements VideoDecoder
+public class JavaCVVideoDecoder implements VideoDecoder, IFrameSource
 {
     private FFmpegFrameGrabber grabber;
     private Java2DFrameConverter converter;
@@ -33,27 +30,13 @@ public class JavaCVVideoDecoder implements VideoDecoder
     private float duration;
     private boolean open = false;
     
-    private final FrameCache cache;
-    private final ExecutorService executor;
-    private final Map<Integer, Future<VideoFrame>> pendingFrames;
-    private int lastRequestedFrame = -1;
+    private int position;
+    private int lastKeyframe = -1;
+    private int keyframeInterval = 30;
     
     public JavaCVVideoDecoder()
     {
-        this(60); // Cache 60 frames (~1 second at 60fps) - reduced for lower memory usage
-    }
-    
-    public JavaCVVideoDecoder(int cacheSize)
-    {
-        this.cache = new FrameCache(cacheSize);
         this.converter = new Java2DFrameConverter();
-        this.pendingFrames = new ConcurrentHashMap<>();
-        this.executor = Executors.newSingleThreadExecutor(r -> {
-            Thread t = new Thread(r, "JavaCV-Frame-Decoder");
-            t.setDaemon(true);
-            t.setPriority(Thread.NORM_PRIORITY - 1); // Slightly lower priority
-            return t;
-        });
     }
     
     @Override
@@ -120,141 +103,86 @@ public class JavaCVVideoDecoder implements VideoDecoder
     }
     
     @Override
-    public VideoFrame getFrame(int frameIndex) throws Exception
+    public synchronized VideoFrame getFrame(int frameIndex) throws Exception
     {
         if (!this.open)
         {
             throw new IllegalStateException("Decoder is not open");
         }
         
-        // Check cache first
-        VideoFrame cached = this.cache.get(frameIndex);
-        if (cached != null)
-        {
-            // Start preloading next frames
-            this.preloadFrames(frameIndex);
-            return cached;
-        }
+        // Decode forward if the frame is a little bit ahead, seek otherwise
+        frameIndex = Math.max(0, Math.min(frameIndex, this.totalFrames - 1));
         
-        // Check if frame is being decoded in background
-        Future<VideoFrame> pending = this.pendingFrames.get(frameIndex);
-        if (pending != null && pending.isDone())
+        if (frameIndex < this.position || frameIndex - this.position > this.getKeyframeInterval())
         {
-            try
-            {
-                VideoFrame frame = pending.get();
-                this.pendingFrames.remove(frameIndex);
-                this.cache.put(frameIndex, frame);
-                this.preloadFrames(frameIndex);
-                return frame;
-            }
-            catch (Exception e)
-            {
-                this.pendingFrames.remove(frameIndex);
-                throw e;
-            }
+            this.seek(frameIndex);
         }
         
-        // Frame not in cache and not being decoded - decode synchronously (will block!)
-        VideoFrame frame = this.decodeFrameSync(frameIndex);
+        VideoFrame frame = this.grab();
         
-        // Handle decode failure gracefully
-        if (frame == null)
+        while (frame != null && frame.frameNumber < frameIndex)
         {
-            System.err.println("[FFMPEG] Failed to decode frame " + frameIndex);
-            return null;
+            frame = this.grab();
         }
         
-        this.cache.put(frameIndex, frame);
-        
-        // Start preloading next frames
-        this.preloadFrames(frameIndex);
-        
         return frame;
     }
     
-    /**
-     * Preload upcoming frames in background
-     */
-    private void preloadFrames(int currentFrame)
+    @Override
+    public int getPosition()
     {
-        // Only preload if playing forward
-        if (currentFrame <= this.lastRequestedFrame)
-        {
-            this.lastRequestedFrame = currentFrame;
-            return;
-        }
-        
-        this.lastRequestedFrame = currentFrame;
+        return this.position;
+    }
+    
+    @Override
+    public int getKeyframeInterval()
+    {
+        return this.keyframeInterval;
+    }
+    
+    @Override
+    public synchronized void seek(int frameIndex) throws Exception
+    {
+        frameIndex = Math.max(0, Math.min(frameIndex, this.totalFrames - 1));
         
-        // Submit background decode tasks for next 5 frames (reduced for lower-end PCs)
-        for (int i = 1; i <= 5; i++)
-        {
-            int nextFrame = currentFrame + i;
-            if (nextFrame >= this.totalFrames)
-            {
-                break;
-            }
-            
-            // Skip if already cached or being decoded
-            if (this.cache.get(nextFrame) != null || this.pendingFrames.containsKey(nextFrame))
-            {
-                continue;
-            }
-            
-            // Submit background decode task with error handling
-            final int frameToLoad = nextFrame;
-            try
-            {
-                Future<VideoFrame> future = this.executor.submit(() -> this.decodeFrameSync(frameToLoad));
-                this.pendingFrames.put(nextFrame, future);
-            }
-            catch (Exception e)
-            {
-                System.err.println("Failed to submit preload task for frame " + frameToLoad);
-            }
-        }
+        // FFmpeg seeks to the keyframe before and decodes up to the frame
+        this.grabber.setFrameNumber(frameIndex);
+        this.position = frameIndex;
+        this.lastKeyframe = -1;
     }
     
-    /**
-     * Decode frame synchronously (blocks until decoded)
-     */
-    private synchronized VideoFrame decodeFrameSync(int frameIndex)
+    @Override
+    public synchronized VideoFrame grab() throws Exception
     {
-        try
+        if (this.position >= this.totalFrames)
         {
-            // Clamp frame index
-            frameIndex = Math.max(0, Math.min(frameIndex, this.totalFrames - 1));
-            
-            // Seek to the frame
-            this.grabber.setFrameNumber(frameIndex);
-            
-            // Grab the frame
-            Frame frame = this.grabber.grabImage();
-            if (frame == null)
-            {
-                System.err.println("Failed to grab frame " + frameIndex + " (null frame)");
-                return null;
-            }
-            
-            // Convert JavaCV Frame to BBS Pixels
-            Pixels pixels = this.convertFrameToPixels(frame);
-            
-            // Create video frame
-            return new VideoFrame(pixels, frameIndex);
+            return null;
         }
-        catch (OutOfMemoryError e)
+        
+        Frame frame = this.grabber.grabImage();
+        
+        if (frame == null)
         {
-            System.err.println("OUT OF MEMORY decoding frame " + frameIndex + "! Clearing cache...");
-            this.cache.clear();
-            System.gc(); // Request garbage collection
             return null;
         }
-        catch (Exception e)
+        
+        int frameIndex = this.position;
+        
+        // Learn distance between keyframes, so the stream knows when
+        // it's cheaper to decode forward than to seek
+        if (frame.keyFrame)
         {
-            System.err.println("Error decoding frame " + frameIndex + ": " + e.getMessage());
-            return null;
+            if (this.lastKeyframe >= 0)
+            {
+                this.keyframeInterval = Math.max(1, frameIndex - this.lastKeyframe);
+            }
+            
+            this.lastKeyframe = frameIndex;
         }
+        
+        this.position += 1;
+        
+        return new VideoFrame(this.convertFrameToPixels(frame), frameIndex);
     }
     
     /**
@@ -367,21 +295,6 @@ public class JavaCVVideoDecoder implements VideoDecoder
     @Override
     public void close()
     {
-        // Cancel all pending decode tasks
-        for (Future<VideoFrame> future : this.pendingFrames.values())
-        {
-            future.cancel(true);
-        }
-        this.pendingFrames.clear();
-        
-        // Shutdown executor
-        if (this.executor != null)
-        {
-            this.executor.shutdownNow();
-        }
-        
-        this.cache.clear();
-        
         if (this.grabber != null)
         {
             try
@@ -403,44 +316,4 @@ public class JavaCVVideoDecoder implements VideoDecoder
     {
         return this.open;
     }
-    
-    /**
-     * Simple LRU cache for decoded frames
-     */
-    private static class FrameCache
-    {
-        private final LinkedHashMap<Integer, VideoFrame> cache;
-        private final int maxSize;
-        
-        public FrameCache(int maxSize)
-        {
-            this.maxSize = maxSize;
-            this.cache = new LinkedHashMap<Integer, VideoFrame>(maxSize, 0.75f, true)
-            {
-                @Override
-                protected boolean removeEldestEntry(Map.Entry<Integer, VideoFrame> eldest)
-                {
-                    // Just evict from cache - memory managed by texture lifecycle
-                    // Frames are read-only after creation, texture handles cleanup
-                    return size() > FrameCache.this.maxSize;
-                }
-            };
-        }
-        
-        public VideoFrame get(int frameIndex)
-        {
-            return this.cache.get(frameIndex);
-        }
-        
-        public void put(int frameIndex, VideoFrame frame)
-        {
-            this.cache.put(frameIndex, frame);
-        }
-        
-        public void clear()
-        {
-            // Just clear cache - memory managed by texture lifecycle
-            this.cache.clear();
-        }
-    }
-}
+}
\ No newline at end of file
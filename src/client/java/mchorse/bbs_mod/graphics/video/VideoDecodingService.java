@@ -0,0 +1,123 @@
+package mchorse.bbs_mod.graphics.video;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Video decoding service
+ *
+ * Bounded thread pool shared by all videos (for opening videos and
+ * decoding their frames), and a registry of open {@link VideoStream}s for
+ * statistics.
+ */
+public class VideoDecodingService
+{
+    private final ThreadPoolExecutor executor;
+    private final List<VideoStream> streams = new ArrayList<>();
+
+    public VideoDecodingService(int threads)
+    {
+        AtomicInteger counter = new AtomicInteger();
+
+        this.executor = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), (r) ->
+        {
+            Thread thread = new Thread(r, "BBS video decoder #" + counter.incrementAndGet());
+
+            thread.setDaemon(true);
+            thread.setPriority(Thread.NORM_PRIORITY - 1);
+
+            return thread;
+        });
+
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    public void execute(Runnable runnable)
+    {
+        this.executor.execute(runnable);
+    }
+
+    public VideoStream open(IFrameSource source, long budget, int prefetch)
+    {
+        VideoStream stream = new VideoStream(source, this.executor, budget, prefetch);
+
+        synchronized (this.streams)
+        {
+            this.streams.add(stream);
+        }
+
+        return stream;
+    }
+
+    public void close(VideoStream stream)
+    {
+        stream.close();
+
+        synchronized (this.streams)
+        {
+            this.streams.remove(stream);
+        }
+    }
+
+    public int getStreamCount()
+    {
+        synchronized (this.streams)
+        {
+            return this.streams.size();
+        }
+    }
+
+    public int getHits()
+    {
+        int hits = 0;
+
+        synchronized (this.streams)
+        {
+            for (VideoStream stream : this.streams)
+            {
+                hits += stream.getHits();
+            }
+        }
+
+        return hits;
+    }
+
+    public int getMisses()
+    {
+        int misses = 0;
+
+        synchronized (this.streams)
+        {
+            for (VideoStream stream : this.streams)
+            {
+                misses += stream.getMisses();
+            }
+        }
+
+        return misses;
+    }
+
+    public long getCachedBytes()
+    {
+        long bytes = 0;
+
+        synchronized (this.streams)
+        {
+            for (VideoStream stream : this.streams)
+            {
+                bytes += stream.getCachedBytes();
+            }
+        }
+
+        return bytes;
+    }
+
+    public void shutdown()
+    {
+        this.executor.shutdownNow();
+    }
+}
@@ -0,0 +1,364 @@
+package mchorse.bbs_mod.graphics.video;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+/**
+ * Video stream
+ *
+ * Decodes frames of one video on a shared executor, and keeps them in a
+ * {@link FrameRing}. Every request of a frame moves the playhead, and
+ * schedules decoding of the requested frame along with frames ahead of it
+ * (in the direction of playback, more of them when playback is faster).
+ *
+ * Frame source isn't thread-safe, so at most one decoding task per stream
+ * is running at a time. Decoding is keyframe aware: frames which are a
+ * little bit ahead of decoder's position are reached by decoding forward
+ * instead of seeking, and when playing backward, decoder seeks to the
+ * beginning of the look-ahead window and decodes forward through it, so
+ * every decoded frame gets used.
+ */
+public class VideoStream
+{
+    /**
+     * Maximum playback speed multiplier for the look-ahead (in frames
+     * between two requests).
+     */
+    public static final int MAX_SPEED = 4;
+
+    private final IFrameSource source;
+    private final Executor executor;
+    private final FrameRing ring;
+    private final int prefetch;
+    private final Set<Integer> failed = new HashSet<>();
+
+    private long frameSize;
+    private int target;
+    private int direction = 1;
+    private int speed = 1;
+    private boolean running;
+    private boolean closed;
+
+    /* Statistics */
+    private int hits;
+    private int misses;
+    private int decoded;
+    private int seeks;
+
+    public VideoStream(IFrameSource source, Executor executor, long budget, int prefetch)
+    {
+        this.source = source;
+        this.executor = executor;
+        this.ring = new FrameRing(budget);
+        this.prefetch = prefetch;
+    }
+
+    public IFrameSource getSource()
+    {
+        return this.source;
+    }
+
+    public synchronized int getHits()
+    {
+        return this.hits;
+    }
+
+    public synchronized int getMisses()
+    {
+        return this.misses;
+    }
+
+    /**
+     * Amount of frames that were decoded (including the ones decoded on
+     * the way to the target frame).
+     */
+    public synchronized int getDecoded()
+    {
+        return this.decoded;
+    }
+
+    public synchronized int getSeeks()
+    {
+        return this.seeks;
+    }
+
+    public synchronized int getCachedFrames()
+    {
+        return this.ring.size();
+    }
+
+    public synchronized long getCachedBytes()
+    {
+        return this.ring.getBytes();
+    }
+
+    public synchronized boolean isRunning()
+    {
+        return this.running;
+    }
+
+    /**
+     * Request given frame, and move the playhead to it.
+     *
+     * @return decoded frame, or null if it's not decoded yet (it will be
+     *         decoded in the background).
+     */
+    public synchronized VideoFrame request(int frame)
+    {
+        frame = this.clamp(frame);
+
+        int delta = frame - this.target;
+
+        if (delta != 0)
+        {
+            this.direction = delta > 0 ? 1 : -1;
+            this.speed = Math.min(Math.abs(delta), MAX_SPEED);
+        }
+
+        this.target = frame;
+        this.ring.setPlayhead(frame, this.direction);
+
+        VideoFrame result = this.ring.get(frame);
+
+        if (result != null)
+        {
+            this.hits += 1;
+        }
+        else
+        {
+            this.misses += 1;
+        }
+
+        this.schedule();
+
+        return result;
+    }
+
+    /**
+     * Request given frame, and wait until it's decoded (when every frame
+     * matters, like during video recording).
+     */
+    public synchronized VideoFrame await(int frame, long timeout) throws InterruptedException
+    {
+        VideoFrame result = this.request(frame);
+        long end = System.currentTimeMillis() + timeout;
+
+        frame = this.clamp(frame);
+
+        while (result == null && !this.closed && !this.failed.contains(frame))
+        {
+            long left = end - System.currentTimeMillis();
+
+            if (left <= 0)
+            {
+                break;
+            }
+
+            this.wait(left);
+
+            result = this.ring.get(frame);
+        }
+
+        return result;
+    }
+
+    private int clamp(int frame)
+    {
+        return Math.max(0, Math.min(frame, this.source.getTotalFrames() - 1));
+    }
+
+    private int getLookahead()
+    {
+        int lookahead = 1 + this.prefetch * this.speed;
+
+        /* Look-ahead takes at most a half of the ring, so prefetched frames
+         * don't evict each other (and the rest keeps recently shown frames
+         * for scrubbing back) */
+        if (this.frameSize > 0)
+        {
+            lookahead = (int) Math.min(lookahead, Math.max(1, this.ring.getBudget() / this.frameSize / 2));
+        }
+
+        return lookahead;
+    }
+
+    /**
+     * @return the closest missing frame (from the playhead in playback
+     *         direction) within look-ahead window, or -1 if there is nothing
+     *         to decode.
+     */
+    private int getNextMissing()
+    {
+        int total = this.source.getTotalFrames();
+        int lookahead = this.getLookahead();
+
+        for (int i = 0; i < lookahead; i++)
+        {
+            int frame = this.target + i * this.direction;
+
+            if (frame < 0 || frame >= total)
+            {
+                break;
+            }
+
+            if (!this.ring.contains(frame) && !this.failed.contains(frame))
+            {
+                return frame;
+            }
+        }
+
+        return -1;
+    }
+
+    private void schedule()
+    {
+        if (this.running || this.closed || this.getNextMissing() < 0)
+        {
+            return;
+        }
+
+        this.running = true;
+        this.executor.execute(this::work);
+    }
+
+    private void work()
+    {
+        while (true)
+        {
+            int frame;
+            int start;
+
+            synchronized (this)
+            {
+                frame = this.closed ? -1 : this.getNextMissing();
+
+                if (frame < 0)
+                {
+                    this.running = false;
+                    this.notifyAll();
+
+                    return;
+                }
+
+                start = this.direction < 0 ? Math.max(0, frame - this.getLookahead() + 1) : frame;
+            }
+
+            try
+            {
+                if (!this.decode(frame, start))
+                {
+                    /* Nothing was decoded for the ring, so stop instead of
+                     * spinning, next request will try again */
+                    synchronized (this)
+                    {
+                        this.running = false;
+                        this.notifyAll();
+
+                        return;
+                    }
+                }
+            }
+            catch (Exception e)
+            {
+                System.err.println("Failed to decode video frame " + frame + ": " + e.getMessage());
+
+                synchronized (this)
+                {
+                    this.failed.add(frame);
+                }
+            }
+
+            synchronized (this)
+            {
+                this.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Decode given frame, seeking to given start frame first unless the
+     * decoder is close enough to decode forward.
+     *
+     * @return whether given frame ended up in the ring.
+     */
+    private boolean decode(int frame, int start) throws Exception
+    {
+        int position = this.source.getPosition();
+
+        if (position > frame || frame - position > this.source.getKeyframeInterval())
+        {
+            this.source.seek(start);
+
+            synchronized (this)
+            {
+                this.seeks += 1;
+            }
+        }
+
+        while (true)
+        {
+            VideoFrame decoded = this.source.grab();
+
+            if (decoded == null)
+            {
+                throw new IllegalStateException("Reached the end of the video");
+            }
+
+            synchronized (this)
+            {
+                this.decoded += 1;
+
+                if (this.closed)
+                {
+                    return false;
+                }
+
+                this.frameSize = FrameRing.getSize(decoded);
+
+                if (decoded.frameNumber == frame)
+                {
+                    return this.ring.put(decoded);
+                }
+
+                if (decoded.frameNumber > frame)
+                {
+                    /* Decoder skipped given frame (i.e. variable frame rate
+                     * or dropped frames), so the next one stands in for it,
+                     * otherwise given frame would be decoded forever */
+                    this.ring.put(decoded);
+
+                    return this.ring.put(new VideoFrame(decoded.pixels, frame));
+                }
+
+                this.ring.put(decoded);
+            }
+        }
+    }
+
+    /**
+     * Stop decoding, wait for the running decoding task and free the
+     * frames. Frame source isn't closed.
+     */
+    public synchronized void close()
+    {
+        this.closed = true;
+
+        try
+        {
+            long end = System.currentTimeMillis() + 5000;
+
+            while (this.running && System.currentTimeMillis() < end)
+            {
+                this.wait(100);
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+
+        this.ring.clear();
+        this.notifyAll();
+    }
+}
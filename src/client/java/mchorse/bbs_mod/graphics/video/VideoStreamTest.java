@@ -0,0 +1,334 @@
+package mchorse.bbs_mod.graphics.video;
+
+import com.ibm.icu.impl.Assert;
+import mchorse.bbs_mod.utils.resources.Pixels;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+public class VideoStreamTest
+{
+    private static final int SIZE = 4;
+    private static final long FRAME = SIZE * SIZE * 4;
+
+    public static void main(String[] args) throws Exception
+    {
+        testForward();
+        testSpeed();
+        testBackward();
+        testBudget();
+        testKeyframes();
+        testSkipped();
+        testPool();
+    }
+
+    private static void testForward()
+    {
+        FakeSource source = new FakeSource(300, 30);
+        ManualExecutor executor = new ManualExecutor();
+        VideoStream stream = new VideoStream(source, executor, FRAME * 100, 10);
+
+        Assert.assrt(stream.request(0) == null);
+        Assert.assrt(executor.tasks.size() == 1);
+
+        /* Only one task per stream */
+        stream.request(0);
+
+        Assert.assrt(executor.tasks.size() == 1);
+
+        executor.run();
+
+        /* Requested frame along with 10 frames ahead */
+        Assert.assrt(source.grabs == 11);
+        Assert.assrt(source.seeks == 0);
+
+        for (int i = 0; i <= 10; i++)
+        {
+            VideoFrame frame = stream.request(i);
+
+            Assert.assrt(frame != null && frame.frameNumber == i);
+        }
+
+        Assert.assrt(stream.getHits() == 11);
+        Assert.assrt(stream.getMisses() == 2);
+
+        /* Playback continues, so prefetch continues without seeking */
+        executor.run();
+
+        Assert.assrt(source.seeks == 0);
+        Assert.assrt(stream.request(20) != null);
+    }
+
+    private static void testSpeed()
+    {
+        FakeSource source = new FakeSource(300, 30);
+        ManualExecutor executor = new ManualExecutor();
+        VideoStream stream = new VideoStream(source, executor, FRAME * 100, 5);
+
+        stream.request(0);
+        executor.run();
+        stream.request(3);
+        executor.run();
+
+        /* Frames are skipped by 3 every request, so look-ahead is 3 times longer */
+        Assert.assrt(stream.request(3 + 15) != null);
+        Assert.assrt(source.frames.size() == 1 + 3 + 15);
+    }
+
+    private static void testBackward()
+    {
+        FakeSource source = new FakeSource(300, 30);
+        ManualExecutor executor = new ManualExecutor();
+        VideoStream stream = new VideoStream(source, executor, FRAME * 100, 10);
+
+        stream.request(200);
+        executor.run();
+
+        int seeks = source.seeks;
+
+        /* Scrubbing backward */
+        int misses = 0;
+
+        for (int i = 199; i >= 150; i--)
+        {
+            if (stream.request(i) == null)
+            {
+                misses += 1;
+            }
+
+            executor.run();
+        }
+
+        /* One seek per look-ahead window (11 frames), rather than one per frame */
+        Assert.assrt(source.seeks - seeks <= 6);
+        Assert.assrt(misses <= 1);
+
+        /* Every decoded frame was in the window */
+        Assert.assrt(source.grabs <= 41 + 50 + 2 * 11);
+    }
+
+    private static void testBudget()
+    {
+        FakeSource source = new FakeSource(300, 30);
+        ManualExecutor executor = new ManualExecutor();
+        VideoStream stream = new VideoStream(source, executor, FRAME * 10, 20);
+
+        stream.request(0);
+        executor.run();
+
+        Assert.assrt(stream.getCachedBytes() <= FRAME * 10);
+
+        for (int i = 1; i < 100; i++)
+        {
+            Assert.assrt(stream.request(i) != null);
+
+            executor.run();
+
+            Assert.assrt(stream.getCachedFrames() <= 10);
+        }
+
+        /* Look-ahead is capped by the budget, so nothing was decoded twice */
+        Assert.assrt(source.grabs <= 100 + 20);
+        Assert.assrt(source.seeks == 0);
+
+        /* Frame that alone doesn't fit into the budget is still kept */
+        FrameRing ring = new FrameRing(FRAME / 2);
+
+        Assert.assrt(ring.put(frame(0)));
+        Assert.assrt(ring.size() == 1);
+    }
+
+    private static void testKeyframes()
+    {
+        FakeSource source = new FakeSource(300, 30);
+        ManualExecutor executor = new ManualExecutor();
+        VideoStream stream = new VideoStream(source, executor, FRAME * 100, 0);
+
+        stream.request(0);
+        executor.run();
+
+        /* Close frame ahead is reached by decoding forward, and frames on
+         * the way are cached */
+        stream.request(20);
+        executor.run();
+
+        Assert.assrt(source.seeks == 0);
+        Assert.assrt(stream.request(10) != null);
+
+        /* Far frame requires a seek */
+        stream.request(250);
+        executor.run();
+
+        Assert.assrt(source.seeks == 1);
+        Assert.assrt(stream.request(250) != null);
+    }
+
+    /**
+     * Frames that the decoder never produces are covered by the next
+     * decoded frame, instead of being decoded over and over.
+     */
+    private static void testSkipped()
+    {
+        FakeSource source = new FakeSource(300, 30);
+        ManualExecutor executor = new ManualExecutor();
+        VideoStream stream = new VideoStream(source, executor, FRAME * 100, 0);
+
+        source.skipped.add(5);
+        source.skipped.add(100);
+
+        stream.request(0);
+        executor.run();
+        stream.request(5);
+        executor.run();
+
+        VideoFrame frame = stream.request(5);
+
+        Assert.assrt(frame != null && frame.frameNumber == 5);
+        Assert.assrt(stream.request(6) != null);
+
+        /* Seeking right to the skipped frame */
+        stream.request(100);
+        executor.run();
+
+        Assert.assrt(source.seeks == 1);
+        Assert.assrt(stream.request(100) != null);
+        Assert.assrt(!stream.isRunning());
+    }
+
+    private static void testPool() throws Exception
+    {
+        VideoDecodingService service = new VideoDecodingService(2);
+        FakeSource a = new FakeSource(300, 30);
+        FakeSource b = new FakeSource(300, 30);
+
+        a.delay = b.delay = 1;
+
+        VideoStream first = service.open(a, FRAME * 100, 10);
+        VideoStream second = service.open(b, FRAME * 100, 10);
+
+        VideoFrame frame = first.await(100, 5000);
+        VideoFrame other = second.await(42, 5000);
+
+        Assert.assrt(frame != null && frame.frameNumber == 100);
+        Assert.assrt(other != null && other.frameNumber == 42);
+        Assert.assrt(service.getStreamCount() == 2);
+        Assert.assrt(service.getMisses() == 2);
+
+        service.close(first);
+        service.close(second);
+
+        Assert.assrt(!first.isRunning() && !second.isRunning());
+        Assert.assrt(first.getCachedFrames() == 0);
+        Assert.assrt(service.getStreamCount() == 0);
+
+        service.shutdown();
+    }
+
+    private static VideoFrame frame(int index)
+    {
+        return new VideoFrame(new Pixels(ByteBuffer.allocate((int) FRAME), SIZE, SIZE, 4), index);
+    }
+
+    /**
+     * Runs submitted tasks only when asked, so scheduling is deterministic.
+     */
+    private static class ManualExecutor implements Executor
+    {
+        public final List<Runnable> tasks = new ArrayList<>();
+
+        @Override
+        public void execute(Runnable command)
+        {
+            this.tasks.add(command);
+        }
+
+        public void run()
+        {
+            while (!this.tasks.isEmpty())
+            {
+                this.tasks.remove(0).run();
+            }
+        }
+    }
+
+    /**
+     * Synthetic video with a keyframe every few frames. Seeking positions
+     * the source exactly at the requested frame (like FFmpeg does, by
+     * decoding from the previous keyframe).
+     */
+    private static class FakeSource implements IFrameSource
+    {
+        private final int total;
+        private final int interval;
+
+        public final List<Integer> frames = new ArrayList<>();
+        public final Set<Integer> skipped = new HashSet<>();
+        public int position;
+        public int seeks;
+        public int grabs;
+        public long delay;
+
+        public FakeSource(int total, int interval)
+        {
+            this.total = total;
+            this.interval = interval;
+        }
+
+        @Override
+        public int getTotalFrames()
+        {
+            return this.total;
+        }
+
+        @Override
+        public int getPosition()
+        {
+            return this.position;
+        }
+
+        @Override
+        public int getKeyframeInterval()
+        {
+            return this.interval;
+        }
+
+        @Override
+        public void seek(int frame)
+        {
+            this.position = frame;
+            this.seeks += 1;
+        }
+
+        @Override
+        public VideoFrame grab() throws Exception
+        {
+            if (this.position >= this.total)
+            {
+                return null;
+            }
+
+            if (this.delay > 0)
+            {
+                Thread.sleep(this.delay);
+            }
+
+            while (this.skipped.contains(this.position))
+            {
+                this.position += 1;
+            }
+
+            this.grabs += 1;
+            this.frames.add(this.position);
+
+            return frame(this.position++);
+        }
+
+        @Override
+        public void close()
+        {}
+    }
+}
@@ -0,0 +1,51 @@
+package mchorse.bbs_mod.mixin.client;
+
+import mchorse.bbs_mod.BBSModClient;
+import mchorse.bbs_mod.BBSSettings;
+import mchorse.bbs_mod.blocks.entities.ModelBlockCulling;
+import mchorse.bbs_mod.blocks.entities.ModelBlockEntity;
+import mchorse.bbs_mod.blocks.entities.ModelBlockTickScheduler;
+import mchorse.bbs_mod.client.renderer.ModelBlockEntityRenderer;
+import mchorse.bbs_mod.utils.VideoFrameWriter;
+import mchorse.bbs_mod.utils.VideoRecorder;
+import net.minecraft.client.gui.hud.DebugHud;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfoReturnable;
+
+import java.util.List;
+
+@Mixin(DebugHud.class)
+public class DebugHudMixin
+{
+    @Inject(method = "getLeftText", at = @At("RETURN"))
+    public void onGetLeftText(CallbackInfoReturnable<List<String>> info)
+    {
+        if (BBSSettings.modelBlocksCulling.get())
+        {
+            ModelBlockCulling culling = ModelBlockEntityRenderer.getCulling();
+
+            info.getReturnValue().add("BBS model blocks: " + culling.getDrawn() + " drawn, " + culling.getCulled() + " culled");
+        }
+
+        if (BBSSettings.modelBlocksScheduler.get())
+        {
+            ModelBlockTickScheduler scheduler = ModelBlockEntity.getScheduler();
+
+            info.getReturnValue().add("BBS model block ticks: " + scheduler.getActive() + " active, " + scheduler.getSleeping() + " sleeping, " + scheduler.getDeferred() + " deferred");
+        }
+
+        VideoRecorder recorder = BBSModClient.getVideoRecorder();
+        VideoFrameWriter writer = recorder.getWriter();
+
+        if (recorder.isRecording() && writer != null)
+        {
+            info.getReturnValue().add(String.format(
+                "BBS video: %.1f ms readback, %d/%d queued, %.1f encoder FPS, %d ms stalled",
+                recorder.getReadbackLatency(), writer.getQueueDepth(), writer.getMaxQueueDepth(),
+                writer.getThroughput(), writer.getStallTime() / 1_000_000L
+            ));
+        }
+    }
+}
@@ -80,6 +80,12 @@ public class GameRendererMixin
         }
     }
 
+    @Inject(at = @At("HEAD"), method = "render")
+    private void onRender(CallbackInfo callbackInfo)
+    {
+        BBSRendering.onRenderFrame();
+    }
+
     @Inject(at = @At("HEAD"), method = "renderWorld")
     private void onWorldRenderBegin(CallbackInfo callbackInfo)
     {
@@ -0,0 +1,13 @@
+package mchorse.bbs_mod.mixin.client;
+
+import net.minecraft.client.render.Frustum;
+import net.minecraft.client.render.WorldRenderer;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.gen.Accessor;
+
+@Mixin(WorldRenderer.class)
+public interface WorldRendererAccessor
+{
+    @Accessor("frustum")
+    public Frustum bbs$getFrustum();
+}
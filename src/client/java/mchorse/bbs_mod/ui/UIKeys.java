@@ -228,6 +228,7 @@ public class UIKeys
     public static final IKey FILM_CONTROLLER_ONION_SKIN_TITLE = L10n.lang("bbs.ui.film.controller.onion_skin.title");
     public static final IKey FILM_CONTROLLER_RECORD_DESCRIPTION = L10n.lang("bbs.ui.film.controller.record-description");
     public static final IKey FILM_CONTROLLER_RECORD_TITLE = L10n.lang("bbs.ui.film.controller.record-title");
+    public static final IKey FILM_CONTROLLER_REDUCED = L10n.lang("bbs.ui.film.controller.reduced");
     public static final IKey FILM_CONTROLLER_SERVER_WARNING = L10n.lang("bbs.ui.film.controller.server_warning");
     public static final IKey FILM_CONTROLLER_SPEED = L10n.lang("bbs.ui.film.controller.speed");
     public static final IKey FILM_CONTROLLER_TICKS = L10n.lang("bbs.ui.film.controller.ticks");
@@ -241,6 +242,7 @@ public class UIKeys
     public static final IKey FILM_GROUPS_OUTSIDE = L10n.lang("bbs.ui.film.groups.outside");
     public static final IKey FILM_GROUPS_RIGHT_STICK = L10n.lang("bbs.ui.film.groups.right_stick");
     public static final IKey FILM_GROUPS_TRIGGERS = L10n.lang("bbs.ui.film.groups.triggers");
+    public static final IKey FILM_HISTORY_MEMORY = L10n.lang("bbs.ui.film.history-memory");
     public static final IKey FILM_HISTORY_TITLE = L10n.lang("bbs.ui.film.history-title");
     public static final IKey FILM_INSERT_SPACE_DESCRIPTION = L10n.lang("bbs.ui.film.insert_space-description");
     public static final IKey FILM_INSERT_SPACE_TITLE = L10n.lang("bbs.ui.film.insert_space-title");
@@ -911,6 +913,7 @@ public class UIKeys
     public static final IKey VIDEO_START_TIME = L10n.lang("bbs.ui.video_playback.start_time");
     public static final IKey VIDEO_PLAYBACK_SPEED = L10n.lang("bbs.ui.video_playback.speed");
     public static final IKey VIDEO_LOOP = L10n.lang("bbs.ui.video_playback.loop");
+    public static final IKey VIDEO_STATS = L10n.lang("bbs.ui.video_playback.stats");
 
     /* Key collections */
     public static final KeyCollection C_CLIP = new KeyCollection("bbs.ui.camera.clips.^")
@@ -246,7 +246,7 @@ public class UITextureEditor extends UIPixelsEditor
 
         if (texture != null)
         {
-            Texture t = BBSModClient.getTextures().getTexture(texture);
+            Texture t = BBSModClient.getTextures().getLoadedTexture(texture);
 
             this.fillPixels(Texture.pixelsFromTexture(t));
             this.setDirty(false);
@@ -64,6 +64,7 @@ import mchorse.bbs_mod.utils.colors.Colors;
 import mchorse.bbs_mod.utils.joml.Vectors;
 import mchorse.bbs_mod.utils.keyframes.Keyframe;
 import mchorse.bbs_mod.utils.keyframes.KeyframeChannel;
+import mchorse.bbs_mod.utils.keyframes.KeyframeReducer;
 import mchorse.bbs_mod.utils.keyframes.KeyframeSegment;
 import net.fabricmc.fabric.api.client.rendering.v1.WorldRenderContext;
 import net.minecraft.client.MinecraftClient;
@@ -603,7 +604,7 @@ public class UIFilmPanel extends UIDataDashboardPanel<Film> implements IFlightSu
         {
             BaseValue.edit(film, (f) ->
             {
-                rp.keyframes.copyOver(recorder.keyframes, 0);
+                rp.keyframes.copyOver(recorder.getKeyframes(), 0);
 
                 Form form = rp.form.get();
 
@@ -626,6 +627,21 @@ public class UIFilmPanel extends UIDataDashboardPanel<Film> implements IFlightSu
                 f.xpLevel.set(recorder.xpLevel);
                 f.xpProgress.set(recorder.xpProgress);
             });
+
+            this.notifyReduced(recorder.getReport());
+        }
+    }
+
+    /**
+     * Tell how well recorded samples were reduced into keyframes.
+     */
+    public void notifyReduced(KeyframeReducer.Report report)
+    {
+        UIContext context = this.getContext();
+
+        if (context != null && report.samples > 0)
+        {
+            context.notifyInfo(UIKeys.FILM_CONTROLLER_REDUCED.format(report.samples, report.keyframes, report.getCompressionRatio(), report.maxError, report.getMeanError()));
         }
     }
 
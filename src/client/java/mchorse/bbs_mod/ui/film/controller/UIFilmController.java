@@ -59,7 +59,6 @@ import mchorse.bbs_mod.utils.PlayerUtils;
 import mchorse.bbs_mod.utils.RayTracing;
 import mchorse.bbs_mod.utils.colors.Colors;
 import mchorse.bbs_mod.utils.joml.Matrices;
-import mchorse.bbs_mod.utils.keyframes.KeyframeChannel;
 import net.fabricmc.fabric.api.client.rendering.v1.WorldRenderContext;
 import net.minecraft.client.MinecraftClient;
 import net.minecraft.client.Mouse;
@@ -518,10 +517,7 @@ public class UIFilmController extends UIElement
 
         if (replay != null && this.recordingOld != null)
         {
-            for (KeyframeChannel<?> channel : replay.keyframes.getChannels())
-            {
-                channel.simplify();
-            }
+            this.panel.notifyReduced(replay.keyframes.reduce());
 
             BaseType newData = replay.keyframes.toData();
 
@@ -1027,6 +1023,10 @@ public class UIFilmController extends UIElement
 
         boolean altPressed = Window.isAltPressed();
 
+        /* Stencil gets rendered into its own framebuffer with world's
+         * projection, so pending batches have to be drawn before that */
+        context.batcher.getBuffer().flush();
+
         RenderSystem.depthFunc(GL11.GL_LESS);
 
         /* Cache the global stuff */
@@ -1062,6 +1062,9 @@ public class UIFilmController extends UIElement
         int w = texture.width;
         int h = texture.height;
 
+        /* Pending batches have to be drawn before GL state gets changed */
+        context.batcher.getBuffer().flush();
+
         ShaderProgram previewProgram = BBSShaders.getPickerPreviewProgram();
         Supplier<ShaderProgram> getPickerPreviewProgram = BBSShaders::getPickerPreviewProgram;
         GlUniform target = previewProgram.getUniform("Target");
@@ -1,6 +1,7 @@
 package mchorse.bbs_mod.ui.film.utils;
 
 import mchorse.bbs_mod.BBSMod;
+import mchorse.bbs_mod.BBSSettings;
 import mchorse.bbs_mod.data.types.BaseType;
 import mchorse.bbs_mod.data.types.MapType;
 import mchorse.bbs_mod.network.ClientNetwork;
@@ -41,8 +42,9 @@ public class UIFilmUndoHandler
     {
         this.panel = panel;
 
-        this.undoManager = new UndoManager<>(100);
+        this.undoManager = new UndoManager<>(0);
         this.undoManager.setCallback(this::handleUndos);
+        this.updateMemoryLimit();
     }
 
     public UndoManager<ValueGroup> getUndoManager()
@@ -118,6 +120,8 @@ public class UIFilmUndoHandler
             }
         }
 
+        this.updateMemoryLimit();
+
         if (changeUndos.size() == 1)
         {
             this.undoManager.pushUndo(changeUndos.get(0));
@@ -127,6 +131,11 @@ public class UIFilmUndoHandler
             this.undoManager.pushUndo(new CompoundUndo<>(changeUndos.toArray(new IUndo[0])));
         }
 
+        for (ValueChangeUndo undo : changeUndos)
+        {
+            undo.release();
+        }
+
         this.cachedValues.clear();
         this.uiData = null;
 
@@ -140,6 +149,11 @@ public class UIFilmUndoHandler
         }
     }
 
+    private void updateMemoryLimit()
+    {
+        this.undoManager.setMemoryLimit(BBSSettings.editorUndoMemory.get() * 1024L * 1024L);
+    }
+
     private void handleTimers()
     {
         if (this.undoTimer.checkReset())
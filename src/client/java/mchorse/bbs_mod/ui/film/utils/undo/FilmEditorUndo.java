@@ -3,6 +3,7 @@ package mchorse.bbs_mod.ui.film.utils.undo;
 import mchorse.bbs_mod.data.types.MapType;
 import mchorse.bbs_mod.settings.values.core.ValueGroup;
 import mchorse.bbs_mod.ui.film.UIFilmPanel;
+import mchorse.bbs_mod.utils.undo.DataDelta;
 import mchorse.bbs_mod.utils.undo.IUndo;
 
 public abstract class FilmEditorUndo implements IUndo<ValueGroup>
@@ -24,4 +25,10 @@ public abstract class FilmEditorUndo implements IUndo<ValueGroup>
     {
         this.uiAfter = editor.collectAllUndoData();
     }
+
+    @Override
+    public long getSize()
+    {
+        return DataDelta.estimate(this.uiBefore) + DataDelta.estimate(this.uiAfter);
+    }
 }
\ No newline at end of file
@@ -4,12 +4,15 @@ import mchorse.bbs_mod.settings.values.core.ValueGroup;
 import mchorse.bbs_mod.ui.UIKeys;
 import mchorse.bbs_mod.ui.film.UIFilmPanel;
 import mchorse.bbs_mod.ui.framework.elements.overlay.UIOverlayPanel;
+import mchorse.bbs_mod.ui.framework.elements.utils.UILabel;
+import mchorse.bbs_mod.ui.utils.UI;
 import mchorse.bbs_mod.ui.utils.UIUtils;
 import mchorse.bbs_mod.utils.undo.UndoManager;
 
 public class UIUndoHistoryOverlay extends UIOverlayPanel
 {
     private UIUndoList<ValueGroup> list;
+    private UILabel memory;
 
     private UIFilmPanel panel;
 
@@ -38,10 +41,25 @@ public class UIUndoHistoryOverlay extends UIOverlayPanel
 
             UIUtils.playClick();
         });
-        this.list.setList(this.panel.getUndoHandler().getUndoManager().getUndos());
-        this.list.full(this.content);
-        this.list.setIndex(this.panel.getUndoHandler().getUndoManager().getCurrentUndoIndex());
+        UndoManager<ValueGroup> undoManager = this.panel.getUndoHandler().getUndoManager();
 
-        this.content.add(this.list);
+        this.list.setList(undoManager.getUndos());
+        this.list.relative(this.content).w(1F).h(1F, -20);
+        this.list.setIndex(undoManager.getCurrentUndoIndex());
+
+        this.memory = UI.label(UIKeys.FILM_HISTORY_MEMORY.format(formatBytes(undoManager.getMemoryUsage()), formatBytes(undoManager.getMemoryLimit())));
+        this.memory.labelAnchor(0, 0.5F).relative(this.content).x(6).y(1F, -20).w(1F, -6).h(20);
+
+        this.content.add(this.list, this.memory);
+    }
+
+    private static String formatBytes(long bytes)
+    {
+        if (bytes >= 1024L * 1024L)
+        {
+            return String.format("%.1f MB", bytes / (1024D * 1024D));
+        }
+
+        return String.format("%.1f KB", bytes / 1024D);
     }
 }
\ No newline at end of file
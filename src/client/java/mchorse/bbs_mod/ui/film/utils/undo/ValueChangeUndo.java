@@ -4,20 +4,142 @@ import mchorse.bbs_mod.data.types.BaseType;
 import mchorse.bbs_mod.settings.values.core.ValueGroup;
 import mchorse.bbs_mod.settings.values.base.BaseValue;
 import mchorse.bbs_mod.utils.DataPath;
+import mchorse.bbs_mod.utils.keyframes.Keyframe;
+import mchorse.bbs_mod.utils.keyframes.KeyframeChannel;
+import mchorse.bbs_mod.utils.undo.DataDelta;
 import mchorse.bbs_mod.utils.undo.IUndo;
 
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Value change undo
+ *
+ * Stores only the structural delta between the old and the new data of the
+ * value (changed keyframes, inserted/removed ranges of keyframes, clips and
+ * list elements), instead of full copies of both states.
+ */
 public class ValueChangeUndo extends FilmEditorUndo
 {
+    /**
+     * Apply given delta to the value, descending into changed children of
+     * value groups and changed keyframes of channels, so only the affected
+     * sub-values get serialized and rebuilt.
+     */
+    public static void apply(BaseValue value, DataDelta delta, boolean forward)
+    {
+        if (delta == DataDelta.EMPTY)
+        {
+            return;
+        }
+
+        if (delta instanceof DataDelta.MapDelta map)
+        {
+            if (value instanceof KeyframeChannel<?> channel && applyKeyframes(channel, map, forward))
+            {
+                return;
+            }
+
+            if (value instanceof ValueGroup group && isPlainGroup(group) && applyChildren(group, map, forward))
+            {
+                return;
+            }
+        }
+
+        value.fromData(delta.apply(value.toData(), forward));
+    }
+
+    /**
+     * Whether given group is (de)serialized as a map of its children.
+     */
+    private static boolean isPlainGroup(ValueGroup group)
+    {
+        try
+        {
+            return group.getClass().getMethod("toData").getDeclaringClass() == ValueGroup.class
+                && group.getClass().getMethod("fromData", BaseType.class).getDeclaringClass() == ValueGroup.class;
+        }
+        catch (NoSuchMethodException e)
+        {
+            return false;
+        }
+    }
+
+    private static boolean applyChildren(ValueGroup group, DataDelta.MapDelta map, boolean forward)
+    {
+        for (Map.Entry<String, DataDelta> entry : map.changes.entrySet())
+        {
+            /* Added or removed children can't be applied to a group */
+            if (entry.getValue() instanceof DataDelta.ReplaceDelta || group.get(entry.getKey()) == null)
+            {
+                return false;
+            }
+        }
+
+        for (Map.Entry<String, DataDelta> entry : map.changes.entrySet())
+        {
+            apply(group.get(entry.getKey()), entry.getValue(), forward);
+        }
+
+        return true;
+    }
+
+    /**
+     * Rebuild only changed keyframes, when keyframes were edited (but not
+     * inserted or removed).
+     */
+    private static <T> boolean applyKeyframes(KeyframeChannel<T> channel, DataDelta.MapDelta map, boolean forward)
+    {
+        if (map.changes.size() != 1 || !(map.changes.get("keyframes") instanceof DataDelta.ListDelta list) || list.elements == null)
+        {
+            return false;
+        }
+
+        List<Keyframe<T>> keyframes = channel.getKeyframes();
+
+        if (list.start + list.elements.size() > keyframes.size())
+        {
+            return false;
+        }
+
+        for (int i = 0; i < list.elements.size(); i++)
+        {
+            DataDelta element = list.elements.get(i);
+
+            if (element == DataDelta.EMPTY)
+            {
+                continue;
+            }
+
+            int index = list.start + i;
+            Keyframe<T> keyframe = keyframes.get(index);
+            Keyframe<T> newKeyframe = new Keyframe<>(keyframe.getId(), channel.getFactory());
+
+            newKeyframe.fromData(element.apply(keyframe.toData(), forward));
+            channel.set(index, newKeyframe);
+        }
+
+        channel.sort();
+
+        return true;
+    }
+
     public DataPath name;
-    public BaseType oldValue;
-    public BaseType newValue;
+    public DataDelta delta;
+
+    /**
+     * Full new data, which is needed only until this undo gets merged
+     * or pushed into the undo manager.
+     */
+    private BaseType newValue;
+    private long size = -1;
 
     private boolean mergable = true;
 
     public ValueChangeUndo(DataPath name, BaseType oldValue, BaseType newValue)
     {
         this.name = name;
-        this.oldValue = oldValue;
+        this.delta = DataDelta.diff(oldValue, newValue);
         this.newValue = newValue;
     }
 
@@ -26,6 +148,14 @@ public class ValueChangeUndo extends FilmEditorUndo
         return this.name;
     }
 
+    /**
+     * Release full new data once this undo was submitted.
+     */
+    public void release()
+    {
+        this.newValue = null;
+    }
+
     @Override
     public IUndo<ValueGroup> noMerging()
     {
@@ -42,11 +172,12 @@ public class ValueChangeUndo extends FilmEditorUndo
             return false;
         }
 
+        /* Merging needs full new data, which released undos don't have */
         if (undo instanceof ValueChangeUndo)
         {
             ValueChangeUndo valueUndo = (ValueChangeUndo) undo;
 
-            return this.name.equals(valueUndo.getName());
+            return valueUndo.newValue != null && this.name.equals(valueUndo.getName());
         }
 
         return false;
@@ -55,11 +186,15 @@ public class ValueChangeUndo extends FilmEditorUndo
     @Override
     public void merge(IUndo<ValueGroup> undo)
     {
-        if (undo instanceof ValueChangeUndo)
+        if (undo instanceof ValueChangeUndo prop && prop.newValue != null)
         {
-            ValueChangeUndo prop = (ValueChangeUndo) undo;
+            /* Walk back from the newest data through both deltas to get
+             * the oldest data, and compute a single delta between them */
+            BaseType middle = prop.delta.apply(prop.newValue.copy(), false);
+            BaseType oldValue = this.delta.apply(middle, false);
 
-            this.newValue = prop.newValue;
+            this.delta = DataDelta.diff(oldValue, prop.newValue);
+            this.size = -1;
         }
     }
 
@@ -70,7 +205,7 @@ public class ValueChangeUndo extends FilmEditorUndo
 
         if (value.getPath().equals(this.name))
         {
-            value.fromData(this.oldValue);
+            apply(value, this.delta, false);
         }
     }
 
@@ -81,7 +216,18 @@ public class ValueChangeUndo extends FilmEditorUndo
 
         if (value.getPath().equals(this.name))
         {
-            value.fromData(this.newValue);
+            apply(value, this.delta, true);
         }
     }
-}
\ No newline at end of file
+
+    @Override
+    public long getSize()
+    {
+        if (this.size < 0)
+        {
+            this.size = this.delta.getSize() + super.getSize();
+        }
+
+        return this.size;
+    }
+}
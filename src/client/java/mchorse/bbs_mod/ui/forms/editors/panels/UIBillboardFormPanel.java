@@ -1,18 +1,25 @@
 package mchorse.bbs_mod.ui.forms.editors.panels;
 
 import mchorse.bbs_mod.forms.forms.BillboardForm;
+import mchorse.bbs_mod.graphics.texture.VideoTexture;
+import mchorse.bbs_mod.graphics.texture.VideoTextureManager;
+import mchorse.bbs_mod.graphics.video.VideoStream;
+import mchorse.bbs_mod.l10n.keys.IKey;
 import mchorse.bbs_mod.ui.UIKeys;
 import mchorse.bbs_mod.ui.forms.editors.forms.UIForm;
 import mchorse.bbs_mod.ui.forms.editors.utils.UICropOverlayPanel;
+import mchorse.bbs_mod.ui.framework.UIContext;
 import mchorse.bbs_mod.ui.framework.elements.buttons.UIButton;
 import mchorse.bbs_mod.ui.framework.elements.buttons.UIToggle;
 import mchorse.bbs_mod.ui.framework.elements.input.UIColor;
 import mchorse.bbs_mod.ui.framework.elements.input.UITexturePicker;
 import mchorse.bbs_mod.ui.framework.elements.input.UITrackpad;
 import mchorse.bbs_mod.ui.framework.elements.overlay.UIOverlay;
+import mchorse.bbs_mod.ui.framework.elements.utils.UILabel;
 import mchorse.bbs_mod.ui.utils.UI;
 import mchorse.bbs_mod.utils.Direction;
 import mchorse.bbs_mod.utils.colors.Color;
+import mchorse.bbs_mod.utils.colors.Colors;
 
 public class UIBillboardFormPanel extends UIFormPanel<BillboardForm>
 {
@@ -36,6 +43,7 @@ public class UIBillboardFormPanel extends UIFormPanel<BillboardForm>
     public UITrackpad videoStartTime;
     public UITrackpad videoPlaybackSpeed;
     public UIToggle videoLoop;
+    public UILabel videoStats;
 
     public UIBillboardFormPanel(UIForm editor)
     {
@@ -72,11 +80,12 @@ public class UIBillboardFormPanel extends UIFormPanel<BillboardForm>
         this.videoPlaybackSpeed.tooltip(UIKeys.VIDEO_PLAYBACK_SPEED);
         this.videoPlaybackSpeed.setValue(1.0);
         this.videoLoop = new UIToggle(UIKeys.VIDEO_LOOP, false, (b) -> this.form.videoLoop.set(b.getValue()));
+        this.videoStats = UI.label(IKey.EMPTY).color(Colors.LIGHTER_GRAY);
 
         this.options.add(this.pick, this.color, this.billboard, this.linear, this.mipmap);
         this.options.add(UI.label(UIKeys.FORMS_EDITORS_BILLBOARD_CROP).marginTop(8), this.openCrop, this.resizeCrop);
         this.options.add(UI.label(UIKeys.FORMS_EDITORS_BILLBOARD_UV_SHIFT).marginTop(8), UI.row(this.offsetX, this.offsetY), this.rotation, this.shading);
-        this.options.add(UI.label(UIKeys.VIDEO_PLAYBACK).marginTop(8), this.videoPlaying, this.videoStartTime, this.videoPlaybackSpeed, this.videoLoop);
+        this.options.add(UI.label(UIKeys.VIDEO_PLAYBACK).marginTop(8), this.videoPlaying, this.videoStartTime, this.videoPlaybackSpeed, this.videoLoop, this.videoStats);
     }
 
     @Override
@@ -103,4 +112,34 @@ public class UIBillboardFormPanel extends UIFormPanel<BillboardForm>
         this.videoPlaybackSpeed.setValue(form.videoPlaybackSpeed.get());
         this.videoLoop.setValue(form.videoLoop.get());
     }
-}
\ No newline at end of file
+
+    @Override
+    public void render(UIContext context)
+    {
+        this.videoStats.label = this.getVideoStats();
+
+        super.render(context);
+    }
+
+    private IKey getVideoStats()
+    {
+        if (this.form == null || !this.form.isVideoTexture())
+        {
+            return IKey.EMPTY;
+        }
+
+        VideoTexture video = VideoTextureManager.getInstance().getLoadedVideoTexture(this.form.texture.get());
+        VideoStream stream = video == null ? null : video.getStream();
+
+        if (stream == null)
+        {
+            return IKey.EMPTY;
+        }
+
+        int hits = stream.getHits();
+        int misses = stream.getMisses();
+        int ratio = hits + misses == 0 ? 0 : hits * 100 / (hits + misses);
+
+        return UIKeys.VIDEO_STATS.format(hits, misses, ratio, stream.getCachedFrames(), stream.getCachedBytes() / 1024 / 1024, stream.getSeeks());
+    }
+}
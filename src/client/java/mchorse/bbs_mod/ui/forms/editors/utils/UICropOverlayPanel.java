@@ -15,7 +15,7 @@ public class UICropOverlayPanel extends UIOverlayPanel
     {
         super(UIKeys.FORMS_CROP_TITLE);
 
-        Texture t = BBSModClient.getTextures().getTexture(texture);
+        Texture t = BBSModClient.getTextures().getLoadedTexture(texture);
 
         int w = t.width;
         int h = t.height;
@@ -208,6 +208,9 @@ public class UIPickableFormRenderer extends UIFormRenderer
         int w = texture.width;
         int h = texture.height;
 
+        /* Pending batches have to be drawn before GL state gets changed */
+        context.batcher.getBuffer().flush();
+
         ShaderProgram previewProgram = BBSShaders.getPickerPreviewProgram();
         GlUniform target = previewProgram.getUniform("Target");
 
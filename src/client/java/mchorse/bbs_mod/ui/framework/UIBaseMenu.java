@@ -236,6 +236,7 @@ public abstract class UIBaseMenu
             inputRenderer.render(this, mouseX, mouseY);
         }
 
+        context.batcher.flush();
         RenderSystem.depthFunc(GL11.GL_LEQUAL);
     }
 
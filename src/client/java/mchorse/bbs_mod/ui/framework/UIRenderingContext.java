@@ -17,6 +17,7 @@ public class UIRenderingContext
     public UIRenderingContext(DrawContext context)
     {
         this.batcher = new Batcher2D(context);
+        this.batcher.setBatching(true);
     }
 
     /* Rendering context implementations */
@@ -197,6 +197,7 @@ public class UIScreen extends Screen implements IFileDropListener
         this.menu.context.setTransition(this.client.getTickDelta());
         this.menu.renderMenu(this.context, mouseX, mouseY);
         this.menu.context.render.executeRunnables();
+        this.menu.context.render.batcher.endFrame();
     }
 
     @Override
@@ -6,6 +6,8 @@ import mchorse.bbs_mod.BBSSettings;
 import mchorse.bbs_mod.data.types.BaseType;
 import mchorse.bbs_mod.data.types.MapType;
 import mchorse.bbs_mod.graphics.texture.Texture;
+import mchorse.bbs_mod.graphics.texture.TextureManager;
+import mchorse.bbs_mod.graphics.texture.ThumbnailManager;
 import mchorse.bbs_mod.graphics.window.Window;
 import mchorse.bbs_mod.importers.IImportPathProvider;
 import mchorse.bbs_mod.resources.Link;
@@ -40,6 +42,7 @@ import mchorse.bbs_mod.utils.presets.PresetManager;
 import mchorse.bbs_mod.utils.resources.FilteredLink;
 import mchorse.bbs_mod.utils.resources.LinkUtils;
 import mchorse.bbs_mod.utils.resources.MultiLink;
+import mchorse.bbs_mod.utils.resources.ThumbnailAtlas;
 import org.apache.commons.io.IOUtils;
 import org.lwjgl.glfw.GLFW;
 import org.lwjgl.opengl.GL11;
@@ -208,7 +211,7 @@ public class UITexturePicker extends UIElement implements IImportPathProvider
             /* Draw preview */
             if (link != null)
             {
-                Texture texture = BBSModClient.getTextures().getTexture(link);
+                Texture texture = BBSModClient.getTextures().getLoadedTexture(link);
                 int filter = b.getValue() ? GL11.GL_LINEAR : GL11.GL_NEAREST;
 
                 if (texture.isReallyMipmap())
@@ -228,7 +231,7 @@ public class UITexturePicker extends UIElement implements IImportPathProvider
             /* Draw preview */
             if (link != null)
             {
-                Texture texture = BBSModClient.getTextures().getTexture(link);
+                Texture texture = BBSModClient.getTextures().getLoadedTexture(link);
 
                 texture.bind();
 
@@ -566,9 +569,16 @@ public class UITexturePicker extends UIElement implements IImportPathProvider
      */
     protected void selectCurrent(Link link)
     {
-        if (link != null && !BBSModClient.getTextures().has(link))
+        if (link != null)
         {
-            return;
+            TextureManager textures = BBSModClient.getTextures();
+
+            textures.getLoadedTexture(link);
+
+            if (!textures.has(link))
+            {
+                return;
+            }
         }
 
         this.current = link;
@@ -597,7 +607,7 @@ public class UITexturePicker extends UIElement implements IImportPathProvider
 
     protected void updateOptions()
     {
-        Texture texture = BBSModClient.getTextures().getTexture(this.current);
+        Texture texture = BBSModClient.getTextures().getLoadedTexture(this.current);
 
         this.options.setVisible(this.current != null);
 
@@ -844,41 +854,77 @@ public class UITexturePicker extends UIElement implements IImportPathProvider
                 context.batcher.textShadow(this.typed, x + 2, y + 2);
             }
 
-            Link link = this.current;
+            this.renderPreview(context);
+        }
+    }
 
-            /* Draw preview */
-            if (link != null)
+    /**
+     * Draw preview of the hovered texture in the file list, or the current
+     * one. Previews come from the thumbnail atlas, so hovering over files
+     * doesn't load them as full textures.
+     */
+    private void renderPreview(UIContext context)
+    {
+        ThumbnailManager thumbnails = context.render.getTextures().getThumbnails();
+        Link link = this.current;
+        ThumbnailAtlas.Region region = null;
+
+        if (this.picker.area.isInside(context))
+        {
+            int index = this.picker.getIndexAt(context.mouseX, context.mouseY);
+            Link hovered = index < 0 ? null : this.picker.getList().get(index).link;
+
+            if (thumbnails.supports(hovered) && !hovered.equals(link))
             {
-                Texture texture = context.render.getTextures().getTexture(link);
+                region = thumbnails.get(hovered);
+            }
+        }
 
-                int w = texture.width;
-                int h = texture.height;
+        if (region == null && link != null)
+        {
+            region = thumbnails.get(link);
+        }
 
-                int x = this.area.ex();
-                int y = this.options.area.y;
-                int fw = w;
-                int fh = h;
+        if (region == null && link == null)
+        {
+            return;
+        }
 
-                if (fw > 128 || fh > 128)
-                {
-                    fw = fh = 128;
+        Texture texture = region == null ? context.render.getTextures().getTexture(link) : thumbnails.getTexture();
+        int w = region == null ? texture.width : region.width;
+        int h = region == null ? texture.height : region.height;
 
-                    if (w > h)
-                    {
-                        fh = (int) ((h / (float) w) * fw);
-                    }
-                    else if (h > w)
-                    {
-                        fw = (int) ((w / (float) h) * fh);
-                    }
-                }
+        int x = this.area.ex();
+        int y = this.options.area.y;
+        int fw = w;
+        int fh = h;
 
-                x -= fw + 10;
-                y -= fh;
+        if (fw > 128 || fh > 128)
+        {
+            fw = fh = 128;
 
-                context.batcher.iconArea(Icons.CHECKBOARD, x, y, fw, fh);
-                context.batcher.fullTexturedBox(texture, x, y, fw, fh);
+            if (w > h)
+            {
+                fh = (int) ((h / (float) w) * fw);
             }
+            else if (h > w)
+            {
+                fw = (int) ((w / (float) h) * fh);
+            }
+        }
+
+        x -= fw + 10;
+        y -= fh;
+
+        context.batcher.iconArea(Icons.CHECKBOARD, x, y, fw, fh);
+
+        if (region == null)
+        {
+            context.batcher.fullTexturedBox(texture, x, y, fw, fh);
+        }
+        else
+        {
+            context.batcher.texturedBox(texture, Colors.WHITE, x, y, fw, fh, region.x, region.y, region.x + region.width, region.y + region.height, texture.width, texture.height);
         }
     }
 }
\ No newline at end of file
@@ -3,6 +3,7 @@ package mchorse.bbs_mod.ui.framework.elements.input.keyframes;
 import mchorse.bbs_mod.forms.FormUtils;
 import mchorse.bbs_mod.l10n.keys.IKey;
 import mchorse.bbs_mod.settings.values.base.BaseValueBasic;
+import mchorse.bbs_mod.ui.framework.elements.input.keyframes.graphs.KeyframeGraphCache;
 import mchorse.bbs_mod.ui.utils.icons.Icon;
 import mchorse.bbs_mod.utils.interps.Interpolation;
 import mchorse.bbs_mod.utils.keyframes.Keyframe;
@@ -23,6 +24,7 @@ public class UIKeyframeSheet
 
     public final KeyframeChannel channel;
     public final KeyframeSelection selection;
+    public final KeyframeGraphCache cache;
     public final BaseValueBasic property;
 
     public UIKeyframeSheet(int color, boolean separator, KeyframeChannel channel, BaseValueBasic property)
@@ -39,6 +41,7 @@ public class UIKeyframeSheet
 
         this.channel = channel;
         this.selection = new KeyframeSelection(channel);
+        this.cache = new KeyframeGraphCache(channel);
         this.property = property;
     }
 
@@ -258,6 +258,12 @@ public class UIKeyframes extends UIElement
 
     public void triggerChange()
     {
+        /* Keyframes might've been changed without notifying (e.g. dragging) */
+        for (UIKeyframeSheet sheet : this.currentGraph.getSheets())
+        {
+            sheet.channel.markDirty();
+        }
+
         if (this.changeCallback != null)
         {
             this.changeCallback.run();
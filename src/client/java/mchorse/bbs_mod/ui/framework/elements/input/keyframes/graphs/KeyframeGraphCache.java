@@ -0,0 +1,237 @@
+package mchorse.bbs_mod.ui.framework.elements.input.keyframes.graphs;
+
+import mchorse.bbs_mod.utils.interps.IInterp;
+import mchorse.bbs_mod.utils.interps.Interpolations;
+import mchorse.bbs_mod.utils.keyframes.Keyframe;
+import mchorse.bbs_mod.utils.keyframes.KeyframeChannel;
+import mchorse.bbs_mod.utils.keyframes.KeyframeSegment;
+import mchorse.bbs_mod.utils.keyframes.factories.IKeyframeFactory;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Keyframe graph cache
+ *
+ * Stores data computed from channel's keyframes that doesn't depend on the
+ * viewport: whether neighbour keyframes have the same values, which keyframes
+ * have custom duration, and the curve sampled in tick/value space. It gets
+ * rebuilt only when the channel was modified (see
+ * {@link KeyframeChannel#getVersion()}), so panning and zooming don't
+ * require interpolating the whole channel again.
+ */
+@SuppressWarnings({"rawtypes", "unchecked"})
+public class KeyframeGraphCache
+{
+    public static final int MAX_STEPS = 50;
+    public static final int MIN_STEPS = 8;
+
+    private final KeyframeChannel channel;
+
+    private boolean sheet;
+    private int sheetVersion;
+    private boolean[] same = new boolean[0];
+    private int[] durations = new int[0];
+
+    private boolean curve;
+    private int curveVersion;
+    private int samples;
+    private float[] ticks = new float[64];
+    private double[] values = new double[64];
+    private boolean[] breaks = new boolean[64];
+
+    public KeyframeGraphCache(KeyframeChannel channel)
+    {
+        this.channel = channel;
+    }
+
+    /* Dope sheet */
+
+    /**
+     * Whether keyframe at given index has the same value as previous one.
+     */
+    public boolean isSame(int index)
+    {
+        this.updateSheet();
+
+        return index > 0 && index < this.same.length && this.same[index];
+    }
+
+    /**
+     * Indices of keyframes that have custom duration.
+     */
+    public int[] getDurations()
+    {
+        this.updateSheet();
+
+        return this.durations;
+    }
+
+    private void updateSheet()
+    {
+        if (this.sheet && this.sheetVersion == this.channel.getVersion())
+        {
+            return;
+        }
+
+        List<Keyframe> keyframes = this.channel.getKeyframes();
+        int size = keyframes.size();
+        int count = 0;
+
+        if (this.same.length != size)
+        {
+            this.same = new boolean[size];
+        }
+
+        for (int i = 0; i < size; i++)
+        {
+            Keyframe frame = keyframes.get(i);
+
+            this.same[i] = i > 0 && frame.getFactory().compare(keyframes.get(i - 1).getValue(), frame.getValue());
+
+            if (frame.getDuration() != 0F)
+            {
+                count += 1;
+            }
+        }
+
+        this.durations = new int[count];
+        count = 0;
+
+        for (int i = 0; i < size; i++)
+        {
+            if (keyframes.get(i).getDuration() != 0F)
+            {
+                this.durations[count++] = i;
+            }
+        }
+
+        this.sheet = true;
+        this.sheetVersion = this.channel.getVersion();
+    }
+
+    /* Curve */
+
+    public int getSamples()
+    {
+        this.updateCurve();
+
+        return this.samples;
+    }
+
+    public float getTick(int sample)
+    {
+        return this.ticks[sample];
+    }
+
+    public double getY(int sample)
+    {
+        return this.values[sample];
+    }
+
+    /**
+     * Whether the curve is interrupted before given sample (constant
+     * interpolation jumps).
+     */
+    public boolean isBreak(int sample)
+    {
+        return this.breaks[sample];
+    }
+
+    /**
+     * Find index of the first sample at or after given tick.
+     */
+    public int findSample(float tick)
+    {
+        this.updateCurve();
+
+        int low = 0;
+        int high = this.samples - 1;
+
+        while (low <= high)
+        {
+            int mid = low + (high - low) / 2;
+
+            if (this.ticks[mid] < tick)
+            {
+                low = mid + 1;
+            }
+            else
+            {
+                high = mid - 1;
+            }
+        }
+
+        return low;
+    }
+
+    private void updateCurve()
+    {
+        if (this.curve && this.curveVersion == this.channel.getVersion())
+        {
+            return;
+        }
+
+        List<Keyframe> keyframes = this.channel.getKeyframes();
+        IKeyframeFactory factory = this.channel.getFactory();
+        KeyframeSegment segment = new KeyframeSegment();
+
+        this.samples = 0;
+
+        for (int i = 0; i < keyframes.size(); i++)
+        {
+            Keyframe frame = keyframes.get(i);
+            Keyframe prev = i > 0 ? keyframes.get(i - 1) : null;
+            boolean lineBreak = false;
+
+            if (prev != null)
+            {
+                IInterp interp = prev.getInterpolation().getInterp();
+
+                if (interp == Interpolations.CONST)
+                {
+                    this.add(frame.getTick(), factory.getY(prev.getValue()), false);
+
+                    lineBreak = true;
+                }
+                else if (interp != Interpolations.LINEAR)
+                {
+                    float length = frame.getTick() - prev.getTick();
+                    int steps = Math.max(MIN_STEPS, Math.min(MAX_STEPS, (int) Math.ceil(length * 10F)));
+
+                    segment.fill(this.channel, prev, frame, i - 1);
+
+                    for (int j = 1; j < steps; j++)
+                    {
+                        float tick = prev.getTick() + j / (float) steps * length;
+
+                        segment.setup(tick);
+                        this.add(tick, frame.getFactory().getY(segment.createInterpolated()), false);
+                    }
+                }
+            }
+
+            this.add(frame.getTick(), factory.getY(frame.getValue()), lineBreak);
+        }
+
+        this.curve = true;
+        this.curveVersion = this.channel.getVersion();
+    }
+
+    private void add(float tick, double y, boolean lineBreak)
+    {
+        if (this.samples >= this.ticks.length)
+        {
+            int capacity = this.ticks.length * 2;
+
+            this.ticks = Arrays.copyOf(this.ticks, capacity);
+            this.values = Arrays.copyOf(this.values, capacity);
+            this.breaks = Arrays.copyOf(this.breaks, capacity);
+        }
+
+        this.ticks[this.samples] = tick;
+        this.values[this.samples] = y;
+        this.breaks[this.samples] = lineBreak;
+        this.samples += 1;
+    }
+}
@@ -0,0 +1,104 @@
+package mchorse.bbs_mod.ui.framework.elements.input.keyframes.graphs;
+
+import java.util.Arrays;
+
+/**
+ * Keyframe marks
+ *
+ * Visible keyframes collapsed into pixel columns. Every mark covers one or
+ * more keyframes that fall into the same column, and stores vertical range
+ * of covered keyframes, so dense channels get rendered with at most one
+ * mark per column instead of one per keyframe.
+ */
+public class KeyframeMarks
+{
+    public int size;
+
+    public int[] x = new int[64];
+    public int[] minY = new int[64];
+    public int[] maxY = new int[64];
+    public int[] index = new int[64];
+    public int[] count = new int[64];
+    public boolean[] selected = new boolean[64];
+
+    public void clear()
+    {
+        this.size = 0;
+    }
+
+    public boolean isSingle(int mark)
+    {
+        return this.count[mark] == 1;
+    }
+
+    public void add(int x, int y, int index)
+    {
+        this.add(x, y, index, 1);
+    }
+
+    /**
+     * Add keyframes at given column. If the last mark is at the same column,
+     * then it gets extended instead.
+     */
+    public void add(int x, int y, int index, int count)
+    {
+        int last = this.size - 1;
+
+        if (last >= 0 && this.x[last] == x)
+        {
+            this.minY[last] = Math.min(this.minY[last], y);
+            this.maxY[last] = Math.max(this.maxY[last], y);
+            this.count[last] += count;
+
+            return;
+        }
+
+        if (this.size >= this.x.length)
+        {
+            int capacity = this.x.length * 2;
+
+            this.x = Arrays.copyOf(this.x, capacity);
+            this.minY = Arrays.copyOf(this.minY, capacity);
+            this.maxY = Arrays.copyOf(this.maxY, capacity);
+            this.index = Arrays.copyOf(this.index, capacity);
+            this.count = Arrays.copyOf(this.count, capacity);
+            this.selected = Arrays.copyOf(this.selected, capacity);
+        }
+
+        this.x[this.size] = x;
+        this.minY[this.size] = y;
+        this.maxY[this.size] = y;
+        this.index[this.size] = index;
+        this.count[this.size] = count;
+        this.selected[this.size] = false;
+        this.size += 1;
+    }
+
+    /**
+     * Mark the column that contains given x as selected.
+     */
+    public void select(int x)
+    {
+        int low = 0;
+        int high = this.size - 1;
+
+        while (low <= high)
+        {
+            int mid = low + (high - low) / 2;
+
+            if (this.x[mid] <= x)
+            {
+                low = mid + 1;
+            }
+            else
+            {
+                high = mid - 1;
+            }
+        }
+
+        if (high >= 0)
+        {
+            this.selected[high] = true;
+        }
+    }
+}
@@ -17,6 +17,7 @@ import mchorse.bbs_mod.utils.MathUtils;
 import mchorse.bbs_mod.utils.Pair;
 import mchorse.bbs_mod.utils.colors.Colors;
 import mchorse.bbs_mod.utils.keyframes.Keyframe;
+import mchorse.bbs_mod.utils.keyframes.KeyframeChannel;
 import net.minecraft.client.render.BufferBuilder;
 import net.minecraft.client.render.BufferRenderer;
 import net.minecraft.client.render.GameRenderer;
@@ -30,6 +31,11 @@ import java.util.List;
 
 public class UIKeyframeDopeSheet implements IUIKeyframeGraph
 {
+    /**
+     * How far (in pixels) beyond the area keyframes are still rendered
+     */
+    private static final int MARGIN = 5;
+
     private UIKeyframes keyframes;
 
     private List<UIKeyframeSheet> sheets = new ArrayList<>();
@@ -37,6 +43,10 @@ public class UIKeyframeDopeSheet implements IUIKeyframeGraph
     private Scroll dopeSheet;
     private double trackHeight;
 
+    private final KeyframeMarks marks = new KeyframeMarks();
+    private final Span same = new Span();
+    private final Span close = new Span();
+
     public UIKeyframeDopeSheet(UIKeyframes keyframes)
     {
         this.keyframes = keyframes;
@@ -486,6 +496,10 @@ public class UIKeyframeDopeSheet implements IUIKeyframeGraph
 
     /**
      * Render the graph
+     *
+     * Only keyframes within visible range are processed (found with binary
+     * search), and keyframes that fall into the same pixel column are
+     * collapsed into one mark. All tracks are submitted as one batch.
      */
     @SuppressWarnings({"rawtypes", "IntegerDivisionInFloatingPointContext"})
     protected void renderGraph(UIContext context)
@@ -500,134 +514,197 @@ public class UIKeyframeDopeSheet implements IUIKeyframeGraph
         Area area = this.keyframes.area;
         BufferBuilder builder = Tessellator.getInstance().getBuffer();
         Matrix4f matrix = context.batcher.getContext().getMatrices().peek().getPositionMatrix();
+        int first = Math.max((area.y - this.getDopeSheetY()) / (int) this.trackHeight, 0);
+        int last = Math.min((area.ey() - this.getDopeSheetY()) / (int) this.trackHeight, this.sheets.size() - 1);
+
+        builder.begin(VertexFormat.DrawMode.QUADS, VertexFormats.POSITION_COLOR);
+
+        for (int i = first; i <= last; i++)
+        {
+            this.renderSheet(context, builder, matrix, this.sheets.get(i), this.getDopeSheetY(i));
+        }
 
-        for (int i = 0; i < this.sheets.size(); i++)
+        /* Title and icon backgrounds */
+        for (int i = first; i <= last; i++)
         {
+            UIKeyframeSheet sheet = this.sheets.get(i);
             int y = this.getDopeSheetY(i);
+            int h = (int) this.trackHeight;
+            boolean hover = area.isInside(context) && context.mouseY >= y && context.mouseY < y + this.trackHeight;
+            int lw = context.batcher.getFont().getWidth(sheet.title.get());
+            int c = sheet.color | (hover ? Colors.A75 : Colors.A25);
+            Icon icon = sheet.getIcon();
 
-            if (y + this.trackHeight < area.y || y > area.ey())
+            context.batcher.fillRect(builder, matrix, area.ex() - lw - 10, y, lw + 10, h, sheet.color, c, sheet.color, c);
+
+            if (icon != null && this.trackHeight >= 12D)
             {
-                continue;
+                context.batcher.fillRect(builder, matrix, area.x, y, 6, h, Colors.A75, Colors.A75, Colors.A75, Colors.A75);
+                context.batcher.fillRect(builder, matrix, area.x + 6, y, icon.w - 2, h, Colors.A75, 0, Colors.A75, 0);
             }
+        }
 
-            UIKeyframeSheet sheet = this.sheets.get(i);
-            List keyframes = sheet.channel.getKeyframes();
-
-            boolean hover = area.isInside(context) && context.mouseY >= y && context.mouseY < y + this.trackHeight;
-            int my = y + (int) this.trackHeight / 2;
-            int cc = Colors.setA(sheet.color, hover ? 1F : 0.45F);
+        RenderSystem.enableBlend();
+        RenderSystem.setShader(GameRenderer::getPositionColorProgram);
+        BufferRenderer.drawWithGlobalProgram(builder.end());
 
-            /* Render track bars (horizontal lines) */
-            builder.begin(VertexFormat.DrawMode.QUADS, VertexFormats.POSITION_COLOR);
+        /* Titles and icons */
+        FontRenderer font = context.batcher.getFont();
 
-            context.batcher.fillRect(builder, matrix, area.x, my - 1, area.w, 2, cc, cc, cc, cc);
+        for (int i = first; i <= last; i++)
+        {
+            UIKeyframeSheet sheet = this.sheets.get(i);
+            int y = this.getDopeSheetY(i);
+            int my = y + (int) this.trackHeight / 2;
+            boolean hover = area.isInside(context) && context.mouseY >= y && context.mouseY < y + this.trackHeight;
+            int lw = font.getWidth(sheet.title.get());
 
-            if (sheet.separator)
+            if (hover)
             {
-                int c = Colors.setA(sheet.color, 0F);
-
-                /* Render separator */
-                context.batcher.fillRect(builder, matrix, area.x, y, area.w, (int) this.trackHeight, c | Colors.A25, c | Colors.A25, c, c);
+                context.batcher.textShadow(sheet.title.get(), area.ex() - lw - 5, my - font.getHeight() / 2);
             }
+            else
+            {
+                context.batcher.text(sheet.title.get(), area.ex() - lw - 5, my - font.getHeight() / 2, Colors.WHITE & 0x88ffffff);
+            }
+
+            Icon icon = sheet.getIcon();
 
-            /* Render bars indicating same values */
-            for (int j = 1; j < keyframes.size(); j++)
+            if (icon != null && this.trackHeight >= 12D)
             {
-                Keyframe previous = (Keyframe) keyframes.get(j - 1);
-                Keyframe frame = (Keyframe) keyframes.get(j);
-                int c = Colors.YELLOW | Colors.A25;
-                int xx = this.keyframes.toGraphX(previous.getTick());
-                int xxx = this.keyframes.toGraphX(frame.getTick());
+                context.batcher.icon(icon, area.x + 2, my - icon.h / 2);
+            }
+        }
+    }
 
-                if (previous.getFactory().compare(previous.getValue(), frame.getValue()))
-                {
-                    context.batcher.fillRect(builder, matrix, xx, my - 2, this.keyframes.toGraphX(frame.getTick()) - xx, 4, c, c, c, c);
-                }
+    @SuppressWarnings({"rawtypes"})
+    protected void renderSheet(UIContext context, BufferBuilder builder, Matrix4f matrix, UIKeyframeSheet sheet, int y)
+    {
+        Area area = this.keyframes.area;
+        KeyframeChannel channel = sheet.channel;
+        List keyframes = channel.getKeyframes();
+        KeyframeGraphCache cache = sheet.cache;
 
-                if (Math.abs(xxx - xx) < 5)
-                {
-                    c = Colors.YELLOW | Colors.A50;
+        boolean hover = area.isInside(context) && context.mouseY >= y && context.mouseY < y + this.trackHeight;
+        int my = y + (int) this.trackHeight / 2;
+        int cc = Colors.setA(sheet.color, hover ? 1F : 0.45F);
 
-                    context.batcher.fillRect(builder, matrix, xx - 2, my + 5, xxx - xx + 4, 2, c, c, c, c);
-                }
-            }
+        /* Render track bars (horizontal lines) */
+        context.batcher.fillRect(builder, matrix, area.x, my - 1, area.w, 2, cc, cc, cc, cc);
 
-            /* Draw keyframe handles (outer) */
-            int forcedIndex = 0;
+        if (sheet.separator)
+        {
+            int c = Colors.setA(sheet.color, 0F);
 
-            for (int j = 0; j < keyframes.size(); j++)
-            {
-                Keyframe frame = (Keyframe) keyframes.get(j);
-                float tick = frame.getTick();
-                int x1 = this.keyframes.toGraphX(tick);
-                int x2 = this.keyframes.toGraphX(tick + frame.getDuration());
+            /* Render separator */
+            context.batcher.fillRect(builder, matrix, area.x, y, area.w, (int) this.trackHeight, c | Colors.A25, c | Colors.A25, c, c);
+        }
 
-                /* Render custom duration markers */
-                if (x1 != x2)
-                {
-                    int y1 = my - 8 + (forcedIndex % 2 == 1 ? -4 : 0);
-                    int color = sheet.selection.has(j) ? Colors.WHITE :  Colors.setA(Colors.mulRGB(sheet.color, 0.9F), 0.75F);
+        float minTick = (float) this.keyframes.fromGraphX(area.x - MARGIN);
+        float maxTick = (float) this.keyframes.fromGraphX(area.ex() + MARGIN);
+        int first = Math.max(channel.findIndex(minTick) - 1, 0);
+        int last = Math.min(channel.findIndex(maxTick) + 1, keyframes.size());
 
-                    context.batcher.fillRect(builder, matrix, x1, y1 - 2, 1, 5, color, color, color, color);
-                    context.batcher.fillRect(builder, matrix, x2, y1 - 2, 1, 5, color, color, color, color);
-                    context.batcher.fillRect(builder, matrix, x1 + 1, y1, x2 - x1, 1, color, color, color, color);
+        /* Render bars indicating same values and bars indicating keyframes
+         * that are too close, while collecting keyframes into columns */
+        int sameColor = Colors.YELLOW | Colors.A25;
+        int closeColor = Colors.YELLOW | Colors.A50;
+        int prevX = 0;
 
-                    forcedIndex += 1;
-                }
+        this.marks.clear();
 
-                boolean isPointHover = this.isNear(this.keyframes.toGraphX(frame.getTick()), my, context.mouseX, context.mouseY, Window.isAltPressed() && Window.isShiftPressed());
-                boolean toRemove = Window.isCtrlPressed() && isPointHover;
+        for (int j = first; j < last; )
+        {
+            Keyframe frame = (Keyframe) keyframes.get(j);
+            int x = this.keyframes.toGraphX(frame.getTick());
+            int next = Math.max(channel.findIndex((float) this.keyframes.fromGraphX(x + 1)), j + 1);
 
-                if (this.keyframes.isSelecting())
+            if (j > first)
+            {
+                if (cache.isSame(j))
                 {
-                    isPointHover = isPointHover || this.keyframes.getGrabbingArea(context).isInside(x1, my);
+                    this.same.add(context, builder, matrix, prevX, x, my - 2, 4, sameColor);
                 }
 
-                int c = (sheet.selection.has(j) || isPointHover ? Colors.WHITE : sheet.color) | Colors.A100;
-
-                if (toRemove)
+                if (Math.abs(x - prevX) < 5)
                 {
-                    c = Colors.RED | Colors.A100;
+                    this.close.add(context, builder, matrix, prevX - 2, x + 2, my + 5, 2, closeColor);
                 }
-
-                this.renderSquare(context, builder, matrix, x1, my, toRemove ? 4 : 3, c);
             }
 
-            /* Render keyframe handles (inner) */
-            for (int j = 0; j < keyframes.size(); j++)
+            if (next - j > 1)
             {
-                Keyframe frame = (Keyframe) keyframes.get(j);
-                int c = sheet.selection.has(j) ? Colors.ACTIVE : 0;
-
-                this.renderSquare(context, builder, matrix, this.keyframes.toGraphX(frame.getTick()), my, 2, c | Colors.A100);
+                this.close.add(context, builder, matrix, x - 2, x + 2, my + 5, 2, closeColor);
             }
 
-            RenderSystem.enableBlend();
-            RenderSystem.setShader(GameRenderer::getPositionColorProgram);
-            BufferRenderer.drawWithGlobalProgram(builder.end());
+            this.marks.add(x, my, j, next - j);
 
-            FontRenderer font = context.batcher.getFont();
-            int lw = font.getWidth(sheet.title.get());
+            prevX = x;
+            j = next;
+        }
 
-            context.batcher.gradientHBox(area.ex() - lw - 10, y, area.ex(), y + (int) this.trackHeight, sheet.color, sheet.color | (hover ? Colors.A75 : Colors.A25));
+        this.same.flush(context, builder, matrix, my - 2, 4, sameColor);
+        this.close.flush(context, builder, matrix, my + 5, 2, closeColor);
 
-            if (hover)
+        for (int j : sheet.selection.getIndices())
+        {
+            if (j >= first && j < last)
             {
-                context.batcher.textShadow(sheet.title.get(), area.ex() - lw - 5, my - font.getHeight() / 2);
+                this.marks.select(this.keyframes.toGraphX(((Keyframe) keyframes.get(j)).getTick()));
             }
-            else
+        }
+
+        /* Render custom duration markers */
+        int[] durations = cache.getDurations();
+
+        for (int d = 0; d < durations.length; d++)
+        {
+            Keyframe frame = (Keyframe) keyframes.get(durations[d]);
+            float tick = frame.getTick();
+            int x1 = this.keyframes.toGraphX(tick);
+            int x2 = this.keyframes.toGraphX(tick + frame.getDuration());
+
+            if (x1 != x2 && Math.max(x1, x2) >= area.x && Math.min(x1, x2) <= area.ex())
             {
-                context.batcher.text(sheet.title.get(), area.ex() - lw - 5, my - font.getHeight() / 2, Colors.WHITE & 0x88ffffff);
+                int y1 = my - 8 + (d % 2 == 1 ? -4 : 0);
+                int color = sheet.selection.has(durations[d]) ? Colors.WHITE :  Colors.setA(Colors.mulRGB(sheet.color, 0.9F), 0.75F);
+
+                context.batcher.fillRect(builder, matrix, x1, y1 - 2, 1, 5, color, color, color, color);
+                context.batcher.fillRect(builder, matrix, x2, y1 - 2, 1, 5, color, color, color, color);
+                context.batcher.fillRect(builder, matrix, x1 + 1, y1, x2 - x1, 1, color, color, color, color);
             }
+        }
 
-            Icon icon = sheet.getIcon();
+        /* Draw keyframe handles (outer) */
+        Area grabbing = this.keyframes.isSelecting() ? this.keyframes.getGrabbingArea(context) : null;
 
-            if (icon != null && this.trackHeight >= 12D)
+        for (int j = 0; j < this.marks.size; j++)
+        {
+            int x1 = this.marks.x[j];
+            boolean isPointHover = this.isNear(x1, my, context.mouseX, context.mouseY, Window.isAltPressed() && Window.isShiftPressed());
+            boolean toRemove = Window.isCtrlPressed() && isPointHover;
+
+            if (grabbing != null)
             {
-                context.batcher.box(area.x, y, area.x + 6, y + (int) this.trackHeight, Colors.A75);
-                context.batcher.gradientHBox(area.x + 6, y, area.x + 4 + icon.w, y + (int) this.trackHeight, Colors.A75, 0);
-                context.batcher.icon(icon, area.x + 2, my - icon.h / 2);
+                isPointHover = isPointHover || grabbing.isInside(x1, my);
+            }
+
+            int c = (this.marks.selected[j] || isPointHover ? Colors.WHITE : sheet.color) | Colors.A100;
+
+            if (toRemove)
+            {
+                c = Colors.RED | Colors.A100;
             }
+
+            this.renderSquare(context, builder, matrix, x1, my, toRemove ? 4 : 3, c);
+        }
+
+        /* Render keyframe handles (inner) */
+        for (int j = 0; j < this.marks.size; j++)
+        {
+            int c = this.marks.selected[j] ? Colors.ACTIVE : 0;
+
+            this.renderSquare(context, builder, matrix, this.marks.x[j], my, 2, c | Colors.A100);
         }
     }
 
@@ -657,4 +734,41 @@ public class UIKeyframeDopeSheet implements IUIKeyframeGraph
         this.setTrackHeight(extra.getDouble("track_height"));
         this.dopeSheet.setScroll(extra.getDouble("scroll"));
     }
-}
\ No newline at end of file
+
+    /**
+     * Horizontal span that merges adjacent or overlapping bars, so runs of
+     * bars get rendered as one quad.
+     */
+    private static class Span
+    {
+        private int a;
+        private int b;
+        private boolean active;
+
+        public void add(UIContext context, BufferBuilder builder, Matrix4f matrix, int a, int b, int y, int h, int color)
+        {
+            if (this.active && a <= this.b)
+            {
+                this.b = Math.max(this.b, b);
+
+                return;
+            }
+
+            this.flush(context, builder, matrix, y, h, color);
+
+            this.a = a;
+            this.b = b;
+            this.active = true;
+        }
+
+        public void flush(UIContext context, BufferBuilder builder, Matrix4f matrix, int y, int h, int color)
+        {
+            if (this.active)
+            {
+                context.batcher.fillRect(builder, matrix, this.a, y, this.b - this.a, h, color, color, color, color);
+
+                this.active = false;
+            }
+        }
+    }
+}
@@ -12,14 +12,12 @@ import mchorse.bbs_mod.ui.framework.elements.input.keyframes.UIKeyframes;
 import mchorse.bbs_mod.ui.utils.Area;
 import mchorse.bbs_mod.ui.utils.Scale;
 import mchorse.bbs_mod.ui.utils.ScrollDirection;
+import mchorse.bbs_mod.utils.MathUtils;
 import mchorse.bbs_mod.utils.Pair;
 import mchorse.bbs_mod.utils.colors.Colors;
-import mchorse.bbs_mod.utils.interps.IInterp;
 import mchorse.bbs_mod.utils.interps.Interpolations;
-import mchorse.bbs_mod.utils.interps.Lerps;
 import mchorse.bbs_mod.utils.keyframes.Keyframe;
 import mchorse.bbs_mod.utils.keyframes.KeyframeChannel;
-import mchorse.bbs_mod.utils.keyframes.KeyframeSegment;
 import mchorse.bbs_mod.utils.keyframes.factories.IKeyframeFactory;
 import net.minecraft.client.render.BufferBuilder;
 import net.minecraft.client.render.BufferRenderer;
@@ -34,12 +32,19 @@ import java.util.List;
 
 public class UIKeyframeGraph implements IUIKeyframeGraph
 {
+    /**
+     * How far (in pixels) beyond the area keyframes are still rendered
+     */
+    private static final int MARGIN = 5;
+
     private UIKeyframes keyframes;
 
     private UIKeyframeSheet sheet;
 
     private final Scale yAxis;
 
+    private final KeyframeMarks marks = new KeyframeMarks();
+
     public UIKeyframeGraph(UIKeyframes keyframes, UIKeyframeSheet sheet)
     {
         this.keyframes = keyframes;
@@ -509,6 +514,11 @@ public class UIKeyframeGraph implements IUIKeyframeGraph
 
     /**
      * Render the graph
+     *
+     * The curve is taken from sheet's cache, and only the visible part of
+     * it gets submitted, decimated to at most four points (first, min, max
+     * and last) per pixel column. Keyframes that fall into the same column
+     * are collapsed into one mark that spans from min to max value.
      */
     @SuppressWarnings({"rawtypes", "IntegerDivisionInFloatingPointContext"})
     protected void renderGraph(UIContext context)
@@ -516,187 +526,286 @@ public class UIKeyframeGraph implements IUIKeyframeGraph
         BufferBuilder builder = Tessellator.getInstance().getBuffer();
         Matrix4f matrix = context.batcher.getContext().getMatrices().peek().getPositionMatrix();
 
+        Area area = this.keyframes.area;
         UIKeyframeSheet sheet = this.sheet;
-        List keyframes = sheet.channel.getKeyframes();
-        KeyframeSegment segment = new KeyframeSegment();
+        KeyframeChannel channel = sheet.channel;
+        IKeyframeFactory factory = channel.getFactory();
+        List keyframes = channel.getKeyframes();
+        KeyframeGraphCache cache = sheet.cache;
 
-        /* Render graph */
-        LineBuilder lineBuilder = new LineBuilder(0.7F);
+        float minTick = (float) this.keyframes.fromGraphX(area.x - MARGIN);
+        float maxTick = (float) this.keyframes.fromGraphX(area.ex() + MARGIN);
 
-        for (int i = 0; i < keyframes.size(); i++)
+        /* Collect visible keyframes into columns */
+        int first = Math.max(channel.findIndex(minTick) - 1, 0);
+        int last = Math.min(channel.findIndex(maxTick) + 1, keyframes.size());
+
+        this.marks.clear();
+
+        for (int i = first; i < last; i++)
         {
             Keyframe frame = (Keyframe) keyframes.get(i);
-            Keyframe prev = i > 0 ? (Keyframe) keyframes.get(i - 1) : null;
-            int x = this.keyframes.toGraphX(frame.getTick());
-            int y = this.toGraphY(sheet.channel.getFactory().getY(frame.getValue()));
 
-            if (i == 0 && x > this.keyframes.area.x)
-            {
-                lineBuilder.add(this.keyframes.area.x, y);
-            }
+            this.marks.add(this.keyframes.toGraphX(frame.getTick()), this.toGraphY(factory.getY(frame.getValue())), i);
+        }
 
-            if (prev != null)
+        for (int i : sheet.selection.getIndices())
+        {
+            if (i >= first && i < last)
             {
-                IInterp interp = prev.getInterpolation().getInterp();
-                int px = this.keyframes.toGraphX(prev.getTick());
-                int py = this.toGraphY(sheet.channel.getFactory().getY(prev.getValue()));
-
-                if (interp == Interpolations.CONST)
-                {
-                    lineBuilder.add(x, py);
-                    lineBuilder.push();
-                }
-                else if (interp != Interpolations.LINEAR)
-                {
-                    float steps = 50F;
-
-                    for (int j = 1; j <= steps; j++)
-                    {
-                        float a = j / steps;
-
-                        segment.setup(prev, frame, prev.getTick() + a * (frame.getTick() - prev.getTick()));
-
-                        float interpolate = this.toGraphY((float) frame.getFactory().getY(segment.createInterpolated()));
-
-                        lineBuilder.add(Lerps.lerp(px, x, a), interpolate);
-                    }
-                }
+                this.marks.select(this.keyframes.toGraphX(((Keyframe) keyframes.get(i)).getTick()));
             }
+        }
 
-            lineBuilder.add(x, y);
+        /* Render graph */
+        LineBuilder lineBuilder = new LineBuilder(0.7F);
 
-            if (i == keyframes.size() - 1 && x < this.keyframes.area.ex())
+        this.buildCurve(lineBuilder, cache, minTick, maxTick);
+
+        for (int j = 0; j < this.marks.size; j++)
+        {
+            if (!this.marks.isSingle(j))
             {
-                lineBuilder.add(this.keyframes.area.ex(), y);
+                continue;
             }
 
-            boolean add = false;
+            int i = this.marks.index[j];
+            Keyframe frame = (Keyframe) keyframes.get(i);
+            Keyframe prev = i > 0 ? (Keyframe) keyframes.get(i - 1) : null;
+            int x = this.marks.x[j];
+            int y = this.marks.minY[j];
 
             if (frame.getInterpolation().getInterp() == Interpolations.BEZIER)
             {
                 int rx = this.keyframes.toGraphX(frame.getTick() + frame.rx);
-                int ry = this.toGraphY(sheet.channel.getFactory().getY(frame.getValue()) + frame.ry);
+                int ry = this.toGraphY(factory.getY(frame.getValue()) + frame.ry);
 
                 lineBuilder.push();
                 lineBuilder.add(x, y);
                 lineBuilder.add(rx, ry);
-
-                add = true;
             }
 
             if (prev != null && prev.getInterpolation().getInterp() == Interpolations.BEZIER)
             {
                 int lx = this.keyframes.toGraphX(frame.getTick() - frame.lx);
-                int ly = this.toGraphY(sheet.channel.getFactory().getY(frame.getValue()) + frame.ly);
+                int ly = this.toGraphY(factory.getY(frame.getValue()) + frame.ly);
 
                 lineBuilder.push();
                 lineBuilder.add(x, y);
                 lineBuilder.add(lx, ly);
-
-                add = true;
-            }
-
-            if (add)
-            {
-                lineBuilder.push();
-                lineBuilder.add(x, y);
             }
         }
 
         lineBuilder.render(context.batcher, SolidColorLineRenderer.get(Colors.COLOR.set(Colors.setA(sheet.color, 1F))));
 
-        /* Render track bars (horizontal lines) */
         builder.begin(VertexFormat.DrawMode.QUADS, VertexFormats.POSITION_COLOR);
 
-        /* Draw keyframe handles (outer) */
-        int forcedIndex = 0;
+        /* Render custom duration markers */
+        int[] durations = cache.getDurations();
 
-        for (int i = 0; i < keyframes.size(); i++)
+        for (int d = 0; d < durations.length; d++)
         {
-            Keyframe frame = (Keyframe) keyframes.get(i);
-            Keyframe prev = i > 0 ? (Keyframe) keyframes.get(i - 1) : null;
+            Keyframe frame = (Keyframe) keyframes.get(durations[d]);
             float tick = frame.getTick();
             int x1 = this.keyframes.toGraphX(tick);
             int x2 = this.keyframes.toGraphX(tick + frame.getDuration());
-            int y = this.toGraphY(sheet.channel.getFactory().getY(frame.getValue()));
 
-            /* Render custom duration markers */
-            if (x1 != x2)
+            if (x1 != x2 && Math.max(x1, x2) >= area.x && Math.min(x1, x2) <= area.ex())
             {
-                int y1 = y - 8 + (forcedIndex % 2 == 1 ? -4 : 0);
-                int color = sheet.selection.has(i) ? Colors.WHITE :  Colors.setA(Colors.mulRGB(sheet.color, 0.9F), 0.75F);
+                int y = this.toGraphY(factory.getY(frame.getValue()));
+                int y1 = y - 8 + (d % 2 == 1 ? -4 : 0);
+                int color = sheet.selection.has(durations[d]) ? Colors.WHITE :  Colors.setA(Colors.mulRGB(sheet.color, 0.9F), 0.75F);
 
                 context.batcher.fillRect(builder, matrix, x1, y1 - 2, 1, 5, color, color, color, color);
                 context.batcher.fillRect(builder, matrix, x2, y1 - 2, 1, 5, color, color, color, color);
                 context.batcher.fillRect(builder, matrix, x1 + 1, y1, x2 - x1, 1, color, color, color, color);
-
-                forcedIndex += 1;
             }
+        }
+
+        /* Draw keyframe handles (outer) */
+        Area grabbing = this.keyframes.isSelecting() ? this.keyframes.getGrabbingArea(context) : null;
+
+        for (int j = 0; j < this.marks.size; j++)
+        {
+            int x1 = this.marks.x[j];
+            int minY = this.marks.minY[j];
+            int maxY = this.marks.maxY[j];
+            int y = MathUtils.clamp(context.mouseY, minY, maxY);
 
-            boolean isPointHover = this.isNear(this.keyframes.toGraphX(frame.getTick()), y, context.mouseX, context.mouseY);
+            boolean isPointHover = this.isNear(x1, y, context.mouseX, context.mouseY);
             boolean toRemove = Window.isCtrlPressed() && isPointHover;
 
-            if (this.keyframes.isSelecting())
+            if (grabbing != null)
             {
-                isPointHover = isPointHover || this.keyframes.getGrabbingArea(context).isInside(x1, y);
+                isPointHover = isPointHover || grabbing.isInside(x1, MathUtils.clamp(grabbing.my(), minY, maxY));
             }
 
-            int c = (sheet.selection.has(i) || isPointHover ? Colors.WHITE : sheet.color) | Colors.A100;
+            int c = (this.marks.selected[j] || isPointHover ? Colors.WHITE : sheet.color) | Colors.A100;
 
             if (toRemove)
             {
                 c = Colors.RED | Colors.A100;
             }
 
-            this.renderSquare(context, builder, matrix, x1, y, toRemove ? 4 : 3, c);
+            this.renderMark(context, builder, matrix, j, toRemove ? 4 : 3, c);
+        }
 
-            if (frame.getInterpolation().getInterp() == Interpolations.BEZIER)
+        /* Render keyframe handles (inner) */
+        for (int j = 0; j < this.marks.size; j++)
+        {
+            int c = (this.marks.selected[j] ? Colors.ACTIVE : 0) | Colors.A100;
+
+            this.renderMark(context, builder, matrix, j, 2, c);
+        }
+
+        RenderSystem.enableBlend();
+        RenderSystem.setShader(GameRenderer::getPositionColorProgram);
+        BufferRenderer.drawWithGlobalProgram(builder.end());
+    }
+
+    /**
+     * Add visible part of cached curve to the line builder
+     */
+    private void buildCurve(LineBuilder lineBuilder, KeyframeGraphCache cache, float minTick, float maxTick)
+    {
+        Area area = this.keyframes.area;
+        Scale xAxis = this.keyframes.getXAxis();
+        int samples = cache.getSamples();
+
+        if (samples == 0)
+        {
+            return;
+        }
+
+        int first = Math.max(cache.findSample(minTick) - 1, 0);
+        int last = Math.min(cache.findSample(maxTick) + 1, samples);
+
+        if (first == 0)
+        {
+            float x = (float) xAxis.to(cache.getTick(0));
+
+            if (x > area.x)
             {
-                int rx = this.keyframes.toGraphX(frame.getTick() + frame.rx);
-                int ry = this.toGraphY(sheet.channel.getFactory().getY(frame.getValue()) + frame.ry);
+                lineBuilder.add(area.x, (float) this.yAxis.to(cache.getY(0)));
+            }
+        }
+
+        int column = 0;
+        int count = 0;
+        int firstSample = 0;
+        int minSample = 0;
+        int maxSample = 0;
+        int lastSample = 0;
+
+        for (int i = first; i < last; i++)
+        {
+            double y = cache.getY(i);
+            int x = (int) xAxis.to(cache.getTick(i));
+            boolean lineBreak = cache.isBreak(i) && (i < 2 || (int) xAxis.to(cache.getTick(i - 2)) != x);
+
+            if (count > 0 && (x != column || lineBreak))
+            {
+                this.addColumn(lineBuilder, cache, count, firstSample, minSample, maxSample, lastSample);
 
-                this.renderSquare(context, builder, matrix, rx, ry, 3, c);
+                count = 0;
             }
 
-            if (prev != null && prev.getInterpolation().getInterp() == Interpolations.BEZIER)
+            if (lineBreak)
             {
-                int lx = this.keyframes.toGraphX(frame.getTick() - frame.lx);
-                int ly = this.toGraphY(sheet.channel.getFactory().getY(frame.getValue()) + frame.ly);
+                lineBuilder.push();
+            }
 
-                this.renderSquare(context, builder, matrix, lx, ly, 3, c);
+            if (count == 0)
+            {
+                column = x;
+                firstSample = minSample = maxSample = i;
+            }
+            else if (y < cache.getY(minSample))
+            {
+                minSample = i;
+            }
+            else if (y > cache.getY(maxSample))
+            {
+                maxSample = i;
             }
+
+            lastSample = i;
+            count += 1;
         }
 
-        /* Render keyframe handles (inner) */
-        for (int j = 0; j < keyframes.size(); j++)
+        if (count > 0)
         {
-            Keyframe frame = (Keyframe) keyframes.get(j);
-            Keyframe prev = j > 0 ? (Keyframe) keyframes.get(j - 1) : null;
-            int y = this.toGraphY(sheet.channel.getFactory().getY(frame.getValue()));
-            int c = sheet.selection.has(j) ? Colors.ACTIVE : 0;
+            this.addColumn(lineBuilder, cache, count, firstSample, minSample, maxSample, lastSample);
+        }
 
-            this.renderSquare(context, builder, matrix, this.keyframes.toGraphX(frame.getTick()), y, 2, c | Colors.A100);
+        if (last == samples)
+        {
+            float x = (float) xAxis.to(cache.getTick(samples - 1));
 
-            if (frame.getInterpolation().getInterp() == Interpolations.BEZIER)
+            if (x < area.ex())
             {
-                int rx = this.keyframes.toGraphX(frame.getTick() + frame.rx);
-                int ry = this.toGraphY(sheet.channel.getFactory().getY(frame.getValue()) + frame.ry);
-
-                this.renderSquare(context, builder, matrix, rx, ry, 2, c | Colors.A100);
+                lineBuilder.add(area.ex(), (float) this.yAxis.to(cache.getY(samples - 1)));
             }
+        }
+    }
 
-            if (prev != null && prev.getInterpolation().getInterp() == Interpolations.BEZIER)
-            {
-                int lx = this.keyframes.toGraphX(frame.getTick() - frame.lx);
-                int ly = this.toGraphY(sheet.channel.getFactory().getY(frame.getValue()) + frame.ly);
+    private void addColumn(LineBuilder lineBuilder, KeyframeGraphCache cache, int count, int first, int min, int max, int last)
+    {
+        this.addSample(lineBuilder, cache, first);
 
-                this.renderSquare(context, builder, matrix, lx, ly, 2, c | Colors.A100);
-            }
+        if (count > 1)
+        {
+            if (min != first && min != last && min < max) this.addSample(lineBuilder, cache, min);
+            if (max != first && max != last) this.addSample(lineBuilder, cache, max);
+            if (min != first && min != last && min > max) this.addSample(lineBuilder, cache, min);
+
+            this.addSample(lineBuilder, cache, last);
         }
+    }
 
-        RenderSystem.enableBlend();
-        RenderSystem.setShader(GameRenderer::getPositionColorProgram);
-        BufferRenderer.drawWithGlobalProgram(builder.end());
+    private void addSample(LineBuilder lineBuilder, KeyframeGraphCache cache, int sample)
+    {
+        lineBuilder.add((float) this.keyframes.getXAxis().to(cache.getTick(sample)), (float) this.yAxis.to(cache.getY(sample)));
+    }
+
+    /**
+     * Render keyframe mark, which is either a square (if it's a single
+     * keyframe), or a vertical span covering all keyframes in the column.
+     */
+    protected void renderMark(UIContext context, BufferBuilder builder, Matrix4f matrix, int mark, int offset, int c)
+    {
+        int x = this.marks.x[mark];
+        int minY = this.marks.minY[mark];
+        int maxY = this.marks.maxY[mark];
+
+        context.batcher.fillRect(builder, matrix, x - offset, minY - offset, offset * 2, maxY - minY + offset * 2, c, c, c, c);
+
+        if (!this.marks.isSingle(mark))
+        {
+            return;
+        }
+
+        KeyframeChannel channel = this.sheet.channel;
+        int i = this.marks.index[mark];
+        Keyframe frame = channel.get(i);
+        Keyframe prev = channel.get(i - 1);
+        double y = channel.getFactory().getY(frame.getValue());
+
+        if (frame.getInterpolation().getInterp() == Interpolations.BEZIER)
+        {
+            int rx = this.keyframes.toGraphX(frame.getTick() + frame.rx);
+            int ry = this.toGraphY(y + frame.ry);
+
+            this.renderSquare(context, builder, matrix, rx, ry, offset == 4 ? 3 : offset, c);
+        }
+
+        if (prev != null && prev.getInterpolation().getInterp() == Interpolations.BEZIER)
+        {
+            int lx = this.keyframes.toGraphX(frame.getTick() - frame.lx);
+            int ly = this.toGraphY(y + frame.ly);
+
+            this.renderSquare(context, builder, matrix, lx, ly, offset == 4 ? 3 : offset, c);
+        }
     }
 
     protected void renderSquare(UIContext context, BufferBuilder builder, Matrix4f matrix, int x, int y, int offset, int c)
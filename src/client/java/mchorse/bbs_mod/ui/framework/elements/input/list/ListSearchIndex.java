@@ -0,0 +1,469 @@
+package mchorse.bbs_mod.ui.framework.elements.input.list;
+
+import mchorse.bbs_mod.utils.Pair;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * List search index
+ *
+ * Caches normalized (lower case) labels of list elements along with word
+ * boundaries (start of the label, characters after separators, camel case
+ * humps and digits) and a mask of characters they contain, so they don't
+ * have to be computed on every keystroke.
+ *
+ * Every whitespace separated token of the query has to be contained in the
+ * label, or fuzzy match it, i.e. token's characters have to appear in the
+ * label in the same order, with the first one starting a word. Results are
+ * ranked: labels that contain tokens as is always come first, then matches
+ * at word boundaries and consecutive characters are preferred, then shorter
+ * labels, and then original order.
+ *
+ * When the query is extended (e.g. user typed another character), only
+ * elements that matched the previous query are checked again.
+ */
+public class ListSearchIndex <T>
+{
+    private static final int MATCH = 16;
+    private static final int CONSECUTIVE = 24;
+    private static final int BOUNDARY = 32;
+    private static final int PREFIX = 48;
+    private static final int MAX_GAP_PENALTY = 16;
+    private static final int SUBSTRING = 1 << 20;
+
+    /**
+     * Alternative spelling of the query (e.g. query typed with a wrong
+     * keyboard layout), may be null.
+     */
+    private final Function<String, String> alternative;
+
+    private List<Entry> entries = new ArrayList<>();
+
+    /**
+     * Entries sorted by label length and index (used to break ties between
+     * equally scored entries), and position of every entry in that order.
+     */
+    private int[] byLength = new int[0];
+    private int[] lengthOrder = new int[0];
+
+    private String lastQuery;
+    private int[] candidates;
+    private int candidatesCount;
+    private int[] scores = new int[0];
+
+    /* Statistics */
+    private int labeled;
+    private int scored;
+
+    public ListSearchIndex()
+    {
+        this(null);
+    }
+
+    public ListSearchIndex(Function<String, String> alternative)
+    {
+        this.alternative = alternative;
+    }
+
+    /**
+     * Amount of labels that were computed so far.
+     */
+    public int getLabeled()
+    {
+        return this.labeled;
+    }
+
+    /**
+     * Amount of labels that were scored against a query so far.
+     */
+    public int getScored()
+    {
+        return this.scored;
+    }
+
+    /**
+     * Drop cached labels (e.g. when labels of the elements changed).
+     */
+    public void invalidate()
+    {
+        this.entries.clear();
+        this.lastQuery = null;
+    }
+
+    /**
+     * Search given list, and add ranked matching elements (paired with
+     * their index in the list) to the output.
+     */
+    public void search(List<T> list, String query, BiFunction<Integer, T, String> labeler, List<Pair<T, Integer>> output)
+    {
+        boolean changed = this.sync(list, labeler);
+
+        if (changed || this.lengthOrder.length != list.size())
+        {
+            this.sortByLength();
+        }
+
+        query = normalize(query);
+
+        String[] tokens = tokenize(query);
+        String[] altTokens = null;
+        long mask = getMask(query);
+        long altMask = 0;
+
+        if (this.alternative != null)
+        {
+            String alt = this.alternative.apply(query);
+
+            if (!alt.equals(query))
+            {
+                altTokens = tokenize(alt);
+                altMask = getMask(alt);
+            }
+        }
+
+        /* Elements that don't match the query can't match a longer one */
+        boolean narrow = !changed && this.lastQuery != null && query.startsWith(this.lastQuery);
+        int count = narrow ? this.candidatesCount : list.size();
+        int[] matched = new int[count];
+        int found = 0;
+
+        if (this.scores.length < list.size())
+        {
+            this.scores = new int[list.size()];
+        }
+
+        for (int i = 0; i < count; i++)
+        {
+            int index = narrow ? this.candidates[i] : i;
+            Entry entry = this.entries.get(index);
+            int score = -1;
+
+            if ((mask & ~entry.mask) == 0)
+            {
+                score = score(tokens, entry.label, entry.starts);
+            }
+
+            if (altTokens != null && (altMask & ~entry.mask) == 0)
+            {
+                score = Math.max(score, score(altTokens, entry.label, entry.starts));
+            }
+
+            this.scored += 1;
+
+            if (score >= 0)
+            {
+                matched[found++] = index;
+                this.scores[index] = score;
+            }
+        }
+
+        this.lastQuery = query;
+        this.candidates = matched;
+        this.candidatesCount = found;
+
+        /* Rank by score, and then by label length and index */
+        long[] ranked = new long[found];
+
+        for (int i = 0; i < found; i++)
+        {
+            int index = matched[i];
+
+            ranked[i] = ((long) (Integer.MAX_VALUE - this.scores[index]) << 32) | this.lengthOrder[index];
+        }
+
+        Arrays.sort(ranked);
+
+        for (long key : ranked)
+        {
+            int index = this.byLength[(int) key];
+
+            output.add(new Pair<>(list.get(index), index));
+        }
+    }
+
+    private void sortByLength()
+    {
+        int size = this.entries.size();
+        long[] keys = new long[size];
+
+        for (int i = 0; i < size; i++)
+        {
+            keys[i] = ((long) this.entries.get(i).label.length() << 32) | i;
+        }
+
+        Arrays.sort(keys);
+
+        this.byLength = new int[size];
+        this.lengthOrder = new int[size];
+
+        for (int i = 0; i < size; i++)
+        {
+            int index = (int) keys[i];
+
+            this.byLength[i] = index;
+            this.lengthOrder[index] = i;
+        }
+    }
+
+    /**
+     * Make sure that cached labels belong to list's elements, and return
+     * whether anything changed.
+     */
+    private boolean sync(List<T> list, BiFunction<Integer, T, String> labeler)
+    {
+        boolean changed = false;
+
+        for (int i = 0, c = list.size(); i < c; i++)
+        {
+            T element = list.get(i);
+
+            if (i < this.entries.size() && this.entries.get(i).element == element)
+            {
+                continue;
+            }
+
+            Entry entry = new Entry(element, labeler.apply(i, element));
+
+            if (i < this.entries.size())
+            {
+                this.entries.set(i, entry);
+            }
+            else
+            {
+                this.entries.add(entry);
+            }
+
+            this.labeled += 1;
+            changed = true;
+        }
+
+        while (this.entries.size() > list.size())
+        {
+            this.entries.remove(this.entries.size() - 1);
+
+            changed = true;
+        }
+
+        return changed;
+    }
+
+    /* Scoring */
+
+    /**
+     * Lower case given string character by character, so indices of
+     * characters in the label and in its boundaries stay the same.
+     */
+    public static String normalize(String string)
+    {
+        char[] chars = string.toCharArray();
+
+        for (int i = 0; i < chars.length; i++)
+        {
+            chars[i] = Character.toLowerCase(chars[i]);
+        }
+
+        return new String(chars);
+    }
+
+    /**
+     * Mask of characters in given string, used to quickly skip labels that
+     * don't have some of query's characters.
+     */
+    public static long getMask(String string)
+    {
+        long mask = 0;
+
+        for (int i = 0, c = string.length(); i < c; i++)
+        {
+            char character = string.charAt(i);
+
+            if (!Character.isWhitespace(character))
+            {
+                mask |= 1L << (character & 63);
+            }
+        }
+
+        return mask;
+    }
+
+    private static String[] tokenize(String query)
+    {
+        String trimmed = query.trim();
+
+        return trimmed.isEmpty() ? new String[0] : trimmed.split("\\s+");
+    }
+
+    /**
+     * Find characters that start a word in given (not normalized) label.
+     */
+    public static boolean[] getBoundaries(String label)
+    {
+        boolean[] starts = new boolean[label.length()];
+
+        for (int i = 0; i < starts.length; i++)
+        {
+            char c = label.charAt(i);
+
+            if (i == 0)
+            {
+                starts[i] = true;
+
+                continue;
+            }
+
+            char prev = label.charAt(i - 1);
+
+            starts[i] = Character.isLetterOrDigit(c) && (
+                !Character.isLetterOrDigit(prev) ||
+                (Character.isUpperCase(c) && Character.isLowerCase(prev)) ||
+                (Character.isDigit(c) && !Character.isDigit(prev))
+            );
+        }
+
+        return starts;
+    }
+
+    /**
+     * Score every token against given label, returns -1 if any of them
+     * doesn't match.
+     */
+    public static int score(String[] tokens, String label, boolean[] starts)
+    {
+        int total = 0;
+
+        for (String token : tokens)
+        {
+            int score = score(token, label, starts);
+
+            if (score < 0)
+            {
+                return -1;
+            }
+
+            total += score;
+        }
+
+        return total;
+    }
+
+    /**
+     * Score a single (normalized) token against given (normalized) label,
+     * returns -1 if it doesn't match.
+     */
+    public static int score(String token, String label, boolean[] starts)
+    {
+        int index = label.indexOf(token);
+
+        if (index >= 0)
+        {
+            /* Prefer an occurrence that starts a word */
+            for (int i = index; i >= 0 && !starts[index]; i = label.indexOf(token, i + 1))
+            {
+                if (starts[i])
+                {
+                    index = i;
+                }
+            }
+
+            int score = SUBSTRING + token.length() * MATCH + (token.length() - 1) * CONSECUTIVE;
+
+            if (index == 0)
+            {
+                score += PREFIX;
+            }
+
+            if (starts[index])
+            {
+                score += BOUNDARY;
+            }
+
+            return score;
+        }
+
+        int greedy = fuzzy(token, label, starts, false);
+
+        return greedy < 0 ? -1 : Math.max(greedy, fuzzy(token, label, starts, true));
+    }
+
+    /**
+     * Match token's characters one by one, starting at the first word that
+     * starts with token's first character. When boundaries are preferred,
+     * a character that doesn't continue previous match is matched at the
+     * start of a following word instead (if there is one), which may fail
+     * where plain greedy matching wouldn't.
+     */
+    private static int fuzzy(String token, String label, boolean[] starts, boolean preferBoundaries)
+    {
+        int score = 0;
+        int last = -1;
+
+        for (int i = 0, c = token.length(); i < c; i++)
+        {
+            char character = token.charAt(i);
+            int index = label.indexOf(character, last + 1);
+
+            while (i == 0 && index >= 0 && !starts[index])
+            {
+                index = label.indexOf(character, index + 1);
+            }
+
+            if (index < 0)
+            {
+                return -1;
+            }
+
+            if (preferBoundaries && index != last + 1 && !starts[index])
+            {
+                for (int j = label.indexOf(character, index + 1); j >= 0; j = label.indexOf(character, j + 1))
+                {
+                    if (starts[j])
+                    {
+                        index = j;
+
+                        break;
+                    }
+                }
+            }
+
+            score += MATCH;
+
+            if (index == last + 1 && last >= 0)
+            {
+                score += CONSECUTIVE;
+            }
+            else
+            {
+                score -= Math.min(index - last - 1, MAX_GAP_PENALTY);
+            }
+
+            if (starts[index])
+            {
+                score += index == 0 ? PREFIX + BOUNDARY : BOUNDARY;
+            }
+
+            last = index;
+        }
+
+        return score;
+    }
+
+    private static class Entry
+    {
+        public final Object element;
+        public final String label;
+        public final boolean[] starts;
+        public final long mask;
+
+        public Entry(Object element, String label)
+        {
+            this.element = element;
+            this.label = normalize(label);
+            this.starts = getBoundaries(label);
+            this.mask = getMask(this.label);
+        }
+    }
+}
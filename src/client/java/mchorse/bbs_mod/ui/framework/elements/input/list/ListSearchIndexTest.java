@@ -0,0 +1,251 @@
+package mchorse.bbs_mod.ui.framework.elements.input.list;
+
+import com.ibm.icu.impl.Assert;
+import mchorse.bbs_mod.utils.Pair;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Function;
+
+public class ListSearchIndexTest
+{
+    public static void main(String[] args)
+    {
+        testRanking();
+        testNarrowing();
+        testAlternative();
+        benchmark(50_000);
+    }
+
+    private static void testRanking()
+    {
+        ListSearchIndex<String> index = new ListSearchIndex<>();
+        List<String> list = Arrays.asList(
+            "textures/blocks/stone_bricks.png",
+            "textures/entity/steve.png",
+            "models/stone/model.bbmodel",
+            "sounds/step_on_stone.ogg",
+            "textures/items/sword.png",
+            "Stone"
+        );
+
+        /* Prefix matches go first, then shorter labels */
+        Assert.assrt(search(index, list, "stone").equals(Arrays.asList("Stone", "sounds/step_on_stone.ogg", "models/stone/model.bbmodel", "textures/blocks/stone_bricks.png")));
+
+        /* Every character matches at the start of a word */
+        Assert.assrt(search(index, list, "tbsb").equals(Arrays.asList("textures/blocks/stone_bricks.png")));
+        Assert.assrt(search(index, list, "tis").get(0).equals("textures/items/sword.png"));
+
+        /* Every token has to match */
+        Assert.assrt(search(index, list, "png stone").equals(Arrays.asList("textures/blocks/stone_bricks.png")));
+        Assert.assrt(search(index, list, "xyz").isEmpty());
+
+        /* Fuzzy matches have to start at a word */
+        Assert.assrt(search(index, list, "tpng").equals(Arrays.asList("textures/items/sword.png", "textures/entity/steve.png", "textures/blocks/stone_bricks.png")));
+        Assert.assrt(search(index, list, "ogg").equals(Arrays.asList("sounds/step_on_stone.ogg")));
+        Assert.assrt(search(index, list, "nb").isEmpty());
+
+        /* Camel case and digits start words as well */
+        Assert.assrt(ListSearchIndex.score("fb", "foobar", ListSearchIndex.getBoundaries("fooBar")) > ListSearchIndex.score("fb", "foobar", ListSearchIndex.getBoundaries("foobar")));
+        Assert.assrt(ListSearchIndex.getBoundaries("model2")[5]);
+
+        /* Old substring results are always ranked before fuzzy results */
+        List<String> words = Arrays.asList("a_b_c_d", "xxabcdxx");
+
+        Assert.assrt(search(index, words, "abcd").equals(Arrays.asList("xxabcdxx", "a_b_c_d")));
+    }
+
+    private static void testNarrowing()
+    {
+        ListSearchIndex<String> index = new ListSearchIndex<>();
+        List<String> list = generate(1000, new Random(1));
+
+        search(index, list, "t");
+
+        int labeled = index.getLabeled();
+        int scored = index.getScored();
+        List<String> results = search(index, list, "te");
+
+        /* Labels are cached and only previous results are scored again */
+        Assert.assrt(labeled == list.size());
+        Assert.assrt(index.getLabeled() == labeled);
+        Assert.assrt(index.getScored() - scored < list.size());
+        Assert.assrt(results.equals(search(new ListSearchIndex<>(), list, "te")));
+
+        /* Shorter or different query checks all elements */
+        scored = index.getScored();
+        search(index, list, "s");
+
+        Assert.assrt(index.getScored() - scored == list.size());
+
+        /* Changing the list relabels only changed elements */
+        List<String> copy = new ArrayList<>(list);
+
+        copy.set(10, "textures/zzz.png");
+        copy.remove(20);
+        labeled = index.getLabeled();
+
+        Assert.assrt(search(index, copy, "zzz").equals(Arrays.asList("textures/zzz.png")));
+        Assert.assrt(index.getLabeled() - labeled < copy.size() - 10);
+
+        /* Narrowing after changing the list still finds changed elements */
+        search(index, copy, "tex");
+        copy.set(0, "texture_new");
+
+        Assert.assrt(search(index, copy, "texture_n").contains("texture_new"));
+    }
+
+    private static void testAlternative()
+    {
+        ListSearchIndex<String> index = new ListSearchIndex<>((query) -> query.replace('с', 'c').replace('ф', 'a').replace('е', 't'));
+        List<String> list = Arrays.asList("cat", "dog");
+
+        Assert.assrt(search(index, list, "сфе").equals(Arrays.asList("cat")));
+    }
+
+    /**
+     * Type queries into a big list, comparing the index against the old
+     * way of filtering (building, lower casing and checking every label).
+     */
+    private static void benchmark(int size)
+    {
+        Random random = new Random(42);
+        List<Asset> list = new ArrayList<>();
+
+        for (String path : generate(size, random))
+        {
+            int slash = path.lastIndexOf('/') + 1;
+
+            list.add(new Asset(path.substring(0, slash), path.substring(slash)));
+        }
+
+        String[] queries = {"textures/blocks/stone", "skin_steve", "sound step", "mdl cat", "pk3 fol12"};
+        int keystrokes = 0;
+
+        for (String query : queries)
+        {
+            keystrokes += query.length();
+        }
+
+        /* Second run is measured, so both are warmed up */
+        long linear = 0;
+        long indexed = 0;
+        ListSearchIndex<Asset> index = null;
+
+        for (int run = 0; run < 2; run++)
+        {
+            long time = System.nanoTime();
+
+            for (String query : queries)
+            {
+                for (int i = 1; i <= query.length(); i++)
+                {
+                    contains(list, query.substring(0, i));
+                }
+            }
+
+            linear = System.nanoTime() - time;
+            index = new ListSearchIndex<>();
+            time = System.nanoTime();
+
+            for (String query : queries)
+            {
+                for (int i = 1; i <= query.length(); i++)
+                {
+                    search(index, list, query.substring(0, i), Asset::toString);
+                }
+            }
+
+            indexed = System.nanoTime() - time;
+        }
+
+        System.out.println(size + " labels, " + keystrokes + " keystrokes: contains " + linear / 1_000_000 + " ms (" + linear / keystrokes / 1000 + " us per keystroke), index " + indexed / 1_000_000 + " ms (" + indexed / keystrokes / 1000 + " us per keystroke), " + index.getScored() + " labels scored");
+
+        /* Fuzzy results include every result of the old filtering */
+        for (String query : queries)
+        {
+            List<Asset> results = search(index, list, query, Asset::toString);
+
+            for (Pair<Asset, Integer> pair : contains(list, query))
+            {
+                Assert.assrt(results.contains(pair.a));
+            }
+        }
+
+        Assert.assrt(index.getLabeled() == size);
+        Assert.assrt(index.getScored() < (long) size * keystrokes / 2);
+    }
+
+    private static List<Pair<Asset, Integer>> contains(List<Asset> list, String filter)
+    {
+        List<Pair<Asset, Integer>> filtered = new ArrayList<>();
+
+        for (int j = 0; j < list.size(); j++)
+        {
+            String target = list.get(j).toString().toLowerCase();
+
+            if (target.contains(filter))
+            {
+                filtered.add(new Pair<>(list.get(j), j));
+            }
+        }
+
+        return filtered;
+    }
+
+    private static List<String> generate(int size, Random random)
+    {
+        String[] folders = {"textures/blocks/", "textures/entity/", "skins/", "models/", "sounds/", "particles/"};
+        String[] words = {"stone", "Steve", "cat", "step", "grass", "dirt", "Alex", "zombie", "fire", "water", "mdl"};
+        String[] extensions = {".png", ".ogg", ".bbmodel", ".json"};
+        List<String> list = new ArrayList<>(size);
+
+        for (int i = 0; i < size; i++)
+        {
+            list.add(folders[random.nextInt(folders.length)] + "pk" + (i % 7) + "/fol" + (i % 100) + "/" + words[random.nextInt(words.length)] + "_" + words[random.nextInt(words.length)] + i + extensions[random.nextInt(extensions.length)]);
+        }
+
+        return list;
+    }
+
+    private static List<String> search(ListSearchIndex<String> index, List<String> list, String query)
+    {
+        return search(index, list, query, (element) -> element);
+    }
+
+    private static <T> List<T> search(ListSearchIndex<T> index, List<T> list, String query, Function<T, String> label)
+    {
+        List<Pair<T, Integer>> output = new ArrayList<>();
+        List<T> results = new ArrayList<>();
+
+        index.search(list, query, (i, element) -> label.apply(element), output);
+
+        for (Pair<T, Integer> pair : output)
+        {
+            Assert.assrt(list.get(pair.b) == pair.a);
+            results.add(pair.a);
+        }
+
+        return results;
+    }
+
+    private static class Asset
+    {
+        public final String folder;
+        public final String name;
+
+        public Asset(String folder, String name)
+        {
+            this.folder = folder;
+            this.name = name;
+        }
+
+        @Override
+        public String toString()
+        {
+            return this.folder + this.name;
+        }
+    }
+}
@@ -70,6 +70,7 @@ public abstract class UIList <T> extends UIElement
 
     private String filter = "";
     private List<Pair<T, Integer>> filtered = new ArrayList<>();
+    private ListSearchIndex<T> searchIndex = new ListSearchIndex<>(KeyCodes::cyrillicToQwerty);
 
     private int dragging = -1;
     private long dragTime;
@@ -147,23 +148,16 @@ public abstract class UIList <T> extends UIElement
 
         if (filter.isEmpty())
         {
+            /* Labels might change until the next search */
+            this.searchIndex.invalidate();
             this.update();
 
             return;
         }
 
-        String qwerty = KeyCodes.cyrillicToQwerty(filter);
+        UIContext context = this.getContext();
 
-        for (int i = 0; i < this.list.size(); i ++)
-        {
-            T element = this.list.get(i);
-            String target = this.elementToString(this.getContext(), i, element).toLowerCase();
-
-            if (target.contains(filter) || target.contains(qwerty))
-            {
-                this.filtered.add(new Pair<>(element, i));
-            }
-        }
+        this.searchIndex.search(this.list, filter, (i, element) -> this.elementToString(context, i, element), this.filtered);
 
         this.update();
         this.scroll.updateTarget();
@@ -484,6 +478,22 @@ public abstract class UIList <T> extends UIElement
         return index >= 0 && index < list.size();
     }
 
+    /**
+     * Get index of the element (in the whole list, not only filtered
+     * elements) at given point, or -1 if there is none
+     */
+    public int getIndexAt(int x, int y)
+    {
+        int index = this.scroll.getIndex(x, y);
+
+        if (this.isFiltering())
+        {
+            index = this.exists(this.filtered, index) ? this.filtered.get(index).b : -1;
+        }
+
+        return this.exists(index) ? index : -1;
+    }
+
     public boolean isDragging()
     {
         return this.exists(this.dragging) && System.currentTimeMillis() - this.dragTime > 100;
@@ -512,14 +522,9 @@ public abstract class UIList <T> extends UIElement
 
         if (this.area.isInside(context) && context.mouseButton == 0)
         {
-            int index = this.scroll.getIndex(context.mouseX, context.mouseY);
+            int index = this.getIndexAt(context.mouseX, context.mouseY);
             boolean filtering = this.isFiltering();
 
-            if (filtering)
-            {
-                index = this.exists(this.filtered, index) ? this.filtered.get(index).b : -1;
-            }
-
             if (this.exists(index))
             {
                 if (this.multi && Window.isShiftPressed() && this.isSelected())
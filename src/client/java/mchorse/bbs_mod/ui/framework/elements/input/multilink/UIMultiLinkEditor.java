@@ -94,7 +94,7 @@ public class UIMultiLinkEditor extends UICanvasEditor
 
         for (FilteredLink child : this.picker.multiLink.children)
         {
-            Texture texture = BBSModClient.getTextures().getTexture(child.path);
+            Texture texture = BBSModClient.getTextures().getLoadedTexture(child.path);
 
             w = Math.max(w, child.getWidth(texture.width));
             h = Math.max(h, child.getHeight(texture.height));
@@ -113,7 +113,7 @@ public class UIMultiLinkEditor extends UICanvasEditor
         {
             try
             {
-                Texture texture = BBSModClient.getTextures().getTexture(child.path);
+                Texture texture = BBSModClient.getTextures().getLoadedTexture(child.path);
 
                 w = Math.max(w, child.getWidth(texture.width));
                 h = Math.max(h, child.getHeight(texture.height));
@@ -3,6 +3,7 @@ package mchorse.bbs_mod.ui.framework.elements.input.text;
 import mchorse.bbs_mod.ui.framework.UIContext;
 import mchorse.bbs_mod.ui.framework.elements.input.text.highlighting.HighlightedTextLine;
 import mchorse.bbs_mod.ui.framework.elements.input.text.highlighting.ISyntaxHighlighter;
+import mchorse.bbs_mod.ui.framework.elements.input.text.highlighting.IncrementalHighlighter;
 import mchorse.bbs_mod.ui.framework.elements.input.text.highlighting.JSSyntaxHighlighter;
 import mchorse.bbs_mod.ui.framework.elements.input.text.highlighting.SyntaxStyle;
 import mchorse.bbs_mod.ui.framework.elements.input.text.highlighting.TextLineNumber;
@@ -20,6 +21,7 @@ import java.util.function.Consumer;
 public class UITextEditor extends UITextarea<HighlightedTextLine>
 {
     private ISyntaxHighlighter highlighter;
+    private IncrementalHighlighter highlighting = new IncrementalHighlighter();
     private int placements;
     private boolean lines = true;
 
@@ -36,6 +38,7 @@ public class UITextEditor extends UITextarea<HighlightedTextLine>
     public UITextEditor highlighter(ISyntaxHighlighter highlighter)
     {
         this.highlighter = highlighter;
+        this.resetHighlight();
 
         return this;
     }
@@ -58,11 +61,17 @@ public class UITextEditor extends UITextarea<HighlightedTextLine>
         return this.highlighter;
     }
 
+    public IncrementalHighlighter getHighlighting()
+    {
+        return this.highlighting;
+    }
+
     public void resetHighlight()
     {
-        for (HighlightedTextLine textLine : this.text)
+        /* It will be null when it gets called from parent's constructor */
+        if (this.highlighting != null)
         {
-            textLine.resetSegments();
+            this.highlighting.reset(this.text);
         }
     }
 
@@ -82,7 +91,6 @@ public class UITextEditor extends UITextarea<HighlightedTextLine>
     {
         super.setText(text);
 
-        /* It will be null before when it will get called from parent's constructor */
         this.resetHighlight();
     }
 
@@ -100,30 +108,23 @@ public class UITextEditor extends UITextarea<HighlightedTextLine>
     @Override
     protected void changedLine(int i)
     {
-        String line = this.text.get(i).text;
+        super.changedLine(i);
 
-        if (line.contains("/*") || line.contains("*/"))
-        {
-            this.changedLineAfter(i);
-        }
-        else
-        {
-            super.changedLine(i);
-            this.text.get(i).resetSegments();
-        }
+        this.text.get(i).resetSegments();
+        this.highlighting.invalidate(i);
     }
 
+    /**
+     * Inserted lines don't have segments yet, and lines after them get
+     * reparsed only if their lexer state changed.
+     */
     @Override
     protected void changedLineAfter(int i)
     {
         super.changedLineAfter(i);
 
-        while (i < this.text.size())
-        {
-            this.text.get(i).resetSegments();
-
-            i += 1;
-        }
+        this.text.get(i).resetSegments();
+        this.highlighting.invalidate(i);
     }
 
     /* Change input behavior */
@@ -345,13 +346,14 @@ public class UITextEditor extends UITextarea<HighlightedTextLine>
     protected void renderTextLine(UIContext context, String line, int i, int j, int nx, int ny)
     {
         FontRenderer font = context.batcher.getFont();
+        HighlightedTextLine textLine = this.highlighting.highlight(this.highlighter, font, this.text, i);
 
         /* Cache line number to be later rendered in drawForeground() */
         if (this.lines && j == 0)
         {
-            String label = String.valueOf(i + 1);
+            String label = textLine.getNumberLabel(font, i + 1);
 
-            int x = this.area.x + 5 + this.placements - font.getWidth(label);
+            int x = this.area.x + 5 + this.placements - textLine.numberWidth;
 
             if (this.lineNumber >= this.numbers.size())
             {
@@ -363,18 +365,6 @@ public class UITextEditor extends UITextarea<HighlightedTextLine>
         }
 
         /* Draw  */
-        HighlightedTextLine textLine = this.text.get(i);
-
-        if (textLine.segments == null)
-        {
-            textLine.setSegments(this.highlighter.parse(font, this.text, textLine.text, i));
-
-            if (textLine.wrappedLines != null)
-            {
-                textLine.calculateWrappedSegments(font);
-            }
-        }
-
         List<TextSegment> segments = textLine.segments;
 
         if (textLine.wrappedSegments != null)
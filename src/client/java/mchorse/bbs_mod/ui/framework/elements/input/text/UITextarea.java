@@ -8,6 +8,7 @@ import mchorse.bbs_mod.ui.framework.elements.UIElement;
 import mchorse.bbs_mod.ui.framework.elements.input.text.undo.TextEditUndo;
 import mchorse.bbs_mod.ui.framework.elements.input.text.utils.Cursor;
 import mchorse.bbs_mod.ui.framework.elements.input.text.utils.TextLine;
+import mchorse.bbs_mod.ui.framework.elements.input.text.utils.TextLineTree;
 import mchorse.bbs_mod.ui.framework.elements.utils.Batcher2D;
 import mchorse.bbs_mod.ui.framework.elements.utils.FontRenderer;
 import mchorse.bbs_mod.ui.framework.elements.utils.ITextColoring;
@@ -46,7 +47,7 @@ public class UITextarea <T extends TextLine> extends UIElement implements IFocus
     /* Editing */
     private boolean focused;
     private int dragging;
-    protected List<T> text = new ArrayList<>();
+    protected TextLineTree<T> text = new TextLineTree<>();
     public final Cursor cursor = new Cursor();
     public final Cursor selection = new Cursor(-1, 0);
 
@@ -155,13 +156,15 @@ public class UITextarea <T extends TextLine> extends UIElement implements IFocus
 
     public void setText(String text)
     {
-        this.text.clear();
+        List<T> lines = new ArrayList<>();
 
-        for (String line : text.split("\n"))
+        for (String line : splitNewlineString(text))
         {
-            this.text.add(this.createTextLine(line));
+            lines.add(this.createTextLine(line));
         }
 
+        this.text.setAll(lines);
+
         this.cursor.set(0, 0);
         this.selection.set(-1, 0);
         this.horizontal.scrollTo(0);
@@ -407,17 +410,25 @@ public class UITextarea <T extends TextLine> extends UIElement implements IFocus
     protected void changedLine(int i)
     {
         this.calculateWrappedLine(this.text.get(i));
+        this.text.update(i);
         this.recalculateSizes();
     }
 
+    /**
+     * Given line was changed, and lines after it might have been inserted
+     * or removed. Inserted lines weren't measured yet, so they're measured
+     * until the first line that was already measured.
+     */
     protected void changedLineAfter(int i)
     {
-        while (i < this.text.size())
+        do
         {
             this.calculateWrappedLine(this.text.get(i));
+            this.text.update(i);
 
             i += 1;
         }
+        while (i < this.text.size() && this.text.get(i).width < 0);
 
         this.recalculateSizes();
     }
@@ -765,26 +776,16 @@ public class UITextarea <T extends TextLine> extends UIElement implements IFocus
 
         T current = null;
         int line = y < 0 ? 0 : y / this.lineHeight;
-        int l = 0;
         int s = 0;
+        int index = this.text.findLine(line);
 
-        for (int i = 0, c = this.text.size(); i < c; i++)
+        if (index >= 0)
         {
-            T textLine = this.text.get(i);
-
-            if (line >= l && line < l + textLine.getLines())
-            {
-                current = textLine;
-                cursor.line = i;
-                s = line - l;
-
-                break;
-            }
-
-            l += textLine.getLines();
+            current = this.text.get(index);
+            cursor.line = index;
+            s = line - this.text.getRow(index);
         }
-
-        if (current == null)
+        else
         {
             current = this.text.get(this.text.size() - 1);
             cursor.line = this.text.size() - 1;
@@ -940,23 +941,18 @@ public class UITextarea <T extends TextLine> extends UIElement implements IFocus
 
     public void recalculate()
     {
-        for (T textLine : this.text)
-        {
-            this.calculateWrappedLine(textLine);
-        }
-
+        this.recalculateWrapping();
         this.recalculateSizes();
     }
 
     protected void recalculateWrapping()
     {
-        if (this.wrapping)
+        for (T textLine : this.text)
         {
-            for (T textLine : this.text)
-            {
-                this.calculateWrappedLine(textLine);
-            }
+            this.calculateWrappedLine(textLine);
         }
+
+        this.text.update();
     }
 
     protected void calculateWrappedLine(T textLine)
@@ -968,23 +964,14 @@ public class UITextarea <T extends TextLine> extends UIElement implements IFocus
         else
         {
             textLine.resetWrapping();
+            textLine.measure(this.getFont());
         }
     }
 
     protected void recalculateSizes()
     {
-        int w = 0;
-        int h = 0;
-
-        for (T textLine : this.text)
-        {
-            if (!this.wrapping)
-            {
-                w = Math.max(this.getFont().getWidth(textLine.text), w);
-            }
-
-            h += textLine.getLines() * this.lineHeight;
-        }
+        int w = this.wrapping ? 0 : this.text.getMaxWidth();
+        int h = this.text.getRows() * this.lineHeight;
 
         int offset = this.getShiftX();
 
@@ -1369,7 +1356,12 @@ public class UITextarea <T extends TextLine> extends UIElement implements IFocus
 
         context.batcher.flush();
 
-        for (int i = 0, ci = this.text.size(); i < ci; i++)
+        /* Skip straight to the first line in the viewport */
+        int first = Math.max(this.text.findLine(((int) this.vertical.getScroll() - this.padding) / this.lineHeight), 0);
+
+        y += this.text.getRow(first) * this.lineHeight;
+
+        for (int i = first, ci = this.text.size(); i < ci; i++)
         {
             T textLine = this.text.get(i);
             String line = textLine.text;
@@ -1549,50 +1541,42 @@ public class UITextarea <T extends TextLine> extends UIElement implements IFocus
 
     private void getCusrorPositionWrapped(FontRenderer font, Cursor cursor, Vector2d pos)
     {
-        int lines = 0;
+        int lines = this.text.getRow(cursor.line);
         int offset = 0;
 
-        for (int i = 0, c = this.text.size(); i < c; i++)
+        if (this.hasLine(cursor.line))
         {
-            T textLine = this.text.get(i);
-            int textLines = textLine.getLines();
+            T textLine = this.text.get(cursor.line);
 
-            if (i == cursor.line)
+            if (textLine.wrappedLines == null)
             {
-                if (textLine.wrappedLines == null)
-                {
-                    offset = font.getWidth(cursor.start(textLine.text));
-                }
-                else
+                offset = font.getWidth(cursor.start(textLine.text));
+            }
+            else
+            {
+                int textOffset = 0;
+
+                for (int j = 0; j < textLine.wrappedLines.size(); j++)
                 {
-                    int textOffset = 0;
+                    String wrappedLine = textLine.wrappedLines.get(j);
 
-                    for (int j = 0; j < textLine.wrappedLines.size(); j++)
+                    if (cursor.offset >= textOffset && cursor.offset < textOffset + wrappedLine.length())
                     {
-                        String wrappedLine = textLine.wrappedLines.get(j);
-
-                        if (cursor.offset >= textOffset && cursor.offset < textOffset + wrappedLine.length())
-                        {
-                            offset = font.getWidth(wrappedLine.substring(0, cursor.offset - textOffset));
-
-                            break;
-                        }
+                        offset = font.getWidth(wrappedLine.substring(0, cursor.offset - textOffset));
 
-                        lines += 1;
-                        textOffset += wrappedLine.length();
+                        break;
                     }
 
-                    if (cursor.offset >= textLine.text.length())
-                    {
-                        lines -= 1;
-                        offset = font.getWidth(textLine.wrappedLines.get(textLine.wrappedLines.size() - 1));
-                    }
+                    lines += 1;
+                    textOffset += wrappedLine.length();
                 }
 
-                break;
+                if (cursor.offset >= textLine.text.length())
+                {
+                    lines -= 1;
+                    offset = font.getWidth(textLine.wrappedLines.get(textLine.wrappedLines.size() - 1));
+                }
             }
-
-            lines += textLines;
         }
 
         pos.x = offset;
@@ -2,7 +2,6 @@ package mchorse.bbs_mod.ui.framework.elements.input.text.highlighting;
 
 import mchorse.bbs_mod.ui.framework.elements.utils.FontRenderer;
 
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
@@ -49,29 +48,35 @@ public abstract class BaseSyntaxHighlighter implements ISyntaxHighlighter
      * Parse text segments that will be used for syntax highlighting
      */
     @Override
-    public List<TextSegment> parse(FontRenderer font, List<HighlightedTextLine> textLines, String line, int lineIndex)
+    public int parse(FontRenderer font, String line, int state, List<TextSegment> list)
     {
-        List<TextSegment> list = new ArrayList<>();
-        List<TextSegment> prevLine = lineIndex > 0 ? textLines.get(lineIndex - 1).segments : null;
+        int start = 0;
 
-        if (prevLine != null && !prevLine.isEmpty())
+        /* Continuation of a multiline comment from previous lines */
+        if (state == STATE_COMMENT)
         {
-            TextSegment last = prevLine.get(prevLine.size() - 1);
+            int end = line.indexOf("*/");
 
-            if (last.color == this.style.comments && !last.text.startsWith("//") && !last.text.trim().endsWith("*/"))
+            if (end < 0)
             {
-                list.add(new TextSegment(line, this.style.comments, 0));
+                list.add(new TextSegment(line, this.style.comments, font.getWidth(line)));
 
-                return list;
+                return STATE_COMMENT;
             }
+
+            String comment = line.substring(0, end + 2);
+
+            list.add(new TextSegment(comment, this.style.comments, font.getWidth(comment)));
+
+            start = end + 2;
         }
 
         this.buffer = "";
         this.string = '\0';
-        this.last = 0;
+        this.last = start;
 
         main:
-        for (int i = 0, c = line.length(); i < c; i++)
+        for (int i = start, c = line.length(); i < c; i++)
         {
             char character = line.charAt(i);
             char next = i < c - 1 ? line.charAt(i + 1) : '\0';
@@ -135,9 +140,9 @@ public abstract class BaseSyntaxHighlighter implements ISyntaxHighlighter
                 String comment = line.substring(lastI);
 
                 list.add(new TextSegment(this.buffer, this.style.other, font.getWidth(this.buffer)));
-                list.add(new TextSegment(comment, this.style.comments, 0));
+                list.add(new TextSegment(comment, this.style.comments, font.getWidth(comment)));
 
-                return list;
+                return STATE_COMMENT;
             }
 
             /* One line comments */
@@ -146,9 +151,9 @@ public abstract class BaseSyntaxHighlighter implements ISyntaxHighlighter
                 String comment = line.substring(i);
 
                 list.add(new TextSegment(buffer, this.style.other, font.getWidth(this.buffer)));
-                list.add(new TextSegment(comment, this.style.comments, 0));
+                list.add(new TextSegment(comment, this.style.comments, font.getWidth(comment)));
 
-                return list;
+                return STATE_DEFAULT;
             }
 
             /* Operators */
@@ -225,10 +230,10 @@ public abstract class BaseSyntaxHighlighter implements ISyntaxHighlighter
         /* If there is some remaining buffer, simply push it as some ordinary text */
         if (!this.buffer.trim().isEmpty())
         {
-            list.add(new TextSegment(this.buffer, this.style.other, 0));
+            list.add(new TextSegment(this.buffer, this.style.other, font.getWidth(this.buffer)));
         }
 
-        return list;
+        return STATE_DEFAULT;
     }
 
     private boolean isLegalName(char character)
@@ -12,6 +12,16 @@ public class HighlightedTextLine extends TextLine
     public List<TextSegment> segments;
     public List<List<TextSegment>> wrappedSegments;
 
+    /* Lexer states at the start and at the end of the line when segments
+     * were parsed */
+    public int startState;
+    public int endState;
+
+    /* Cached line number label */
+    public int number = -1;
+    public String numberLabel;
+    public int numberWidth;
+
     public HighlightedTextLine(String text)
     {
         super(text);
@@ -26,6 +36,19 @@ public class HighlightedTextLine extends TextLine
     public void setSegments(List<TextSegment> segments)
     {
         this.segments = segments;
+        this.wrappedSegments = null;
+    }
+
+    public String getNumberLabel(FontRenderer font, int number)
+    {
+        if (this.number != number)
+        {
+            this.number = number;
+            this.numberLabel = String.valueOf(number);
+            this.numberWidth = font.getWidth(this.numberLabel);
+        }
+
+        return this.numberLabel;
     }
 
     @Override
@@ -43,9 +66,11 @@ public class HighlightedTextLine extends TextLine
 
         super.calculateWrappedLines(font, w);
 
+        /* Parsed segments stay valid, only their split between wrapped
+         * lines has to be recalculated */
         if (wrappedLines != this.wrappedLines)
         {
-            this.resetSegments();
+            this.wrappedSegments = null;
         }
     }
 
@@ -6,9 +6,19 @@ import java.util.List;
 
 public interface ISyntaxHighlighter
 {
+    /* Lexer states at the end of a line */
+    public static final int STATE_DEFAULT = 0;
+    public static final int STATE_COMMENT = 1;
+
     public SyntaxStyle getStyle();
 
     public void setStyle(SyntaxStyle style);
 
-    public List<TextSegment> parse(FontRenderer font, List<HighlightedTextLine> textLines, String line, int lineIndex);
+    /**
+     * Parse given line into segments, starting in given lexer state (the
+     * state at the end of the previous line).
+     *
+     * @return lexer state at the end of the line.
+     */
+    public int parse(FontRenderer font, String line, int state, List<TextSegment> segments);
 }
\ No newline at end of file
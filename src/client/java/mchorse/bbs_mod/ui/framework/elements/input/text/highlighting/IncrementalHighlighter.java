@@ -0,0 +1,100 @@
+package mchorse.bbs_mod.ui.framework.elements.input.text.highlighting;
+
+import mchorse.bbs_mod.ui.framework.elements.utils.FontRenderer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Incremental highlighter
+ *
+ * Keeps parsed segments of every line along with lexer states at the start
+ * and the end of the line. Lines before the frontier are known to be up to
+ * date. When a line is edited, its segments are reset and the frontier is
+ * moved back to it. Highlighting a line moves the frontier forward up to
+ * that line, parsing only lines which were edited or whose start state has
+ * changed (e.g. a multiline comment was opened or closed above them), so
+ * once the states converge the rest of the lines are reused as is.
+ */
+public class IncrementalHighlighter
+{
+    private int frontier;
+
+    /* Statistics */
+    private int parsed;
+
+    /**
+     * Index of the first line that might be out of date.
+     */
+    public int getFrontier()
+    {
+        return this.frontier;
+    }
+
+    /**
+     * Amount of lines that were parsed so far.
+     */
+    public int getParsed()
+    {
+        return this.parsed;
+    }
+
+    /**
+     * Given line was edited (or inserted/removed at given index).
+     */
+    public void invalidate(int line)
+    {
+        this.frontier = Math.max(Math.min(this.frontier, line), 0);
+    }
+
+    /**
+     * Reset all lines (e.g. when the highlighter or its style changed).
+     */
+    public void reset(List<HighlightedTextLine> lines)
+    {
+        for (HighlightedTextLine line : lines)
+        {
+            line.resetSegments();
+        }
+
+        this.frontier = 0;
+    }
+
+    /**
+     * Make sure given line's segments (and wrapped segments) are up to date.
+     */
+    public HighlightedTextLine highlight(ISyntaxHighlighter highlighter, FontRenderer font, List<HighlightedTextLine> lines, int index)
+    {
+        this.frontier = Math.min(this.frontier, lines.size());
+
+        int state = this.frontier > 0 ? lines.get(this.frontier - 1).endState : ISyntaxHighlighter.STATE_DEFAULT;
+
+        while (this.frontier <= index)
+        {
+            HighlightedTextLine line = lines.get(this.frontier);
+
+            if (line.segments == null || line.startState != state)
+            {
+                List<TextSegment> segments = new ArrayList<>();
+
+                line.startState = state;
+                line.endState = highlighter.parse(font, line.text, state, segments);
+                line.setSegments(segments);
+
+                this.parsed += 1;
+            }
+
+            state = line.endState;
+            this.frontier += 1;
+        }
+
+        HighlightedTextLine line = lines.get(index);
+
+        if (line.wrappedLines != null && line.wrappedSegments == null)
+        {
+            line.calculateWrappedSegments(font);
+        }
+
+        return line;
+    }
+}
@@ -0,0 +1,256 @@
+package mchorse.bbs_mod.ui.framework.elements.input.text.highlighting;
+
+import com.ibm.icu.impl.Assert;
+import mchorse.bbs_mod.ui.framework.elements.input.text.utils.TextLineTree;
+import mchorse.bbs_mod.ui.framework.elements.utils.FontRenderer;
+import mchorse.bbs_mod.ui.particles.utils.MolangSyntaxHighlighter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class IncrementalHighlighterTest
+{
+    private static final int VIEWPORT = 60;
+
+    private static final FontRenderer FONT = new FontRenderer()
+    {
+        @Override
+        public int getWidth(String string)
+        {
+            return string.length() * 6;
+        }
+    };
+
+    private static final String[] JS = {
+        "function update(entity, delta)",
+        "{",
+        "    var speed = Math.sin(entity.age / 20) * 0.5 + 1; // Wobble",
+        "    /* Multiline comment",
+        "     * with more than one line */",
+        "    if (entity.isOnGround() && speed > 0.75)",
+        "    {",
+        "        bbs.send(\"jump\", { height: -1.5, label: 'hop' });",
+        "    }",
+        "",
+        "    return typeof entity === \"undefined\" ? null : entity;",
+        "}"
+    };
+
+    private static final String[] MOLANG = {
+        "variable.speed = math.sin(query.anim_time * 90) * 0.5 + 1;",
+        "temp.x = math.clamp(particle_random_1 * 2 - 1, -1, 1);",
+        "v.angle = math.atan2(temp.x, variable.speed) /* radians */;",
+        "return variable.speed * math.lerp(0, 1, particle_age / particle_lifetime);"
+    };
+
+    public static void main(String[] args)
+    {
+        testComments();
+        testRandomEdits();
+        benchmark("JS", new JSSyntaxHighlighter(), JS, 20_000);
+        benchmark("MoLang", new MolangSyntaxHighlighter(), MOLANG, 20_000);
+    }
+
+    private static void testComments()
+    {
+        ISyntaxHighlighter highlighter = new JSSyntaxHighlighter();
+        IncrementalHighlighter highlighting = new IncrementalHighlighter();
+        List<HighlightedTextLine> lines = document(new String[] {"var a = 1;", "var b = 2;", "var c = 3;", "var d = 4;", "var e = 5;"}, 1);
+        int comments = highlighter.getStyle().comments;
+
+        highlightAll(highlighter, highlighting, lines);
+
+        Assert.assrt(highlighting.getParsed() == 5);
+        Assert.assrt(!isComment(lines.get(2), comments));
+
+        /* Opening a comment turns the rest of the document into a comment */
+        edit(highlighting, lines, 1, "var b = 2; /* start");
+        highlightAll(highlighter, highlighting, lines);
+
+        Assert.assrt(highlighting.getParsed() == 5 + 4);
+        Assert.assrt(lines.get(1).endState == ISyntaxHighlighter.STATE_COMMENT);
+        Assert.assrt(isComment(lines.get(2), comments) && isComment(lines.get(4), comments));
+
+        /* Closing it in the middle reparses until states converge */
+        edit(highlighting, lines, 2, "var c */ = 3;");
+        highlightAll(highlighter, highlighting, lines);
+
+        Assert.assrt(highlighting.getParsed() == 9 + 3);
+        Assert.assrt(lines.get(2).segments.get(0).text.equals("var c */"));
+        Assert.assrt(lines.get(2).segments.get(0).color == comments);
+        Assert.assrt(!isComment(lines.get(3), comments));
+
+        /* Edit which doesn't change the state only reparses the line */
+        edit(highlighting, lines, 3, "var d = 44;");
+        highlightAll(highlighter, highlighting, lines);
+
+        Assert.assrt(highlighting.getParsed() == 12 + 1);
+
+        /* Every segment has its width resolved */
+        for (HighlightedTextLine line : lines)
+        {
+            for (TextSegment segment : line.segments)
+            {
+                Assert.assrt(segment.width == FONT.getWidth(segment.text));
+            }
+        }
+    }
+
+    /**
+     * Random edits, insertions and removals of lines, compared against
+     * parsing the whole document from scratch.
+     */
+    private static void testRandomEdits()
+    {
+        Random random = new Random(7);
+        ISyntaxHighlighter highlighter = new JSSyntaxHighlighter();
+        IncrementalHighlighter highlighting = new IncrementalHighlighter();
+        List<HighlightedTextLine> lines = document(JS, 20);
+        String[] snippets = {"/*", "*/", "var x = 1;", "// /*", "\"/*\"", "if (a) {", "}", "/* a */ b"};
+
+        for (int i = 0; i < 2000; i++)
+        {
+            int index = random.nextInt(lines.size());
+            int action = random.nextInt(4);
+            String snippet = snippets[random.nextInt(snippets.length)];
+
+            if (action == 0)
+            {
+                lines.add(index, new HighlightedTextLine(snippet));
+                highlighting.invalidate(index);
+            }
+            else if (action == 1 && lines.size() > 1)
+            {
+                lines.remove(index);
+                highlighting.invalidate(index);
+            }
+            else
+            {
+                edit(highlighting, lines, index, lines.get(index).text + snippet);
+            }
+
+            int visible = random.nextInt(lines.size());
+
+            highlighting.highlight(highlighter, FONT, lines, visible);
+
+            if (i % 50 == 0)
+            {
+                highlightAll(highlighter, highlighting, lines);
+                compare(highlighter, lines);
+            }
+        }
+    }
+
+    /**
+     * Type into a large script while rendering the viewport around the
+     * cursor, like the text editor does.
+     */
+    private static void benchmark(String name, ISyntaxHighlighter highlighter, String[] script, int lines)
+    {
+        Random random = new Random(42);
+        IncrementalHighlighter highlighting = new IncrementalHighlighter();
+        List<HighlightedTextLine> document = document(script, lines / script.length);
+        int size = document.size();
+        int keystrokes = 5000;
+
+        long time = System.nanoTime();
+
+        highlightAll(highlighter, highlighting, document);
+
+        long full = System.nanoTime() - time;
+        int parsed = highlighting.getParsed();
+        int cursor = random.nextInt(size - VIEWPORT);
+
+        time = System.nanoTime();
+
+        for (int i = 0; i < keystrokes; i++)
+        {
+            /* Move to another spot in the document once in a while */
+            if (i % 500 == 0)
+            {
+                cursor = random.nextInt(size - VIEWPORT);
+            }
+
+            int line = cursor + VIEWPORT / 2;
+
+            edit(highlighting, document, line, document.get(line).text + (char) ('a' + random.nextInt(26)));
+
+            for (int j = cursor; j < cursor + VIEWPORT; j++)
+            {
+                highlighting.highlight(highlighter, FONT, document, j);
+            }
+        }
+
+        long typing = System.nanoTime() - time;
+        int reparsed = highlighting.getParsed() - parsed;
+
+        System.out.println(name + ": " + size + " lines highlighted in " + full / 1_000_000 + " ms");
+        System.out.println(name + ": " + keystrokes + " keystrokes in " + typing / 1_000_000 + " ms (" + typing / keystrokes / 1000 + " us per keystroke), " + reparsed + " lines reparsed");
+
+        /* Lines above the viewport are parsed at most once when jumping
+         * around, otherwise only the edited line is reparsed */
+        Assert.assrt(reparsed <= keystrokes + size);
+        Assert.assrt(typing / keystrokes < full);
+    }
+
+    private static TextLineTree<HighlightedTextLine> document(String[] script, int copies)
+    {
+        TextLineTree<HighlightedTextLine> lines = new TextLineTree<>();
+        List<HighlightedTextLine> list = new ArrayList<>();
+
+        for (int i = 0; i < copies; i++)
+        {
+            for (String line : script)
+            {
+                list.add(new HighlightedTextLine(line));
+            }
+        }
+
+        lines.setAll(list);
+
+        return lines;
+    }
+
+    private static void edit(IncrementalHighlighter highlighting, List<HighlightedTextLine> lines, int index, String text)
+    {
+        HighlightedTextLine line = lines.get(index);
+
+        line.set(text);
+        line.resetSegments();
+        highlighting.invalidate(index);
+    }
+
+    private static void highlightAll(ISyntaxHighlighter highlighter, IncrementalHighlighter highlighting, List<HighlightedTextLine> lines)
+    {
+        highlighting.highlight(highlighter, FONT, lines, lines.size() - 1);
+    }
+
+    private static void compare(ISyntaxHighlighter highlighter, List<HighlightedTextLine> lines)
+    {
+        int state = ISyntaxHighlighter.STATE_DEFAULT;
+
+        for (HighlightedTextLine line : lines)
+        {
+            List<TextSegment> segments = new ArrayList<>();
+
+            state = highlighter.parse(FONT, line.text, state, segments);
+
+            Assert.assrt(line.endState == state);
+            Assert.assrt(line.segments.size() == segments.size());
+
+            for (int i = 0; i < segments.size(); i++)
+            {
+                TextSegment a = line.segments.get(i);
+                TextSegment b = segments.get(i);
+
+                Assert.assrt(a.text.equals(b.text) && a.color == b.color && a.width == b.width);
+            }
+        }
+    }
+
+    private static boolean isComment(HighlightedTextLine line, int color)
+    {
+        return line.segments.size() == 1 && line.segments.get(0).color == color;
+    }
+}
@@ -11,6 +11,12 @@ public class TextLine
     public String text;
     public List<String> wrappedLines;
 
+    /**
+     * Cached width of the whole line in pixels, or -1 if the line wasn't
+     * measured yet.
+     */
+    public int width = -1;
+
     public TextLine(String text)
     {
         this.text = text;
@@ -31,8 +37,15 @@ public class TextLine
         this.wrappedLines = null;
     }
 
+    public void measure(FontRenderer font)
+    {
+        this.width = font.getWidth(this.text);
+    }
+
     public void calculateWrappedLines(FontRenderer font, int w)
     {
+        this.measure(font);
+
         List<String> wrappedLines = splitIntoLines(font, w);
 
         if (wrappedLines.size() < 2)
@@ -53,7 +66,7 @@ public class TextLine
     {
         List<String> lines = new ArrayList<>();
 
-        if (font.getWidth(this.text) < w)
+        if (this.width < w)
         {
             lines.add(this.text);
 
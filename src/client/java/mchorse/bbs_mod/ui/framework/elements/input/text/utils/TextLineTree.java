@@ -0,0 +1,500 @@
+package mchorse.bbs_mod.ui.framework.elements.input.text.utils;
+
+import java.util.AbstractList;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Text line tree
+ *
+ * Lines of a text document stored in a balanced (AVL) tree ordered by line
+ * index. Every node keeps the amount of lines, the amount of rows (wrapped
+ * lines, see {@link TextLine#getLines()}) and the maximum width of lines in
+ * its subtree, so inserting, removing and accessing lines, as well as
+ * converting between line indices and row indices (which is needed to find
+ * the first line in the viewport), take logarithmic time.
+ *
+ * Changing the content or wrapping of a line in place requires calling
+ * {@link #update(int)} so the cached row count and width get propagated.
+ */
+public class TextLineTree <T extends TextLine> extends AbstractList<T>
+{
+    private Node<T> root;
+
+    private static int size(Node node)
+    {
+        return node == null ? 0 : node.size;
+    }
+
+    private static int height(Node node)
+    {
+        return node == null ? 0 : node.height;
+    }
+
+    private static int rows(Node node)
+    {
+        return node == null ? 0 : node.rows;
+    }
+
+    private static int width(Node node)
+    {
+        return node == null ? 0 : node.width;
+    }
+
+    /* List implementation */
+
+    @Override
+    public int size()
+    {
+        return size(this.root);
+    }
+
+    @Override
+    public T get(int index)
+    {
+        return this.getNode(index).value;
+    }
+
+    @Override
+    public T set(int index, T element)
+    {
+        this.checkIndex(index, this.size());
+
+        Node<T> node = this.getNode(index);
+        T old = node.value;
+
+        node.value = element;
+        this.update(index);
+
+        return old;
+    }
+
+    @Override
+    public void add(int index, T element)
+    {
+        this.checkIndex(index, this.size() + 1);
+
+        this.root = this.insert(this.root, index, element);
+        this.modCount += 1;
+    }
+
+    @Override
+    public T remove(int index)
+    {
+        this.checkIndex(index, this.size());
+
+        T old = this.getNode(index).value;
+
+        this.root = this.delete(this.root, index);
+        this.modCount += 1;
+
+        return old;
+    }
+
+    @Override
+    public void clear()
+    {
+        this.root = null;
+        this.modCount += 1;
+    }
+
+    /**
+     * Replace all lines, building a perfectly balanced tree in linear time.
+     */
+    public void setAll(Collection<? extends T> lines)
+    {
+        List<T> list = lines instanceof List ? (List<T>) lines : List.copyOf(lines);
+
+        this.root = this.build(list, 0, list.size() - 1);
+        this.modCount += 1;
+    }
+
+    @Override
+    public Iterator<T> iterator()
+    {
+        return new TreeIterator<>(this.root);
+    }
+
+    /* Line index API */
+
+    /**
+     * Recalculate cached row count and width of given line (after its text
+     * or wrapping has changed).
+     */
+    public void update(int index)
+    {
+        this.checkIndex(index, this.size());
+        this.update(this.root, index);
+    }
+
+    /**
+     * Recalculate cached row count and width of all lines.
+     */
+    public void update()
+    {
+        this.updateAll(this.root);
+    }
+
+    /**
+     * Total amount of rows (wrapped lines).
+     */
+    public int getRows()
+    {
+        return rows(this.root);
+    }
+
+    /**
+     * Maximum width of all lines (in pixels).
+     */
+    public int getMaxWidth()
+    {
+        return width(this.root);
+    }
+
+    /**
+     * Amount of rows before given line, i.e. index of line's first row.
+     */
+    public int getRow(int line)
+    {
+        Node<T> node = this.root;
+        int rows = 0;
+
+        while (node != null)
+        {
+            int left = size(node.left);
+
+            if (line < left)
+            {
+                node = node.left;
+            }
+            else
+            {
+                rows += rows(node.left);
+
+                if (line == left)
+                {
+                    break;
+                }
+
+                rows += node.value.getLines();
+                line -= left + 1;
+                node = node.right;
+            }
+        }
+
+        return rows;
+    }
+
+    /**
+     * Find the line which contains given row.
+     *
+     * @return line index, or -1 if given row is outside of the document.
+     */
+    public int findLine(int row)
+    {
+        if (row < 0 || row >= this.getRows())
+        {
+            return -1;
+        }
+
+        Node<T> node = this.root;
+        int line = 0;
+
+        while (node != null)
+        {
+            int left = rows(node.left);
+
+            if (row < left)
+            {
+                node = node.left;
+
+                continue;
+            }
+
+            row -= left;
+            line += size(node.left);
+
+            int lines = node.value.getLines();
+
+            if (row < lines)
+            {
+                return line;
+            }
+
+            row -= lines;
+            line += 1;
+            node = node.right;
+        }
+
+        return -1;
+    }
+
+    /* Tree implementation */
+
+    private void checkIndex(int index, int size)
+    {
+        if (index < 0 || index >= size)
+        {
+            throw new IndexOutOfBoundsException("Index: " + index + ", size: " + this.size());
+        }
+    }
+
+    private Node<T> getNode(int index)
+    {
+        this.checkIndex(index, this.size());
+
+        Node<T> node = this.root;
+
+        while (true)
+        {
+            int left = size(node.left);
+
+            if (index < left)
+            {
+                node = node.left;
+            }
+            else if (index == left)
+            {
+                return node;
+            }
+            else
+            {
+                index -= left + 1;
+                node = node.right;
+            }
+        }
+    }
+
+    private Node<T> build(List<T> lines, int from, int to)
+    {
+        if (from > to)
+        {
+            return null;
+        }
+
+        int middle = (from + to) >>> 1;
+        Node<T> node = new Node<>(lines.get(middle));
+
+        node.left = this.build(lines, from, middle - 1);
+        node.right = this.build(lines, middle + 1, to);
+        node.recalculate();
+
+        return node;
+    }
+
+    private void update(Node<T> node, int index)
+    {
+        int left = size(node.left);
+
+        if (index < left)
+        {
+            this.update(node.left, index);
+        }
+        else if (index > left)
+        {
+            this.update(node.right, index - left - 1);
+        }
+
+        node.recalculate();
+    }
+
+    private void updateAll(Node<T> node)
+    {
+        if (node != null)
+        {
+            this.updateAll(node.left);
+            this.updateAll(node.right);
+            node.recalculate();
+        }
+    }
+
+    private Node<T> insert(Node<T> node, int index, T value)
+    {
+        if (node == null)
+        {
+            Node<T> created = new Node<>(value);
+
+            created.recalculate();
+
+            return created;
+        }
+
+        int left = size(node.left);
+
+        if (index <= left)
+        {
+            node.left = this.insert(node.left, index, value);
+        }
+        else
+        {
+            node.right = this.insert(node.right, index - left - 1, value);
+        }
+
+        return this.balance(node);
+    }
+
+    private Node<T> delete(Node<T> node, int index)
+    {
+        int left = size(node.left);
+
+        if (index < left)
+        {
+            node.left = this.delete(node.left, index);
+        }
+        else if (index > left)
+        {
+            node.right = this.delete(node.right, index - left - 1);
+        }
+        else
+        {
+            if (node.left == null)
+            {
+                return node.right;
+            }
+            else if (node.right == null)
+            {
+                return node.left;
+            }
+
+            /* Replace with the first node of the right subtree */
+            Node<T> next = node.right;
+
+            while (next.left != null)
+            {
+                next = next.left;
+            }
+
+            node.value = next.value;
+            node.right = this.delete(node.right, 0);
+        }
+
+        return this.balance(node);
+    }
+
+    private Node<T> balance(Node<T> node)
+    {
+        node.recalculate();
+
+        int factor = height(node.left) - height(node.right);
+
+        if (factor > 1)
+        {
+            if (height(node.left.left) < height(node.left.right))
+            {
+                node.left = this.rotateLeft(node.left);
+            }
+
+            return this.rotateRight(node);
+        }
+        else if (factor < -1)
+        {
+            if (height(node.right.right) < height(node.right.left))
+            {
+                node.right = this.rotateRight(node.right);
+            }
+
+            return this.rotateLeft(node);
+        }
+
+        return node;
+    }
+
+    private Node<T> rotateLeft(Node<T> node)
+    {
+        Node<T> right = node.right;
+
+        node.right = right.left;
+        right.left = node;
+
+        node.recalculate();
+        right.recalculate();
+
+        return right;
+    }
+
+    private Node<T> rotateRight(Node<T> node)
+    {
+        Node<T> left = node.left;
+
+        node.left = left.right;
+        left.right = node;
+
+        node.recalculate();
+        left.recalculate();
+
+        return left;
+    }
+
+    private static class Node <T extends TextLine>
+    {
+        public T value;
+        public Node<T> left;
+        public Node<T> right;
+
+        public int height;
+        public int size;
+        public int rows;
+        public int width;
+
+        public Node(T value)
+        {
+            this.value = value;
+        }
+
+        public void recalculate()
+        {
+            this.height = Math.max(height(this.left), height(this.right)) + 1;
+            this.size = size(this.left) + size(this.right) + 1;
+            this.rows = rows(this.left) + rows(this.right) + this.value.getLines();
+            this.width = Math.max(Math.max(width(this.left), width(this.right)), this.value.width);
+        }
+    }
+
+    /**
+     * In-order iterator (linear time for the whole document, instead of
+     * looking up every line from the root).
+     */
+    private static class TreeIterator <T extends TextLine> implements Iterator<T>
+    {
+        private final Deque<Node<T>> stack = new ArrayDeque<>();
+
+        public TreeIterator(Node<T> root)
+        {
+            this.push(root);
+        }
+
+        private void push(Node<T> node)
+        {
+            while (node != null)
+            {
+                this.stack.push(node);
+                node = node.left;
+            }
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            return !this.stack.isEmpty();
+        }
+
+        @Override
+        public T next()
+        {
+            if (this.stack.isEmpty())
+            {
+                throw new NoSuchElementException();
+            }
+
+            Node<T> node = this.stack.pop();
+
+            this.push(node.right);
+
+            return node.value;
+        }
+    }
+}
@@ -0,0 +1,298 @@
+package mchorse.bbs_mod.ui.framework.elements.input.text.utils;
+
+import com.ibm.icu.impl.Assert;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+public class TextLineTreeTest
+{
+    private static final int LINES = 100_000;
+    private static final int OPERATIONS = 100_000;
+
+    public static void main(String[] args)
+    {
+        testList();
+        testIndex();
+        testRandom();
+        benchmark();
+    }
+
+    private static void testList()
+    {
+        TextLineTree<TextLine> tree = new TextLineTree<>();
+
+        for (int i = 0; i < 100; i++)
+        {
+            tree.add(line(String.valueOf(i), 1, 0));
+        }
+
+        tree.add(0, line("first", 1, 0));
+        tree.add(50, line("middle", 1, 0));
+        tree.remove(tree.size() - 1);
+
+        Assert.assrt(tree.size() == 101);
+        Assert.assrt(tree.get(0).text.equals("first"));
+        Assert.assrt(tree.get(1).text.equals("0"));
+        Assert.assrt(tree.get(50).text.equals("middle"));
+        Assert.assrt(tree.get(100).text.equals("98"));
+
+        /* Iteration is in order */
+        int i = 0;
+
+        for (TextLine line : tree)
+        {
+            Assert.assrt(line == tree.get(i));
+
+            i += 1;
+        }
+
+        Assert.assrt(i == tree.size());
+
+        try
+        {
+            tree.get(101);
+            Assert.fail("Out of bounds access should throw");
+        }
+        catch (IndexOutOfBoundsException e)
+        {}
+
+        tree.clear();
+
+        Assert.assrt(tree.isEmpty() && tree.getRows() == 0 && tree.findLine(0) == -1);
+    }
+
+    private static void testIndex()
+    {
+        TextLineTree<TextLine> tree = new TextLineTree<>();
+        List<TextLine> lines = new ArrayList<>();
+
+        /* Rows: 1, 3, 1, 2 */
+        lines.add(line("a", 1, 10));
+        lines.add(line("b", 3, 40));
+        lines.add(line("c", 1, 20));
+        lines.add(line("d", 2, 30));
+        tree.setAll(lines);
+
+        Assert.assrt(tree.getRows() == 7);
+        Assert.assrt(tree.getMaxWidth() == 40);
+        Assert.assrt(tree.getRow(0) == 0 && tree.getRow(1) == 1 && tree.getRow(2) == 4 && tree.getRow(3) == 5);
+        Assert.assrt(tree.getRow(4) == 7);
+        Assert.assrt(tree.findLine(0) == 0);
+        Assert.assrt(tree.findLine(1) == 1 && tree.findLine(3) == 1);
+        Assert.assrt(tree.findLine(4) == 2);
+        Assert.assrt(tree.findLine(6) == 3);
+        Assert.assrt(tree.findLine(7) == -1 && tree.findLine(-1) == -1);
+
+        /* Line was edited in place and unwrapped */
+        TextLine b = tree.get(1);
+
+        b.wrappedLines = null;
+        b.width = 5;
+        tree.update(1);
+
+        Assert.assrt(tree.getRows() == 5);
+        Assert.assrt(tree.getMaxWidth() == 30);
+        Assert.assrt(tree.findLine(2) == 2);
+    }
+
+    /**
+     * Random edits compared against a plain list.
+     */
+    private static void testRandom()
+    {
+        Random random = new Random(42);
+        TextLineTree<TextLine> tree = new TextLineTree<>();
+        List<TextLine> reference = new ArrayList<>();
+
+        for (int i = 0; i < 20_000; i++)
+        {
+            int action = random.nextInt(4);
+
+            if (action == 0 || reference.isEmpty())
+            {
+                int index = random.nextInt(reference.size() + 1);
+                TextLine line = randomLine(random);
+
+                tree.add(index, line);
+                reference.add(index, line);
+            }
+            else if (action == 1)
+            {
+                int index = random.nextInt(reference.size());
+
+                Assert.assrt(tree.remove(index) == reference.remove(index));
+            }
+            else if (action == 2)
+            {
+                int index = random.nextInt(reference.size());
+                TextLine line = reference.get(index);
+
+                line.wrappedLines = random.nextBoolean() ? null : Collections.nCopies(2 + random.nextInt(3), "");
+                line.width = random.nextInt(1000);
+                tree.update(index);
+            }
+            else
+            {
+                int index = random.nextInt(reference.size());
+                TextLine line = randomLine(random);
+
+                tree.set(index, line);
+                reference.set(index, line);
+            }
+
+            if (i % 100 == 0)
+            {
+                check(tree, reference, random);
+            }
+        }
+
+        check(tree, reference, random);
+    }
+
+    private static void check(TextLineTree<TextLine> tree, List<TextLine> reference, Random random)
+    {
+        Assert.assrt(tree.size() == reference.size());
+        Assert.assrt(tree.equals(reference));
+
+        int rows = 0;
+        int width = 0;
+
+        for (TextLine line : reference)
+        {
+            rows += line.getLines();
+            width = Math.max(width, line.width);
+        }
+
+        Assert.assrt(tree.getRows() == rows);
+        Assert.assrt(tree.getMaxWidth() == width);
+
+        for (int i = 0; i < 20 && !reference.isEmpty(); i++)
+        {
+            int line = random.nextInt(reference.size());
+            int row = 0;
+
+            for (int j = 0; j < line; j++)
+            {
+                row += reference.get(j).getLines();
+            }
+
+            Assert.assrt(tree.getRow(line) == row);
+            Assert.assrt(tree.findLine(row) == line);
+            Assert.assrt(tree.findLine(row + reference.get(line).getLines() - 1) == line);
+        }
+    }
+
+    /**
+     * Edit and scroll through 100k line document, and compare it with the
+     * linear scan that was used before.
+     */
+    private static void benchmark()
+    {
+        Random random = new Random(1337);
+        TextLineTree<TextLine> tree = new TextLineTree<>();
+        List<TextLine> lines = new ArrayList<>();
+
+        for (int i = 0; i < LINES; i++)
+        {
+            lines.add(randomLine(random));
+        }
+
+        long time = System.nanoTime();
+
+        tree.setAll(lines);
+
+        long build = System.nanoTime() - time;
+
+        time = System.nanoTime();
+
+        /* Typing: insert new lines, remove lines and change lines in place */
+        for (int i = 0; i < OPERATIONS; i++)
+        {
+            int index = random.nextInt(tree.size());
+            int action = i % 3;
+
+            if (action == 0)
+            {
+                tree.add(index, randomLine(random));
+            }
+            else if (action == 1)
+            {
+                tree.remove(index);
+            }
+            else
+            {
+                tree.get(index).width += 1;
+                tree.update(index);
+            }
+        }
+
+        long edits = System.nanoTime() - time;
+        int rows = tree.getRows();
+        long checksum = 0;
+
+        time = System.nanoTime();
+
+        /* Scrolling: find first line in the viewport and its offset */
+        for (int i = 0; i < OPERATIONS; i++)
+        {
+            int line = tree.findLine(random.nextInt(rows));
+
+            checksum += tree.getRow(line);
+        }
+
+        long scroll = System.nanoTime() - time;
+        List<TextLine> linear = new ArrayList<>(tree);
+        int scans = 1000;
+
+        time = System.nanoTime();
+
+        for (int i = 0; i < scans; i++)
+        {
+            checksum += findLineLinear(linear, random.nextInt(rows));
+        }
+
+        long linearScroll = (System.nanoTime() - time) * (OPERATIONS / scans);
+
+        System.out.println("Built " + LINES + " lines in " + build / 1000 + " us");
+        System.out.println(OPERATIONS + " edits: " + edits / 1_000_000 + " ms (" + edits / OPERATIONS + " ns per edit)");
+        System.out.println(OPERATIONS + " viewport lookups: " + scroll / 1_000_000 + " ms (linear scan would take ~" + linearScroll / 1_000_000 + " ms), checksum " + checksum);
+
+        Assert.assrt(tree.size() == LINES + (OPERATIONS + 2) / 3 - (OPERATIONS + 1) / 3);
+        Assert.assrt(scroll < linearScroll);
+    }
+
+    private static int findLineLinear(List<TextLine> lines, int row)
+    {
+        int rows = 0;
+
+        for (int i = 0; i < lines.size(); i++)
+        {
+            rows += lines.get(i).getLines();
+
+            if (row < rows)
+            {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    private static TextLine randomLine(Random random)
+    {
+        return line("line", random.nextInt(5) == 0 ? 2 + random.nextInt(3) : 1, random.nextInt(1000));
+    }
+
+    private static TextLine line(String text, int rows, int width)
+    {
+        TextLine line = new TextLine(text);
+
+        line.wrappedLines = rows > 1 ? Collections.nCopies(rows, text) : null;
+        line.width = width;
+
+        return line;
+    }
+}
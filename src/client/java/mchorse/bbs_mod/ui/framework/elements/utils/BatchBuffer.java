@@ -0,0 +1,291 @@
+package mchorse.bbs_mod.ui.framework.elements.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Batch buffer
+ *
+ * Accumulates triangles of consecutive 2D primitives which share the same
+ * render state (shader, texture, blending and shader color), and passes
+ * them to {@link IBackend} as a single draw only when the state changes or
+ * when it gets flushed explicitly (for example, before scissor changes).
+ * Draw order is always preserved.
+ *
+ * Only one batch buffer can have pending vertices at a time, anything that
+ * draws directly (bypassing batch buffers) should call
+ * {@link #flushPending()} first, so pending primitives don't end up on top.
+ */
+public class BatchBuffer
+{
+    /**
+     * Amount of floats per vertex: x, y, z, u, v.
+     */
+    public static final int FLOATS = 5;
+
+    private static BatchBuffer pending;
+
+    private IBackend backend;
+
+    private float[] floats = new float[FLOATS * 1024];
+    private int[] colors = new int[1024];
+    private int vertices;
+
+    /* Current state */
+    private Object shader;
+    private boolean textured;
+    private int texture;
+    private boolean blend;
+    private final float[] shaderColor = {1F, 1F, 1F, 1F};
+
+    /* Statistics */
+    private int flushes;
+    private int flushedVertices;
+    private int lastFlushes;
+    private int lastVertices;
+
+    public static void flushPending()
+    {
+        if (pending != null)
+        {
+            pending.flush();
+        }
+    }
+
+    public BatchBuffer(IBackend backend)
+    {
+        this.backend = backend;
+    }
+
+    public IBackend getBackend()
+    {
+        return this.backend;
+    }
+
+    public void setBackend(IBackend backend)
+    {
+        this.flush();
+
+        this.backend = backend;
+    }
+
+    public Object getShader()
+    {
+        return this.shader;
+    }
+
+    public boolean isTextured()
+    {
+        return this.textured;
+    }
+
+    public int getTexture()
+    {
+        return this.texture;
+    }
+
+    public boolean isBlend()
+    {
+        return this.blend;
+    }
+
+    public float[] getShaderColor()
+    {
+        return this.shaderColor;
+    }
+
+    public float[] getFloats()
+    {
+        return this.floats;
+    }
+
+    public int[] getColors()
+    {
+        return this.colors;
+    }
+
+    public int getVertexCount()
+    {
+        return this.vertices;
+    }
+
+    /**
+     * Amount of draws during last frame (see {@link #endFrame()}).
+     */
+    public int getFlushes()
+    {
+        return this.lastFlushes;
+    }
+
+    /**
+     * Amount of drawn vertices during last frame.
+     */
+    public int getFlushedVertices()
+    {
+        return this.lastVertices;
+    }
+
+    /**
+     * Start a primitive with given state. Pending vertices get flushed if
+     * the state is different.
+     *
+     * @param shader Shader (compared by identity).
+     * @param textured Whether vertices have texture coordinates.
+     * @param texture Texture ID (ignored if not textured).
+     * @param blend Whether blending should be enabled before drawing.
+     * @param shaderColor Shader color (RGBA).
+     */
+    public void begin(Object shader, boolean textured, int texture, boolean blend, float[] shaderColor)
+    {
+        if (!textured)
+        {
+            texture = 0;
+        }
+
+        if (this.vertices > 0 && !this.isSameState(shader, textured, texture, blend, shaderColor))
+        {
+            this.flush();
+        }
+
+        this.shader = shader;
+        this.textured = textured;
+        this.texture = texture;
+        this.blend = blend;
+
+        System.arraycopy(shaderColor, 0, this.shaderColor, 0, 4);
+    }
+
+    private boolean isSameState(Object shader, boolean textured, int texture, boolean blend, float[] shaderColor)
+    {
+        return this.shader == shader
+            && this.textured == textured
+            && this.texture == texture
+            && this.blend == blend
+            && Arrays.equals(this.shaderColor, shaderColor);
+    }
+
+    public void vertex(float x, float y, float z, float u, float v, int color)
+    {
+        if (pending != this)
+        {
+            flushPending();
+
+            pending = this;
+        }
+
+        if (this.vertices >= this.colors.length)
+        {
+            this.floats = Arrays.copyOf(this.floats, this.floats.length * 2);
+            this.colors = Arrays.copyOf(this.colors, this.colors.length * 2);
+        }
+
+        int offset = this.vertices * FLOATS;
+
+        this.floats[offset] = x;
+        this.floats[offset + 1] = y;
+        this.floats[offset + 2] = z;
+        this.floats[offset + 3] = u;
+        this.floats[offset + 4] = v;
+        this.colors[this.vertices] = color;
+        this.vertices += 1;
+    }
+
+    /**
+     * Finish a primitive.
+     *
+     * @param batch Whether primitive can be kept for batching, otherwise
+     *              it gets drawn right away.
+     */
+    public void end(boolean batch)
+    {
+        if (!batch)
+        {
+            this.flush();
+        }
+    }
+
+    public void flush()
+    {
+        if (pending == this)
+        {
+            pending = null;
+        }
+
+        if (this.vertices == 0)
+        {
+            return;
+        }
+
+        this.flushes += 1;
+        this.flushedVertices += this.vertices;
+
+        this.backend.draw(this);
+
+        this.vertices = 0;
+    }
+
+    /**
+     * Flush remaining vertices and roll over per frame statistics.
+     */
+    public void endFrame()
+    {
+        this.flush();
+
+        this.lastFlushes = this.flushes;
+        this.lastVertices = this.flushedVertices;
+        this.flushes = 0;
+        this.flushedVertices = 0;
+    }
+
+    public static interface IBackend
+    {
+        /**
+         * Draw triangles which are currently in given buffer.
+         */
+        public void draw(BatchBuffer buffer);
+    }
+
+    /**
+     * Backend that doesn't draw anything, but records every draw instead,
+     * so batching can be tested without a GPU.
+     */
+    public static class RecordingBackend implements IBackend
+    {
+        public final List<Command> commands = new ArrayList<>();
+
+        @Override
+        public void draw(BatchBuffer buffer)
+        {
+            this.commands.add(new Command(buffer.getShader(), buffer.isTextured(), buffer.getTexture(), buffer.getVertexCount()));
+        }
+
+        public int getVertexCount()
+        {
+            int count = 0;
+
+            for (Command command : this.commands)
+            {
+                count += command.vertices;
+            }
+
+            return count;
+        }
+    }
+
+    public static class Command
+    {
+        public final Object shader;
+        public final boolean textured;
+        public final int texture;
+        public final int vertices;
+
+        public Command(Object shader, boolean textured, int texture, int vertices)
+        {
+            this.shader = shader;
+            this.textured = textured;
+            this.texture = texture;
+            this.vertices = vertices;
+        }
+    }
+}
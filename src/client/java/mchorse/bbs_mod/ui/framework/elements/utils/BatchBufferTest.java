@@ -0,0 +1,168 @@
+package mchorse.bbs_mod.ui.framework.elements.utils;
+
+import com.ibm.icu.impl.Assert;
+
+public class BatchBufferTest
+{
+    private static final Object COLOR = "color";
+    private static final Object TEXTURED = "textured";
+    private static final float[] WHITE = {1F, 1F, 1F, 1F};
+
+    public static void main(String[] args)
+    {
+        testSameState();
+        testStateChanges();
+        testImmediate();
+        testPending();
+        testFrame();
+    }
+
+    private static void testSameState()
+    {
+        BatchBuffer.RecordingBackend backend = new BatchBuffer.RecordingBackend();
+        BatchBuffer buffer = new BatchBuffer(backend);
+
+        for (int i = 0; i < 500; i++)
+        {
+            box(buffer, true);
+        }
+
+        Assert.assrt(backend.commands.isEmpty());
+
+        buffer.flush();
+
+        Assert.assrt(backend.commands.size() == 1);
+        Assert.assrt(backend.getVertexCount() == 500 * 6);
+
+        /* Flushing an empty buffer doesn't draw anything */
+        buffer.flush();
+
+        Assert.assrt(backend.commands.size() == 1);
+    }
+
+    private static void testStateChanges()
+    {
+        BatchBuffer.RecordingBackend backend = new BatchBuffer.RecordingBackend();
+        BatchBuffer buffer = new BatchBuffer(backend);
+
+        /* Background, then icons of the same atlas, then icons of another texture */
+        box(buffer, true);
+        box(buffer, true);
+        icon(buffer, 1, WHITE);
+        icon(buffer, 1, WHITE);
+        icon(buffer, 2, WHITE);
+        icon(buffer, 2, new float[] {1F, 0F, 0F, 1F});
+        box(buffer, true);
+        buffer.flush();
+
+        Assert.assrt(backend.commands.size() == 5);
+        Assert.assrt(backend.commands.get(0).shader == COLOR && backend.commands.get(0).vertices == 12);
+        Assert.assrt(backend.commands.get(1).texture == 1 && backend.commands.get(1).vertices == 12);
+        Assert.assrt(backend.commands.get(2).texture == 2 && backend.commands.get(2).vertices == 6);
+        Assert.assrt(backend.commands.get(3).texture == 2 && backend.commands.get(3).vertices == 6);
+        Assert.assrt(!backend.commands.get(4).textured);
+    }
+
+    private static void testImmediate()
+    {
+        BatchBuffer.RecordingBackend backend = new BatchBuffer.RecordingBackend();
+        BatchBuffer buffer = new BatchBuffer(backend);
+
+        for (int i = 0; i < 10; i++)
+        {
+            box(buffer, false);
+        }
+
+        Assert.assrt(backend.commands.size() == 10);
+    }
+
+    private static void testPending()
+    {
+        BatchBuffer.RecordingBackend a = new BatchBuffer.RecordingBackend();
+        BatchBuffer.RecordingBackend b = new BatchBuffer.RecordingBackend();
+        BatchBuffer first = new BatchBuffer(a);
+        BatchBuffer second = new BatchBuffer(b);
+
+        box(first, true);
+
+        /* Something else draws directly */
+        BatchBuffer.flushPending();
+
+        Assert.assrt(a.commands.size() == 1);
+
+        /* Another buffer starts drawing, so the first one has to be flushed */
+        box(first, true);
+        box(second, true);
+
+        Assert.assrt(a.commands.size() == 2);
+        Assert.assrt(b.commands.isEmpty());
+
+        BatchBuffer.flushPending();
+
+        Assert.assrt(b.commands.size() == 1);
+    }
+
+    /**
+     * Simulate a list of 100 rows, every row having background, icon and
+     * label (which requires a flush), inside of a scroll area (clip).
+     */
+    private static void testFrame()
+    {
+        BatchBuffer.RecordingBackend backend = new BatchBuffer.RecordingBackend();
+        BatchBuffer buffer = new BatchBuffer(backend);
+
+        /* Panel background and scroll area clip */
+        box(buffer, true);
+        buffer.flush();
+
+        for (int i = 0; i < 100; i++)
+        {
+            box(buffer, true);
+            icon(buffer, 1, WHITE);
+        }
+
+        /* Labels are drawn after all rows, and unclip */
+        buffer.flush();
+
+        for (int i = 0; i < 100; i++)
+        {
+            icon(buffer, 1, WHITE);
+        }
+
+        buffer.endFrame();
+
+        Assert.assrt(buffer.getFlushes() == backend.commands.size());
+        Assert.assrt(buffer.getFlushedVertices() == (1 + 100 * 2 + 100) * 6);
+
+        /* Alternating state can't be merged without reordering */
+        Assert.assrt(buffer.getFlushes() == 1 + 200 + 1);
+
+        buffer.endFrame();
+
+        Assert.assrt(buffer.getFlushes() == 0);
+    }
+
+    private static void box(BatchBuffer buffer, boolean batch)
+    {
+        buffer.begin(COLOR, false, 0, true, WHITE);
+
+        for (int i = 0; i < 6; i++)
+        {
+            buffer.vertex(i, i, 0, 0, 0, 0xffffffff);
+        }
+
+        buffer.end(batch);
+    }
+
+    private static void icon(BatchBuffer buffer, int texture, float[] color)
+    {
+        buffer.begin(TEXTURED, true, texture, false, color);
+
+        for (int i = 0; i < 6; i++)
+        {
+            buffer.vertex(i, i, 0, i / 6F, i / 6F, 0xffffffff);
+        }
+
+        buffer.end(true);
+    }
+}
@@ -2,6 +2,7 @@ package mchorse.bbs_mod.ui.framework.elements.utils;
 
 import com.mojang.blaze3d.systems.RenderSystem;
 import mchorse.bbs_mod.BBSModClient;
+import mchorse.bbs_mod.BBSSettings;
 import mchorse.bbs_mod.graphics.texture.Texture;
 import mchorse.bbs_mod.ui.framework.UIContext;
 import mchorse.bbs_mod.ui.utils.Area;
@@ -13,22 +14,41 @@ import net.minecraft.client.gui.DrawContext;
 import net.minecraft.client.render.BufferBuilder;
 import net.minecraft.client.render.BufferRenderer;
 import net.minecraft.client.render.GameRenderer;
-import net.minecraft.client.render.Tessellator;
 import net.minecraft.client.render.VertexFormat;
 import net.minecraft.client.render.VertexFormats;
 import org.joml.Matrix4f;
+import org.joml.Vector3f;
 import org.lwjgl.opengl.GL11;
 
 import java.util.List;
 import java.util.function.Supplier;
 
+/**
+ * 2D batcher
+ *
+ * Draws 2D primitives (boxes, gradients, icons, textured boxes, text). When
+ * batching is enabled, consecutive primitives with the same render state
+ * are accumulated in a {@link BatchBuffer} and drawn with a single draw
+ * call, which is flushed on state change, scissor change, text, when the
+ * draw context is requested (since it's used for drawing directly), and at
+ * the end of the frame.
+ */
 public class Batcher2D
 {
+    private static final Supplier<ShaderProgram> POSITION_COLOR = GameRenderer::getPositionColorProgram;
+    private static final Supplier<ShaderProgram> POSITION_TEX_COLOR = GameRenderer::getPositionTexColorProgram;
+    private static final BatchBuffer.IBackend BACKEND = new Backend();
+
     private static FontRenderer fontRenderer = new FontRenderer();
 
     private DrawContext context;
     private FontRenderer font;
 
+    private BatchBuffer buffer = new BatchBuffer(BACKEND);
+    private boolean batching;
+    private boolean contextUsed;
+    private Vector3f vector = new Vector3f();
+
     public static FontRenderer getDefaultTextRenderer()
     {
         fontRenderer.setRenderer(MinecraftClient.getInstance().textRenderer);
@@ -43,11 +63,96 @@ public class Batcher2D
         this.font = getDefaultTextRenderer();
     }
 
+    /**
+     * Get draw context. Pending primitives get flushed, because draw
+     * context is used to draw directly.
+     */
     public DrawContext getContext()
     {
+        this.buffer.flush();
+
+        this.contextUsed = true;
+
         return this.context;
     }
 
+    public BatchBuffer getBuffer()
+    {
+        return this.buffer;
+    }
+
+    public boolean isBatching()
+    {
+        return this.batching && BBSSettings.uiBatching.get();
+    }
+
+    /**
+     * Enable batching, in which case the owner is responsible for
+     * calling {@link #endFrame()} at the end of the frame.
+     */
+    public void setBatching(boolean batching)
+    {
+        this.buffer.flush();
+
+        this.batching = batching;
+    }
+
+    /**
+     * Flush all pending primitives, and roll over batching statistics.
+     */
+    public void endFrame()
+    {
+        this.buffer.endFrame();
+        this.contextUsed = false;
+    }
+
+    /* Batching */
+
+    private void begin(Supplier<ShaderProgram> shader, int texture, boolean blend)
+    {
+        this.buffer.begin(shader.get(), true, texture, blend, RenderSystem.getShaderColor());
+    }
+
+    private void begin()
+    {
+        this.buffer.begin(POSITION_COLOR.get(), false, 0, true, RenderSystem.getShaderColor());
+    }
+
+    private void end()
+    {
+        this.buffer.end(this.isBatching());
+    }
+
+    private void vertex(Matrix4f matrix, float x, float y, int color)
+    {
+        this.vertex(matrix, x, y, 0F, 0F, color);
+    }
+
+    private void vertex(Matrix4f matrix, float x, float y, float u, float v, int color)
+    {
+        matrix.transformPosition(x, y, 0F, this.vector);
+
+        this.buffer.vertex(this.vector.x, this.vector.y, this.vector.z, u, v, color);
+    }
+
+    /**
+     * Add a quad as two triangles (vertices go counter-clockwise).
+     */
+    private void quad(Matrix4f matrix, float x1, float y1, int c1, float x2, float y2, int c2, float x3, float y3, int c3, float x4, float y4, int c4)
+    {
+        this.vertex(matrix, x1, y1, c1);
+        this.vertex(matrix, x2, y2, c2);
+        this.vertex(matrix, x3, y3, c3);
+        this.vertex(matrix, x1, y1, c1);
+        this.vertex(matrix, x3, y3, c3);
+        this.vertex(matrix, x4, y4, c4);
+    }
+
+    private Matrix4f getMatrix()
+    {
+        return this.context.getMatrices().peek().getPositionMatrix();
+    }
+
     public FontRenderer getFont()
     {
         return this.font;
@@ -70,6 +175,7 @@ public class Batcher2D
      */
     public void clip(int x, int y, int w, int h, int sw, int sh)
     {
+        this.buffer.flush();
         this.context.enableScissor(x, y, x + w, y + h);
     }
 
@@ -80,6 +186,7 @@ public class Batcher2D
 
     public void unclip(int sw, int sh)
     {
+        this.buffer.flush();
         this.context.disableScissor();
     }
 
@@ -107,18 +214,23 @@ public class Batcher2D
 
     public void box(float x, float y, float w, float h, int color1, int color2, int color3, int color4)
     {
-        Matrix4f matrix4f = this.context.getMatrices().peek().getPositionMatrix();
-        BufferBuilder builder = Tessellator.getInstance().getBuffer();
-
-        builder.begin(VertexFormat.DrawMode.QUADS, VertexFormats.POSITION_COLOR);
+        Matrix4f matrix4f = this.getMatrix();
 
-        this.fillRect(builder, matrix4f, x, y, w, h, color1, color2, color3, color4);
+        /* c1 ---- c2
+         * |        |
+         * c3 ---- c4 */
+        this.begin();
+        this.quad(matrix4f, x, y, color1, x, y + h, color3, x + w, y + h, color4, x + w, y, color2);
+        this.end();
 
-        RenderSystem.enableBlend();
-        RenderSystem.setShader(GameRenderer::getPositionColorProgram);
-        BufferRenderer.drawWithGlobalProgram(builder.end());
+        /* Draw whatever was queued into the draw context on top */
+        if (this.contextUsed)
+        {
+            this.buffer.flush();
+            this.context.draw();
 
-        this.context.draw();
+            this.contextUsed = false;
+        }
     }
 
     public void fillRect(BufferBuilder builder, Matrix4f matrix4f, float x, float y, float w, float h, int color1, int color2, int color3, int color4)
@@ -139,44 +251,26 @@ public class Batcher2D
         right += offset;
         bottom += offset;
 
-        Matrix4f matrix4f = this.context.getMatrices().peek().getPositionMatrix();
-        BufferBuilder builder = Tessellator.getInstance().getBuffer();
+        Matrix4f matrix4f = this.getMatrix();
 
-        builder.begin(VertexFormat.DrawMode.QUADS, VertexFormats.POSITION_COLOR);
+        this.begin();
 
         /* Draw opaque part */
-        builder.vertex(matrix4f, left + offset, top + offset, 0).color(opaque).next();
-        builder.vertex(matrix4f,left + offset, bottom - offset, 0).color(opaque).next();
-        builder.vertex(matrix4f, right - offset, bottom - offset, 0).color(opaque).next();
-        builder.vertex(matrix4f, right - offset, top + offset, 0).color(opaque).next();
+        this.quad(matrix4f, left + offset, top + offset, opaque, left + offset, bottom - offset, opaque, right - offset, bottom - offset, opaque, right - offset, top + offset, opaque);
 
         /* Draw top shadow */
-        builder.vertex(matrix4f, left, top, 0).color(shadow).next();
-        builder.vertex(matrix4f,left + offset, top + offset, 0).color(opaque).next();
-        builder.vertex(matrix4f, right - offset, top + offset, 0).color(opaque).next();
-        builder.vertex(matrix4f, right, top, 0).color(shadow).next();
+        this.quad(matrix4f, left, top, shadow, left + offset, top + offset, opaque, right - offset, top + offset, opaque, right, top, shadow);
 
         /* Draw bottom shadow */
-        builder.vertex(matrix4f, left + offset, bottom - offset, 0).color(opaque).next();
-        builder.vertex(matrix4f,left, bottom, 0).color(shadow).next();
-        builder.vertex(matrix4f, right, bottom, 0).color(shadow).next();
-        builder.vertex(matrix4f, right - offset, bottom - offset, 0).color(opaque).next();
+        this.quad(matrix4f, left + offset, bottom - offset, opaque, left, bottom, shadow, right, bottom, shadow, right - offset, bottom - offset, opaque);
 
         /* Draw left shadow */
-        builder.vertex(matrix4f, left, top, 0).color(shadow).next();
-        builder.vertex(matrix4f, left, bottom, 0).color(shadow).next();
-        builder.vertex(matrix4f, left + offset, bottom - offset, 0).color(opaque).next();
-        builder.vertex(matrix4f,left + offset, top + offset, 0).color(opaque).next();
+        this.quad(matrix4f, left, top, shadow, left, bottom, shadow, left + offset, bottom - offset, opaque, left + offset, top + offset, opaque);
 
         /* Draw right shadow */
-        builder.vertex(matrix4f, right - offset, top + offset, 0).color(opaque).next();
-        builder.vertex(matrix4f, right - offset, bottom - offset, 0).color(opaque).next();
-        builder.vertex(matrix4f, right, bottom, 0).color(shadow).next();
-        builder.vertex(matrix4f,right, top, 0).color(shadow).next();
+        this.quad(matrix4f, right - offset, top + offset, opaque, right - offset, bottom - offset, opaque, right, bottom, shadow, right, top, shadow);
 
-        RenderSystem.enableBlend();
-        RenderSystem.setShader(GameRenderer::getPositionColorProgram);
-        BufferRenderer.drawWithGlobalProgram(builder.end());
+        this.end();
     }
 
     /* Gradients */
@@ -193,18 +287,22 @@ public class Batcher2D
 
     public void dropCircleShadow(int x, int y, int radius, int segments, int opaque, int shadow)
     {
-        Matrix4f matrix4f = this.context.getMatrices().peek().getPositionMatrix();
-        BufferBuilder builder = Tessellator.getInstance().getBuffer();
+        Matrix4f matrix4f = this.getMatrix();
 
-        builder.begin(VertexFormat.DrawMode.TRIANGLE_FAN, VertexFormats.POSITION_COLOR);
-        builder.vertex(matrix4f, x, y, 0F).color(opaque).next();
+        this.begin();
 
-        for (int i = 0; i <= segments; i ++)
+        /* Triangle fan split into triangles */
+        for (int i = 0; i < segments; i ++)
         {
-            double a = i / (double) segments * Math.PI * 2 - Math.PI / 2;
+            double a1 = i / (double) segments * Math.PI * 2 - Math.PI / 2;
+            double a2 = (i + 1) / (double) segments * Math.PI * 2 - Math.PI / 2;
 
-            builder.vertex(matrix4f, (float) (x - Math.cos(a) * radius), (float) (y + Math.sin(a) * radius), 0F).color(shadow).next();
+            this.vertex(matrix4f, x, y, opaque);
+            this.vertex(matrix4f, (float) (x - Math.cos(a1) * radius), (float) (y + Math.sin(a1) * radius), shadow);
+            this.vertex(matrix4f, (float) (x - Math.cos(a2) * radius), (float) (y + Math.sin(a2) * radius), shadow);
         }
+
+        this.end();
     }
 
     public void dropCircleShadow(int x, int y, int radius, int offset, int segments, int opaque, int shadow)
@@ -216,43 +314,36 @@ public class Batcher2D
             return;
         }
 
-        Matrix4f matrix4f = this.context.getMatrices().peek().getPositionMatrix();
+        Matrix4f matrix4f = this.getMatrix();
 
-        BufferBuilder builder = Tessellator.getInstance().getBuffer();
-
-        RenderSystem.enableBlend();
-        RenderSystem.setShader(GameRenderer::getPositionColorProgram);
+        this.begin();
 
         /* Draw opaque base */
-        builder.begin(VertexFormat.DrawMode.TRIANGLE_FAN, VertexFormats.POSITION_COLOR);
-        builder.vertex(matrix4f, x, y, 0F).color(opaque).next();
-
-        for (int i = 0; i <= segments; i ++)
+        for (int i = 0; i < segments; i ++)
         {
-            double a = i / (double) segments * Math.PI * 2 - Math.PI / 2;
+            double a1 = i / (double) segments * Math.PI * 2 - Math.PI / 2;
+            double a2 = (i + 1) / (double) segments * Math.PI * 2 - Math.PI / 2;
 
-            builder.vertex(matrix4f, (int) (x - Math.cos(a) * offset), (int) (y + Math.sin(a) * offset), 0F).color(opaque).next();
+            this.vertex(matrix4f, x, y, opaque);
+            this.vertex(matrix4f, (int) (x - Math.cos(a1) * offset), (int) (y + Math.sin(a1) * offset), opaque);
+            this.vertex(matrix4f, (int) (x - Math.cos(a2) * offset), (int) (y + Math.sin(a2) * offset), opaque);
         }
 
-        BufferRenderer.drawWithGlobalProgram(builder.end());
-
         /* Draw outer shadow */
-        builder.begin(VertexFormat.DrawMode.TRIANGLES, VertexFormats.POSITION_COLOR);
-
         for (int i = 0; i < segments; i ++)
         {
             double alpha1 = i / (double) segments * Math.PI * 2 - Math.PI / 2;
             double alpha2 = (i + 1) / (double) segments * Math.PI * 2 - Math.PI / 2;
 
-            builder.vertex(matrix4f, (float) (x - Math.cos(alpha2) * offset), (float) (y + Math.sin(alpha2) * offset), 0F).color(opaque).next();
-            builder.vertex(matrix4f, (float) (x - Math.cos(alpha1) * offset), (float) (y + Math.sin(alpha1) * offset), 0F).color(opaque).next();
-            builder.vertex(matrix4f, (float) (x - Math.cos(alpha1) * radius), (float) (y + Math.sin(alpha1) * radius), 0F).color(shadow).next();
-            builder.vertex(matrix4f, (float) (x - Math.cos(alpha2) * offset), (float) (y + Math.sin(alpha2) * offset), 0F).color(opaque).next();
-            builder.vertex(matrix4f, (float) (x - Math.cos(alpha1) * radius), (float) (y + Math.sin(alpha1) * radius), 0F).color(shadow).next();
-            builder.vertex(matrix4f, (float) (x - Math.cos(alpha2) * radius), (float) (y + Math.sin(alpha2) * radius), 0F).color(shadow).next();
+            this.vertex(matrix4f, (float) (x - Math.cos(alpha2) * offset), (float) (y + Math.sin(alpha2) * offset), opaque);
+            this.vertex(matrix4f, (float) (x - Math.cos(alpha1) * offset), (float) (y + Math.sin(alpha1) * offset), opaque);
+            this.vertex(matrix4f, (float) (x - Math.cos(alpha1) * radius), (float) (y + Math.sin(alpha1) * radius), shadow);
+            this.vertex(matrix4f, (float) (x - Math.cos(alpha2) * offset), (float) (y + Math.sin(alpha2) * offset), opaque);
+            this.vertex(matrix4f, (float) (x - Math.cos(alpha1) * radius), (float) (y + Math.sin(alpha1) * radius), shadow);
+            this.vertex(matrix4f, (float) (x - Math.cos(alpha2) * radius), (float) (y + Math.sin(alpha2) * radius), shadow);
         }
 
-        BufferRenderer.drawWithGlobalProgram(builder.end());
+        this.end();
     }
 
     /* Outline methods */
@@ -364,47 +455,48 @@ public class Batcher2D
 
     public void texturedBox(Texture texture, int color, float x, float y, float w, float h, float u1, float v1, float u2, float v2, int textureW, int textureH)
     {
-        RenderSystem.setShaderTexture(0, texture.id);
-
-        Matrix4f matrix = this.context.getMatrices().peek().getPositionMatrix();
-        BufferBuilder builder = Tessellator.getInstance().getBuffer();
-
-        RenderSystem.setShader(GameRenderer::getPositionTexColorProgram);
-
-        builder.begin(VertexFormat.DrawMode.TRIANGLES, VertexFormats.POSITION_TEXTURE_COLOR);
-        this.fillTexturedBox(builder, matrix, color, x, y, w, h, u1, v1, u2, v2, textureW, textureH);
-
-        BufferRenderer.drawWithGlobalProgram(builder.end());
+        this.texturedBox(POSITION_TEX_COLOR, texture.id, color, x, y, w, h, u1, v1, u2, v2, textureW, textureH);
     }
 
     public void texturedBox(int texture, int color, float x, float y, float w, float h, float u1, float v1, float u2, float v2, int textureW, int textureH)
     {
-        this.texturedBox(GameRenderer::getPositionTexColorProgram, texture, color, x, y, w, h, u1, v1, u2, v2, textureW, textureH);
+        this.texturedBox(POSITION_TEX_COLOR, texture, color, x, y, w, h, u1, v1, u2, v2, textureW, textureH);
     }
 
+    /**
+     * Draw a textured box with given shader. Boxes with shaders other than
+     * the stock one are drawn right away, because their uniforms (and GL
+     * state) are usually set right before this call, and would be changed
+     * by the time a deferred batch gets drawn.
+     */
     public void texturedBox(Supplier<ShaderProgram> shader, int texture, int color, float x, float y, float w, float h, float u1, float v1, float u2, float v2, int textureW, int textureH)
     {
-        RenderSystem.setShaderTexture(0, texture);
-
-        Matrix4f matrix = this.context.getMatrices().peek().getPositionMatrix();
-        BufferBuilder builder = Tessellator.getInstance().getBuffer();
+        ShaderProgram program = shader.get();
+        boolean custom = program != POSITION_TEX_COLOR.get();
 
-        RenderSystem.setShader(shader);
-
-        builder.begin(VertexFormat.DrawMode.TRIANGLES, VertexFormats.POSITION_TEXTURE_COLOR);
-        this.fillTexturedBox(builder, matrix, color, x, y, w, h, u1, v1, u2, v2, textureW, textureH);
+        if (custom)
+        {
+            this.buffer.flush();
+        }
 
-        BufferRenderer.drawWithGlobalProgram(builder.end());
+        this.buffer.begin(program, true, texture, false, RenderSystem.getShaderColor());
+        this.fillTexturedBox(this.getMatrix(), color, x, y, w, h, u1, v1, u2, v2, textureW, textureH);
+        this.buffer.end(this.isBatching() && !custom);
     }
 
-    private void fillTexturedBox(BufferBuilder builder, Matrix4f matrix, int color, float x, float y, float w, float h, float u1, float v1, float u2, float v2, int textureW, int textureH)
+    private void fillTexturedBox(Matrix4f matrix, int color, float x, float y, float w, float h, float u1, float v1, float u2, float v2, int textureW, int textureH)
     {
-        builder.vertex(matrix, x, y + h, 0F).texture(u1 / (float) textureW, v2 / (float) textureH).color(color).next();
-        builder.vertex(matrix, x + w, y + h, 0F).texture(u2 / (float) textureW, v2 / (float) textureH).color(color).next();
-        builder.vertex(matrix, x + w, y, 0F).texture(u2 / (float) textureW, v1 / (float) textureH).color(color).next();
-        builder.vertex(matrix, x, y + h, 0F).texture(u1 / (float) textureW, v2 / (float) textureH).color(color).next();
-        builder.vertex(matrix, x + w, y, 0F).texture(u2 / (float) textureW, v1 / (float) textureH).color(color).next();
-        builder.vertex(matrix, x, y, 0F).texture(u1 / (float) textureW, v1 / (float) textureH).color(color).next();
+        float tu1 = u1 / (float) textureW;
+        float tv1 = v1 / (float) textureH;
+        float tu2 = u2 / (float) textureW;
+        float tv2 = v2 / (float) textureH;
+
+        this.vertex(matrix, x, y + h, tu1, tv2, color);
+        this.vertex(matrix, x + w, y + h, tu2, tv2, color);
+        this.vertex(matrix, x + w, y, tu2, tv1, color);
+        this.vertex(matrix, x, y + h, tu1, tv2, color);
+        this.vertex(matrix, x + w, y, tu2, tv1, color);
+        this.vertex(matrix, x, y, tu1, tv1, color);
     }
 
     /* Repeatable textured box */
@@ -416,13 +508,9 @@ public class Batcher2D
         float fillerX = w - (countX - 1) * tileW;
         float fillerY = h - (countY - 1) * tileH;
 
-        Matrix4f matrix = this.context.getMatrices().peek().getPositionMatrix();
-        BufferBuilder builder = Tessellator.getInstance().getBuffer();
+        Matrix4f matrix = this.getMatrix();
 
-        RenderSystem.setShader(GameRenderer::getPositionTexColorProgram);
-        RenderSystem.setShaderTexture(0, texture.id);
-
-        builder.begin(VertexFormat.DrawMode.TRIANGLES, VertexFormats.POSITION_TEXTURE_COLOR);
+        this.begin(POSITION_TEX_COLOR, texture.id, false);
 
         for (int i = 0, c = countX * countY; i < c; i ++)
         {
@@ -433,10 +521,10 @@ public class Batcher2D
             float xw = ix == countX - 1 ? fillerX : tileW;
             float yh = iy == countY - 1 ? fillerY : tileH;
 
-            this.fillTexturedBox(builder, matrix, color, xx, yy, xw, yh, u, v, u + xw, v + yh, tw, th);
+            this.fillTexturedBox(matrix, color, xx, yy, xw, yh, u, v, u + xw, v + yh, tw, th);
         }
 
-        BufferRenderer.drawWithGlobalProgram(builder.end());
+        this.end();
     }
 
     /* Text with default font */
@@ -463,10 +551,11 @@ public class Batcher2D
 
     public void text(String label, float x, float y, int color, boolean shadow)
     {
+        this.buffer.flush();
+
         // Use TTF text renderer if available
         if (this.font.getFont() != null && this.font.getFont().isTTFFont() && this.font.getFont().getTTFTextRenderer() != null)
         {
-            System.out.println("[Batcher2D.text] Using TTF renderer for: " + label);
             if (shadow)
             {
                 this.font.getFont().getTTFTextRenderer().drawWithShadow(this.context.getMatrices(), label, (int) x, (int) y, color);
@@ -478,20 +567,6 @@ public class Batcher2D
         }
         else
         {
-            // Debug: why are we not using TTF?
-            if (this.font.getFont() == null)
-            {
-                System.out.println("[Batcher2D.text] Font object is null");
-            }
-            else if (!this.font.getFont().isTTFFont())
-            {
-                System.out.println("[Batcher2D.text] Not a TTF font: " + this.font.getFont().getDisplayName());
-            }
-            else if (this.font.getFont().getTTFTextRenderer() == null)
-            {
-                System.out.println("[Batcher2D.text] TTF text renderer is null for: " + this.font.getFont().getDisplayName());
-            }
-            
             // Use standard Minecraft text renderer
             this.context.drawText(this.font.getRenderer(), label, (int) x, (int) y, color, shadow);
         }
@@ -562,6 +637,71 @@ public class Batcher2D
 
     public void flush()
     {
+        this.buffer.flush();
         this.context.draw();
     }
+
+    /**
+     * Draws batches with GL.
+     */
+    private static class Backend implements BatchBuffer.IBackend
+    {
+        private final BufferBuilder builder = new BufferBuilder(4096);
+
+        @Override
+        public void draw(BatchBuffer buffer)
+        {
+            ShaderProgram program = (ShaderProgram) buffer.getShader();
+
+            if (program == null)
+            {
+                return;
+            }
+
+            boolean textured = buffer.isTextured();
+            float[] floats = buffer.getFloats();
+            int[] colors = buffer.getColors();
+
+            this.builder.begin(VertexFormat.DrawMode.TRIANGLES, textured ? VertexFormats.POSITION_TEXTURE_COLOR : VertexFormats.POSITION_COLOR);
+
+            for (int i = 0, c = buffer.getVertexCount(); i < c; i++)
+            {
+                int offset = i * BatchBuffer.FLOATS;
+
+                this.builder.vertex(floats[offset], floats[offset + 1], floats[offset + 2]);
+
+                if (textured)
+                {
+                    this.builder.texture(floats[offset + 3], floats[offset + 4]);
+                }
+
+                this.builder.color(colors[i]).next();
+            }
+
+            /* Shader state is restored afterwards, so the code that
+             * triggered the flush doesn't end up drawing with it */
+            ShaderProgram lastProgram = RenderSystem.getShader();
+            int lastTexture = RenderSystem.getShaderTexture(0);
+            float[] lastColor = RenderSystem.getShaderColor().clone();
+            float[] color = buffer.getShaderColor();
+
+            if (buffer.isBlend())
+            {
+                RenderSystem.enableBlend();
+            }
+
+            if (textured)
+            {
+                RenderSystem.setShaderTexture(0, buffer.getTexture());
+            }
+
+            RenderSystem.setShader(() -> program);
+            RenderSystem.setShaderColor(color[0], color[1], color[2], color[3]);
+            BufferRenderer.drawWithGlobalProgram(this.builder.end());
+
+            RenderSystem.setShader(() -> lastProgram);
+            RenderSystem.setShaderTexture(0, lastTexture);
+            RenderSystem.setShaderColor(lastColor[0], lastColor[1], lastColor[2], lastColor[3]);
+        }
+    }
 }
\ No newline at end of file
@@ -357,6 +357,12 @@ public class UIModelBlockPanel extends UIDashboardPanel implements IFlightSuppor
     @Override
     public void render(UIContext context)
     {
+        /* Form of the selected model block can be edited in place */
+        if (this.modelBlock != null)
+        {
+            this.modelBlock.wake();
+        }
+
         String label = UIKeys.FILM_CONTROLLER_SPEED.format(this.dashboard.orbit.speed.getValue()).get();
         FontRenderer font = context.batcher.getFont();
         int w = font.getWidth(label);
@@ -68,7 +68,7 @@ public class UIParticleSchemeGeneralSection extends UIParticleSchemeSection
             return;
         }
 
-        Texture texture = BBSModClient.getTextures().getTexture(link);
+        Texture texture = BBSModClient.getTextures().getLoadedTexture(link);
 
         component.textureWidth = texture.width;
         component.textureHeight = texture.height;
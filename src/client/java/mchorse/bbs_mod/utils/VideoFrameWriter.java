@@ -0,0 +1,237 @@
+package mchorse.bbs_mod.utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Video frame writer
+ *
+ * Writes frames to the encoder's input (ffmpeg's stdin) on a dedicated
+ * thread, so the render thread only copies frames into one of the pooled
+ * buffers and carries on. The pool is bounded: when the encoder falls behind
+ * and all buffers are queued, {@link #acquire()} blocks until the writer
+ * frees one (backpressure), instead of buffering frames without limit.
+ */
+public class VideoFrameWriter
+{
+    private static final ByteBuffer END = ByteBuffer.allocate(0);
+
+    private final WritableByteChannel sink;
+    private final int frameSize;
+    private final BlockingQueue<ByteBuffer> free;
+    private final BlockingQueue<ByteBuffer> queue;
+    private final Thread thread;
+
+    private volatile IOException error;
+    private boolean closed;
+
+    /* Statistics */
+    private volatile int frames;
+    private volatile long bytes;
+    private volatile long writeTime;
+    private volatile int maxDepth;
+    private long stallTime;
+
+    public VideoFrameWriter(WritableByteChannel sink, int frameSize, int capacity)
+    {
+        if (capacity < 1)
+        {
+            throw new IllegalArgumentException("Capacity should be at least 1, but " + capacity + " given!");
+        }
+
+        this.sink = sink;
+        this.frameSize = frameSize;
+        this.free = new ArrayBlockingQueue<>(capacity);
+        this.queue = new ArrayBlockingQueue<>(capacity + 1);
+
+        for (int i = 0; i < capacity; i++)
+        {
+            this.free.add(ByteBuffer.allocateDirect(frameSize));
+        }
+
+        this.thread = new Thread(this::run, "BBS video writer");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    public int getFrameSize()
+    {
+        return this.frameSize;
+    }
+
+    /**
+     * Amount of frames that were submitted, but not written yet.
+     */
+    public int getQueueDepth()
+    {
+        return this.queue.size();
+    }
+
+    public int getMaxQueueDepth()
+    {
+        return this.maxDepth;
+    }
+
+    public int getWrittenFrames()
+    {
+        return this.frames;
+    }
+
+    public long getWrittenBytes()
+    {
+        return this.bytes;
+    }
+
+    /**
+     * Encoder throughput (frames per second of writing time).
+     */
+    public double getThroughput()
+    {
+        long time = this.writeTime;
+
+        return time == 0 ? 0 : this.frames / (time / 1_000_000_000D);
+    }
+
+    /**
+     * Total time (in nanoseconds) the submitting thread was blocked because
+     * all buffers were queued.
+     */
+    public long getStallTime()
+    {
+        return this.stallTime;
+    }
+
+    public IOException getError()
+    {
+        return this.error;
+    }
+
+    /**
+     * Get an empty buffer to copy next frame into. Blocks if the encoder
+     * can't keep up.
+     */
+    public ByteBuffer acquire() throws IOException, InterruptedException
+    {
+        this.checkError();
+
+        ByteBuffer buffer = this.free.poll();
+
+        if (buffer == null)
+        {
+            long start = System.nanoTime();
+
+            while (buffer == null)
+            {
+                this.checkError();
+
+                buffer = this.free.poll(50, TimeUnit.MILLISECONDS);
+            }
+
+            this.stallTime += System.nanoTime() - start;
+        }
+
+        buffer.clear();
+
+        return buffer;
+    }
+
+    /**
+     * Queue a buffer (acquired with {@link #acquire()}) to be written.
+     */
+    public void submit(ByteBuffer buffer) throws IOException
+    {
+        this.checkError();
+
+        if (this.closed)
+        {
+            throw new IllegalStateException("Video frame writer is already closed!");
+        }
+
+        buffer.flip();
+        this.queue.add(buffer);
+        this.maxDepth = Math.max(this.maxDepth, this.queue.size());
+    }
+
+    private void checkError() throws IOException
+    {
+        IOException error = this.error;
+
+        if (error != null)
+        {
+            throw error;
+        }
+    }
+
+    private void run()
+    {
+        try
+        {
+            while (true)
+            {
+                ByteBuffer buffer = this.queue.take();
+
+                if (buffer == END)
+                {
+                    break;
+                }
+
+                if (this.error == null)
+                {
+                    long start = System.nanoTime();
+                    int size = buffer.remaining();
+
+                    try
+                    {
+                        while (buffer.hasRemaining())
+                        {
+                            this.sink.write(buffer);
+                        }
+
+                        this.writeTime += System.nanoTime() - start;
+                        this.bytes += size;
+                        this.frames += 1;
+                    }
+                    catch (Exception e)
+                    {
+                        this.error = e instanceof IOException io ? io : new IOException(e);
+                    }
+                }
+
+                this.free.add(buffer);
+            }
+        }
+        catch (InterruptedException e)
+        {}
+    }
+
+    /**
+     * Write all queued frames and stop the writer thread. The sink isn't
+     * closed.
+     */
+    public void close() throws IOException
+    {
+        if (this.closed)
+        {
+            return;
+        }
+
+        this.closed = true;
+        this.queue.add(END);
+
+        try
+        {
+            this.thread.join();
+        }
+        catch (InterruptedException e)
+        {
+            this.thread.interrupt();
+            Thread.currentThread().interrupt();
+        }
+
+        this.checkError();
+    }
+}
@@ -0,0 +1,189 @@
+package mchorse.bbs_mod.utils;
+
+import com.ibm.icu.impl.Assert;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+public class VideoFrameWriterTest
+{
+    private static final int FRAME_SIZE = 64 * 64 * 3;
+
+    public static void main(String[] args) throws Exception
+    {
+        testOrder();
+        testBackpressure();
+        testError();
+    }
+
+    /**
+     * Every frame gets written completely and in submission order, even when
+     * the sink accepts only a part of the buffer per write.
+     */
+    private static void testOrder() throws Exception
+    {
+        FakeSink sink = new FakeSink(0, 1000);
+        VideoFrameWriter writer = new VideoFrameWriter(sink, FRAME_SIZE, 3);
+
+        for (int i = 0; i < 20; i++)
+        {
+            fill(writer, i);
+        }
+
+        writer.close();
+
+        Assert.assrt(writer.getWrittenFrames() == 20);
+        Assert.assrt(writer.getWrittenBytes() == 20L * FRAME_SIZE);
+        Assert.assrt(sink.bytes == 20L * FRAME_SIZE);
+        Assert.assrt(sink.frames == 20);
+        Assert.assrt(!sink.outOfOrder);
+        Assert.assrt(writer.getQueueDepth() == 0);
+    }
+
+    /**
+     * Slow encoder should block the submitting thread instead of queuing
+     * more frames than there are buffers.
+     */
+    private static void testBackpressure() throws Exception
+    {
+        FakeSink sink = new FakeSink(20, Integer.MAX_VALUE);
+        VideoFrameWriter writer = new VideoFrameWriter(sink, FRAME_SIZE, 2);
+        long start = System.nanoTime();
+
+        for (int i = 0; i < 6; i++)
+        {
+            fill(writer, i);
+
+            Assert.assrt(writer.getQueueDepth() <= 2);
+        }
+
+        long submitting = System.nanoTime() - start;
+
+        writer.close();
+
+        Assert.assrt(writer.getMaxQueueDepth() <= 2);
+        Assert.assrt(writer.getStallTime() > 0);
+
+        /* At least 4 frames had to be written before the last one could be submitted */
+        Assert.assrt(submitting >= 4 * 20_000_000L);
+        Assert.assrt(writer.getWrittenFrames() == 6);
+        Assert.assrt(writer.getThroughput() > 0 && writer.getThroughput() < 60);
+    }
+
+    /**
+     * Failing encoder (like ffmpeg exiting due to bad arguments) should be
+     * reported to the submitting thread instead of blocking it forever.
+     */
+    private static void testError() throws Exception
+    {
+        FakeSink sink = new FakeSink(0, Integer.MAX_VALUE);
+        VideoFrameWriter writer = new VideoFrameWriter(sink, FRAME_SIZE, 2);
+
+        sink.broken = true;
+
+        try
+        {
+            for (int i = 0; i < 10; i++)
+            {
+                fill(writer, i);
+            }
+
+            Assert.fail("Broken sink didn't fail submission");
+        }
+        catch (IOException e)
+        {}
+
+        Assert.assrt(writer.getError() != null);
+
+        try
+        {
+            writer.close();
+
+            Assert.fail("Broken sink didn't fail closing");
+        }
+        catch (IOException e)
+        {}
+    }
+
+    private static void fill(VideoFrameWriter writer, int frame) throws Exception
+    {
+        ByteBuffer buffer = writer.acquire();
+
+        while (buffer.hasRemaining())
+        {
+            buffer.put((byte) frame);
+        }
+
+        writer.submit(buffer);
+    }
+
+    /**
+     * Fake encoder process stdin, which takes some time per frame and
+     * checks frames' order.
+     */
+    private static class FakeSink implements WritableByteChannel
+    {
+        private final long delay;
+        private final int chunk;
+
+        public volatile boolean broken;
+        public long bytes;
+        public int frames;
+        public boolean outOfOrder;
+
+        public FakeSink(long delay, int chunk)
+        {
+            this.delay = delay;
+            this.chunk = chunk;
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException
+        {
+            if (this.broken)
+            {
+                throw new IOException("Broken pipe");
+            }
+
+            if (this.bytes % FRAME_SIZE == 0 && this.delay > 0)
+            {
+                try
+                {
+                    Thread.sleep(this.delay);
+                }
+                catch (InterruptedException e)
+                {}
+            }
+
+            int length = Math.min(src.remaining(), this.chunk);
+
+            for (int i = 0; i < length; i++)
+            {
+                if (src.get() != (byte) (this.bytes / FRAME_SIZE))
+                {
+                    this.outOfOrder = true;
+                }
+
+                this.bytes += 1;
+            }
+
+            if (this.bytes % FRAME_SIZE == 0)
+            {
+                this.frames += 1;
+            }
+
+            return length;
+        }
+
+        @Override
+        public boolean isOpen()
+        {
+            return true;
+        }
+
+        @Override
+        public void close()
+        {}
+    }
+}
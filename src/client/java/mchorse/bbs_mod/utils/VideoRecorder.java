@@ -5,7 +5,6 @@ import mchorse.bbs_mod.BBSSettings;
 import mchorse.bbs_mod.client.BBSRendering;
 import mchorse.bbs_mod.ui.utils.UIUtils;
 import org.lwjgl.opengl.GL30;
-import org.lwjgl.system.MemoryUtil;
 import sun.misc.Unsafe;
 
 import java.io.File;
@@ -29,7 +28,7 @@ public class VideoRecorder
     private WritableByteChannel channel;
     private boolean recording;
 
-    private ByteBuffer buffer;
+    private VideoFrameWriter writer;
     private int textureId = -1;
     private int textureWidth;
     private int textureHeight;
@@ -53,8 +52,30 @@ public class VideoRecorder
         return this.counter;
     }
 
+    /* Ring of pixel pack buffers, frames are read back asynchronously into
+     * the ring, and mapped only when the ring is about to wrap around */
     private int[] pbos;
+    private long[] issued;
     private int pboIndex;
+    private int pending;
+
+    /* Statistics */
+    private long readbackTime;
+    private int readbacks;
+
+    /**
+     * Average time (in milliseconds) between requesting a frame's readback
+     * and its pixels becoming available for writing.
+     */
+    public double getReadbackLatency()
+    {
+        return this.readbacks == 0 ? 0 : this.readbackTime / (double) this.readbacks / 1_000_000D;
+    }
+
+    public VideoFrameWriter getWriter()
+    {
+        return this.writer;
+    }
 
     /**
      * Start recording the video using ffmpeg
@@ -73,11 +94,6 @@ public class VideoRecorder
 
         int size = width * height * 3;
 
-        if (this.buffer == null)
-        {
-            this.buffer = MemoryUtil.memAlloc(size);
-        }
-
         try
         {
             File movies = BBSRendering.getVideoFolder();
@@ -112,10 +128,16 @@ public class VideoRecorder
 
             System.out.println("Recording video with following arguments: " + args);
 
-            this.pbos = new int[2];
+            int buffers = BBSSettings.videoBuffers.get();
+
+            this.pbos = new int[buffers];
+            this.issued = new long[buffers];
             this.pboIndex = 0;
+            this.pending = 0;
+            this.readbackTime = 0;
+            this.readbacks = 0;
 
-            for (int i = 0; i < 2; i++)
+            for (int i = 0; i < buffers; i++)
             {
                 this.pbos[i] = GL30.glGenBuffers();
 
@@ -161,6 +183,7 @@ public class VideoRecorder
             }
 
             this.channel = Channels.newChannel(os);
+            this.writer = new VideoFrameWriter(this.channel, size, BBSSettings.videoQueue.get());
             this.recording = true;
 
             UIUtils.playClick(2F);
@@ -183,6 +206,19 @@ public class VideoRecorder
             return;
         }
 
+        try
+        {
+            /* Write frames which are still in the ring */
+            while (this.pending > 0)
+            {
+                this.writeFrame((this.pboIndex - this.pending + this.pbos.length) % this.pbos.length);
+            }
+        }
+        catch (Exception e)
+        {
+            e.printStackTrace();
+        }
+
         if (this.pbos != null)
         {
             for (int pbo : this.pbos)
@@ -194,11 +230,24 @@ public class VideoRecorder
         this.pbos = null;
         this.textureId = -1;
 
-        if (this.buffer != null)
+        if (this.writer != null)
         {
-            MemoryUtil.memFree(this.buffer);
+            try
+            {
+                this.writer.close();
+            }
+            catch (IOException e)
+            {
+                e.printStackTrace();
+            }
+
+            System.out.println(String.format(
+                "Recorded %d frames (readback latency %.2f ms, max queue depth %d, encoder throughput %.1f FPS, render thread stalled for %d ms)",
+                this.writer.getWrittenFrames(), this.getReadbackLatency(), this.writer.getMaxQueueDepth(),
+                this.writer.getThroughput(), this.writer.getStallTime() / 1_000_000L
+            ));
 
-            this.buffer = null;
+            this.writer = null;
         }
 
         try
@@ -249,27 +298,22 @@ public class VideoRecorder
 
         try
         {
-            int pbo = this.pboIndex;
-            int nextPbo = (this.pboIndex + 1) % this.pbos.length;
+            /* Ring is full, so the oldest frame has to be written before its
+             * buffer can be reused */
+            if (this.pending == this.pbos.length)
+            {
+                this.writeFrame(this.pboIndex);
+            }
 
             GL30.glPixelStorei(GL30.GL_PACK_ALIGNMENT, 1);
-            GL30.glBindBuffer(GL30.GL_PIXEL_PACK_BUFFER, this.pbos[pbo]);
+            GL30.glBindBuffer(GL30.GL_PIXEL_PACK_BUFFER, this.pbos[this.pboIndex]);
             GL30.glBindTexture(GL30.GL_TEXTURE_2D, this.textureId);
             GL30.glGetTexImage(GL30.GL_TEXTURE_2D, 0, GL30.GL_BGR, GL30.GL_UNSIGNED_BYTE, 0);
-
-            GL30.glBindBuffer(GL30.GL_PIXEL_PACK_BUFFER, this.pbos[nextPbo]);
-
-            ByteBuffer mappedBuffer = GL30.glMapBuffer(GL30.GL_PIXEL_PACK_BUFFER, GL30.GL_READ_ONLY);
-
-            if (mappedBuffer != null && this.counter != 0)
-            {
-                this.channel.write(mappedBuffer);
-            }
-
-            GL30.glUnmapBuffer(GL30.GL_PIXEL_PACK_BUFFER);
             GL30.glBindBuffer(GL30.GL_PIXEL_PACK_BUFFER, 0);
 
-            this.pboIndex = nextPbo;
+            this.issued[this.pboIndex] = System.nanoTime();
+            this.pboIndex = (this.pboIndex + 1) % this.pbos.length;
+            this.pending += 1;
         }
         catch (Exception e)
         {
@@ -279,6 +323,38 @@ public class VideoRecorder
         this.counter += 1;
     }
 
+    /**
+     * Map given buffer of the ring, and pass its pixels to the writer
+     * thread (which might block, if the encoder can't keep up).
+     */
+    private void writeFrame(int index) throws IOException, InterruptedException
+    {
+        GL30.glBindBuffer(GL30.GL_PIXEL_PACK_BUFFER, this.pbos[index]);
+
+        ByteBuffer mappedBuffer = GL30.glMapBuffer(GL30.GL_PIXEL_PACK_BUFFER, GL30.GL_READ_ONLY);
+
+        this.readbackTime += System.nanoTime() - this.issued[index];
+        this.readbacks += 1;
+        this.pending -= 1;
+
+        try
+        {
+            if (mappedBuffer != null)
+            {
+                ByteBuffer frame = this.writer.acquire();
+
+                mappedBuffer.limit(Math.min(mappedBuffer.capacity(), frame.capacity()));
+                frame.put(mappedBuffer);
+                this.writer.submit(frame);
+            }
+        }
+        finally
+        {
+            GL30.glUnmapBuffer(GL30.GL_PIXEL_PACK_BUFFER);
+            GL30.glBindBuffer(GL30.GL_PIXEL_PACK_BUFFER, 0);
+        }
+    }
+
     /**
      * Toggle recording of the video
      */
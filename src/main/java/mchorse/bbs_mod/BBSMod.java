@@ -370,7 +370,7 @@ public class BBSMod implements ModInitializer
 
         actions = new ActionManager();
 
-        originalSourcePack = new ExternalAssetsSourcePack(Link.ASSETS, assetsFolder).providesFiles();
+        originalSourcePack = new ExternalAssetsSourcePack(Link.ASSETS, assetsFolder).providesFiles().cacheIndex(new File(gameFolder, "config/bbs/assets.index"));
         dynamicSourcePack = new DynamicSourcePack(originalSourcePack);
         provider = new AssetProvider();
         provider.register(dynamicSourcePack);
@@ -509,6 +509,8 @@ public class BBSMod implements ModInitializer
             runnables.clear();
         });
 
+        ServerLifecycleEvents.SERVER_STOPPING.register((server) -> actions.finishRestoring());
+
         ServerLifecycleEvents.SERVER_STOPPED.register((server) ->
         {
             actions.reset();
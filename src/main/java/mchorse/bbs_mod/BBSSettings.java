@@ -34,6 +34,7 @@ public class BBSSettings
     public static ValueFloat axesScale;
     public static ValueBoolean uniformScale;
     public static ValueBoolean clickSound;
+    public static ValueBoolean uiBatching;
 
     public static ValueBoolean enableCursorRendering;
     public static ValueBoolean enableMouseButtonRendering;
@@ -56,10 +57,22 @@ public class BBSSettings
     public static ValueBoolean scrollingSmoothness;
 
     public static ValueBoolean multiskinMultiThreaded;
+    public static ValueInt multiskinCacheSize;
+    public static ValueBoolean multiskinCacheDisk;
+    public static ValueInt multiskinCacheDiskSize;
+
+    public static ValueBoolean texturesAsync;
+    public static ValueInt texturesUploadBudget;
+    public static ValueInt texturesThumbnailsCache;
 
     public static ValueString videoEncoderPath;
     public static ValueBoolean videoEncoderLog;
     public static ValueVideoSettings videoSettings;
+    public static ValueInt videoBuffers;
+    public static ValueInt videoQueue;
+    public static ValueInt videoDecoderThreads;
+    public static ValueInt videoFrameCache;
+    public static ValueInt videoPrefetch;
 
     public static ValueFloat editorCameraSpeed;
     public static ValueFloat editorCameraAngleSpeed;
@@ -79,17 +92,32 @@ public class BBSSettings
     public static ValueBoolean editorClipPreview;
     public static ValueBoolean editorRewind;
     public static ValueBoolean editorHorizontalClipEditor;
+    public static ValueInt editorUndoMemory;
 
     public static ValueFloat recordingCountdown;
     public static ValueBoolean recordingSwipeDamage;
     public static ValueBoolean recordingOverlays;
+    public static ValueBoolean recordingReduce;
+    public static ValueFloat recordingReducePosition;
+    public static ValueFloat recordingReduceRotation;
+    public static ValueFloat recordingReduceVelocity;
+    public static ValueFloat recordingReduceInput;
 
     public static ValueBoolean renderAllModelBlocks;
     public static ValueBoolean clickModelBlocks;
+    public static ValueBoolean modelBlocksCulling;
+    public static ValueFloat modelBlocksCullingPadding;
+    public static ValueInt modelBlocksReducedDistance;
+    public static ValueInt modelBlocksLowDistance;
+    public static ValueInt modelBlocksRenderDistance;
+    public static ValueBoolean modelBlocksScheduler;
+    public static ValueInt modelBlocksSleepDistance;
+    public static ValueFloat modelBlocksTickBudget;
 
     public static ValueString entitySelectorsPropertyWhitelist;
 
     public static ValueBoolean damageControl;
+    public static ValueFloat damageControlRestoreBudget;
 
     public static ValueBoolean shaderCurvesEnabled;
 
@@ -137,6 +165,7 @@ public class BBSSettings
         axesScale = builder.getFloat("axes_scale", 1F, 0F, 2F);
         uniformScale = builder.getBoolean("uniform_scale", false);
         clickSound = builder.getBoolean("click_sound", false);
+        uiBatching = builder.getBoolean("ui_batching", true);
 
         HashSet<String> defaultFilters = new HashSet<>();
 
@@ -185,10 +214,22 @@ public class BBSSettings
         scrollingSmoothness = builder.getBoolean("smoothness", true);
 
         multiskinMultiThreaded = builder.category("multiskin").getBoolean("multithreaded", true);
+        multiskinCacheSize = builder.getInt("cache_size", 64, 0, 1024);
+        multiskinCacheDisk = builder.getBoolean("cache_disk", false);
+        multiskinCacheDiskSize = builder.getInt("cache_disk_size", 256, 16, 4096);
+
+        texturesAsync = builder.category("textures").getBoolean("async", true);
+        texturesUploadBudget = builder.getInt("upload_budget", 16, 1, 512);
+        texturesThumbnailsCache = builder.getInt("thumbnails_cache", 64, 0, 1024);
 
         videoEncoderPath = builder.category("video").getString("encoder_path", "ffmpeg");
         videoEncoderLog = builder.getBoolean("log", true);
         builder.register(videoSettings = new ValueVideoSettings("settings"));
+        videoBuffers = builder.getInt("buffers", 3, 2, 8);
+        videoQueue = builder.getInt("queue", 4, 1, 32);
+        videoDecoderThreads = builder.getInt("decoder_threads", 2, 1, 8);
+        videoFrameCache = builder.getInt("frame_cache", 256, 16, 4096);
+        videoPrefetch = builder.getInt("prefetch", 12, 0, 120);
 
         /* Camera editor */
         editorCameraSpeed = builder.category("editor").getFloat("speed", 1F, 0F, 100F);
@@ -209,17 +250,32 @@ public class BBSSettings
         editorClipPreview = builder.getBoolean("clip_preview", true);
         editorRewind = builder.getBoolean("rewind", true);
         editorHorizontalClipEditor = builder.getBoolean("horizontal_clip_editor", true);
+        editorUndoMemory = builder.getInt("undo_memory", 64, 1, 4096);
 
         recordingCountdown = builder.category("recording").getFloat("countdown", 1.5F, 0F, 30F);
         recordingSwipeDamage = builder.getBoolean("swipe_damage", false);
         recordingOverlays = builder.getBoolean("overlays", true);
+        recordingReduce = builder.getBoolean("reduce", true);
+        recordingReducePosition = builder.getFloat("reduce_position", 0.005F, 0F, 1F);
+        recordingReduceRotation = builder.getFloat("reduce_rotation", 0.1F, 0F, 10F);
+        recordingReduceVelocity = builder.getFloat("reduce_velocity", 0.005F, 0F, 1F);
+        recordingReduceInput = builder.getFloat("reduce_input", 0.01F, 0F, 1F);
 
         renderAllModelBlocks = builder.category("model_blocks").getBoolean("render_all", true);
         clickModelBlocks = builder.getBoolean("click", true);
+        modelBlocksCulling = builder.getBoolean("culling", true);
+        modelBlocksCullingPadding = builder.getFloat("culling_padding", 1F, 0F, 64F);
+        modelBlocksReducedDistance = builder.getInt("reduced_distance", 32, 0, 1024);
+        modelBlocksLowDistance = builder.getInt("low_distance", 64, 0, 1024);
+        modelBlocksRenderDistance = builder.getInt("render_distance", 196, 16, 1024);
+        modelBlocksScheduler = builder.getBoolean("scheduler", true);
+        modelBlocksSleepDistance = builder.getInt("sleep_distance", 128, 0, 1024);
+        modelBlocksTickBudget = builder.getFloat("tick_budget", 4F, 0F, 50F);
 
         entitySelectorsPropertyWhitelist = builder.category("entity_selectors").getString("whitelist", "CustomName,Name");
 
         damageControl = builder.category("dc").getBoolean("enabled", true);
+        damageControlRestoreBudget = builder.getFloat("restore_budget", 5F, 0F, 50F);
 
         shaderCurvesEnabled = builder.category("shader_curves").getBoolean("enabled", true);
 
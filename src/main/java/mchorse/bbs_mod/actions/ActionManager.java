@@ -1,5 +1,6 @@
 package mchorse.bbs_mod.actions;
 
+import mchorse.bbs_mod.BBSSettings;
 import mchorse.bbs_mod.actions.types.ActionClip;
 import mchorse.bbs_mod.data.types.BaseType;
 import mchorse.bbs_mod.film.Film;
@@ -10,6 +11,7 @@ import net.minecraft.entity.Entity;
 import net.minecraft.server.network.ServerPlayerEntity;
 import net.minecraft.server.world.ServerWorld;
 import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.World;
 
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -23,12 +25,14 @@ public class ActionManager
     private List<ActionPlayer> players = new ArrayList<>();
     private Map<ServerPlayerEntity, ActionRecorder> recorders = new HashMap<>();
     private Map<ServerWorld, DamageControl> dc = new HashMap<>();
+    private List<DamageControl> restoring = new ArrayList<>();
 
     public void reset()
     {
         this.players.clear();
         this.recorders.clear();
         this.dc.clear();
+        this.restoring.clear();
     }
 
     public void tick()
@@ -54,6 +58,13 @@ public class ActionManager
         {
             entry.getValue().tick(entry.getKey());
         }
+
+        if (!this.restoring.isEmpty())
+        {
+            long budget = (long) (BBSSettings.damageControlRestoreBudget.get() * 1_000_000D);
+
+            this.restoring.removeIf((control) -> control.restore(budget));
+        }
     }
 
     /* Actions playback */
@@ -168,6 +179,9 @@ public class ActionManager
 
         if (damageControl == null)
         {
+            /* Blocks that are still being restored would be captured in
+             * their damaged state otherwise */
+            this.finishRestoring(world);
             this.dc.put(world, new DamageControl(world));
         }
         else
@@ -188,8 +202,16 @@ public class ActionManager
             }
             else
             {
-                damageControl.restore();
                 this.dc.remove(world);
+
+                if (BBSSettings.damageControlRestoreBudget.get() > 0F)
+                {
+                    this.restoring.add(damageControl);
+                }
+                else
+                {
+                    damageControl.restore();
+                }
             }
         }
     }
@@ -202,11 +224,34 @@ public class ActionManager
         {
             dc.restore();
         }
+
+        this.finishRestoring(world);
     }
 
-    public void changedBlock(BlockPos pos, BlockState state, BlockEntity blockEntity)
+    /**
+     * Restore immediately all blocks that are scheduled to be restored over
+     * the next ticks, so worlds don't get saved with damage that wasn't
+     * restored yet (i.e. when the server stops).
+     */
+    public void finishRestoring()
     {
-        for (DamageControl control : this.dc.values())
+        this.restoring.removeIf((control) -> control.restore(0L));
+    }
+
+    /**
+     * Restore immediately all blocks of given world that are scheduled to
+     * be restored over the next ticks.
+     */
+    private void finishRestoring(ServerWorld world)
+    {
+        this.restoring.removeIf((control) -> control.getWorld() == world && control.restore(0L));
+    }
+
+    public void changedBlock(World world, BlockPos pos, BlockState state, BlockEntity blockEntity)
+    {
+        DamageControl control = this.dc.get(world);
+
+        if (control != null)
         {
             control.addBlock(pos, state, blockEntity);
         }
@@ -214,7 +259,9 @@ public class ActionManager
 
     public void spawnedEntity(Entity entity)
     {
-        for (DamageControl control : this.dc.values())
+        DamageControl control = this.dc.get(entity.getWorld());
+
+        if (control != null)
         {
             control.addEntity(entity);
         }
@@ -5,19 +5,29 @@ import mchorse.bbs_mod.BBSSettings;
 import mchorse.bbs_mod.actions.types.ActionClip;
 import mchorse.bbs_mod.actions.types.AttackActionClip;
 import mchorse.bbs_mod.actions.types.SwipeActionClip;
+import mchorse.bbs_mod.data.DataStorageUtils;
+import mchorse.bbs_mod.data.types.BaseType;
 import mchorse.bbs_mod.film.Film;
+import mchorse.bbs_mod.film.replays.RecordingStream;
+import mchorse.bbs_mod.utils.clips.Clip;
 import mchorse.bbs_mod.utils.clips.Clips;
 import net.minecraft.server.network.ServerPlayerEntity;
 
+import java.util.ArrayList;
+import java.util.List;
+
 public class ActionRecorder
 {
     private Film film;
     private ServerPlayerEntity entity;
-    private Clips clips = new Clips("...", BBSMod.getFactoryActionClips());
     private int tick;
     private int countdown;
     private int initialTick;
 
+    /* Recorded clips are kept serialized until recording is done */
+    private RecordingStream events = new RecordingStream();
+    private int count;
+
     public ActionRecorder(Film film, ServerPlayerEntity entity, int tick, int countdown)
     {
         this.film = film;
@@ -32,11 +42,6 @@ public class ActionRecorder
         return this.film;
     }
 
-    public Clips getClips()
-    {
-        return this.clips;
-    }
-
     public int getInitialTick()
     {
         return this.initialTick;
@@ -44,8 +49,30 @@ public class ActionRecorder
 
     public Clips composeClips()
     {
-        Clips clips = this.clips;
+        Clips clips = new Clips("...", BBSMod.getFactoryActionClips());
+        List<Clip> list = new ArrayList<>(this.count);
+        RecordingStream.Reader reader = this.events.reader();
+
+        for (int i = 0; i < this.count; i++)
+        {
+            int tick = reader.readVarInt();
+            BaseType data = DataStorageUtils.readFromBytes(reader.readBytes(reader.readVarInt()));
+
+            if (data == null || !data.isMap())
+            {
+                continue;
+            }
+
+            Clip clip = clips.getFactory().fromData(data.asMap());
+
+            if (clip != null)
+            {
+                clip.tick.set(tick);
+                list.add(clip);
+            }
+        }
 
+        clips.addClips(list);
         clips.sortLayers();
 
         return clips;
@@ -61,7 +88,12 @@ public class ActionRecorder
         clip.tick.set(this.tick);
         clip.duration.set(1);
 
-        this.clips.addClip(clip);
+        byte[] bytes = DataStorageUtils.writeToBytes(BBSMod.getFactoryActionClips().toData(clip));
+
+        this.events.writeVarInt(this.tick);
+        this.events.writeVarInt(bytes.length);
+        this.events.writeBytes(bytes);
+        this.count += 1;
     }
 
     public void tick(ServerPlayerEntity player)
@@ -88,4 +120,4 @@ public class ActionRecorder
 
         this.tick += 1;
     }
-}
\ No newline at end of file
+}
@@ -13,8 +13,9 @@ import java.util.List;
 
 public class DamageControl
 {
-    private List<BlockCapture> blocks = new ArrayList<>();
+    private DamageStore<BlockCapture> blocks = new DamageStore<>();
     private List<Entity> entities = new ArrayList<>();
+    private BlockPos.Mutable pos = new BlockPos.Mutable();
 
     private ServerWorld world;
 
@@ -27,24 +28,19 @@ public class DamageControl
         this.enable = BBSSettings.damageControl.get();
     }
 
+    public ServerWorld getWorld()
+    {
+        return this.world;
+    }
+
     public void addBlock(BlockPos pos, BlockState state, BlockEntity entity)
     {
-        if (!this.enable)
+        if (!this.enable || this.blocks.has(pos.getX(), pos.getY(), pos.getZ()))
         {
             return;
         }
 
-        for (int i = 0; i < this.blocks.size(); i++)
-        {
-            BlockCapture blockCapture = this.blocks.get(i);
-
-            if (blockCapture.pos.equals(pos))
-            {
-                return;
-            }
-        }
-
-        this.blocks.add(new BlockCapture(new BlockPos(pos), state, entity == null ? null : entity.createNbtWithId()));
+        this.blocks.add(pos.getX(), pos.getY(), pos.getZ(), new BlockCapture(state, entity == null ? null : entity.createNbtWithId()));
     }
 
     public void addEntity(Entity entity)
@@ -59,18 +55,16 @@ public class DamageControl
 
     public void restore()
     {
-        for (BlockCapture block : this.blocks)
-        {
-            this.world.setBlockState(block.pos, block.lastState, 2);
-
-            if (block.blockEntity != null)
-            {
-                BlockEntity blockEntity = BlockEntity.createFromNbt(block.pos, block.lastState, block.blockEntity);
-
-                this.world.addBlockEntity(blockEntity);
-            }
-        }
+        this.restore(0L);
+    }
 
+    /**
+     * Restore captured blocks within given time budget (in nanoseconds, 0
+     * restores everything at once). Spawned entities get removed on the
+     * first call. Returns whether everything was restored.
+     */
+    public boolean restore(long budget)
+    {
         for (Entity entity : this.entities)
         {
             if (!entity.isRemoved())
@@ -79,21 +73,33 @@ public class DamageControl
             }
         }
 
-        this.blocks.clear();
         this.entities.clear();
+
+        return this.blocks.drain(this::restoreBlock, budget);
+    }
+
+    private void restoreBlock(int x, int y, int z, BlockCapture block)
+    {
+        this.pos.set(x, y, z);
+        this.world.setBlockState(this.pos, block.lastState, 2);
+
+        if (block.blockEntity != null)
+        {
+            BlockEntity blockEntity = BlockEntity.createFromNbt(this.pos.toImmutable(), block.lastState, block.blockEntity);
+
+            this.world.addBlockEntity(blockEntity);
+        }
     }
 
     private static class BlockCapture
     {
-        public BlockPos pos;
         public BlockState lastState;
         public NbtCompound blockEntity;
 
-        public BlockCapture(BlockPos pos, BlockState lastState, NbtCompound blockEntity)
+        public BlockCapture(BlockState lastState, NbtCompound blockEntity)
         {
-            this.pos = pos;
             this.lastState = lastState;
             this.blockEntity = blockEntity;
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,200 @@
+package mchorse.bbs_mod.actions;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Damage store
+ *
+ * Keeps captured values of block positions, grouped by 16x16x16 chunk
+ * sections. Only the first value of every position is kept (as it's the
+ * original state of the block), and checking whether a position was
+ * already captured is a hash look up of its section plus a bit test.
+ *
+ * Captured values can be drained within a time budget, section by
+ * section, so restoring big amounts of blocks can be spread over several
+ * ticks.
+ */
+public class DamageStore <T>
+{
+    private final Long2ObjectOpenHashMap<Section> sections = new Long2ObjectOpenHashMap<>();
+    private final List<Section> order = new ArrayList<>();
+    private int size;
+
+    /* Drain cursor */
+    private int sectionCursor;
+    private int blockCursor;
+
+    /**
+     * Pack block position into a long (same layout as Minecraft's
+     * block positions).
+     */
+    public static long pack(int x, int y, int z)
+    {
+        return ((long) x & 0x3FFFFFFL) << 38 | ((long) z & 0x3FFFFFFL) << 12 | ((long) y & 0xFFFL);
+    }
+
+    public int size()
+    {
+        return this.size;
+    }
+
+    public boolean isEmpty()
+    {
+        return this.size == 0;
+    }
+
+    public int getSectionCount()
+    {
+        return this.sections.size();
+    }
+
+    public boolean has(int x, int y, int z)
+    {
+        Section section = this.sections.get(pack(x >> 4, y >> 4, z >> 4));
+
+        return section != null && section.has(getLocal(x, y, z));
+    }
+
+    /**
+     * Capture given value of a block position, unless it was already
+     * captured. Returns whether the value was added.
+     */
+    public boolean add(int x, int y, int z, T value)
+    {
+        long key = pack(x >> 4, y >> 4, z >> 4);
+        Section section = this.sections.get(key);
+
+        if (section == null)
+        {
+            section = new Section(x >> 4, y >> 4, z >> 4);
+
+            this.sections.put(key, section);
+            this.order.add(section);
+        }
+
+        int local = getLocal(x, y, z);
+
+        if (section.has(local))
+        {
+            return false;
+        }
+
+        section.add(local, value);
+        this.size += 1;
+
+        return true;
+    }
+
+    /**
+     * Pass captured values to given consumer (removing them from the store)
+     * until all of them are processed or time budget runs out.
+     *
+     * @param budget Time budget in nanoseconds, or 0 to drain everything.
+     * @return Whether the store is empty.
+     */
+    public boolean drain(IConsumer<T> consumer, long budget)
+    {
+        long deadline = System.nanoTime() + budget;
+        int processed = 0;
+
+        while (this.sectionCursor < this.order.size())
+        {
+            Section section = this.order.get(this.sectionCursor);
+
+            while (this.blockCursor < section.size)
+            {
+                int local = section.blocks[this.blockCursor];
+                T value = (T) section.values[this.blockCursor];
+
+                section.values[this.blockCursor] = null;
+                this.blockCursor += 1;
+                this.size -= 1;
+
+                consumer.accept((section.x << 4) | (local & 15), (section.y << 4) | (local >> 8), (section.z << 4) | ((local >> 4) & 15), value);
+
+                /* Checking time is not free, so it's done every few blocks */
+                processed += 1;
+
+                if (budget > 0 && (processed & 63) == 0 && System.nanoTime() >= deadline)
+                {
+                    return false;
+                }
+            }
+
+            this.sections.remove(pack(section.x, section.y, section.z));
+            this.sectionCursor += 1;
+            this.blockCursor = 0;
+        }
+
+        this.clear();
+
+        return true;
+    }
+
+    public void clear()
+    {
+        this.sections.clear();
+        this.order.clear();
+        this.size = 0;
+        this.sectionCursor = 0;
+        this.blockCursor = 0;
+    }
+
+    private static int getLocal(int x, int y, int z)
+    {
+        return (y & 15) << 8 | (z & 15) << 4 | (x & 15);
+    }
+
+    private static class Section
+    {
+        public final int x;
+        public final int y;
+        public final int z;
+
+        private final long[] mask = new long[64];
+        private short[] blocks = new short[8];
+        private Object[] values = new Object[8];
+        private int size;
+
+        public Section(int x, int y, int z)
+        {
+            this.x = x;
+            this.y = y;
+            this.z = z;
+        }
+
+        public boolean has(int local)
+        {
+            return (this.mask[local >> 6] & 1L << (local & 63)) != 0;
+        }
+
+        public void add(int local, Object value)
+        {
+            if (this.size == this.blocks.length)
+            {
+                int length = Math.min(this.size * 2, 4096);
+                short[] blocks = new short[length];
+                Object[] values = new Object[length];
+
+                System.arraycopy(this.blocks, 0, blocks, 0, this.size);
+                System.arraycopy(this.values, 0, values, 0, this.size);
+
+                this.blocks = blocks;
+                this.values = values;
+            }
+
+            this.mask[local >> 6] |= 1L << (local & 63);
+            this.blocks[this.size] = (short) local;
+            this.values[this.size] = value;
+            this.size += 1;
+        }
+    }
+
+    public static interface IConsumer <T>
+    {
+        public void accept(int x, int y, int z, T value);
+    }
+}
@@ -0,0 +1,166 @@
+package mchorse.bbs_mod.actions;
+
+import com.ibm.icu.impl.Assert;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+public class DamageStoreTest
+{
+    public static void main(String[] args)
+    {
+        testStore();
+        testDrain();
+        benchmark(100_000);
+    }
+
+    private static void testStore()
+    {
+        DamageStore<String> store = new DamageStore<>();
+
+        Assert.assrt(store.add(0, 64, 0, "a"));
+        Assert.assrt(store.add(-1, -64, -1, "b"));
+        Assert.assrt(store.add(15, 79, 15, "c"));
+
+        /* Only the first (original) state is kept */
+        Assert.assrt(!store.add(0, 64, 0, "d"));
+        Assert.assrt(store.has(-1, -64, -1) && !store.has(-1, -64, 0) && !store.has(0, 0, 0));
+        Assert.assrt(store.size() == 3 && store.getSectionCount() == 2);
+
+        /* Positions and values are restored as captured */
+        List<String> drained = new ArrayList<>();
+
+        store.drain((x, y, z, value) -> drained.add(x + "," + y + "," + z + "=" + value), 0L);
+
+        Assert.assrt(drained.equals(List.of("0,64,0=a", "15,79,15=c", "-1,-64,-1=b")));
+        Assert.assrt(store.isEmpty() && store.getSectionCount() == 0 && !store.has(0, 64, 0));
+    }
+
+    private static void testDrain()
+    {
+        DamageStore<Integer> store = new DamageStore<>();
+        Set<Long> positions = new HashSet<>();
+        int[] drained = new int[1];
+        int ticks = 0;
+
+        capture(store, 20_000, 1);
+
+        /* Spread restoring over several ticks, every one taking about 1 ms */
+        while (!store.drain((x, y, z, value) ->
+        {
+            Assert.assrt(positions.add(DamageStore.pack(x, y, z)));
+            drained[0] += 1;
+
+            spin(2_000);
+        }, 1_000_000L))
+        {
+            ticks += 1;
+        }
+
+        Assert.assrt(ticks > 1 && store.isEmpty() && drained[0] == positions.size());
+    }
+
+    /**
+     * Compare capturing (with dedupe) and restoring of an explosive scene
+     * against the old list which had to be scanned for every block.
+     */
+    private static void benchmark(int count)
+    {
+        DamageStore<Integer> store = new DamageStore<>();
+        long time = System.nanoTime();
+        int captured = capture(store, count, 42);
+        long capture = System.nanoTime() - time;
+
+        /* Old approach is quadratic, so it's measured on fewer blocks */
+        int oldCount = count / 10;
+        List<long[]> list = new ArrayList<>();
+        Random random = new Random(42);
+
+        time = System.nanoTime();
+
+        for (int i = 0; i < oldCount; i++)
+        {
+            long[] pos = random(random);
+            boolean found = false;
+
+            for (long[] other : list)
+            {
+                if (other[0] == pos[0] && other[1] == pos[1] && other[2] == pos[2])
+                {
+                    found = true;
+
+                    break;
+                }
+            }
+
+            if (!found)
+            {
+                list.add(pos);
+            }
+        }
+
+        long old = System.nanoTime() - time;
+
+        /* Restore with 5 ms per tick, where every block takes ~0.5 us */
+        long maxTick = 0;
+        int ticks = 0;
+        boolean done = false;
+
+        while (!done)
+        {
+            time = System.nanoTime();
+            done = store.drain((x, y, z, value) -> spin(500), 5_000_000L);
+            maxTick = Math.max(maxTick, System.nanoTime() - time);
+            ticks += 1;
+        }
+
+        System.out.println(count + " block changes (" + captured + " unique): captured in " + capture / 1_000_000 + " ms, old list took " + old / 1_000_000 + " ms for " + oldCount + " changes");
+        System.out.println("Restored over " + ticks + " ticks, longest tick " + maxTick / 100_000 / 10D + " ms");
+
+        Assert.assrt(store.isEmpty() && ticks > 1);
+    }
+
+    /**
+     * Capture blocks of a few explosion craters, where blocks get changed
+     * several times (so dedupe matters).
+     */
+    private static int capture(DamageStore<Integer> store, int count, long seed)
+    {
+        Random random = new Random(seed);
+        int captured = 0;
+
+        for (int i = 0; i < count; i++)
+        {
+            long[] pos = random(random);
+
+            if (store.add((int) pos[0], (int) pos[1], (int) pos[2], i))
+            {
+                captured += 1;
+            }
+        }
+
+        Assert.assrt(store.size() == captured);
+
+        return captured;
+    }
+
+    private static long[] random(Random random)
+    {
+        int crater = random.nextInt(8);
+        int x = crater * 40 - 160 + random.nextInt(24);
+        int y = 40 + random.nextInt(24);
+        int z = crater * 25 - 100 + random.nextInt(24);
+
+        return new long[] {x, y, z};
+    }
+
+    private static void spin(long nanos)
+    {
+        long end = System.nanoTime() + nanos;
+
+        while (System.nanoTime() < end);
+    }
+}
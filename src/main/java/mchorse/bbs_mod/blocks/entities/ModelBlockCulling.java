@@ -0,0 +1,206 @@
+package mchorse.bbs_mod.blocks.entities;
+
+import mchorse.bbs_mod.forms.IBounded;
+import mchorse.bbs_mod.forms.forms.BodyPart;
+import mchorse.bbs_mod.forms.forms.Form;
+import mchorse.bbs_mod.utils.pose.Transform;
+import org.joml.Matrix4f;
+import org.joml.Vector3f;
+
+/**
+ * Model block culling
+ *
+ * Decides with how much detail a model block should be rendered based on
+ * whether its bounds are visible and how far away they are from the camera.
+ * It doesn't depend on any GL state (visibility is computed by the caller),
+ * so it can be tested outside of the game.
+ */
+public class ModelBlockCulling
+{
+    public int reducedDistance = 32;
+    public int lowDistance = 64;
+    public int renderDistance = 196;
+
+    private int drawn;
+    private int culled;
+    private int lastDrawn;
+    private int lastCulled;
+
+    private final Matrix4f matrix = new Matrix4f();
+    private final Vector3f corner = new Vector3f();
+    private final Vector3f formMin = new Vector3f();
+    private final Vector3f formMax = new Vector3f();
+
+    public void setup(int reducedDistance, int lowDistance, int renderDistance)
+    {
+        this.reducedDistance = reducedDistance;
+        this.lowDistance = lowDistance;
+        this.renderDistance = renderDistance;
+    }
+
+    /**
+     * Get level of detail for a model block which is given distance away
+     * from the camera (distance to its bounds, not to its origin).
+     */
+    public Level getLevel(double distance, boolean visible)
+    {
+        if (!visible || distance > this.renderDistance)
+        {
+            return Level.CULLED;
+        }
+
+        if (distance >= this.lowDistance)
+        {
+            return Level.LOW;
+        }
+
+        if (distance >= this.reducedDistance)
+        {
+            return Level.REDUCED;
+        }
+
+        return Level.FULL;
+    }
+
+    /**
+     * Same as {@link #getLevel(double, boolean)}, but also counts drawn
+     * and culled model blocks.
+     */
+    public Level evaluate(double distance, boolean visible)
+    {
+        Level level = this.getLevel(distance, visible);
+
+        if (level == Level.CULLED)
+        {
+            this.culled += 1;
+        }
+        else
+        {
+            this.drawn += 1;
+        }
+
+        return level;
+    }
+
+    /**
+     * Store current counters as last frame's counters, and start counting
+     * again. Should be called once per frame.
+     */
+    public void resetCounters()
+    {
+        this.lastDrawn = this.drawn;
+        this.lastCulled = this.culled;
+        this.drawn = 0;
+        this.culled = 0;
+    }
+
+    public int getDrawn()
+    {
+        return this.lastDrawn;
+    }
+
+    public int getCulled()
+    {
+        return this.lastCulled;
+    }
+
+    /**
+     * Compute local space bounds of given form (including its body parts)
+     * transformed by given transform. Bounds are based on the geometry that
+     * forms' renderers report (see {@link IBounded}), expanded by given
+     * padding, so animated parts that move past the rest pose are still
+     * included.
+     *
+     * Returns false if the geometry of any of the forms isn't known, in
+     * that case only their origins are included, and the bounds shouldn't
+     * be used to tell whether the model block is visible.
+     */
+    public boolean computeBounds(Form form, Transform transform, float padding, Vector3f min, Vector3f max)
+    {
+        min.set(Float.POSITIVE_INFINITY);
+        max.set(Float.NEGATIVE_INFINITY);
+
+        transform.setupMatrix(this.matrix.identity());
+
+        return this.computeBounds(form, this.matrix, padding, min, max);
+    }
+
+    private boolean computeBounds(Form form, Matrix4f parent, float padding, Vector3f min, Vector3f max)
+    {
+        Matrix4f matrix = form.transform.get().setupMatrix(new Matrix4f(parent));
+        boolean known = form.getRenderer() instanceof IBounded bounded && bounded.getBounds(this.formMin, this.formMax);
+
+        if (known)
+        {
+            this.formMin.sub(padding, padding, padding);
+            this.formMax.add(padding, padding, padding);
+
+            for (int i = 0; i < 8; i++)
+            {
+                float x = (i & 1) == 0 ? this.formMin.x : this.formMax.x;
+                float y = (i & 2) == 0 ? this.formMin.y : this.formMax.y;
+                float z = (i & 4) == 0 ? this.formMin.z : this.formMax.z;
+
+                matrix.transformPosition(x, y, z, this.corner);
+                min.min(this.corner);
+                max.max(this.corner);
+            }
+        }
+        else
+        {
+            matrix.transformPosition(0F, 0F, 0F, this.corner);
+            min.min(this.corner);
+            max.max(this.corner);
+        }
+
+        for (BodyPart part : form.parts.getAll())
+        {
+            if (part.getForm() != null)
+            {
+                known = this.computeBounds(part.getForm(), part.getTransform().setupMatrix(new Matrix4f(matrix)), padding, min, max) && known;
+            }
+        }
+
+        return known;
+    }
+
+    /**
+     * Distance from given point to the closest point of given box.
+     */
+    public static double distance(double x, double y, double z, double minX, double minY, double minZ, double maxX, double maxY, double maxZ)
+    {
+        double dx = Math.max(0, Math.max(minX - x, x - maxX));
+        double dy = Math.max(0, Math.max(minY - y, y - maxY));
+        double dz = Math.max(0, Math.max(minZ - z, z - maxZ));
+
+        return Math.sqrt(dx * dx + dy * dy + dz * dz);
+    }
+
+    public static enum Level
+    {
+        FULL(1, true, true), REDUCED(2, false, true), LOW(4, false, false), CULLED(8, false, false);
+
+        /**
+         * Every how many ticks form's animation should be updated.
+         */
+        public final int tickInterval;
+
+        /**
+         * Whether shadows (vanilla and shader's shadow pass) should be
+         * rendered.
+         */
+        public final boolean shadows;
+
+        /**
+         * Whether body parts (sub-forms) should be rendered.
+         */
+        public final boolean bodyParts;
+
+        private Level(int tickInterval, boolean shadows, boolean bodyParts)
+        {
+            this.tickInterval = tickInterval;
+            this.shadows = shadows;
+            this.bodyParts = bodyParts;
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package mchorse.bbs_mod.blocks.entities;
+
+import com.ibm.icu.impl.Assert;
+import mchorse.bbs_mod.forms.IBounded;
+import mchorse.bbs_mod.forms.forms.AnchorForm;
+import mchorse.bbs_mod.forms.forms.BodyPart;
+import mchorse.bbs_mod.utils.pose.Transform;
+import org.joml.Vector3f;
+
+public class ModelBlockCullingTest
+{
+    public static void main(String[] args)
+    {
+        testLevels();
+        testCounters();
+        testDistance();
+        testBounds();
+    }
+
+    private static void testLevels()
+    {
+        ModelBlockCulling culling = new ModelBlockCulling();
+
+        culling.setup(16, 48, 128);
+
+        Assert.assrt(culling.getLevel(0, true) == ModelBlockCulling.Level.FULL);
+        Assert.assrt(culling.getLevel(15.9, true) == ModelBlockCulling.Level.FULL);
+        Assert.assrt(culling.getLevel(16, true) == ModelBlockCulling.Level.REDUCED);
+        Assert.assrt(culling.getLevel(48, true) == ModelBlockCulling.Level.LOW);
+        Assert.assrt(culling.getLevel(128, true) == ModelBlockCulling.Level.LOW);
+        Assert.assrt(culling.getLevel(128.1, true) == ModelBlockCulling.Level.CULLED);
+        Assert.assrt(culling.getLevel(0, false) == ModelBlockCulling.Level.CULLED);
+
+        /* Collapsed tiers */
+        culling.setup(0, 0, 64);
+
+        Assert.assrt(culling.getLevel(0, true) == ModelBlockCulling.Level.LOW);
+    }
+
+    private static void testCounters()
+    {
+        ModelBlockCulling culling = new ModelBlockCulling();
+
+        culling.setup(16, 48, 128);
+        culling.evaluate(0, true);
+        culling.evaluate(20, true);
+        culling.evaluate(0, false);
+        culling.evaluate(200, true);
+
+        Assert.assrt(culling.getDrawn() == 0 && culling.getCulled() == 0);
+
+        culling.resetCounters();
+
+        Assert.assrt("Drawn: " + culling.getDrawn(), culling.getDrawn() == 2);
+        Assert.assrt("Culled: " + culling.getCulled(), culling.getCulled() == 2);
+
+        culling.resetCounters();
+
+        Assert.assrt(culling.getDrawn() == 0 && culling.getCulled() == 0);
+    }
+
+    private static void testDistance()
+    {
+        Assert.assrt(ModelBlockCulling.distance(0, 0, 0, -1, -1, -1, 1, 1, 1) == 0);
+        Assert.assrt(ModelBlockCulling.distance(4, 0, 0, -1, -1, -1, 1, 1, 1) == 3);
+        Assert.assrt(ModelBlockCulling.distance(4, 5, 0, -1, -1, -1, 1, 1, 1) == 5);
+    }
+
+    private static void testBounds()
+    {
+        ModelBlockCulling culling = new ModelBlockCulling();
+        AnchorForm form = new AnchorForm();
+        Transform transform = new Transform();
+        Vector3f min = new Vector3f();
+        Vector3f max = new Vector3f();
+
+        /* Geometry isn't known yet, so only origin is included */
+        transform.translate.set(0F, 1F, 0F);
+
+        Assert.assrt(!culling.computeBounds(form, transform, 0F, min, max));
+        assertVector(min, 0F, 1F, 0F);
+        assertVector(max, 0F, 1F, 0F);
+
+        /* Geometry's bounds are used instead of the hitbox */
+        form.hitboxWidth.set(0.5F);
+        form.hitboxHeight.set(1.8F);
+        form.setRenderer(new Renderer(-2F, 0F, -1F, 2F, 5F, 1F));
+
+        Assert.assrt(culling.computeBounds(form, transform, 0F, min, max));
+        assertVector(min, -2F, 1F, -1F);
+        assertVector(max, 2F, 6F, 1F);
+
+        /* Scaled body part moved to the side */
+        AnchorForm child = new AnchorForm();
+        BodyPart part = new BodyPart();
+
+        child.setRenderer(new Renderer(-1F, 0F, -1F, 1F, 2F, 1F));
+        part.setForm(child);
+        part.getTransform().translate.set(10F, 0F, 0F);
+        part.getTransform().scale.set(2F, 2F, 2F);
+        form.parts.addBodyPart(part);
+
+        Assert.assrt(culling.computeBounds(form, transform, 0.5F, min, max));
+        assertVector(min, -2.5F, 0F, -3F);
+        assertVector(max, 13F, 6.5F, 3F);
+
+        /* Body part with unknown geometry makes the whole bounds unknown */
+        child.setRenderer(null);
+
+        Assert.assrt(!culling.computeBounds(form, transform, 0.5F, min, max));
+        assertVector(min, -2.5F, 0.5F, -1.5F);
+        assertVector(max, 10F, 6.5F, 1.5F);
+    }
+
+    private static void assertVector(Vector3f vector, float x, float y, float z)
+    {
+        if (Math.abs(vector.x - x) > 0.0001F || Math.abs(vector.y - y) > 0.0001F || Math.abs(vector.z - z) > 0.0001F)
+        {
+            Assert.fail("Vector " + vector + " isn't (" + x + ", " + y + ", " + z + ")");
+        }
+    }
+
+    private static class Renderer implements IBounded
+    {
+        private final Vector3f min;
+        private final Vector3f max;
+
+        public Renderer(float minX, float minY, float minZ, float maxX, float maxY, float maxZ)
+        {
+            this.min = new Vector3f(minX, minY, minZ);
+            this.max = new Vector3f(maxX, maxY, maxZ);
+        }
+
+        @Override
+        public boolean getBounds(Vector3f min, Vector3f max)
+        {
+            min.set(this.min);
+            max.set(this.max);
+
+            return true;
+        }
+    }
+}
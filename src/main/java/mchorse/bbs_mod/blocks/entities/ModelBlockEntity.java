@@ -21,9 +21,22 @@ import org.jetbrains.annotations.Nullable;
 
 public class ModelBlockEntity extends BlockEntity
 {
-    private ModelProperties properties = new ModelProperties();
+    private static final ModelBlockTickScheduler scheduler = new ModelBlockTickScheduler();
+
+    /* Scheduler's state */
+    final ModelBlockTickScheduler.Entry schedule = new ModelBlockTickScheduler.Entry();
+
+    private ModelProperties properties = new ModelProperties(this::wake);
     private IEntity entity = new StubEntity();
 
+    private ModelBlockCulling.Level level = ModelBlockCulling.Level.FULL;
+    private int ticks;
+
+    public static ModelBlockTickScheduler getScheduler()
+    {
+        return scheduler;
+    }
+
     public ModelBlockEntity(BlockPos pos, BlockState state)
     {
         super(BBSMod.MODEL_BLOCK_ENTITY, pos, state);
@@ -53,13 +66,49 @@ public class ModelBlockEntity extends BlockEntity
         return this.entity;
     }
 
+    public ModelBlockCulling.Level getLevel()
+    {
+        return this.level;
+    }
+
+    /**
+     * Set level of detail with which this model block was last rendered.
+     */
+    public void setLevel(ModelBlockCulling.Level level)
+    {
+        this.level = level;
+    }
+
     public void tick(World world, BlockPos pos, BlockState state)
     {
         ModelBlockEntityUpdateCallback.EVENT.invoker().update(this);
 
+        if (!scheduler.shouldTick(this, world))
+        {
+            return;
+        }
+
+        long start = System.nanoTime();
+
         this.entity.update();
         this.entity.setWorld(world);
-        this.properties.update(this.entity);
+
+        /* Distant and invisible model blocks don't need to animate every tick */
+        if (this.ticks++ % this.level.tickInterval == 0)
+        {
+            this.properties.update(this.entity);
+        }
+
+        scheduler.finish(System.nanoTime() - start);
+    }
+
+    /**
+     * Make sure this model block gets updated during next tick, even if
+     * it was put to sleep.
+     */
+    public void wake()
+    {
+        this.schedule.wake();
     }
 
     @Nullable
@@ -0,0 +1,192 @@
+package mchorse.bbs_mod.blocks.entities;
+
+import mchorse.bbs_mod.BBSSettings;
+import mchorse.bbs_mod.forms.forms.Form;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.World;
+
+import java.util.function.BooleanSupplier;
+
+/**
+ * Model block tick scheduler
+ *
+ * Decides which model blocks should be updated during current tick. Model
+ * blocks that have nothing to animate, or that are far away from every
+ * player, are put to sleep and are checked again only every
+ * {@link #CHECK_INTERVAL} ticks (or right away when their properties
+ * change). Remaining model blocks are updated until the per tick time
+ * budget runs out, after which model blocks that were updated during
+ * previous tick are deferred, so every model block gets updated at least
+ * every other tick.
+ */
+public class ModelBlockTickScheduler
+{
+    public static final int CHECK_INTERVAL = 20;
+
+    private long time = Long.MIN_VALUE;
+    private long elapsed;
+
+    private int active;
+    private int sleeping;
+    private int deferred;
+    private int lastActive;
+    private int lastSleeping;
+    private int lastDeferred;
+
+    /**
+     * Whether given properties have anything to animate. Forms that weren't
+     * rendered yet on client don't have a renderer that could tell whether
+     * they're animated, so they're considered animated until next check.
+     */
+    public static boolean isAnimated(ModelProperties properties, boolean client)
+    {
+        return isAnimated(properties.getForm(), client)
+            || isAnimated(properties.getFormThirdPerson(), client)
+            || isAnimated(properties.getFormInventory(), client)
+            || isAnimated(properties.getFormFirstPerson(), client);
+    }
+
+    private static boolean isAnimated(Form form, boolean client)
+    {
+        if (form == null)
+        {
+            return false;
+        }
+
+        return (client && form.getRenderer() == null) || form.isAnimated();
+    }
+
+    public int getActive()
+    {
+        return this.lastActive;
+    }
+
+    public int getSleeping()
+    {
+        return this.lastSleeping;
+    }
+
+    public int getDeferred()
+    {
+        return this.lastDeferred;
+    }
+
+    /**
+     * Whether given model block should be updated during current tick.
+     * When it returns true, {@link #finish(long)} should be called with
+     * the time it took to update it.
+     */
+    public boolean shouldTick(ModelBlockEntity entity, World world)
+    {
+        if (!BBSSettings.modelBlocksScheduler.get())
+        {
+            this.startTick(world.getTime());
+            this.active += 1;
+
+            return true;
+        }
+
+        long budget = (long) (BBSSettings.modelBlocksTickBudget.get() * 1_000_000D);
+
+        return this.shouldTick(entity.schedule, world.getTime(), entity.getPos().hashCode(), budget, () -> this.isAwake(entity, world));
+    }
+
+    /**
+     * Scheduling logic of {@link #shouldTick(ModelBlockEntity, World)},
+     * apart from the world and settings.
+     */
+    boolean shouldTick(Entry entry, long time, int seed, long budget, BooleanSupplier awake)
+    {
+        this.startTick(time);
+
+        /* Spread sleep checks of different model blocks across ticks */
+        if (entry.changed || Math.floorMod(time + seed, CHECK_INTERVAL) == 0)
+        {
+            entry.sleeping = !awake.getAsBoolean();
+            entry.changed = false;
+        }
+
+        if (entry.sleeping)
+        {
+            this.sleeping += 1;
+
+            return false;
+        }
+
+        if (budget > 0 && this.elapsed >= budget && entry.lastTick == time - 1)
+        {
+            this.deferred += 1;
+
+            return false;
+        }
+
+        entry.lastTick = time;
+        this.active += 1;
+
+        return true;
+    }
+
+    private void startTick(long time)
+    {
+        if (time != this.time)
+        {
+            this.lastActive = this.active;
+            this.lastSleeping = this.sleeping;
+            this.lastDeferred = this.deferred;
+            this.active = this.sleeping = this.deferred = 0;
+            this.elapsed = 0;
+            this.time = time;
+        }
+    }
+
+    public void finish(long nanoseconds)
+    {
+        this.elapsed += nanoseconds;
+    }
+
+    private boolean isAwake(ModelBlockEntity entity, World world)
+    {
+        ModelProperties properties = entity.getProperties();
+
+        if (!properties.isEnabled() || !isAnimated(properties, world.isClient))
+        {
+            return false;
+        }
+
+        int distance = BBSSettings.modelBlocksSleepDistance.get();
+
+        if (distance <= 0)
+        {
+            return true;
+        }
+
+        BlockPos pos = entity.getPos();
+
+        return world.isPlayerInRange(pos.getX() + 0.5D, pos.getY() + 0.5D, pos.getZ() + 0.5D, distance);
+    }
+
+    /**
+     * Scheduling state of a single model block.
+     */
+    public static class Entry
+    {
+        private boolean sleeping;
+        private boolean changed = true;
+        private long lastTick = Long.MIN_VALUE;
+
+        public boolean isSleeping()
+        {
+            return this.sleeping;
+        }
+
+        /**
+         * Wake up the model block, and check again during next tick
+         * whether it should sleep.
+         */
+        public void wake()
+        {
+            this.sleeping = false;
+            this.changed = true;
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package mchorse.bbs_mod.blocks.entities;
+
+import com.ibm.icu.impl.Assert;
+import mchorse.bbs_mod.forms.ITickable;
+import mchorse.bbs_mod.forms.entities.IEntity;
+import mchorse.bbs_mod.forms.forms.AnchorForm;
+import mchorse.bbs_mod.forms.forms.BodyPart;
+import mchorse.bbs_mod.forms.states.AnimationState;
+
+public class ModelBlockTickSchedulerTest
+{
+    public static void main(String[] args)
+    {
+        testStatic();
+        testSleep();
+        testWake();
+        testBudget();
+    }
+
+    /**
+     * Only properties with forms that have animation states, or renderers
+     * (also in body parts) that have something to animate, are animated.
+     */
+    private static void testStatic()
+    {
+        ModelProperties properties = new ModelProperties();
+        AnchorForm form = new AnchorForm();
+        AnchorForm part = new AnchorForm();
+        BodyPart bodyPart = new BodyPart();
+
+        Assert.assrt(!ModelBlockTickScheduler.isAnimated(properties, false));
+
+        properties.setForm(form);
+
+        Assert.assrt(!ModelBlockTickScheduler.isAnimated(properties, false));
+
+        /* Not rendered yet on client */
+        Assert.assrt(ModelBlockTickScheduler.isAnimated(properties, true));
+
+        form.setRenderer(new Renderer(false));
+
+        Assert.assrt(!ModelBlockTickScheduler.isAnimated(properties, true));
+
+        bodyPart.setForm(part);
+        form.parts.addBodyPart(bodyPart);
+        part.setRenderer(new Renderer(true));
+
+        Assert.assrt(ModelBlockTickScheduler.isAnimated(properties, true));
+
+        part.setRenderer(new Renderer(false));
+
+        Assert.assrt(!ModelBlockTickScheduler.isAnimated(properties, true));
+
+        part.states.add(new AnimationState("wave"));
+
+        Assert.assrt(ModelBlockTickScheduler.isAnimated(properties, true));
+
+        /* Other forms count too */
+        ModelProperties other = new ModelProperties();
+        AnchorForm inventory = new AnchorForm();
+
+        inventory.setRenderer(new Renderer(true));
+        other.setFormInventory(inventory);
+
+        Assert.assrt(ModelBlockTickScheduler.isAnimated(other, true));
+    }
+
+    /**
+     * Sleep state is checked right away for new model blocks, and after that
+     * only every check interval.
+     */
+    private static void testSleep()
+    {
+        ModelBlockTickScheduler scheduler = new ModelBlockTickScheduler();
+        ModelBlockTickScheduler.Entry entry = new ModelBlockTickScheduler.Entry();
+        boolean[] awake = {false};
+        int checks = 0;
+
+        for (int i = 0; i < ModelBlockTickScheduler.CHECK_INTERVAL * 3; i++)
+        {
+            long time = 100 + i;
+            boolean ticked = scheduler.shouldTick(entry, time, 7, 0, () -> awake[0]);
+
+            if ((time + 7) % ModelBlockTickScheduler.CHECK_INTERVAL == 0)
+            {
+                checks += 1;
+            }
+
+            /* Gets awake again only on the check */
+            if (i == 5)
+            {
+                awake[0] = true;
+            }
+
+            Assert.assrt(ticked == (checks > 0) && ticked == !entry.isSleeping());
+        }
+
+        Assert.assrt(checks == 3);
+
+        /* Sleep counters are reported for the previous tick */
+        ModelBlockTickScheduler.Entry sleeping = new ModelBlockTickScheduler.Entry();
+
+        scheduler.shouldTick(entry, 200, 7, 0, () -> true);
+        scheduler.shouldTick(sleeping, 200, 8, 0, () -> false);
+        scheduler.shouldTick(entry, 201, 7, 0, () -> true);
+
+        Assert.assrt(scheduler.getActive() == 1 && scheduler.getSleeping() == 1 && scheduler.getDeferred() == 0);
+    }
+
+    /**
+     * Waking up a model block (i.e. when its properties change) ticks it
+     * and checks it again right away, instead of waiting for the interval.
+     */
+    private static void testWake()
+    {
+        ModelBlockTickScheduler scheduler = new ModelBlockTickScheduler();
+        ModelBlockTickScheduler.Entry entry = new ModelBlockTickScheduler.Entry();
+        int[] checks = {0};
+
+        Assert.assrt(!scheduler.shouldTick(entry, 1, 0, 0, () -> checks[0]++ > 0));
+        Assert.assrt(!scheduler.shouldTick(entry, 2, 0, 0, () -> checks[0]++ > 0));
+        Assert.assrt(checks[0] == 1);
+
+        entry.wake();
+
+        Assert.assrt(scheduler.shouldTick(entry, 3, 0, 0, () -> checks[0]++ > 0));
+        Assert.assrt(checks[0] == 2);
+
+        /* Properties wake up model blocks through the callback */
+        ModelProperties properties = new ModelProperties(entry::wake);
+
+        entry.wake();
+        scheduler.shouldTick(entry, 4, 0, 0, () -> false);
+
+        Assert.assrt(entry.isSleeping());
+
+        properties.setEnabled(true);
+
+        Assert.assrt(!entry.isSleeping());
+        Assert.assrt(!scheduler.shouldTick(entry, 5, 0, 0, () -> false));
+    }
+
+    /**
+     * Once the budget runs out, model blocks that were updated during previous
+     * tick are deferred, while the ones that were deferred get updated.
+     */
+    private static void testBudget()
+    {
+        ModelBlockTickScheduler scheduler = new ModelBlockTickScheduler();
+        ModelBlockTickScheduler.Entry[] entries = new ModelBlockTickScheduler.Entry[10];
+        long budget = 1000;
+        int[] ticks = new int[entries.length];
+
+        for (int i = 0; i < entries.length; i++)
+        {
+            entries[i] = new ModelBlockTickScheduler.Entry();
+        }
+
+        for (long time = 0; time < 10; time++)
+        {
+            int updated = 0;
+
+            for (int i = 0; i < entries.length; i++)
+            {
+                if (scheduler.shouldTick(entries[i], time, i, budget, () -> true))
+                {
+                    scheduler.finish(300);
+
+                    ticks[i] += 1;
+                    updated += 1;
+                }
+            }
+
+            /* First tick updates everything, after that the ones that
+             * got updated during previous tick get deferred */
+            Assert.assrt("Updated: " + updated, time == 0 ? updated == 10 : updated >= 4);
+        }
+
+        for (int i = 0; i < entries.length; i++)
+        {
+            Assert.assrt("Ticks: " + ticks[i], ticks[i] >= 5);
+        }
+
+        Assert.assrt(scheduler.getActive() + scheduler.getDeferred() == entries.length);
+
+        /* Without budget nothing is deferred */
+        for (long time = 10; time < 13; time++)
+        {
+            for (ModelBlockTickScheduler.Entry entry : entries)
+            {
+                Assert.assrt(scheduler.shouldTick(entry, time, 0, 0, () -> true));
+                scheduler.finish(300);
+            }
+        }
+    }
+
+    private static class Renderer implements ITickable
+    {
+        private final boolean animated;
+
+        public Renderer(boolean animated)
+        {
+            this.animated = animated;
+        }
+
+        @Override
+        public void tick(IEntity entity)
+        {}
+
+        @Override
+        public boolean isAnimated()
+        {
+            return this.animated;
+        }
+    }
+}
@@ -24,6 +24,22 @@ public class ModelProperties implements IMapSerializable
     private boolean global;
     private boolean shadow;
 
+    private final Runnable callback;
+
+    public ModelProperties()
+    {
+        this(null);
+    }
+
+    /**
+     * @param callback gets called whenever forms or flags of these properties
+     *                 get replaced
+     */
+    public ModelProperties(Runnable callback)
+    {
+        this.callback = callback;
+    }
+
     public Form getForm()
     {
         return this.form;
@@ -32,6 +48,7 @@ public class ModelProperties implements IMapSerializable
     public void setForm(Form form)
     {
         this.form = form;
+        this.changed();
     }
 
     public Form getFormThirdPerson()
@@ -42,6 +59,7 @@ public class ModelProperties implements IMapSerializable
     public void setFormThirdPerson(Form form)
     {
         this.formThirdPerson = form;
+        this.changed();
     }
 
     public Form getFormInventory()
@@ -52,6 +70,7 @@ public class ModelProperties implements IMapSerializable
     public void setFormInventory(Form form)
     {
         this.formInventory = form;
+        this.changed();
     }
 
     public Form getFormFirstPerson()
@@ -62,6 +81,7 @@ public class ModelProperties implements IMapSerializable
     public void setFormFirstPerson(Form form)
     {
         this.formFirstPerson = form;
+        this.changed();
     }
 
     public Transform getTransform()
@@ -92,6 +112,7 @@ public class ModelProperties implements IMapSerializable
     public void setEnabled(boolean enabled)
     {
         this.enabled = enabled;
+        this.changed();
     }
 
     public boolean isGlobal()
@@ -102,6 +123,7 @@ public class ModelProperties implements IMapSerializable
     public void setGlobal(boolean global)
     {
         this.global = global;
+        this.changed();
     }
 
     public boolean isShadow()
@@ -112,6 +134,7 @@ public class ModelProperties implements IMapSerializable
     public void setShadow(boolean shadow)
     {
         this.shadow = shadow;
+        this.changed();
     }
 
     public Form getForm(ModelTransformationMode mode)
@@ -170,6 +193,15 @@ public class ModelProperties implements IMapSerializable
         if (data.has("enabled")) this.enabled = data.getBool("enabled");
         this.shadow = data.getBool("shadow");
         this.global = data.getBool("global");
+        this.changed();
+    }
+
+    private void changed()
+    {
+        if (this.callback != null)
+        {
+            this.callback.run();
+        }
     }
 
     @Override
@@ -8,7 +8,6 @@ import mchorse.bbs_mod.settings.values.numeric.ValueFloat;
 import mchorse.bbs_mod.utils.MathUtils;
 import mchorse.bbs_mod.utils.clips.Clip;
 import mchorse.bbs_mod.utils.clips.ClipContext;
-import mchorse.bbs_mod.utils.interps.IInterp;
 import mchorse.bbs_mod.utils.interps.Interpolation;
 import mchorse.bbs_mod.utils.interps.Interpolations;
 import mchorse.bbs_mod.utils.joml.Matrices;
@@ -55,9 +54,9 @@ public class DollyClip extends IdleClip
         Vector3f look = Matrices.rotation(MathUtils.toRad(pitch), MathUtils.toRad(180 - yaw)).normalize().mul(this.distance.get());
         float transition = (context.relativeTick + context.transition) / this.duration.get();
 
-        x = this.interp.interpolate(IInterp.context.set(x, x + look.x, transition));
-        y = this.interp.interpolate(IInterp.context.set(y, y + look.y, transition));
-        z = this.interp.interpolate(IInterp.context.set(z, z + look.z, transition));
+        x = this.interp.interpolate(x, x + look.x, transition);
+        y = this.interp.interpolate(y, y + look.y, transition);
+        z = this.interp.interpolate(z, z + look.z, transition);
 
         position.point.set(x, y, z);
     }
@@ -10,7 +10,6 @@ import mchorse.bbs_mod.camera.values.ValuePositions;
 import mchorse.bbs_mod.utils.MathUtils;
 import mchorse.bbs_mod.utils.clips.Clip;
 import mchorse.bbs_mod.utils.clips.ClipContext;
-import mchorse.bbs_mod.utils.interps.IInterp;
 import mchorse.bbs_mod.utils.interps.Interpolation;
 import mchorse.bbs_mod.utils.interps.Interpolations;
 
@@ -116,9 +115,9 @@ public class PathClip extends CameraClip
         Position p2 = this.getPoint(index + 1);
         Position p3 = this.getPoint(index + 2);
 
-        double x = this.interpolationPoint.interpolate(IInterp.context.set(p0.point.x, p1.point.x, p2.point.x, p3.point.x, progress));
-        double y = this.interpolationPoint.interpolate(IInterp.context.set(p0.point.y, p1.point.y, p2.point.y, p3.point.y, progress));
-        double z = this.interpolationPoint.interpolate(IInterp.context.set(p0.point.z, p1.point.z, p2.point.z, p3.point.z, progress));
+        double x = this.interpolationPoint.interpolate(p0.point.x, p1.point.x, p2.point.x, p3.point.x, progress);
+        double y = this.interpolationPoint.interpolate(p0.point.y, p1.point.y, p2.point.y, p3.point.y, progress);
+        double z = this.interpolationPoint.interpolate(p0.point.z, p1.point.z, p2.point.z, p3.point.z, progress);
 
         point.set(x, y, z);
     }
@@ -134,10 +133,10 @@ public class PathClip extends CameraClip
         Position p3 = this.getPoint(index + 2);
 
         /* Interpolating the angle */
-        float yaw   = (float) this.interpolationAngle.interpolate(IInterp.context.set(p0.angle.yaw, p1.angle.yaw, p2.angle.yaw, p3.angle.yaw, progress));
-        float pitch = (float) this.interpolationAngle.interpolate(IInterp.context.set(p0.angle.pitch, p1.angle.pitch, p2.angle.pitch, p3.angle.pitch, progress));
-        float roll  = (float) this.interpolationAngle.interpolate(IInterp.context.set(p0.angle.roll, p1.angle.roll, p2.angle.roll, p3.angle.roll, progress));
-        float fov   = (float) this.interpolationAngle.interpolate(IInterp.context.set(p0.angle.fov, p1.angle.fov, p2.angle.fov, p3.angle.fov, progress));
+        float yaw   = (float) this.interpolationAngle.interpolate(p0.angle.yaw, p1.angle.yaw, p2.angle.yaw, p3.angle.yaw, progress);
+        float pitch = (float) this.interpolationAngle.interpolate(p0.angle.pitch, p1.angle.pitch, p2.angle.pitch, p3.angle.pitch, progress);
+        float roll  = (float) this.interpolationAngle.interpolate(p0.angle.roll, p1.angle.roll, p2.angle.roll, p3.angle.roll, progress);
+        float fov   = (float) this.interpolationAngle.interpolate(p0.angle.fov, p1.angle.fov, p2.angle.fov, p3.angle.fov, progress);
 
         angle.set(yaw, pitch, roll, fov);
     }
@@ -5,7 +5,6 @@ import mchorse.bbs_mod.cubic.data.animation.AnimationPart;
 import mchorse.bbs_mod.cubic.data.model.Model;
 import mchorse.bbs_mod.cubic.data.model.ModelGroup;
 import mchorse.bbs_mod.math.molang.expressions.MolangExpression;
-import mchorse.bbs_mod.utils.interps.IInterp;
 import mchorse.bbs_mod.utils.interps.Interpolations;
 import mchorse.bbs_mod.utils.interps.Lerps;
 import mchorse.bbs_mod.utils.keyframes.BezierUtils;
@@ -52,7 +51,7 @@ public class CubicModelAnimator
         double pre = segment.preA.getValue().get();
         double post = segment.postB.getValue().get();
 
-        return segment.b.getInterpolation().interpolate(IInterp.context.set(pre, start, destination, post, segment.x));
+        return segment.b.getInterpolation().interpolate(pre, start, destination, post, segment.x);
     }
 
     public static void animate(Model model, Animation animation, float frame, float blend, boolean skipInitial)
@@ -0,0 +1,260 @@
+package mchorse.bbs_mod.film.replays;
+
+import mchorse.bbs_mod.forms.FormUtils;
+import mchorse.bbs_mod.forms.forms.BodyPartManager;
+import mchorse.bbs_mod.forms.forms.Form;
+import mchorse.bbs_mod.settings.values.base.BaseValue;
+import mchorse.bbs_mod.settings.values.base.BaseValueBasic;
+import mchorse.bbs_mod.utils.colors.Color;
+import mchorse.bbs_mod.utils.interps.Interpolations;
+import mchorse.bbs_mod.utils.keyframes.BezierUtils;
+import mchorse.bbs_mod.utils.keyframes.Keyframe;
+import mchorse.bbs_mod.utils.keyframes.KeyframeChannel;
+import mchorse.bbs_mod.utils.keyframes.KeyframeSegment;
+import mchorse.bbs_mod.utils.keyframes.factories.IKeyframeFactory;
+import mchorse.bbs_mod.utils.keyframes.factories.KeyframeFactories;
+import mchorse.bbs_mod.utils.pose.Transform;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Form properties binding
+ *
+ * Resolves every animated channel of {@link FormProperties} to the form's
+ * property once, instead of looking up property paths every frame. The
+ * binding is checked on every apply (cheap identity comparisons), and it
+ * gets rebound when channels, the target form, the replay's form or any body
+ * part hierarchy change.
+ */
+public class FormPropertiesBinding
+{
+    private final FormProperties properties;
+
+    private Form form;
+    private Form replayForm;
+    private int version;
+    private final List<Binding> bindings = new ArrayList<>();
+
+    public FormPropertiesBinding(FormProperties properties)
+    {
+        this.properties = properties;
+    }
+
+    public Form getForm()
+    {
+        return this.form;
+    }
+
+    public void apply(float tick, Form form, Form replayForm)
+    {
+        if (!this.isValid(form, replayForm))
+        {
+            this.bind(form, replayForm);
+        }
+
+        for (Binding binding : this.bindings)
+        {
+            binding.apply(tick);
+        }
+    }
+
+    /**
+     * Check whether bound channels are still the same as in form
+     * properties, and whether forms' structure didn't change.
+     */
+    public boolean isValid(Form form, Form replayForm)
+    {
+        if (this.form != form || this.replayForm != replayForm || this.version != BodyPartManager.getVersion())
+        {
+            return false;
+        }
+
+        List<BaseValue> all = this.properties.getAll();
+        int i = 0;
+
+        for (BaseValue value : all)
+        {
+            if (!(value instanceof KeyframeChannel))
+            {
+                continue;
+            }
+
+            if (i >= this.bindings.size())
+            {
+                return false;
+            }
+
+            if (this.bindings.get(i).channel != value)
+            {
+                return false;
+            }
+
+            i += 1;
+        }
+
+        return i == this.bindings.size();
+    }
+
+    public void bind(Form form, Form replayForm)
+    {
+        this.form = form;
+        this.replayForm = replayForm;
+        this.version = BodyPartManager.getVersion();
+        this.bindings.clear();
+
+        for (BaseValue value : this.properties.getAll())
+        {
+            if (value instanceof KeyframeChannel channel)
+            {
+                BaseValueBasic property = FormUtils.getProperty(form, channel.getId());
+                BaseValueBasic replayProperty = replayForm == null ? null : FormUtils.getProperty(replayForm, channel.getId());
+
+                this.bindings.add(new Binding(channel, property, replayProperty));
+            }
+        }
+    }
+
+    private static class Binding
+    {
+        private final KeyframeChannel channel;
+        private final BaseValueBasic property;
+        private final BaseValueBasic replayProperty;
+        private final KeyframeSegment segment = new KeyframeSegment();
+
+        /* Double buffered values for object factories, so the value that
+         * is currently set into the property never gets modified in place */
+        private Object[] buffers;
+        private int buffer;
+
+        public Binding(KeyframeChannel channel, BaseValueBasic property, BaseValueBasic replayProperty)
+        {
+            this.channel = channel;
+            this.property = property;
+            this.replayProperty = replayProperty;
+
+            IKeyframeFactory factory = channel.getFactory();
+
+            if (factory == KeyframeFactories.COLOR)
+            {
+                this.buffers = new Object[] {new Color(), new Color()};
+            }
+            else if (factory == KeyframeFactories.TRANSFORM)
+            {
+                this.buffers = new Object[] {new Transform(), new Transform()};
+            }
+        }
+
+        public void apply(float tick)
+        {
+            if (this.property == null)
+            {
+                return;
+            }
+
+            KeyframeSegment segment = this.channel.findSegment(tick, this.segment);
+
+            if (segment == null)
+            {
+                if (this.replayProperty != null)
+                {
+                    this.property.set(this.replayProperty.get());
+                }
+
+                return;
+            }
+
+            segment.setup(tick);
+
+            IKeyframeFactory factory = this.channel.getFactory();
+
+            if (factory == KeyframeFactories.FLOAT)
+            {
+                float value = (float) this.interpolateNumber(segment);
+                Object current = this.property.get();
+
+                if (!(current instanceof Float f) || f != value)
+                {
+                    this.property.set(value);
+                }
+            }
+            else if (factory == KeyframeFactories.INTEGER)
+            {
+                int value = (int) this.interpolateNumber(segment);
+                Object current = this.property.get();
+
+                if (!(current instanceof Integer i) || i != value)
+                {
+                    this.property.set(value);
+                }
+            }
+            else if (factory == KeyframeFactories.COLOR)
+            {
+                Color color = (Color) this.nextBuffer();
+
+                color.copy((Color) this.interpolateObject(segment));
+                this.property.set(color);
+            }
+            else if (factory == KeyframeFactories.TRANSFORM)
+            {
+                Transform transform = (Transform) this.nextBuffer();
+
+                transform.copy((Transform) this.interpolateObject(segment));
+                this.property.set(transform);
+            }
+            else
+            {
+                this.property.set(segment.createInterpolated());
+            }
+        }
+
+        private Object nextBuffer()
+        {
+            this.buffer = (this.buffer + 1) % this.buffers.length;
+
+            return this.buffers[this.buffer];
+        }
+
+        /**
+         * Same as {@link KeyframeSegment#createInterpolated()} for float and
+         * integer factories, but without boxing intermediate values.
+         */
+        private double interpolateNumber(KeyframeSegment segment)
+        {
+            Keyframe a = segment.a;
+            Keyframe b = segment.b;
+            double va = ((Number) a.getValue()).doubleValue();
+
+            if (segment.isSame())
+            {
+                return va;
+            }
+
+            double vb = ((Number) b.getValue()).doubleValue();
+
+            if (a.getInterpolation().has(Interpolations.BEZIER))
+            {
+                return BezierUtils.get(va, vb, a.getTick(), b.getTick(), a.rx, a.ry, a.lx, a.ly, segment.x);
+            }
+
+            double preA = ((Number) segment.preA.getValue()).doubleValue();
+            double postB = ((Number) segment.postB.getValue()).doubleValue();
+
+            return a.getInterpolation().interpolate(preA, va, vb, postB, segment.x);
+        }
+
+        /**
+         * Returns either keyframe's value or factory's temporary
+         * interpolated value, which must be copied right away.
+         */
+        private Object interpolateObject(KeyframeSegment segment)
+        {
+            if (segment.isSame())
+            {
+                return segment.a.getValue();
+            }
+
+            return segment.a.getFactory().interpolate(segment.preA, segment.a, segment.b, segment.postB, segment.a.getInterpolation(), segment.x);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package mchorse.bbs_mod.film.replays;
+
+import com.ibm.icu.impl.Assert;
+import mchorse.bbs_mod.forms.forms.BillboardForm;
+import mchorse.bbs_mod.utils.colors.Color;
+import mchorse.bbs_mod.utils.keyframes.KeyframeChannel;
+import mchorse.bbs_mod.utils.pose.Transform;
+
+public class FormPropertiesBindingTest
+{
+    public static void main(String[] args)
+    {
+        testBuffers();
+        testAliasing();
+        testRebind();
+    }
+
+    /**
+     * Value set into a property in the previous apply (that somebody could
+     * still be reading) isn't modified by the next apply, which writes
+     * into the other buffer and swaps it into the property.
+     */
+    private static void testBuffers()
+    {
+        BillboardForm form = new BillboardForm();
+        FormProperties properties = new FormProperties("properties");
+        FormPropertiesBinding binding = new FormPropertiesBinding(properties);
+        KeyframeChannel color = properties.create(form.color);
+        KeyframeChannel transform = properties.create(form.transform);
+
+        color.insert(0, new Color(0F, 0F, 0F, 1F));
+        color.insert(10, new Color(1F, 1F, 1F, 1F));
+        transform.insert(0, new Transform());
+
+        Transform moved = new Transform();
+
+        moved.translate.set(10F, 0F, 0F);
+        transform.insert(10, moved);
+
+        binding.apply(0F, form, null);
+
+        Color firstColor = form.color.get();
+        Transform firstTransform = form.transform.get();
+
+        Assert.assrt(firstColor.equals(new Color(0F, 0F, 0F, 1F)));
+        Assert.assrt(firstTransform.translate.x == 0F);
+
+        binding.apply(5F, form, null);
+
+        Color secondColor = form.color.get();
+        Transform secondTransform = form.transform.get();
+
+        /* New values are swapped in, while the old ones stay intact */
+        Assert.assrt(secondColor != firstColor && secondTransform != firstTransform);
+        Assert.assrt(firstColor.equals(new Color(0F, 0F, 0F, 1F)));
+        Assert.assrt(firstTransform.translate.x == 0F);
+        Assert.assrt(secondColor.equals(new Color(0.5F, 0.5F, 0.5F, 1F)));
+        Assert.assrt(secondTransform.translate.x == 5F);
+
+        /* Third apply reuses the first buffer */
+        binding.apply(10F, form, null);
+
+        Assert.assrt(form.color.get() == firstColor && form.transform.get() == firstTransform);
+        Assert.assrt(firstColor.equals(new Color(1F, 1F, 1F, 1F)));
+        Assert.assrt(firstTransform.translate.x == 10F);
+        Assert.assrt(secondColor.equals(new Color(0.5F, 0.5F, 0.5F, 1F)));
+    }
+
+    /**
+     * Keyframe values (returned as they are when the segment is a single
+     * keyframe) get copied into buffers, so modifying property's value
+     * doesn't modify keyframes and vice versa.
+     */
+    private static void testAliasing()
+    {
+        BillboardForm form = new BillboardForm();
+        FormProperties properties = new FormProperties("properties");
+        FormPropertiesBinding binding = new FormPropertiesBinding(properties);
+        KeyframeChannel color = properties.create(form.color);
+        Color keyframe = new Color(0.25F, 0.5F, 0.75F, 1F);
+
+        color.insert(0, keyframe);
+        binding.apply(20F, form, null);
+
+        Color value = form.color.get();
+        Object stored = color.getKeyframes().get(0).getValue();
+
+        Assert.assrt(value != stored && value.equals(stored));
+
+        value.set(1F, 0F, 0F);
+
+        Assert.assrt(stored.equals(new Color(0.25F, 0.5F, 0.75F, 1F)));
+
+        ((Color) stored).set(0F, 1F, 0F);
+        binding.apply(20F, form, null);
+
+        Assert.assrt(form.color.get().equals(new Color(0F, 1F, 0F, 1F)));
+        Assert.assrt(form.color.get() != value && value.equals(new Color(1F, 0F, 0F, 1F)));
+    }
+
+    /**
+     * Bindings follow channel and form changes.
+     */
+    private static void testRebind()
+    {
+        BillboardForm form = new BillboardForm();
+        BillboardForm other = new BillboardForm();
+        FormProperties properties = new FormProperties("properties");
+        FormPropertiesBinding binding = new FormPropertiesBinding(properties);
+        KeyframeChannel lighting = properties.create(form.lighting);
+
+        lighting.insert(0, 0.5F);
+        binding.apply(0F, form, null);
+
+        Assert.assrt(binding.isValid(form, null) && form.lighting.get() == 0.5F);
+        Assert.assrt(!binding.isValid(other, null));
+
+        binding.apply(0F, other, null);
+
+        Assert.assrt(binding.getForm() == other && other.lighting.get() == 0.5F);
+
+        properties.create(other.color);
+
+        Assert.assrt(!binding.isValid(other, null));
+    }
+}
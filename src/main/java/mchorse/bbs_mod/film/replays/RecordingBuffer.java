@@ -0,0 +1,502 @@
+package mchorse.bbs_mod.film.replays;
+
+import mchorse.bbs_mod.data.DataStorageUtils;
+import mchorse.bbs_mod.data.types.BaseType;
+import mchorse.bbs_mod.forms.entities.IEntity;
+import mchorse.bbs_mod.settings.values.base.BaseValue;
+import mchorse.bbs_mod.utils.keyframes.Keyframe;
+import mchorse.bbs_mod.utils.keyframes.KeyframeChannel;
+import mchorse.bbs_mod.utils.keyframes.KeyframeReducer;
+import mchorse.bbs_mod.utils.keyframes.factories.IKeyframeFactory;
+import mchorse.bbs_mod.utils.keyframes.factories.KeyframeFactories;
+import net.minecraft.item.ItemStack;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Recording buffer
+ *
+ * Append-only columnar storage of a take that is being recorded. Every
+ * numeric channel of {@link ReplayKeyframes} gets its own column of
+ * compactly encoded samples, while equipment and selected slot are kept
+ * as streams of changes (runs of equal values), so recording doesn't
+ * create keyframes (and copies of item stacks) every tick.
+ *
+ * Recorded samples get converted to keyframes only when they're needed
+ * (see {@link #apply(ReplayKeyframes)}), where numeric channels are
+ * reduced directly from the samples.
+ */
+public class RecordingBuffer
+{
+    private static final int VERSION = 1;
+
+    private final Map<String, NumericColumn> numeric = new LinkedHashMap<>();
+    private final Map<String, EventColumn<?>> events = new LinkedHashMap<>();
+
+    public final NumericColumn x = this.numeric("x");
+    public final NumericColumn y = this.numeric("y");
+    public final NumericColumn z = this.numeric("z");
+
+    public final NumericColumn vX = this.numeric("vX");
+    public final NumericColumn vY = this.numeric("vY");
+    public final NumericColumn vZ = this.numeric("vZ");
+
+    public final NumericColumn yaw = this.numeric("yaw");
+    public final NumericColumn pitch = this.numeric("pitch");
+    public final NumericColumn headYaw = this.numeric("headYaw");
+    public final NumericColumn bodyYaw = this.numeric("bodyYaw");
+
+    public final NumericColumn sneaking = this.numeric("sneaking");
+    public final NumericColumn sprinting = this.numeric("sprinting");
+    public final NumericColumn grounded = this.numeric("grounded");
+    public final NumericColumn fall = this.numeric("fall");
+    public final NumericColumn damage = this.numeric("damage");
+
+    public final NumericColumn stickLeftX = this.numeric("stick_lx");
+    public final NumericColumn stickLeftY = this.numeric("stick_ly");
+    public final NumericColumn stickRightX = this.numeric("stick_rx");
+    public final NumericColumn stickRightY = this.numeric("stick_ry");
+    public final NumericColumn triggerLeft = this.numeric("trigger_l");
+    public final NumericColumn triggerRight = this.numeric("trigger_r");
+
+    public final NumericColumn extra1X = this.numeric("extra1_x");
+    public final NumericColumn extra1Y = this.numeric("extra1_y");
+    public final NumericColumn extra2X = this.numeric("extra2_x");
+    public final NumericColumn extra2Y = this.numeric("extra2_y");
+
+    public final EventColumn<ItemStack> mainHand = this.events("item_main_hand", KeyframeFactories.ITEM_STACK);
+    public final EventColumn<ItemStack> offHand = this.events("item_off_hand", KeyframeFactories.ITEM_STACK);
+    public final EventColumn<ItemStack> armorHead = this.events("item_head", KeyframeFactories.ITEM_STACK);
+    public final EventColumn<ItemStack> armorChest = this.events("item_chest", KeyframeFactories.ITEM_STACK);
+    public final EventColumn<ItemStack> armorLegs = this.events("item_legs", KeyframeFactories.ITEM_STACK);
+    public final EventColumn<ItemStack> armorFeet = this.events("item_feet", KeyframeFactories.ITEM_STACK);
+    public final EventColumn<Integer> selectedSlot = this.events("selected_slot", KeyframeFactories.INTEGER);
+
+    /* Item stacks (and other events) get copied only when they change */
+    private final ReplayKeyframes.ISampler sampler = new ReplayKeyframes.ISampler()
+    {
+        @Override
+        public void sample(String channel, int tick, double value)
+        {
+            RecordingBuffer.this.numeric.get(channel).add(tick, value);
+        }
+
+        @Override
+        public void sampleEvent(String channel, int tick, Object value)
+        {
+            ((EventColumn) RecordingBuffer.this.events.get(channel)).add(tick, value);
+        }
+    };
+
+    /**
+     * Create keyframes out of runs of equal values. Only first and last
+     * ticks of every run (and only the first tick of the last run) are
+     * kept, i.e. the same keyframes that remain after recording a keyframe
+     * every tick and {@link KeyframeChannel#simplify()}.
+     */
+    private static <T> List<Keyframe<T>> createKeyframes(IKeyframeFactory<T> factory, int samples, int[] starts, int[] ends, List<T> values)
+    {
+        List<Keyframe<T>> keyframes = new ArrayList<>();
+        int last = values.size() - 1;
+
+        for (int i = 0; i <= last; i++)
+        {
+            T value = values.get(i);
+
+            keyframes.add(new Keyframe<>("", factory, starts[i], value));
+
+            if (ends[i] != starts[i] && (i != last || samples <= 2))
+            {
+                keyframes.add(new Keyframe<>("", factory, ends[i], factory.copy(value)));
+            }
+        }
+
+        return keyframes;
+    }
+
+    private NumericColumn numeric(String id)
+    {
+        NumericColumn column = new NumericColumn();
+
+        this.numeric.put(id, column);
+
+        return column;
+    }
+
+    private <T> EventColumn<T> events(String id, IKeyframeFactory<T> factory)
+    {
+        EventColumn<T> column = new EventColumn<>(factory);
+
+        this.events.put(id, column);
+
+        return column;
+    }
+
+    public NumericColumn getNumeric(String id)
+    {
+        return this.numeric.get(id);
+    }
+
+    public EventColumn<?> getEvents(String id)
+    {
+        return this.events.get(id);
+    }
+
+    /**
+     * Amount of memory (in bytes) taken by encoded samples
+     */
+    public long getMemorySize()
+    {
+        long size = 0;
+
+        for (NumericColumn column : this.numeric.values())
+        {
+            size += column.stream.getCapacity();
+        }
+
+        for (EventColumn<?> column : this.events.values())
+        {
+            size += column.stream.getCapacity();
+        }
+
+        return size;
+    }
+
+    public void record(int tick, IEntity entity, List<String> groups)
+    {
+        ReplayKeyframes.sample(tick, entity, groups, this.sampler);
+    }
+
+    /**
+     * Add recorded samples as keyframes to given replay keyframes (which
+     * should have no keyframes past the first recorded tick). Numeric
+     * channels are reduced within tolerances of {@link ReplayKeyframes#reduce()},
+     * and other channels get keyframes only where their values change.
+     */
+    public KeyframeReducer.Report apply(ReplayKeyframes keyframes)
+    {
+        KeyframeReducer.Report report = new KeyframeReducer.Report();
+
+        for (Map.Entry<String, NumericColumn> entry : this.numeric.entrySet())
+        {
+            NumericColumn column = entry.getValue();
+            BaseValue value = keyframes.get(entry.getKey());
+
+            if (column.size() == 0 || !(value instanceof KeyframeChannel<?> channel))
+            {
+                continue;
+            }
+
+            int size = column.size();
+            float[] ticks = new float[size];
+            double[] values = new double[size];
+            double tolerance = keyframes.getTolerance(channel);
+
+            column.read(ticks, values);
+
+            if (tolerance >= 0D)
+            {
+                channel.addSamples(ticks, values, size, tolerance, report);
+            }
+            else
+            {
+                ((KeyframeChannel<Double>) channel).append(column.createKeyframes(ticks, values));
+            }
+        }
+
+        for (Map.Entry<String, EventColumn<?>> entry : this.events.entrySet())
+        {
+            EventColumn column = entry.getValue();
+            BaseValue value = keyframes.get(entry.getKey());
+
+            if (column.getSamples() > 0 && value instanceof KeyframeChannel<?> channel)
+            {
+                channel.append(column.createKeyframes());
+            }
+        }
+
+        return report;
+    }
+
+    /**
+     * Encode all columns into a single array of bytes
+     */
+    public byte[] toBytes()
+    {
+        RecordingStream stream = new RecordingStream();
+
+        stream.writeVarInt(VERSION);
+
+        for (NumericColumn column : this.numeric.values())
+        {
+            column.write(stream);
+        }
+
+        for (EventColumn<?> column : this.events.values())
+        {
+            column.write(stream);
+        }
+
+        return stream.toBytes();
+    }
+
+    /**
+     * Restore columns from bytes written by {@link #toBytes()}
+     */
+    public void fromBytes(byte[] bytes)
+    {
+        RecordingStream.Reader reader = new RecordingStream(bytes).reader();
+
+        if (reader.readVarInt() != VERSION)
+        {
+            return;
+        }
+
+        for (NumericColumn column : this.numeric.values())
+        {
+            column.read(reader);
+        }
+
+        for (EventColumn<?> column : this.events.values())
+        {
+            column.read(reader);
+        }
+    }
+
+    /**
+     * Column of numeric samples, where every sample is encoded as tick
+     * offset from the previous sample and XOR of its value against the
+     * previous value.
+     */
+    public static class NumericColumn
+    {
+        private RecordingStream stream = new RecordingStream();
+        private int count;
+        private int lastTick;
+        private long lastBits;
+
+        public int size()
+        {
+            return this.count;
+        }
+
+        public void add(int tick, double value)
+        {
+            long bits = Double.doubleToRawLongBits(value);
+
+            this.stream.writeVarInt(tick - this.lastTick);
+            this.stream.writeXor(bits ^ this.lastBits);
+
+            this.count += 1;
+            this.lastTick = tick;
+            this.lastBits = bits;
+        }
+
+        /**
+         * Decode samples into given arrays (which have to fit all of them)
+         */
+        public void read(float[] ticks, double[] values)
+        {
+            RecordingStream.Reader reader = this.stream.reader();
+            int tick = 0;
+            long bits = 0L;
+
+            for (int i = 0; i < this.count; i++)
+            {
+                tick += reader.readVarInt();
+                bits ^= reader.readXor();
+
+                ticks[i] = tick;
+                values[i] = Double.longBitsToDouble(bits);
+            }
+        }
+
+        private List<Keyframe<Double>> createKeyframes(float[] ticks, double[] values)
+        {
+            int[] starts = new int[this.count];
+            int[] ends = new int[this.count];
+            List<Double> runs = new ArrayList<>();
+
+            for (int i = 0; i < this.count; i++)
+            {
+                int last = runs.size() - 1;
+
+                if (last >= 0 && runs.get(last).equals(values[i]))
+                {
+                    ends[last] = (int) ticks[i];
+
+                    continue;
+                }
+
+                starts[last + 1] = ends[last + 1] = (int) ticks[i];
+                runs.add(values[i]);
+            }
+
+            return RecordingBuffer.createKeyframes(KeyframeFactories.DOUBLE, this.count, starts, ends, runs);
+        }
+
+        private void write(RecordingStream stream)
+        {
+            stream.writeVarInt(this.count);
+            stream.writeVarInt(this.lastTick);
+            stream.writeXor(this.lastBits);
+            stream.writeStream(this.stream);
+        }
+
+        private void read(RecordingStream.Reader reader)
+        {
+            this.count = reader.readVarInt();
+            this.lastTick = reader.readVarInt();
+            this.lastBits = reader.readXor();
+            this.stream = reader.readStream();
+        }
+    }
+
+    /**
+     * Column of values that rarely change. Samples are merged into runs
+     * of equal values, and every finished run is encoded as its start and
+     * end ticks and serialized value.
+     */
+    public static class EventColumn <T>
+    {
+        private final IKeyframeFactory<T> factory;
+        private RecordingStream stream = new RecordingStream();
+        private int samples;
+        private int runs;
+        private int lastEnd;
+
+        /* Current (not yet encoded) run */
+        private T value;
+        private int start;
+        private int end;
+        private boolean open;
+
+        public EventColumn(IKeyframeFactory<T> factory)
+        {
+            this.factory = factory;
+        }
+
+        public int getSamples()
+        {
+            return this.samples;
+        }
+
+        public int getRuns()
+        {
+            return this.runs + (this.open ? 1 : 0);
+        }
+
+        public void add(int tick, T value)
+        {
+            this.samples += 1;
+
+            if (this.open && this.factory.compare(this.value, value))
+            {
+                this.end = tick;
+
+                return;
+            }
+
+            if (this.open)
+            {
+                this.encode(this.stream);
+
+                this.runs += 1;
+                this.lastEnd = this.end;
+            }
+
+            this.value = this.factory.copy(value);
+            this.start = this.end = tick;
+            this.open = true;
+        }
+
+        private void encode(RecordingStream stream)
+        {
+            stream.writeVarInt(this.start - this.lastEnd);
+            stream.writeVarInt(this.end - this.start);
+            this.writeValue(stream, this.value);
+        }
+
+        private void writeValue(RecordingStream stream, T value)
+        {
+            byte[] bytes = DataStorageUtils.writeToBytes(this.factory.toData(value));
+
+            stream.writeVarInt(bytes.length);
+            stream.writeBytes(bytes);
+        }
+
+        private T readValue(RecordingStream.Reader reader)
+        {
+            BaseType data = DataStorageUtils.readFromBytes(reader.readBytes(reader.readVarInt()));
+
+            return data == null ? this.factory.createEmpty() : this.factory.fromData(data);
+        }
+
+        public List<Keyframe<T>> createKeyframes()
+        {
+            int count = this.getRuns();
+            int[] starts = new int[count];
+            int[] ends = new int[count];
+            List<T> values = new ArrayList<>();
+            RecordingStream.Reader reader = this.stream.reader();
+            int tick = 0;
+
+            for (int i = 0; i < this.runs; i++)
+            {
+                starts[i] = tick + reader.readVarInt();
+                ends[i] = tick = starts[i] + reader.readVarInt();
+
+                values.add(this.readValue(reader));
+            }
+
+            if (this.open)
+            {
+                starts[this.runs] = this.start;
+                ends[this.runs] = this.end;
+                values.add(this.factory.copy(this.value));
+            }
+
+            return RecordingBuffer.createKeyframes(this.factory, this.samples, starts, ends, values);
+        }
+
+        /**
+         * Write finished runs as they are, and the current run separately,
+         * so it can be continued after reading.
+         */
+        private void write(RecordingStream stream)
+        {
+            stream.writeVarInt(this.samples);
+            stream.writeVarInt(this.runs);
+            stream.writeVarInt(this.lastEnd);
+            stream.writeStream(this.stream);
+            stream.writeByte(this.open ? 1 : 0);
+
+            if (this.open)
+            {
+                stream.writeVarInt(this.start);
+                stream.writeVarInt(this.end);
+                this.writeValue(stream, this.value);
+            }
+        }
+
+        private void read(RecordingStream.Reader reader)
+        {
+            this.samples = reader.readVarInt();
+            this.runs = reader.readVarInt();
+            this.lastEnd = reader.readVarInt();
+            this.stream = reader.readStream();
+            this.open = reader.readByte() == 1;
+            this.value = null;
+
+            if (this.open)
+            {
+                this.start = reader.readVarInt();
+                this.end = reader.readVarInt();
+                this.value = this.readValue(reader);
+            }
+        }
+    }
+}
@@ -0,0 +1,385 @@
+package mchorse.bbs_mod.film.replays;
+
+import com.ibm.icu.impl.Assert;
+import mchorse.bbs_mod.BBSSettings;
+import mchorse.bbs_mod.settings.values.numeric.ValueBoolean;
+import mchorse.bbs_mod.settings.values.numeric.ValueFloat;
+import mchorse.bbs_mod.utils.keyframes.Keyframe;
+import mchorse.bbs_mod.utils.keyframes.KeyframeChannel;
+import mchorse.bbs_mod.utils.keyframes.factories.KeyframeFactories;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class RecordingBufferTest
+{
+    /* An hour of recording at 20 ticks per second */
+    private static final int HOUR = 20 * 60 * 60;
+
+    public static void main(String[] args)
+    {
+        BBSSettings.recordingReduce = new ValueBoolean("reduce", true);
+        BBSSettings.recordingReducePosition = new ValueFloat("reduce_position", 0.005F);
+        BBSSettings.recordingReduceRotation = new ValueFloat("reduce_rotation", 0.1F);
+        BBSSettings.recordingReduceVelocity = new ValueFloat("reduce_velocity", 0.005F);
+        BBSSettings.recordingReduceInput = new ValueFloat("reduce_input", 0.01F);
+
+        testStream();
+        testRoundTrip(HOUR);
+        testEncoding();
+        testEvents();
+        testApply(2000, false);
+        testApply(2000, true);
+        benchmark(20 * 60 * 5);
+    }
+
+    private static void testStream()
+    {
+        RecordingStream stream = new RecordingStream(1);
+        int[] ints = {0, 1, -1, 63, -64, 64, 300, -300, Integer.MAX_VALUE, Integer.MIN_VALUE};
+        long[] xors = {0L, 1L, -1L, 0xFF00L, 0x3FF0000000000000L, Long.MIN_VALUE};
+
+        for (int value : ints)
+        {
+            stream.writeVarInt(value);
+        }
+
+        for (long xor : xors)
+        {
+            stream.writeXor(xor);
+        }
+
+        RecordingStream.Reader reader = stream.reader();
+
+        for (int value : ints)
+        {
+            Assert.assrt(reader.readVarInt() == value);
+        }
+
+        for (long xor : xors)
+        {
+            Assert.assrt(reader.readXor() == xor);
+        }
+
+        Assert.assrt(!reader.hasNext());
+    }
+
+    /**
+     * Record a synthetic take, and check that samples are restored exactly
+     * (also after encoding into bytes) while taking less memory than
+     * keyframes recorded every tick.
+     */
+    private static void testRoundTrip(int ticks)
+    {
+        double[][] take = createTake(new Random(42), ticks);
+        RecordingBuffer buffer = new RecordingBuffer();
+        long time = System.nanoTime();
+
+        record(buffer, take, ticks);
+
+        time = System.nanoTime() - time;
+
+        RecordingBuffer restored = new RecordingBuffer();
+
+        restored.fromBytes(buffer.toBytes());
+
+        for (RecordingBuffer current : new RecordingBuffer[] {buffer, restored})
+        {
+            RecordingBuffer.NumericColumn[] columns = columns(current);
+
+            for (int i = 0; i < columns.length; i++)
+            {
+                float[] tickArray = new float[ticks];
+                double[] values = new double[ticks];
+
+                Assert.assrt(columns[i].size() == ticks);
+
+                columns[i].read(tickArray, values);
+
+                for (int j = 0; j < ticks; j++)
+                {
+                    Assert.assrt(tickArray[j] == j && Double.compare(values[j], take[i][j]) == 0);
+                }
+            }
+        }
+
+        /* Keyframes that recording every tick used to keep until the take
+         * got reduced (added in bulk, as inserting them one by one is
+         * quadratic, but they're the same objects) */
+        long before = usedMemory();
+        ReplayKeyframes keyframes = new ReplayKeyframes("keyframes");
+        KeyframeChannel<Double>[] channels = channels(keyframes);
+
+        for (int i = 0; i < channels.length; i++)
+        {
+            List<Keyframe<Double>> list = new ArrayList<>(ticks);
+
+            for (int j = 0; j < ticks; j++)
+            {
+                list.add(new Keyframe<>("", KeyframeFactories.DOUBLE, j, take[i][j]));
+            }
+
+            channels[i].append(list);
+        }
+
+        long keyframesMemory = usedMemory() - before;
+        long memory = buffer.getMemorySize();
+
+        System.out.println("Recorded " + ticks + " ticks in " + time / 1000000 + " ms, buffer " + memory / 1024 + " KiB (vs. " + keyframesMemory / 1024 + " KiB of keyframes), encoded " + buffer.toBytes().length / 1024 + " KiB");
+
+        Assert.assrt(keyframes.x.getKeyframes().size() == ticks);
+        Assert.assrt(memory * 10 < keyframesMemory);
+    }
+
+    /**
+     * Recording into keyframes every tick (and reducing them) against
+     * recording into the buffer (and applying it).
+     */
+    private static void benchmark(int ticks)
+    {
+        double[][] take = createTake(new Random(11), ticks);
+        long time = System.nanoTime();
+        ReplayKeyframes keyframes = new ReplayKeyframes("keyframes");
+        KeyframeChannel<Double>[] channels = channels(keyframes);
+
+        for (int j = 0; j < ticks; j++)
+        {
+            for (int i = 0; i < channels.length; i++)
+            {
+                channels[i].insert(j, take[i][j]);
+            }
+        }
+
+        keyframes.reduce();
+
+        long old = System.nanoTime() - time;
+
+        time = System.nanoTime();
+
+        RecordingBuffer buffer = new RecordingBuffer();
+
+        record(buffer, take, ticks);
+        buffer.apply(new ReplayKeyframes("keyframes"));
+
+        long current = System.nanoTime() - time;
+
+        System.out.println("Recorded and reduced " + ticks + " ticks: keyframes " + old / 1000000 + " ms, buffer " + current / 1000000 + " ms");
+
+        Assert.assrt(current < old);
+    }
+
+    /**
+     * Event columns with a single run (equipment that never changed) and
+     * empty columns should survive encoding, and keep recording afterward.
+     */
+    private static void testEncoding()
+    {
+        RecordingBuffer buffer = new RecordingBuffer();
+
+        for (int i = 0; i < 100; i++)
+        {
+            buffer.selectedSlot.add(i, 4);
+            buffer.x.add(i, i * 0.5D);
+        }
+
+        RecordingBuffer restored = new RecordingBuffer();
+
+        restored.fromBytes(buffer.toBytes());
+
+        Assert.assrt(restored.selectedSlot.getSamples() == 100 && restored.selectedSlot.getRuns() == 1);
+        Assert.assrt(restored.stickLeftX.size() == 0 && restored.selectedSlot.createKeyframes().size() == 1);
+        Assert.assrt(restored.toBytes().length == buffer.toBytes().length);
+
+        /* Restored columns (empty ones included) can be appended to */
+        for (int i = 100; i < 110; i++)
+        {
+            restored.selectedSlot.add(i, i < 105 ? 4 : 2);
+            restored.stickLeftX.add(i, 1D);
+            restored.x.add(i, i * 0.5D);
+        }
+
+        List<Keyframe<Integer>> slots = restored.selectedSlot.createKeyframes();
+        float[] ticks = new float[110];
+        double[] values = new double[110];
+
+        Assert.assrt(slots.size() == 3);
+        Assert.assrt(slots.get(0).getTick() == 0 && slots.get(1).getTick() == 104 && slots.get(2).getTick() == 105);
+        Assert.assrt(slots.get(1).getValue() == 4 && slots.get(2).getValue() == 2);
+        Assert.assrt(restored.stickLeftX.size() == 10);
+
+        restored.x.read(ticks, values);
+
+        for (int i = 0; i < 110; i++)
+        {
+            Assert.assrt(ticks[i] == i && values[i] == i * 0.5D);
+        }
+
+        /* Never changed values across the whole buffer */
+        RecordingBuffer empty = new RecordingBuffer();
+
+        empty.fromBytes(new RecordingBuffer().toBytes());
+        empty.selectedSlot.add(0, 1);
+        empty.selectedSlot.add(1, 2);
+        empty.x.add(0, 1D);
+
+        Assert.assrt(new RecordingBuffer().toBytes().length > 0 && empty.toBytes().length > 0);
+    }
+
+    private static long usedMemory()
+    {
+        Runtime runtime = Runtime.getRuntime();
+
+        for (int i = 0; i < 3; i++)
+        {
+            System.gc();
+        }
+
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static void testEvents()
+    {
+        RecordingBuffer buffer = new RecordingBuffer();
+        KeyframeChannel<Integer> channel = new ReplayKeyframes("keyframes").selectedSlot;
+        Random random = new Random(3);
+        int slot = 0;
+
+        for (int i = 0; i < 500; i++)
+        {
+            if (random.nextInt(40) == 0)
+            {
+                slot = random.nextInt(9);
+            }
+
+            buffer.selectedSlot.add(i, slot);
+            channel.insert(i, slot);
+        }
+
+        channel.simplify();
+
+        List<Keyframe<Integer>> keyframes = buffer.selectedSlot.createKeyframes();
+
+        Assert.assrt(keyframes.size() == channel.getKeyframes().size());
+
+        for (int i = 0; i < keyframes.size(); i++)
+        {
+            Keyframe<Integer> a = keyframes.get(i);
+            Keyframe<Integer> b = channel.getKeyframes().get(i);
+
+            Assert.assrt(a.getTick() == b.getTick() && a.getValue().equals(b.getValue()));
+        }
+    }
+
+    /**
+     * Keyframes created out of the buffer should be the same as the ones
+     * recorded every tick and reduced afterward.
+     */
+    private static void testApply(int ticks, boolean reduce)
+    {
+        BBSSettings.recordingReduce.set(reduce);
+
+        double[][] take = createTake(new Random(7), ticks);
+        RecordingBuffer buffer = new RecordingBuffer();
+        ReplayKeyframes expected = new ReplayKeyframes("keyframes");
+        ReplayKeyframes result = new ReplayKeyframes("keyframes");
+        RecordingBuffer.NumericColumn[] columns = columns(buffer);
+        KeyframeChannel<Double>[] channels = channels(expected);
+
+        record(buffer, take, ticks);
+
+        for (int i = 0; i < channels.length; i++)
+        {
+            for (int j = 0; j < ticks; j++)
+            {
+                channels[i].insert(j, take[i][j]);
+            }
+        }
+
+        expected.reduce();
+        buffer.apply(result);
+
+        KeyframeChannel<Double>[] resultChannels = channels(result);
+
+        for (int i = 0; i < columns.length; i++)
+        {
+            Assert.assrt(resultChannels[i].toData().equals(channels[i].toData()));
+        }
+    }
+
+    private static void record(RecordingBuffer buffer, double[][] take, int ticks)
+    {
+        RecordingBuffer.NumericColumn[] columns = columns(buffer);
+
+        for (int j = 0; j < ticks; j++)
+        {
+            for (int i = 0; i < columns.length; i++)
+            {
+                columns[i].add(j, take[i][j]);
+            }
+        }
+    }
+
+    private static RecordingBuffer.NumericColumn[] columns(RecordingBuffer buffer)
+    {
+        return new RecordingBuffer.NumericColumn[] {buffer.x, buffer.y, buffer.z, buffer.vX, buffer.vY, buffer.vZ, buffer.yaw, buffer.pitch, buffer.sneaking, buffer.grounded, buffer.stickLeftX};
+    }
+
+    private static KeyframeChannel<Double>[] channels(ReplayKeyframes keyframes)
+    {
+        return new KeyframeChannel[] {keyframes.x, keyframes.y, keyframes.z, keyframes.vX, keyframes.vY, keyframes.vZ, keyframes.yaw, keyframes.pitch, keyframes.sneaking, keyframes.grounded, keyframes.stickLeftX};
+    }
+
+    /**
+     * Player walking around with occasional stops, looking around, and
+     * toggling states.
+     */
+    private static double[][] createTake(Random random, int ticks)
+    {
+        double[][] take = new double[11][ticks];
+        double x = 100.5D;
+        double y = 64D;
+        double z = -20.5D;
+        float yaw = 0F;
+        float pitch = 0F;
+        boolean walking = true;
+        boolean sneaking = false;
+
+        for (int i = 0; i < ticks; i++)
+        {
+            if (random.nextInt(200) == 0)
+            {
+                walking = !walking;
+            }
+
+            if (random.nextInt(300) == 0)
+            {
+                sneaking = !sneaking;
+            }
+
+            yaw += walking ? (float) Math.sin(i / 37D) * 2F : 0F;
+            pitch = walking ? (float) Math.sin(i / 53D) * 20F : pitch;
+
+            double speed = walking ? (sneaking ? 0.065D : 0.2158D) : 0D;
+            double vX = -Math.sin(Math.toRadians(yaw)) * speed;
+            double vZ = Math.cos(Math.toRadians(yaw)) * speed;
+
+            x += vX;
+            z += vZ;
+
+            take[0][i] = x;
+            take[1][i] = y;
+            take[2][i] = z;
+            take[3][i] = vX;
+            take[4][i] = 0D;
+            take[5][i] = vZ;
+            take[6][i] = yaw;
+            take[7][i] = pitch;
+            take[8][i] = sneaking ? 1D : 0D;
+            take[9][i] = 1D;
+            take[10][i] = walking ? 1D : 0D;
+        }
+
+        return take;
+    }
+}
@@ -0,0 +1,198 @@
+package mchorse.bbs_mod.film.replays;
+
+import java.util.Arrays;
+
+/**
+ * Recording stream
+ *
+ * Append-only byte buffer used to keep recorded data compact while it's
+ * being recorded. Integers are written as (zigzag) variable length
+ * integers, and doubles are written as XOR against the previous value,
+ * where only non-zero bytes are kept, so values that don't change (or
+ * change only a little) take just a couple of bytes.
+ */
+public class RecordingStream
+{
+    private byte[] bytes;
+    private int size;
+
+    public RecordingStream()
+    {
+        this(64);
+    }
+
+    public RecordingStream(int capacity)
+    {
+        this.bytes = new byte[Math.max(capacity, 16)];
+    }
+
+    public RecordingStream(byte[] bytes)
+    {
+        this.bytes = bytes;
+        this.size = bytes.length;
+    }
+
+    public int size()
+    {
+        return this.size;
+    }
+
+    /**
+     * Amount of allocated bytes
+     */
+    public int getCapacity()
+    {
+        return this.bytes.length;
+    }
+
+    public byte[] toBytes()
+    {
+        return Arrays.copyOf(this.bytes, this.size);
+    }
+
+    public Reader reader()
+    {
+        return new Reader();
+    }
+
+    public void writeByte(int value)
+    {
+        if (this.size == this.bytes.length)
+        {
+            this.bytes = Arrays.copyOf(this.bytes, Math.max(this.bytes.length * 2, 16));
+        }
+
+        this.bytes[this.size++] = (byte) value;
+    }
+
+    public void writeBytes(byte[] bytes)
+    {
+        this.writeBytes(bytes, 0, bytes.length);
+    }
+
+    public void writeBytes(byte[] bytes, int offset, int length)
+    {
+        if (this.size + length > this.bytes.length)
+        {
+            this.bytes = Arrays.copyOf(this.bytes, Math.max(this.bytes.length * 2, this.size + length));
+        }
+
+        System.arraycopy(bytes, offset, this.bytes, this.size, length);
+
+        this.size += length;
+    }
+
+    public void writeStream(RecordingStream stream)
+    {
+        this.writeVarInt(stream.size);
+        this.writeBytes(stream.bytes, 0, stream.size);
+    }
+
+    public void writeVarInt(int value)
+    {
+        int zigzag = (value << 1) ^ (value >> 31);
+
+        while ((zigzag & ~0x7F) != 0)
+        {
+            this.writeByte((zigzag & 0x7F) | 0x80);
+
+            zigzag >>>= 7;
+        }
+
+        this.writeByte(zigzag);
+    }
+
+    /**
+     * Write XOR of two doubles' bits. Header byte keeps amount of trailing
+     * zero bytes (high nibble) and significant bytes (low nibble), so an
+     * unchanged value takes one byte.
+     */
+    public void writeXor(long xor)
+    {
+        if (xor == 0)
+        {
+            this.writeByte(0);
+
+            return;
+        }
+
+        int trailing = Long.numberOfTrailingZeros(xor) / 8;
+        int significant = 8 - Long.numberOfLeadingZeros(xor) / 8 - trailing;
+
+        xor >>>= trailing * 8;
+
+        this.writeByte(trailing << 4 | significant);
+
+        for (int i = 0; i < significant; i++)
+        {
+            this.writeByte((int) (xor >>> (i * 8)));
+        }
+    }
+
+    public class Reader
+    {
+        private int position;
+
+        public boolean hasNext()
+        {
+            return this.position < RecordingStream.this.size;
+        }
+
+        public int readByte()
+        {
+            return RecordingStream.this.bytes[this.position++] & 0xFF;
+        }
+
+        public byte[] readBytes(int length)
+        {
+            byte[] bytes = Arrays.copyOfRange(RecordingStream.this.bytes, this.position, this.position + length);
+
+            this.position += length;
+
+            return bytes;
+        }
+
+        public RecordingStream readStream()
+        {
+            return new RecordingStream(this.readBytes(this.readVarInt()));
+        }
+
+        public int readVarInt()
+        {
+            int zigzag = 0;
+            int shift = 0;
+            int b;
+
+            do
+            {
+                b = this.readByte();
+                zigzag |= (b & 0x7F) << shift;
+                shift += 7;
+            }
+            while ((b & 0x80) != 0);
+
+            return (zigzag >>> 1) ^ -(zigzag & 1);
+        }
+
+        public long readXor()
+        {
+            int header = this.readByte();
+
+            if (header == 0)
+            {
+                return 0L;
+            }
+
+            int trailing = header >> 4;
+            int significant = header & 15;
+            long xor = 0L;
+
+            for (int i = 0; i < significant; i++)
+            {
+                xor |= (long) this.readByte() << (i * 8);
+            }
+
+            return xor << (trailing * 8);
+        }
+    }
+}
@@ -6,11 +6,8 @@ import mchorse.bbs_mod.actions.types.ActionClip;
 import mchorse.bbs_mod.camera.data.Point;
 import mchorse.bbs_mod.camera.values.ValuePoint;
 import mchorse.bbs_mod.film.Film;
-import mchorse.bbs_mod.forms.FormUtils;
 import mchorse.bbs_mod.forms.entities.IEntity;
 import mchorse.bbs_mod.forms.forms.Form;
-import mchorse.bbs_mod.settings.values.base.BaseValue;
-import mchorse.bbs_mod.settings.values.base.BaseValueBasic;
 import mchorse.bbs_mod.settings.values.core.ValueForm;
 import mchorse.bbs_mod.settings.values.core.ValueGroup;
 import mchorse.bbs_mod.settings.values.core.ValueString;
@@ -19,14 +16,15 @@ import mchorse.bbs_mod.settings.values.numeric.ValueFloat;
 import mchorse.bbs_mod.settings.values.numeric.ValueInt;
 import mchorse.bbs_mod.utils.clips.Clip;
 import mchorse.bbs_mod.utils.clips.Clips;
-import mchorse.bbs_mod.utils.keyframes.KeyframeChannel;
-import mchorse.bbs_mod.utils.keyframes.KeyframeSegment;
 import net.minecraft.entity.LivingEntity;
 
+import java.util.ArrayList;
 import java.util.List;
 
 public class Replay extends ValueGroup
 {
+    private static final int MAX_BINDINGS = 4;
+
     public final ValueForm form = new ValueForm("form");
     public final ReplayKeyframes keyframes = new ReplayKeyframes("keyframes");
     public final FormProperties properties = new FormProperties("properties");
@@ -44,6 +42,8 @@ public class Replay extends ValueGroup
     public final ValueBoolean relative = new ValueBoolean("relative", false);
     public final ValuePoint relativeOffset = new ValuePoint("relativeOffset", new Point(0, 0, 0));
 
+    private final List<FormPropertiesBinding> bindings = new ArrayList<>();
+
     public Replay(String id)
     {
         super(id);
@@ -109,44 +109,47 @@ public class Replay extends ValueGroup
             return;
         }
 
-        for (BaseValue value : this.properties.getAll())
-        {
-            if (value instanceof KeyframeChannel)
-            {
-                this.applyProperty(tick, form, (KeyframeChannel) value);
-            }
-        }
+        this.getBinding(form).apply(tick, form, this.form.get());
     }
 
-    private void applyProperty(float tick, Form form, KeyframeChannel value)
+    /**
+     * Get property binding for given form. Properties get applied to a few
+     * different forms (replay entity, actor, morph), so a couple of recently
+     * used bindings are kept around.
+     */
+    private FormPropertiesBinding getBinding(Form form)
     {
-        BaseValueBasic property = FormUtils.getProperty(form, value.getId());
-
-        if (property == null)
+        for (int i = 0; i < this.bindings.size(); i++)
         {
-            return;
+            FormPropertiesBinding binding = this.bindings.get(i);
+
+            if (binding.getForm() == form)
+            {
+                if (i > 0)
+                {
+                    this.bindings.remove(i);
+                    this.bindings.add(0, binding);
+                }
+
+                return binding;
+            }
         }
 
-        KeyframeSegment segment = value.find(tick);
+        FormPropertiesBinding binding;
 
-        if (segment != null)
+        if (this.bindings.size() >= MAX_BINDINGS)
         {
-            property.set(segment.createInterpolated());
+            binding = this.bindings.remove(this.bindings.size() - 1);
         }
         else
         {
-            Form replayForm = this.form.get();
+            binding = new FormPropertiesBinding(this.properties);
+        }
 
-            if (replayForm != null)
-            {
-                BaseValueBasic replayProperty = FormUtils.getProperty(replayForm, value.getId());
+        binding.bind(form, this.form.get());
+        this.bindings.add(0, binding);
 
-                if (replayProperty != null)
-                {
-                    property.set(replayProperty.get());
-                }
-            }
-        }
+        return binding;
     }
 
     public void applyActions(LivingEntity actor, SuperFakePlayer fakePlayer, Film film, int tick)
@@ -1,5 +1,6 @@
 package mchorse.bbs_mod.film.replays;
 
+import mchorse.bbs_mod.BBSSettings;
 import mchorse.bbs_mod.forms.entities.IEntity;
 import mchorse.bbs_mod.settings.values.core.ValueGroup;
 import mchorse.bbs_mod.settings.values.base.BaseValue;
@@ -7,6 +8,7 @@ import mchorse.bbs_mod.utils.interps.IInterp;
 import mchorse.bbs_mod.utils.interps.Interpolations;
 import mchorse.bbs_mod.utils.keyframes.Keyframe;
 import mchorse.bbs_mod.utils.keyframes.KeyframeChannel;
+import mchorse.bbs_mod.utils.keyframes.KeyframeReducer;
 import mchorse.bbs_mod.utils.keyframes.KeyframeSegment;
 import mchorse.bbs_mod.utils.keyframes.factories.KeyframeFactories;
 import net.minecraft.entity.EquipmentSlot;
@@ -69,6 +71,24 @@ public class ReplayKeyframes extends ValueGroup
     public final KeyframeChannel<ItemStack> armorFeet = new KeyframeChannel<>("item_feet", KeyframeFactories.ITEM_STACK);
     public final KeyframeChannel<Integer> selectedSlot = new KeyframeChannel<>("selected_slot", KeyframeFactories.INTEGER);
 
+    /* Inserts sampled values as keyframes (copying values of non-numeric channels) */
+    private final ISampler inserter = new ISampler()
+    {
+        @Override
+        public void sample(String channel, int tick, double value)
+        {
+            ((KeyframeChannel<Double>) ReplayKeyframes.this.get(channel)).insert(tick, value);
+        }
+
+        @Override
+        public void sampleEvent(String channel, int tick, Object value)
+        {
+            KeyframeChannel keyframeChannel = (KeyframeChannel) ReplayKeyframes.this.get(channel);
+
+            keyframeChannel.insert(tick, keyframeChannel.getFactory().copy(value));
+        }
+    };
+
     public ReplayKeyframes(String id)
     {
         super(id);
@@ -147,7 +167,76 @@ public class ReplayKeyframes extends ValueGroup
         }
     }
 
+    /**
+     * Reduce keyframes that were recorded every tick within tolerances
+     * configured for every type of channel. Non-numeric channels (and all
+     * of them, when reduction is disabled) only get their duplicate
+     * keyframes removed.
+     */
+    public KeyframeReducer.Report reduce()
+    {
+        KeyframeReducer.Report report = new KeyframeReducer.Report();
+
+        for (KeyframeChannel<?> channel : this.getChannels())
+        {
+            double tolerance = this.getTolerance(channel);
+
+            if (tolerance >= 0D)
+            {
+                channel.reduce(tolerance, report);
+            }
+            else
+            {
+                channel.simplify();
+            }
+        }
+
+        return report;
+    }
+
+    /**
+     * Get error tolerance of given channel, or a negative value if it
+     * shouldn't be reduced. States (like sneaking) are reduced only when
+     * it's lossless.
+     */
+    public double getTolerance(KeyframeChannel<?> channel)
+    {
+        if (!BBSSettings.recordingReduce.get() || channel.getFactory() != KeyframeFactories.DOUBLE)
+        {
+            return -1D;
+        }
+
+        if (channel == this.x || channel == this.y || channel == this.z || channel == this.fall)
+        {
+            return BBSSettings.recordingReducePosition.get();
+        }
+        else if (channel == this.yaw || channel == this.pitch || channel == this.headYaw || channel == this.bodyYaw)
+        {
+            return BBSSettings.recordingReduceRotation.get();
+        }
+        else if (channel == this.vX || channel == this.vY || channel == this.vZ)
+        {
+            return BBSSettings.recordingReduceVelocity.get();
+        }
+        else if (channel == this.sneaking || channel == this.sprinting || channel == this.grounded || channel == this.damage)
+        {
+            return 0D;
+        }
+
+        return BBSSettings.recordingReduceInput.get();
+    }
+
     public void record(int tick, IEntity entity, List<String> groups)
+    {
+        sample(tick, entity, groups, this.inserter);
+    }
+
+    /**
+     * Sample entity's values at given tick into given sampler (by channel
+     * IDs), which is shared between recording into keyframes and into
+     * {@link RecordingBuffer}.
+     */
+    public static void sample(int tick, IEntity entity, List<String> groups, ISampler sampler)
     {
         boolean empty = groups == null || groups.isEmpty();
         boolean position = empty || groups.contains(GROUP_POSITION);
@@ -161,71 +250,71 @@ public class ReplayKeyframes extends ValueGroup
         /* Position and rotation */
         if (position)
         {
-            this.x.insert(tick, entity.getX());
-            this.y.insert(tick, entity.getY());
-            this.z.insert(tick, entity.getZ());
+            sampler.sample("x", tick, entity.getX());
+            sampler.sample("y", tick, entity.getY());
+            sampler.sample("z", tick, entity.getZ());
 
-            this.vX.insert(tick, entity.getVelocity().x);
-            this.vY.insert(tick, entity.getVelocity().y);
-            this.vZ.insert(tick, entity.getVelocity().z);
+            sampler.sample("vX", tick, entity.getVelocity().x);
+            sampler.sample("vY", tick, entity.getVelocity().y);
+            sampler.sample("vZ", tick, entity.getVelocity().z);
 
-            this.fall.insert(tick, (double) entity.getFallDistance());
+            sampler.sample("fall", tick, entity.getFallDistance());
         }
 
-        this.sneaking.insert(tick, entity.isSneaking() ? 1D : 0D);
-        this.sprinting.insert(tick, entity.isSprinting() ? 1D : 0D);
-        this.grounded.insert(tick, entity.isOnGround() ? 1D : 0D);
-        this.damage.insert(tick, (double) entity.getHurtTimer());
+        sampler.sample("sneaking", tick, entity.isSneaking() ? 1D : 0D);
+        sampler.sample("sprinting", tick, entity.isSprinting() ? 1D : 0D);
+        sampler.sample("grounded", tick, entity.isOnGround() ? 1D : 0D);
+        sampler.sample("damage", tick, entity.getHurtTimer());
 
         if (rotation)
         {
-            this.yaw.insert(tick, (double) entity.getYaw());
-            this.pitch.insert(tick, (double) entity.getPitch());
-            this.headYaw.insert(tick, (double) entity.getHeadYaw());
-            this.bodyYaw.insert(tick, (double) entity.getBodyYaw());
+            sampler.sample("yaw", tick, entity.getYaw());
+            sampler.sample("pitch", tick, entity.getPitch());
+            sampler.sample("headYaw", tick, entity.getHeadYaw());
+            sampler.sample("bodyYaw", tick, entity.getBodyYaw());
         }
 
         float[] sticks = entity.getExtraVariables();
 
         if (leftStick)
         {
-            this.stickLeftX.insert(tick, (double) sticks[0]);
-            this.stickLeftY.insert(tick, (double) sticks[1]);
+            sampler.sample("stick_lx", tick, sticks[0]);
+            sampler.sample("stick_ly", tick, sticks[1]);
         }
 
         if (rightStick)
         {
-            this.stickRightX.insert(tick, (double) sticks[2]);
-            this.stickRightY.insert(tick, (double) sticks[3]);
+            sampler.sample("stick_rx", tick, sticks[2]);
+            sampler.sample("stick_ry", tick, sticks[3]);
         }
 
         if (triggers)
         {
-            this.triggerLeft.insert(tick, (double) sticks[4]);
-            this.triggerRight.insert(tick, (double) sticks[5]);
+            sampler.sample("trigger_l", tick, sticks[4]);
+            sampler.sample("trigger_r", tick, sticks[5]);
         }
 
         if (extra1)
         {
-            this.extra1X.insert(tick, (double) sticks[6]);
-            this.extra1Y.insert(tick, (double) sticks[7]);
+            sampler.sample("extra1_x", tick, sticks[6]);
+            sampler.sample("extra1_y", tick, sticks[7]);
         }
 
         if (extra2)
         {
-            this.extra2X.insert(tick, (double) sticks[8]);
-            this.extra2Y.insert(tick, (double) sticks[9]);
+            sampler.sample("extra2_x", tick, sticks[8]);
+            sampler.sample("extra2_y", tick, sticks[9]);
         }
 
         if (empty)
         {
-            this.mainHand.insert(tick, entity.getEquipmentStack(EquipmentSlot.MAINHAND).copy());
-            this.offHand.insert(tick, entity.getEquipmentStack(EquipmentSlot.OFFHAND).copy());
-            this.armorHead.insert(tick, entity.getEquipmentStack(EquipmentSlot.HEAD).copy());
-            this.armorChest.insert(tick, entity.getEquipmentStack(EquipmentSlot.CHEST).copy());
-            this.armorLegs.insert(tick, entity.getEquipmentStack(EquipmentSlot.LEGS).copy());
-            this.armorFeet.insert(tick, entity.getEquipmentStack(EquipmentSlot.FEET).copy());
-            this.selectedSlot.insert(tick, entity.getSelectedSlot());
+            sampler.sampleEvent("item_main_hand", tick, entity.getEquipmentStack(EquipmentSlot.MAINHAND));
+            sampler.sampleEvent("item_off_hand", tick, entity.getEquipmentStack(EquipmentSlot.OFFHAND));
+            sampler.sampleEvent("item_head", tick, entity.getEquipmentStack(EquipmentSlot.HEAD));
+            sampler.sampleEvent("item_chest", tick, entity.getEquipmentStack(EquipmentSlot.CHEST));
+            sampler.sampleEvent("item_legs", tick, entity.getEquipmentStack(EquipmentSlot.LEGS));
+            sampler.sampleEvent("item_feet", tick, entity.getEquipmentStack(EquipmentSlot.FEET));
+            sampler.sampleEvent("selected_slot", tick, entity.getSelectedSlot());
         }
     }
 
@@ -365,4 +454,16 @@ public class ReplayKeyframes extends ValueGroup
 
         return new Vector2d(interpolated == null ? prev : interpolated, prev);
     }
-}
\ No newline at end of file
+
+    /**
+     * Receiver of entity's values sampled by {@link #sample(int, IEntity, List, ISampler)}.
+     * Non-numeric values (item stacks and selected slot) are passed as they
+     * are, so they have to be copied if they're kept.
+     */
+    public interface ISampler
+    {
+        public void sample(String channel, int tick, double value);
+
+        public void sampleEvent(String channel, int tick, Object value);
+    }
+}
@@ -0,0 +1,156 @@
+package mchorse.bbs_mod.forms;
+
+import com.ibm.icu.impl.Assert;
+import mchorse.bbs_mod.BBSMod;
+import mchorse.bbs_mod.forms.forms.BodyPart;
+import mchorse.bbs_mod.forms.forms.Form;
+import mchorse.bbs_mod.forms.forms.LabelForm;
+import mchorse.bbs_mod.forms.forms.ModelForm;
+import mchorse.bbs_mod.resources.Link;
+import mchorse.bbs_mod.utils.colors.Color;
+
+import java.lang.reflect.Field;
+
+public class FormCopyTest
+{
+    public static void main(String[] args) throws Exception
+    {
+        FormArchitect forms = new FormArchitect();
+        Field field = BBSMod.class.getDeclaredField("forms");
+
+        forms.register(Link.bbs("label"), LabelForm.class, null);
+        forms.register(Link.bbs("model"), ModelForm.class, null);
+
+        field.setAccessible(true);
+        field.set(null, forms);
+
+        testEquivalence(forms);
+        testIndependence();
+        benchmark(forms, 6, 3, 200);
+    }
+
+    private static void testEquivalence(FormArchitect forms)
+    {
+        Form form = create(3, 3, 0);
+        Form copy = form.copy();
+        Form serialized = forms.fromData(forms.toData(form));
+
+        /* Structural copy gives the same form as serialization round trip */
+        Assert.assrt(copy.getClass() == form.getClass());
+        Assert.assrt(copy.equals(form) && copy.equals(serialized));
+        Assert.assrt(forms.toData(copy).equals(forms.toData(serialized)));
+    }
+
+    private static void testIndependence()
+    {
+        ModelForm form = (ModelForm) create(2, 2, 0);
+        ModelForm copy = (ModelForm) form.copy();
+        BodyPart part = copy.parts.getAll().get(0);
+
+        Assert.assrt(part.getManager() == copy.parts && part.getForm().getParent() == copy);
+
+        /* Changing the copy doesn't affect the original */
+        copy.pose.get().get("head").translate.x = 100;
+        copy.color.get().set(0F, 0F, 0F);
+        part.getTransform().translate.y = 5;
+        ((LabelForm) part.getForm().parts.getAll().get(1).getForm()).text.set("Changed");
+
+        Assert.assrt(form.pose.get().get("head").translate.x == 1);
+        Assert.assrt(form.color.get().r == 0.5F);
+        Assert.assrt(form.parts.getAll().get(0).getTransform().translate.y == 0);
+        Assert.assrt(!copy.equals(form));
+    }
+
+    /**
+     * Compare structural copy against serialization round trip on a deep
+     * form hierarchy.
+     */
+    private static void benchmark(FormArchitect forms, int depth, int breadth, int iterations)
+    {
+        Form form = create(depth, breadth, 0);
+        int count = count(form);
+
+        for (int i = 0; i < 20; i++)
+        {
+            form.copy();
+            forms.fromData(forms.toData(form));
+        }
+
+        long time = System.nanoTime();
+
+        for (int i = 0; i < iterations; i++)
+        {
+            forms.fromData(forms.toData(form));
+        }
+
+        long serialization = System.nanoTime() - time;
+
+        time = System.nanoTime();
+
+        for (int i = 0; i < iterations; i++)
+        {
+            form.copy();
+        }
+
+        long structural = System.nanoTime() - time;
+
+        System.out.println("Copying " + count + " nested forms: serialization " + serialization / iterations / 1000 + " us, structural " + structural / iterations / 1000 + " us");
+
+        Assert.assrt(structural < serialization);
+    }
+
+    /**
+     * Create a model form with given depth of body parts, where every
+     * level has model and label forms.
+     */
+    private static Form create(int depth, int breadth, int index)
+    {
+        if (depth == 0)
+        {
+            LabelForm label = new LabelForm();
+
+            label.text.set("Label " + index);
+            label.color.set(new Color(0.25F, 0.5F, 0.75F, 1F));
+            label.max.set(index);
+
+            return label;
+        }
+
+        ModelForm model = new ModelForm();
+
+        model.model.set("model_" + depth);
+        model.texture.set(Link.assets("textures/" + index + ".png"));
+        model.color.set(new Color(0.5F, 1F, 1F, 1F));
+        model.pose.get().get("head").translate.x = 1;
+        model.pose.get().get("body").rotate.y = index;
+        model.transform.get().scale.set(2F);
+
+        for (int i = 0; i < breadth; i++)
+        {
+            BodyPart part = new BodyPart();
+
+            part.bone = "bone_" + i;
+            part.useTarget = i % 2 == 0;
+            part.getTransform().rotate.z = i;
+            part.setForm(create(i == 1 ? 0 : depth - 1, breadth, i));
+            model.parts.addBodyPart(part);
+        }
+
+        return model;
+    }
+
+    private static int count(Form form)
+    {
+        int count = 1;
+
+        for (BodyPart part : form.parts.getAll())
+        {
+            if (part.getForm() != null)
+            {
+                count += count(part.getForm());
+            }
+        }
+
+        return count;
+    }
+}
@@ -0,0 +1,13 @@
+package mchorse.bbs_mod.forms;
+
+import org.joml.Vector3f;
+
+public interface IBounded
+{
+    /**
+     * Get local space bounds of what gets rendered (form's own transform
+     * isn't included). Returns false if they aren't known, i.e. when the
+     * model is still loading.
+     */
+    public boolean getBounds(Vector3f min, Vector3f max);
+}
@@ -5,4 +5,13 @@ import mchorse.bbs_mod.forms.entities.IEntity;
 public interface ITickable
 {
     public void tick(IEntity entity);
+
+    /**
+     * Whether ticking changes anything, i.e. whether there is anything to
+     * animate.
+     */
+    public default boolean isAnimated()
+    {
+        return true;
+    }
 }
\ No newline at end of file
@@ -33,6 +33,8 @@ public class BodyPart implements IMapSerializable
     {
         this.manager = manager;
 
+        BodyPartManager.markDirty();
+
         if (this.form != null)
         {
             this.form.setParent(manager == null ? null : manager.getOwner());
@@ -58,6 +60,8 @@ public class BodyPart implements IMapSerializable
 
         this.form = form;
 
+        BodyPartManager.markDirty();
+
         if (this.form != null && this.manager != null)
         {
             this.form.setParent(this.manager.getOwner());
@@ -83,11 +87,19 @@ public class BodyPart implements IMapSerializable
     {
         BodyPart part = new BodyPart();
 
-        part.fromData(this.toData());
+        part.copy(this);
 
         return part;
     }
 
+    public void copy(BodyPart part)
+    {
+        this.setForm(FormUtils.copy(part.form));
+        this.transform.copy(part.transform);
+        this.bone = part.bone;
+        this.useTarget = part.useTarget;
+    }
+
     @Override
     public boolean equals(Object obj)
     {
@@ -21,6 +21,22 @@ public class BodyPartManager implements IMapSerializable
 
     private final List<BodyPart> parts = new ArrayList<>();
 
+    /**
+     * Incremented whenever any body part hierarchy changes, so caches that
+     * depend on property paths know when to resolve them again.
+     */
+    private static int version;
+
+    public static int getVersion()
+    {
+        return version;
+    }
+
+    static void markDirty()
+    {
+        version += 1;
+    }
+
     public BodyPartManager(Form owner)
     {
         this.owner = owner;
@@ -64,6 +80,22 @@ public class BodyPartManager implements IMapSerializable
         if (this.parts.remove(part))
         {
             this.parts.add(index, part);
+            markDirty();
+        }
+    }
+
+    public void copy(BodyPartManager manager)
+    {
+        for (BodyPart part : this.parts)
+        {
+            part.setManager(null);
+        }
+
+        this.parts.clear();
+
+        for (BodyPart part : manager.parts)
+        {
+            this.addBodyPart(part.copy());
         }
     }
 
@@ -239,13 +239,81 @@ public abstract class Form implements IMapSerializable, IValueNotifier
         }
     }
 
+    /**
+     * Whether this form (or any of its body parts) changes when it gets
+     * updated, i.e. it has animation states or its renderer has something
+     * to animate.
+     */
+    public boolean isAnimated()
+    {
+        if (!this.states.getAll().isEmpty())
+        {
+            return true;
+        }
+
+        if (this.renderer instanceof ITickable tickable && tickable.isAnimated())
+        {
+            return true;
+        }
+
+        for (BodyPart part : this.parts.getAll())
+        {
+            if (part.getForm() != null && part.getForm().isAnimated())
+            {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
     /* Data comparison and (de)serialization */
 
     public final Form copy()
     {
-        FormArchitect forms = BBSMod.getForms();
+        Form form;
 
-        return forms.fromData(forms.toData(this));
+        try
+        {
+            form = this.getClass().getConstructor().newInstance();
+        }
+        catch (Exception e)
+        {
+            FormArchitect forms = BBSMod.getForms();
+
+            return forms.fromData(forms.toData(this));
+        }
+
+        form.copy(this);
+
+        return form;
+    }
+
+    /**
+     * Copy given form (of the same type) into this form directly, value by
+     * value, without building its data tree and parsing it back. Subclasses
+     * that keep extra data outside of registered properties have to copy
+     * it too.
+     */
+    public void copy(Form form)
+    {
+        this.parts.copy(form.parts);
+
+        if (!this.states.getAll().isEmpty() || !form.states.getAll().isEmpty())
+        {
+            this.states.removeAll();
+            this.states.fromData(form.states.toData());
+        }
+
+        for (BaseValueBasic property : this.properties.values())
+        {
+            BaseValueBasic value = form.properties.get(property.getId());
+
+            if (value != null)
+            {
+                property.copy(value);
+            }
+        }
     }
 
     @Override
@@ -50,6 +50,24 @@ public class ModelForm extends Form
         return result;
     }
 
+    @Override
+    public void copy(Form form)
+    {
+        super.copy(form);
+
+        if (form instanceof ModelForm modelForm)
+        {
+            if (modelForm.triggers.triggers.isEmpty())
+            {
+                this.triggers.triggers.clear();
+            }
+            else
+            {
+                this.triggers.fromData(modelForm.triggers.toData());
+            }
+        }
+    }
+
     @Override
     public String getDefaultDisplayName()
     {
@@ -1,7 +1,6 @@
 package mchorse.bbs_mod.items;
 
 import mchorse.bbs_mod.utils.MathUtils;
-import mchorse.bbs_mod.utils.interps.IInterp;
 import mchorse.bbs_mod.utils.interps.Interpolation;
 
 public class GunZoom
@@ -22,7 +21,7 @@ public class GunZoom
 
     public float getFOV(float initialFOV)
     {
-        return (float) this.interp.interpolate(IInterp.context.set(this.targetFOV, initialFOV, MathUtils.clamp(this.factor / (float) this.duration, 0F, 1F)));
+        return (float) this.interp.interpolate(this.targetFOV, initialFOV, MathUtils.clamp(this.factor / (float) this.duration, 0F, 1F));
     }
 
     public void update(boolean pressed, float delta)
@@ -0,0 +1,289 @@
+package mchorse.bbs_mod.resources;
+
+import mchorse.bbs_mod.utils.StringUtils;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Asset index
+ *
+ * In-memory tree of folders and files of a source pack, which allows to
+ * list a folder (directly or recursively) without touching the source pack.
+ * Paths are relative to source pack's root, separated by "/", and folder
+ * paths may end with "/".
+ */
+public class AssetIndex
+{
+    private static final int VERSION = 1;
+
+    protected Folder root = new Folder();
+
+    private static String[] split(String path)
+    {
+        path = trim(path);
+
+        return path.isEmpty() ? new String[0] : path.split("/");
+    }
+
+    protected static String trim(String path)
+    {
+        int start = 0;
+        int end = path.length();
+
+        while (start < end && path.charAt(start) == '/')
+        {
+            start += 1;
+        }
+
+        while (end > start && path.charAt(end - 1) == '/')
+        {
+            end -= 1;
+        }
+
+        return path.substring(start, end);
+    }
+
+    /**
+     * Add a file, or a folder if the path ends with "/". Missing parent
+     * folders are created.
+     */
+    public synchronized void add(String path)
+    {
+        boolean folder = path.endsWith("/");
+        String[] segments = split(path);
+        Folder current = this.root;
+
+        for (int i = 0; i < segments.length; i++)
+        {
+            String segment = segments[i];
+
+            if (i == segments.length - 1 && !folder)
+            {
+                current.files.add(segment);
+            }
+            else
+            {
+                current = current.folders.computeIfAbsent(segment, (k) -> new Folder());
+            }
+        }
+    }
+
+    /**
+     * Remove a file or a folder (along with its content).
+     */
+    public synchronized void remove(String path)
+    {
+        String[] segments = split(path);
+
+        if (segments.length == 0)
+        {
+            this.clear();
+
+            return;
+        }
+
+        Folder parent = this.getFolder(segments, segments.length - 1, false);
+
+        if (parent != null)
+        {
+            String name = segments[segments.length - 1];
+
+            parent.files.remove(name);
+            parent.folders.remove(name);
+        }
+    }
+
+    public synchronized void clear()
+    {
+        this.root = new Folder();
+    }
+
+    /**
+     * Amount of files and folders in the index.
+     */
+    public synchronized int size()
+    {
+        return this.root.count();
+    }
+
+    /**
+     * Add links of files and folders within given folder (like
+     * {@link ISourcePack#getLinksFromPath(Collection, Link, boolean)}).
+     */
+    public synchronized void getLinks(Collection<Link> links, String source, String path, boolean recursive)
+    {
+        path = trim(path);
+
+        Folder folder = this.getFolder(split(path), -1, true);
+
+        if (folder != null)
+        {
+            this.collect(links, source, path, folder, recursive);
+        }
+    }
+
+    private void collect(Collection<Link> links, String source, String path, Folder folder, boolean recursive)
+    {
+        for (String file : folder.files)
+        {
+            links.add(new Link(source, StringUtils.combinePaths(path, file)));
+        }
+
+        for (Map.Entry<String, Folder> entry : folder.folders.entrySet())
+        {
+            String childPath = StringUtils.combinePaths(path, entry.getKey());
+
+            if (recursive)
+            {
+                Folder child = entry.getValue();
+
+                this.validate(child, childPath);
+                this.collect(links, source, childPath, child, true);
+            }
+
+            links.add(new Link(source, childPath + "/"));
+        }
+    }
+
+    /**
+     * Find a folder.
+     *
+     * @param length amount of segments to use, or -1 to use all of them.
+     * @param validate whether folders on the way should be validated.
+     */
+    protected Folder getFolder(String[] segments, int length, boolean validate)
+    {
+        Folder folder = this.root;
+        StringBuilder path = new StringBuilder();
+
+        length = length < 0 ? segments.length : length;
+
+        if (validate)
+        {
+            this.validate(folder, "");
+        }
+
+        for (int i = 0; i < length && folder != null; i++)
+        {
+            folder = folder.folders.get(segments[i]);
+
+            if (i > 0)
+            {
+                path.append('/');
+            }
+
+            path.append(segments[i]);
+
+            if (validate && folder != null)
+            {
+                this.validate(folder, path.toString());
+            }
+        }
+
+        return folder;
+    }
+
+    protected Folder getFolder(String path)
+    {
+        return this.getFolder(split(path), -1, false);
+    }
+
+    /**
+     * Make sure given folder's content is up to date before it's used.
+     * Static indices (like ones built from zip files) don't need to do
+     * anything.
+     */
+    protected void validate(Folder folder, String path)
+    {}
+
+    /* Persistence */
+
+    public synchronized void write(DataOutputStream stream) throws IOException
+    {
+        stream.writeInt(VERSION);
+        this.root.write(stream);
+    }
+
+    public synchronized void read(DataInputStream stream) throws IOException
+    {
+        if (stream.readInt() != VERSION)
+        {
+            throw new IOException("Unsupported asset index version!");
+        }
+
+        Folder root = new Folder();
+
+        root.read(stream);
+
+        this.root = root;
+    }
+
+    protected static class Folder
+    {
+        public Map<String, Folder> folders = new HashMap<>();
+        public Set<String> files = new HashSet<>();
+
+        /**
+         * Version of the content (e.g. folder's modification time), or -1
+         * if the content has to be refreshed.
+         */
+        public long stamp = -1;
+
+        public int count()
+        {
+            int count = this.files.size() + this.folders.size();
+
+            for (Folder folder : this.folders.values())
+            {
+                count += folder.count();
+            }
+
+            return count;
+        }
+
+        public void write(DataOutputStream stream) throws IOException
+        {
+            stream.writeLong(this.stamp);
+            stream.writeInt(this.files.size());
+
+            for (String file : this.files)
+            {
+                stream.writeUTF(file);
+            }
+
+            stream.writeInt(this.folders.size());
+
+            for (Map.Entry<String, Folder> entry : this.folders.entrySet())
+            {
+                stream.writeUTF(entry.getKey());
+                entry.getValue().write(stream);
+            }
+        }
+
+        public void read(DataInputStream stream) throws IOException
+        {
+            this.stamp = stream.readLong();
+
+            for (int i = 0, c = stream.readInt(); i < c; i++)
+            {
+                this.files.add(stream.readUTF());
+            }
+
+            for (int i = 0, c = stream.readInt(); i < c; i++)
+            {
+                String name = stream.readUTF();
+                Folder folder = new Folder();
+
+                folder.read(stream);
+                this.folders.put(name, folder);
+            }
+        }
+    }
+}
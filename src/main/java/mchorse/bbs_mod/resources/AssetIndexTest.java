@@ -0,0 +1,234 @@
+package mchorse.bbs_mod.resources;
+
+import com.ibm.icu.impl.Assert;
+import mchorse.bbs_mod.resources.packs.ExternalAssetsSourcePack;
+import mchorse.bbs_mod.utils.watchdog.WatchDogEvent;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.stream.Stream;
+
+public class AssetIndexTest
+{
+    public static void main(String[] args) throws IOException
+    {
+        testIndex();
+
+        File folder = Files.createTempDirectory("bbs_assets").toFile();
+
+        try
+        {
+            testFiles(folder);
+            benchmark(new File(folder, "benchmark"), 500, 100);
+        }
+        finally
+        {
+            delete(folder);
+        }
+    }
+
+    private static void testIndex()
+    {
+        AssetIndex index = new AssetIndex();
+
+        index.add("textures/");
+        index.add("textures/steve.png");
+        index.add("textures/blocks/stone.png");
+        index.add("models/cat/model.bbmodel");
+
+        Assert.assrt(index.size() == 7);
+        Assert.assrt(links(index, "", false).equals(set("textures/", "models/")));
+        Assert.assrt(links(index, "textures", false).equals(set("textures/steve.png", "textures/blocks/")));
+        Assert.assrt(links(index, "textures/", true).equals(set("textures/steve.png", "textures/blocks/", "textures/blocks/stone.png")));
+        Assert.assrt(links(index, "", true).size() == 7);
+
+        /* Files and missing folders don't have any content */
+        Assert.assrt(links(index, "textures/steve.png", true).isEmpty());
+        Assert.assrt(links(index, "sounds", true).isEmpty());
+
+        index.remove("textures/blocks/");
+
+        Assert.assrt(links(index, "textures", true).equals(set("textures/steve.png")));
+    }
+
+    private static void testFiles(File folder) throws IOException
+    {
+        File root = new File(folder, "assets");
+
+        write(new File(root, "textures/steve.png"));
+        write(new File(root, "textures/blocks/stone.png"));
+        write(new File(root, "models/cat/model.bbmodel"));
+        new File(root, "empty").mkdirs();
+
+        FileAssetIndex index = new FileAssetIndex(root);
+
+        /* Same result as scanning the folder */
+        for (String path : new String[] {"", "textures", "textures/", "models/cat", "missing"})
+        {
+            for (boolean recursive : new boolean[] {false, true})
+            {
+                Assert.assrt(links(index, path, recursive).equals(scan(root, path, recursive)));
+            }
+        }
+
+        /* Nothing changed, so nothing gets listed again */
+        int listed = index.getListed();
+
+        links(index, "", true);
+
+        Assert.assrt(index.getListed() == listed);
+
+        /* Added file is picked up, because folder's modification time changed */
+        File textures = new File(root, "textures");
+
+        textures.setLastModified(textures.lastModified() - 10000);
+        index.invalidate("textures");
+        links(index, "textures", false);
+        write(new File(textures, "alex.png"));
+
+        Assert.assrt(links(index, "textures", false).contains(new Link(Link.ASSETS, "textures/alex.png")));
+
+        /* Watch dog events invalidate folders too (even if the modification
+         * time didn't change) */
+        File model = new File(root, "models/cat/model.bbmodel");
+        File cat = model.getParentFile();
+        long stamp = cat.lastModified();
+
+        model.delete();
+        cat.setLastModified(stamp);
+
+        Assert.assrt(links(index, "models", true).contains(new Link(Link.ASSETS, "models/cat/model.bbmodel")));
+
+        index.accept(model.toPath(), WatchDogEvent.DELETED);
+
+        Assert.assrt(links(index, "models", true).equals(set("models/cat/")));
+
+        /* Saved index is reused without listing folders */
+        File saved = new File(folder, "assets.index");
+
+        index.save(saved);
+
+        FileAssetIndex loaded = new FileAssetIndex(root);
+
+        loaded.load(saved);
+
+        Assert.assrt(links(loaded, "", true).equals(scan(root, "", true)));
+        Assert.assrt(loaded.getListed() == 0);
+
+        /* Corrupted index is ignored */
+        Files.write(saved.toPath(), new byte[] {1, 2, 3});
+
+        FileAssetIndex corrupted = new FileAssetIndex(root);
+
+        corrupted.load(saved);
+
+        Assert.assrt(links(corrupted, "", true).equals(scan(root, "", true)));
+    }
+
+    /**
+     * Compare scanning a big asset folder with listing it from the index.
+     */
+    private static void benchmark(File root, int folders, int files) throws IOException
+    {
+        for (int i = 0; i < folders; i++)
+        {
+            File folder = new File(root, "textures/pack_" + (i % 10) + "/folder_" + i);
+
+            folder.mkdirs();
+
+            for (int j = 0; j < files; j++)
+            {
+                new File(folder, "texture_" + j + ".png").createNewFile();
+            }
+        }
+
+        long time = System.nanoTime();
+        Set<Link> scanned = scan(root, "", true);
+        long scan = System.nanoTime() - time;
+
+        FileAssetIndex index = new FileAssetIndex(root);
+
+        time = System.nanoTime();
+        links(index, "", true);
+        long first = System.nanoTime() - time;
+
+        time = System.nanoTime();
+        Set<Link> indexed = links(index, "", true);
+        long second = System.nanoTime() - time;
+
+        File saved = new File(root.getParentFile(), "benchmark.index");
+        FileAssetIndex loaded = new FileAssetIndex(root);
+
+        index.save(saved);
+
+        time = System.nanoTime();
+        loaded.load(saved);
+        links(loaded, "", true);
+        long restored = System.nanoTime() - time;
+
+        System.out.println(scanned.size() + " assets: scan " + scan / 1_000_000 + " ms, first index query " + first / 1_000_000 + " ms, next query " + second / 1_000_000 + " ms, loaded from disk " + restored / 1_000_000 + " ms");
+
+        Assert.assrt(indexed.equals(scanned));
+        Assert.assrt(scanned.size() == folders * files + folders + 10 + 1);
+        Assert.assrt(loaded.getListed() == 0);
+        Assert.assrt(second < scan);
+    }
+
+    private static Set<Link> links(AssetIndex index, String path, boolean recursive)
+    {
+        Set<Link> links = new HashSet<>();
+
+        index.getLinks(links, Link.ASSETS, path, recursive);
+
+        return links;
+    }
+
+    /**
+     * Old way of listing assets (by walking the folder every time).
+     */
+    private static Set<Link> scan(File root, String path, boolean recursive)
+    {
+        Set<Link> links = new HashSet<>();
+        File folder = new File(root, path);
+
+        if (folder.isDirectory())
+        {
+            path = path.endsWith("/") ? path.substring(0, path.length() - 1) : path;
+
+            ExternalAssetsSourcePack.getLinksFromPathRecursively(folder, links, Link.assets(path), path, recursive ? 9999 : 1);
+        }
+
+        return links;
+    }
+
+    private static Set<Link> set(String... paths)
+    {
+        Set<Link> links = new HashSet<>();
+
+        for (String path : paths)
+        {
+            links.add(Link.assets(path));
+        }
+
+        return links;
+    }
+
+    private static void write(File file) throws IOException
+    {
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), new byte[] {0});
+    }
+
+    private static void delete(File folder) throws IOException
+    {
+        try (Stream<Path> paths = Files.walk(folder.toPath()))
+        {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package mchorse.bbs_mod.resources;
+
+import mchorse.bbs_mod.utils.watchdog.IWatchDogListener;
+import mchorse.bbs_mod.utils.watchdog.WatchDogEvent;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * File asset index
+ *
+ * Asset index of a folder on the disk. Folders are listed lazily, and each
+ * folder remembers its modification time, so a folder gets listed again
+ * only when a file was added, removed or renamed directly in it (which
+ * takes a single stat call per folder to find out, instead of listing the
+ * whole tree). Watch dog events invalidate affected folders as well, which
+ * covers file systems with coarse modification times.
+ *
+ * The index can be saved to and loaded from the disk, so folders that
+ * didn't change between game sessions don't have to be listed at all.
+ */
+public class FileAssetIndex extends AssetIndex implements IWatchDogListener
+{
+    private final File folder;
+
+    /* Statistics */
+    private int listed;
+
+    public FileAssetIndex(File folder)
+    {
+        this.folder = folder;
+    }
+
+    public File getFolder()
+    {
+        return this.folder;
+    }
+
+    /**
+     * Amount of folders that were listed on the disk.
+     */
+    public synchronized int getListed()
+    {
+        return this.listed;
+    }
+
+    @Override
+    protected void validate(Folder folder, String path)
+    {
+        File directory = path.isEmpty() ? this.folder : new File(this.folder, path);
+        long stamp = directory.lastModified();
+
+        if (stamp == folder.stamp)
+        {
+            return;
+        }
+
+        File[] files = directory.listFiles();
+        Map<String, Folder> folders = new HashMap<>();
+        Set<String> names = new HashSet<>();
+
+        if (files != null)
+        {
+            for (File file : files)
+            {
+                String name = file.getName();
+
+                if (file.isDirectory())
+                {
+                    /* Keep subfolders that are already indexed */
+                    Folder child = folder.folders.get(name);
+
+                    folders.put(name, child == null ? new Folder() : child);
+                }
+                else
+                {
+                    names.add(name);
+                }
+            }
+        }
+
+        folder.stamp = stamp;
+        folder.folders = folders;
+        folder.files = names;
+
+        this.listed += 1;
+    }
+
+    /**
+     * Mark given path's parent folder (and the folder itself, if it's an
+     * indexed folder) as out of date.
+     */
+    public synchronized void invalidate(String path)
+    {
+        path = trim(path);
+
+        Folder folder = this.getFolder(path);
+
+        if (folder != null)
+        {
+            folder.stamp = -1;
+        }
+
+        int slash = path.lastIndexOf('/');
+        Folder parent = this.getFolder(slash < 0 ? "" : path.substring(0, slash));
+
+        if (parent != null)
+        {
+            parent.stamp = -1;
+        }
+    }
+
+    @Override
+    public void accept(Path path, WatchDogEvent event)
+    {
+        Path relative = this.folder.toPath().toAbsolutePath().relativize(path.toAbsolutePath());
+
+        if (!relative.startsWith(".."))
+        {
+            this.invalidate(relative.toString().replace('\\', '/'));
+        }
+    }
+
+    /* Persistence */
+
+    public void load(File file)
+    {
+        if (!file.isFile())
+        {
+            return;
+        }
+
+        try (DataInputStream stream = new DataInputStream(new BufferedInputStream(new FileInputStream(file))))
+        {
+            this.read(stream);
+        }
+        catch (Exception e)
+        {
+            System.err.println("Failed to load asset index from " + file + "!");
+
+            this.clear();
+        }
+    }
+
+    public void save(File file)
+    {
+        file.getParentFile().mkdirs();
+
+        try (DataOutputStream stream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file))))
+        {
+            this.write(stream);
+        }
+        catch (IOException e)
+        {
+            e.printStackTrace();
+        }
+    }
+}
@@ -1,22 +1,30 @@
 package mchorse.bbs_mod.resources.packs;
 
+import mchorse.bbs_mod.resources.FileAssetIndex;
 import mchorse.bbs_mod.resources.ISourcePack;
 import mchorse.bbs_mod.resources.Link;
 import mchorse.bbs_mod.utils.StringUtils;
+import mchorse.bbs_mod.utils.watchdog.IWatchDogListener;
+import mchorse.bbs_mod.utils.watchdog.WatchDogEvent;
 
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Path;
 import java.util.Collection;
 
-public class ExternalAssetsSourcePack implements ISourcePack
+public class ExternalAssetsSourcePack implements ISourcePack, IWatchDogListener
 {
     public final String source;
     public final File folder;
 
     private boolean providesFiles;
 
+    private final FileAssetIndex index;
+    private File indexFile;
+    private boolean indexLoaded;
+
     public static void getLinksFromPathRecursively(File folder, Collection<Link> links, Link link, String prefix, int i)
     {
         i -= 1;
@@ -45,6 +53,7 @@ public class ExternalAssetsSourcePack implements ISourcePack
     {
         this.source = source;
         this.folder = folder;
+        this.index = new FileAssetIndex(folder);
     }
 
     public File getFolder()
@@ -59,6 +68,39 @@ public class ExternalAssetsSourcePack implements ISourcePack
         return this;
     }
 
+    /**
+     * Persist file index in given file between game sessions.
+     */
+    public ExternalAssetsSourcePack cacheIndex(File indexFile)
+    {
+        this.indexFile = indexFile;
+
+        return this;
+    }
+
+    public FileAssetIndex getIndex()
+    {
+        if (!this.indexLoaded)
+        {
+            this.indexLoaded = true;
+
+            if (this.indexFile != null)
+            {
+                this.index.load(this.indexFile);
+            }
+        }
+
+        return this.index;
+    }
+
+    public void saveIndex()
+    {
+        if (this.indexFile != null && this.indexLoaded)
+        {
+            this.index.save(this.indexFile);
+        }
+    }
+
     @Override
     public String getPrefix()
     {
@@ -112,18 +154,12 @@ public class ExternalAssetsSourcePack implements ISourcePack
     @Override
     public void getLinksFromPath(Collection<Link> links, Link link, boolean recursive)
     {
-        File folder = this.getFileInternal(link);
-
-        if (folder.isDirectory())
-        {
-            String path = link.path;
-
-            if (path.endsWith("/"))
-            {
-                path = path.substring(0, path.length() - 1);
-            }
+        this.getIndex().getLinks(links, link.source, link.path, recursive);
+    }
 
-            getLinksFromPathRecursively(folder, links, link, path, recursive ? 9999 : 1);
-        }
+    @Override
+    public void accept(Path path, WatchDogEvent event)
+    {
+        this.index.accept(path, event);
     }
 }
\ No newline at end of file
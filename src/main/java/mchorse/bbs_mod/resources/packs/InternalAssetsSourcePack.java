@@ -1,9 +1,10 @@
 package mchorse.bbs_mod.resources.packs;
 
 import mchorse.bbs_mod.BBSMod;
+import mchorse.bbs_mod.resources.AssetIndex;
+import mchorse.bbs_mod.resources.FileAssetIndex;
 import mchorse.bbs_mod.resources.ISourcePack;
 import mchorse.bbs_mod.resources.Link;
-import mchorse.bbs_mod.utils.DataPath;
 import net.fabricmc.loader.api.FabricLoader;
 import net.fabricmc.loader.api.ModContainer;
 
@@ -12,10 +13,8 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
 import java.nio.file.Paths;
-import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Enumeration;
-import java.util.List;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 
@@ -27,7 +26,10 @@ public class InternalAssetsSourcePack implements ISourcePack
 
     private boolean isForge;
 
-    private List<String> zipCache = new ArrayList<>();
+    /* Zip files don't change while the game is running, so they're indexed
+     * only once, while folders (in development environment) get validated */
+    private AssetIndex zipIndex;
+    private FileAssetIndex folderIndex;
 
     public InternalAssetsSourcePack()
     {
@@ -191,9 +193,14 @@ public class InternalAssetsSourcePack implements ISourcePack
 
     private void getLinksFromFolder(File folder, Link link, Collection<Link> links, boolean recursive)
     {
-        File file = new File(folder, this.internalPrefix + "/" + link.path);
+        File file = new File(folder, this.internalPrefix);
 
-        ExternalAssetsSourcePack.getLinksFromPathRecursively(file, links, link, link.path, recursive ? 9999 : 1);
+        if (this.folderIndex == null || !this.folderIndex.getFolder().equals(file))
+        {
+            this.folderIndex = new FileAssetIndex(file);
+        }
+
+        this.folderIndex.getLinks(links, link.source, link.path, recursive);
     }
 
     /* Zip handling */
@@ -204,9 +211,12 @@ public class InternalAssetsSourcePack implements ISourcePack
          * Zip files can be big sometimes, so there is no point to
          * read the zip file every time...
          */
-        try (ZipFile zipFile = new ZipFile(file))
+        if (this.zipIndex == null)
         {
-            if (this.zipCache.isEmpty())
+            AssetIndex index = new AssetIndex();
+            String prefix = this.internalPrefix + "/";
+
+            try (ZipFile zipFile = new ZipFile(file))
             {
                 Enumeration<? extends ZipEntry> it = zipFile.entries();
 
@@ -214,45 +224,22 @@ public class InternalAssetsSourcePack implements ISourcePack
                 {
                     String name = it.nextElement().getName();
 
-                    if (name.startsWith(this.internalPrefix))
+                    if (name.startsWith(prefix) && name.length() > prefix.length())
                     {
-                        this.zipCache.add(name);
+                        index.add(name.substring(prefix.length()));
                     }
                 }
-            }
-        }
-        catch (IOException e)
-        {
-            e.printStackTrace();
-        }
-
-        this.handleLinksFromZipFile(link, links, recursive);
-    }
 
-    private void handleLinksFromZipFile(Link link, Collection<Link> links, boolean recursive)
-    {
-        DataPath assetsPath = new DataPath(this.internalPrefix + "/");
-
-        for (String zipName : this.zipCache)
-        {
-            DataPath zipPath = new DataPath(zipName);
-            DataPath fullPath = new DataPath(assetsPath + "/" + link.path);
-
-            if (!zipPath.equals(fullPath) && zipPath.startsWith(fullPath))
+                this.zipIndex = index;
+            }
+            catch (IOException e)
             {
-                for (int i = 0; i < assetsPath.size(); i++)
-                {
-                    zipPath.strings.remove(0);
-                    fullPath.strings.remove(0);
-                }
+                e.printStackTrace();
 
-                if (!recursive && zipPath.size() != fullPath.size() + 1)
-                {
-                    continue;
-                }
-
-                links.add(new Link(this.prefix, zipPath + (zipPath.folder ? "/" : "")));
+                return;
             }
         }
+
+        this.zipIndex.getLinks(links, this.prefix, link.path, recursive);
     }
-}
\ No newline at end of file
+}
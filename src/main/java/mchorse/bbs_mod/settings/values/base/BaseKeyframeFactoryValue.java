@@ -30,6 +30,25 @@ public class BaseKeyframeFactoryValue<T> extends BaseValueBasic<T>
         return super.equals(obj);
     }
 
+    /**
+     * Copy given value directly through the factory instead of serializing
+     * and parsing it again (immutable values get shared).
+     */
+    @Override
+    public void copy(BaseValue value, int flag)
+    {
+        if (value instanceof BaseKeyframeFactoryValue<?> property && property.factory == this.factory)
+        {
+            this.preNotify(flag);
+            this.value = property.value == null ? null : this.factory.copy((T) property.value);
+            this.postNotify(flag);
+
+            return;
+        }
+
+        super.copy(value, flag);
+    }
+
     @Override
     public BaseType toData()
     {
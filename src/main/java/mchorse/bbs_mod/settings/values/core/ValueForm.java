@@ -3,6 +3,7 @@ package mchorse.bbs_mod.settings.values.core;
 import mchorse.bbs_mod.data.types.BaseType;
 import mchorse.bbs_mod.forms.FormUtils;
 import mchorse.bbs_mod.forms.forms.Form;
+import mchorse.bbs_mod.settings.values.base.BaseValue;
 import mchorse.bbs_mod.settings.values.base.BaseValueBasic;
 
 public class ValueForm extends BaseValueBasic<Form>
@@ -12,6 +13,21 @@ public class ValueForm extends BaseValueBasic<Form>
         super(id, null);
     }
 
+    @Override
+    public void copy(BaseValue value, int flag)
+    {
+        if (value instanceof ValueForm form)
+        {
+            this.preNotify(flag);
+            this.value = FormUtils.copy(form.value);
+            this.postNotify(flag);
+
+            return;
+        }
+
+        super.copy(value, flag);
+    }
+
     @Override
     public BaseType toData()
     {
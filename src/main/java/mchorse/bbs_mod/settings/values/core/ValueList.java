@@ -30,6 +30,15 @@ public abstract class ValueList <T extends BaseValue> extends BaseValueGroup
         value.setParent(this);
     }
 
+    /**
+     * Replace an element at given index (doesn't sync IDs).
+     */
+    public void set(int index, T value)
+    {
+        this.list.set(index, value);
+        value.setParent(this);
+    }
+
     public void add(int index, T value)
     {
         if (!CollectionUtils.inRange(this.list, index))
@@ -2,6 +2,7 @@ package mchorse.bbs_mod.settings.values.core;
 
 import mchorse.bbs_mod.data.types.BaseType;
 import mchorse.bbs_mod.data.types.StringType;
+import mchorse.bbs_mod.settings.values.base.BaseValue;
 import mchorse.bbs_mod.settings.values.base.BaseValueBasic;
 
 public class ValueString extends BaseValueBasic<String>
@@ -11,6 +12,21 @@ public class ValueString extends BaseValueBasic<String>
         super(id, defaultValue);
     }
 
+    @Override
+    public void copy(BaseValue value, int flag)
+    {
+        if (value instanceof ValueString string)
+        {
+            this.preNotify(flag);
+            this.value = string.value;
+            this.postNotify(flag);
+
+            return;
+        }
+
+        super.copy(value, flag);
+    }
+
     @Override
     public BaseType toData()
     {
@@ -172,6 +172,19 @@ public class Clips extends ValueGroup
         this.postNotify();
     }
 
+    /**
+     * Add many clips at once (syncing ids only once)
+     */
+    public void addClips(List<Clip> clips)
+    {
+        this.preNotify();
+
+        this.clips.addAll(clips);
+        this.sync();
+
+        this.postNotify();
+    }
+
     public void remove(Clip clip)
     {
         this.preNotify();
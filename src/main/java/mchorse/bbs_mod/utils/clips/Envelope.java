@@ -7,7 +7,6 @@ import mchorse.bbs_mod.settings.values.numeric.ValueBoolean;
 import mchorse.bbs_mod.settings.values.numeric.ValueFloat;
 import mchorse.bbs_mod.settings.values.core.ValueGroup;
 import mchorse.bbs_mod.settings.values.numeric.ValueInt;
-import mchorse.bbs_mod.utils.interps.IInterp;
 import mchorse.bbs_mod.utils.interps.Interpolation;
 import mchorse.bbs_mod.utils.interps.Interpolations;
 import mchorse.bbs_mod.utils.interps.Lerps;
@@ -97,7 +96,7 @@ public class Envelope extends ValueGroup
             float lowOut = this.getStartDuration(duration);
 
             envelope = Lerps.envelope(tick, this.getStartX(duration), lowOut, this.getEndDuration(duration), this.getEndX(duration));
-            envelope = (float) (tick <= lowOut ? this.pre : this.post).interpolate(IInterp.context.set(0, 1, envelope));
+            envelope = (float) (tick <= lowOut ? this.pre : this.post).interpolate(0, 1, envelope);
         }
 
         return envelope;
@@ -2,8 +2,6 @@ package mchorse.bbs_mod.utils.interps;
 
 public interface IInterp
 {
-    public static final InterpContext context = new InterpContext();
-
     public default boolean has(IInterp interp)
     {
         return this == interp;
@@ -11,14 +9,28 @@ public interface IInterp
 
     public default float interpolate(float a, float b, float x)
     {
-        return (float) this.interpolate(context.set(a, b, x));
+        return (float) this.interpolate(InterpContext.get().set(a, b, x));
     }
 
     public default double interpolate(double a, double b, double x)
     {
-        return this.interpolate(context.set(a, b, x));
+        return this.interpolate(InterpContext.get().set(a, b, x));
+    }
+
+    /**
+     * Interpolate between a and b with pre and post values (used by cubic
+     * and hermite interpolations) using the calling thread's context.
+     */
+    public default double interpolate(double a0, double a, double b, double b0, double x)
+    {
+        return this.interpolate(InterpContext.get().set(a0, a, b, b0, x));
     }
 
+    /**
+     * Interpolate using given context. Context instances are mutable, so
+     * they shouldn't be shared between threads, use either {@link InterpContext#get()}
+     * or a context owned by the caller.
+     */
     public double interpolate(InterpContext context);
 
     public String getKey();
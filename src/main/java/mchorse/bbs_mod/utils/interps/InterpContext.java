@@ -2,8 +2,17 @@ package mchorse.bbs_mod.utils.interps;
 
 import mchorse.bbs_mod.utils.interps.easings.EasingArgs;
 
+/**
+ * Interpolation context
+ *
+ * Holds the input values of a single interpolation. Every thread gets its
+ * own context through {@link #get()}, which allows evaluating keyframes,
+ * animations and camera clips from several threads at once.
+ */
 public class InterpContext
 {
+    private static final ThreadLocal<InterpContext> CONTEXT = ThreadLocal.withInitial(InterpContext::new);
+
     public double a;
     public double b;
     public double x;
@@ -15,6 +24,14 @@ public class InterpContext
     /* Extra variables */
     public final EasingArgs args = new EasingArgs();
 
+    /**
+     * Get current thread's interpolation context
+     */
+    public static InterpContext get()
+    {
+        return CONTEXT.get();
+    }
+
     public InterpContext set(double a, double b, double x)
     {
         return this.set(a, a, b, b, x);
@@ -0,0 +1,117 @@
+package mchorse.bbs_mod.utils.interps;
+
+import com.ibm.icu.impl.Assert;
+import mchorse.bbs_mod.utils.keyframes.factories.KeyframeFactories;
+import mchorse.bbs_mod.utils.pose.Transform;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class InterpContextTest
+{
+    private static final int SAMPLES = 2000;
+    private static final int THREADS = 8;
+    private static final int RUNS = 32;
+
+    public static void main(String[] args) throws Exception
+    {
+        double[] expected = evaluate();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<double[]>> futures = new ArrayList<>();
+
+        try
+        {
+            for (int i = 0; i < RUNS; i++)
+            {
+                futures.add(executor.submit(InterpContextTest::evaluate));
+            }
+
+            for (Future<double[]> future : futures)
+            {
+                double[] result = future.get();
+
+                for (int i = 0; i < expected.length; i++)
+                {
+                    if (Double.doubleToLongBits(expected[i]) != Double.doubleToLongBits(result[i]))
+                    {
+                        Assert.fail("Parallel interpolation result " + i + " differs: " + result[i] + " != " + expected[i]);
+                    }
+                }
+            }
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+
+        testOwnContext();
+    }
+
+    /**
+     * Evaluate every registered interpolation (with and without extra
+     * arguments), float keyframes and transform keyframes over a range of
+     * inputs.
+     */
+    private static double[] evaluate()
+    {
+        List<Double> values = new ArrayList<>();
+        Transform preA = transform(-1F);
+        Transform a = transform(0F);
+        Transform b = transform(2F);
+        Transform postB = transform(5F);
+
+        for (IInterp interp : Interpolations.MAP.values())
+        {
+            for (int i = 0; i <= SAMPLES; i++)
+            {
+                float x = i / (float) SAMPLES;
+
+                values.add(interp.interpolate(-3D, 1D, 4D, 9D, x));
+                values.add(interp.interpolate(InterpContext.get().set(0D, 10D, x).extra(3D, 0.5D, 1D, 0D)));
+                values.add((double) KeyframeFactories.FLOAT.interpolate(-1F, 0F, 1F, 3F, interp, x));
+
+                Transform transform = KeyframeFactories.TRANSFORM.interpolate(preA, a, b, postB, interp, x);
+
+                values.add((double) transform.translate.x);
+                values.add((double) transform.rotate.y);
+                values.add((double) transform.scale.z);
+            }
+        }
+
+        double[] array = new double[values.size()];
+
+        for (int i = 0; i < array.length; i++)
+        {
+            array[i] = values.get(i);
+        }
+
+        return array;
+    }
+
+    private static void testOwnContext()
+    {
+        InterpContext context = new InterpContext();
+
+        for (IInterp interp : Interpolations.MAP.values())
+        {
+            double a = interp.interpolate(context.set(-3D, 1D, 4D, 9D, 0.25D));
+            double b = interp.interpolate(-3D, 1D, 4D, 9D, 0.25D);
+
+            Assert.assrt(interp.getKey(), a == b);
+        }
+    }
+
+    private static Transform transform(float value)
+    {
+        Transform transform = new Transform();
+
+        transform.translate.set(value, value * 2F, -value);
+        transform.rotate.set(value * 0.5F, value, value * 1.5F);
+        transform.scale.set(1F + value, 1F, 1F - value);
+
+        return transform;
+    }
+}
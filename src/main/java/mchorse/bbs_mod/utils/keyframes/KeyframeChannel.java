@@ -9,8 +9,10 @@ import mchorse.bbs_mod.utils.interps.Interpolations;
 import mchorse.bbs_mod.utils.keyframes.factories.IKeyframeFactory;
 import mchorse.bbs_mod.utils.keyframes.factories.KeyframeFactories;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.function.IntFunction;
 
 /**
  * Keyframe channel
@@ -21,6 +23,7 @@ import java.util.List;
 public class KeyframeChannel <T> extends ValueList<Keyframe<T>>
 {
     private IKeyframeFactory<T> factory;
+    private int version;
 
     public KeyframeChannel(String id, IKeyframeFactory<T> factory)
     {
@@ -34,6 +37,33 @@ public class KeyframeChannel <T> extends ValueList<Keyframe<T>>
         return this.factory;
     }
 
+    /**
+     * Modification counter, which gets incremented every time this channel
+     * or any of its keyframes were changed. It's useful for caching data
+     * computed from keyframes (like graph curves).
+     */
+    public int getVersion()
+    {
+        return this.version;
+    }
+
+    /**
+     * Mark this channel as modified, this is needed for edits that change
+     * keyframes without notifying (like dragging keyframes in the editor).
+     */
+    public void markDirty()
+    {
+        this.version += 1;
+    }
+
+    @Override
+    public void postNotify(BaseValue value, int flag)
+    {
+        this.markDirty();
+
+        super.postNotify(value, flag);
+    }
+
     /* Read only */
 
     public double getLength()
@@ -61,6 +91,33 @@ public class KeyframeChannel <T> extends ValueList<Keyframe<T>>
         return this.has(index) ? this.list.get(index) : null;
     }
 
+    /**
+     * Find index of the first keyframe which is at or after given ticks
+     * using binary search. If all keyframes are before given ticks, then
+     * amount of keyframes is returned.
+     */
+    public int findIndex(float ticks)
+    {
+        int low = 0;
+        int high = this.list.size() - 1;
+
+        while (low <= high)
+        {
+            int mid = low + (high - low) / 2;
+
+            if (this.list.get(mid).getTick() < ticks)
+            {
+                low = mid + 1;
+            }
+            else
+            {
+                high = mid - 1;
+            }
+        }
+
+        return low;
+    }
+
     public KeyframeSegment<T> find(float ticks)
     {
         KeyframeSegment<T> segment = this.findSegment(ticks);
@@ -104,6 +161,16 @@ public class KeyframeChannel <T> extends ValueList<Keyframe<T>>
      * Find a keyframe segment at given ticks
      */
     public KeyframeSegment<T> findSegment(float ticks)
+    {
+        return this.findSegment(ticks, new KeyframeSegment<>());
+    }
+
+    /**
+     * Find a keyframe segment at given ticks, and fill it into given
+     * segment instead of allocating a new one. It's useful for code that
+     * samples the same channel every frame.
+     */
+    public KeyframeSegment<T> findSegment(float ticks, KeyframeSegment<T> segment)
     {
         /* No keyframes, no values */
         if (this.list.isEmpty())
@@ -117,14 +184,20 @@ public class KeyframeChannel <T> extends ValueList<Keyframe<T>>
 
         if (size == 1 || ticks < prev.getTick())
         {
-            return new KeyframeSegment<>(prev, prev);
+            segment.fill(this, prev, prev, 0);
+            segment.duration = segment.offset = segment.x = 0F;
+
+            return segment;
         }
 
         Keyframe<T> last = this.list.get(size - 1);
 
         if (ticks >= last.getTick())
         {
-            return new KeyframeSegment<>(last, last);
+            segment.fill(this, last, last, size - 1);
+            segment.duration = segment.offset = segment.x = 0F;
+
+            return segment;
         }
 
         /* Use binary search to find the proper segment */
@@ -153,9 +226,9 @@ public class KeyframeChannel <T> extends ValueList<Keyframe<T>>
             b = this.list.get(low);
         }
 
-        Keyframe<T> a = low - 1 >= 0 ? this.list.get(low - 1) : b;
-        KeyframeSegment<T> segment = new KeyframeSegment<>(a, b);
+        int index = low - 1 >= 0 ? low - 1 : low;
 
+        segment.fill(this, this.list.get(index), b, index);
         segment.setup(ticks);
 
         return segment;
@@ -283,6 +356,7 @@ public class KeyframeChannel <T> extends ValueList<Keyframe<T>>
         this.list.sort((a, b) -> (int) (a.getTick() - b.getTick()));
 
         this.sync();
+        this.markDirty();
     }
 
     public void simplify()
@@ -319,6 +393,178 @@ public class KeyframeChannel <T> extends ValueList<Keyframe<T>>
         this.postNotify();
     }
 
+    /**
+     * Reduce runs of densely sampled keyframes (linear keyframes placed
+     * every tick, like recorded ones) to fewer linear and bezier keyframes
+     * that stay within given error tolerance. Other keyframes are kept
+     * untouched. Only works with numeric channels.
+     */
+    public void reduce(double tolerance, KeyframeReducer.Report report)
+    {
+        if (this.factory != KeyframeFactories.DOUBLE && this.factory != KeyframeFactories.FLOAT)
+        {
+            return;
+        }
+
+        int size = this.list.size();
+        float[] ticks = new float[size];
+        double[] values = new double[size];
+
+        for (int i = 0; i < size; i++)
+        {
+            Keyframe<T> keyframe = this.list.get(i);
+
+            ticks[i] = keyframe.getTick();
+            values[i] = keyframe.getFactory().getY(keyframe.getValue());
+        }
+
+        List<Keyframe<T>> reduced = new ArrayList<>();
+        int i = 0;
+
+        while (i < size)
+        {
+            int j = i;
+
+            while (j + 1 < size && ticks[j + 1] - ticks[j] == 1F && this.isSample(j) && this.isSample(j + 1))
+            {
+                j += 1;
+            }
+
+            if (j - i < 2)
+            {
+                reduced.add(this.list.get(i));
+
+                i += 1;
+
+                continue;
+            }
+
+            this.reduceRun(reduced, ticks, values, i, j, tolerance, report, this::copySample);
+
+            i = j + 1;
+        }
+
+        if (reduced.size() == size)
+        {
+            return;
+        }
+
+        this.preNotify();
+        this.list.clear();
+        this.list.addAll(reduced);
+        this.sync();
+        this.postNotify();
+    }
+
+    /**
+     * Add samples recorded every tick (ticks have to be increasing and
+     * after existing keyframes), reduced the same way {@link #reduce(double, KeyframeReducer.Report)}
+     * would reduce them, but without creating a keyframe for every sample
+     * first. Only works with numeric channels.
+     */
+    public void addSamples(float[] ticks, double[] values, int count, double tolerance, KeyframeReducer.Report report)
+    {
+        if (this.factory != KeyframeFactories.DOUBLE && this.factory != KeyframeFactories.FLOAT)
+        {
+            return;
+        }
+
+        List<Keyframe<T>> reduced = new ArrayList<>();
+        IntFunction<Keyframe<T>> sample = (index) -> new Keyframe<>("", this.factory, ticks[index], (T) this.factory.yToValue(values[index]));
+        int i = 0;
+
+        while (i < count)
+        {
+            int j = i;
+
+            while (j + 1 < count && ticks[j + 1] - ticks[j] == 1F)
+            {
+                j += 1;
+            }
+
+            if (j - i < 2)
+            {
+                reduced.add(sample.apply(i));
+
+                i += 1;
+
+                continue;
+            }
+
+            this.reduceRun(reduced, ticks, values, i, j, tolerance, report, sample);
+
+            i = j + 1;
+        }
+
+        this.append(reduced);
+    }
+
+    /**
+     * Append given keyframes (which have to be sorted and come after
+     * existing keyframes) all at once.
+     */
+    public void append(List<Keyframe<T>> keyframes)
+    {
+        if (keyframes.isEmpty())
+        {
+            return;
+        }
+
+        this.preNotify();
+        this.list.addAll(keyframes);
+        this.sync();
+        this.postNotify();
+    }
+
+    private void reduceRun(List<Keyframe<T>> reduced, float[] ticks, double[] values, int from, int to, double tolerance, KeyframeReducer.Report report, IntFunction<Keyframe<T>> sample)
+    {
+        List<KeyframeReducer.Segment> segments = new ArrayList<>();
+
+        KeyframeReducer.reduce(ticks, values, from, to, tolerance, segments, report);
+
+        Keyframe<T> last = sample.apply(from);
+
+        reduced.add(last);
+
+        for (KeyframeReducer.Segment segment : segments)
+        {
+            Keyframe<T> next = sample.apply(segment.to);
+
+            if (segment.bezier)
+            {
+                last.getInterpolation().setInterp(Interpolations.BEZIER);
+                last.rx = segment.rx;
+                last.ry = segment.ry;
+                next.lx = segment.lx;
+                next.ly = segment.ly;
+            }
+
+            reduced.add(next);
+            last = next;
+        }
+    }
+
+    private boolean isSample(int index)
+    {
+        Keyframe<T> keyframe = this.list.get(index);
+
+        return keyframe.getDuration() == 0F && keyframe.getInterpolation().getInterp() == Interpolations.LINEAR;
+    }
+
+    /**
+     * Copy of a keyframe that isn't attached to this channel yet, so
+     * changing it doesn't send notifications.
+     */
+    private Keyframe<T> copySample(int index)
+    {
+        Keyframe<T> keyframe = this.list.get(index);
+        Keyframe<T> copy = new Keyframe<>("", this.factory);
+
+        copy.copy(keyframe);
+
+        return copy;
+    }
+
     public void moveX(float offset)
     {
         this.preNotify();
@@ -0,0 +1,278 @@
+package mchorse.bbs_mod.utils.keyframes;
+
+import java.util.List;
+
+/**
+ * Keyframe reducer
+ *
+ * Replaces densely sampled values (like ones recorded every tick) with as
+ * few segments as possible while keeping every sample within given error
+ * tolerance. Ranges get split Ramer-Douglas-Peucker style at the sample
+ * which deviates the most from the chord, and every range is first tried
+ * as a linear segment, and then as a bezier segment whose tangents are
+ * fitted to the samples using least squares.
+ *
+ * Errors are measured by evaluating segments the same way keyframe
+ * channels do during playback, so the tolerance holds for the keyframes
+ * that actually get saved.
+ */
+public class KeyframeReducer
+{
+    /**
+     * Relative slack for floating point rounding (keyframes are evaluated
+     * with float factors), so zero tolerance still merges samples that lie
+     * exactly on a line.
+     */
+    public static final double EPSILON = 0.000001D;
+
+    /**
+     * Get actual tolerance used for samples between from and to indices,
+     * which includes rounding slack relative to their magnitude.
+     */
+    public static double getTolerance(double[] values, int from, int to, double tolerance)
+    {
+        double max = 1D;
+
+        for (int i = from; i <= to; i++)
+        {
+            max = Math.max(max, Math.abs(values[i]));
+        }
+
+        return Math.max(tolerance, 0D) + max * EPSILON;
+    }
+
+    /**
+     * Reduce samples between from and to indices (inclusive) into segments,
+     * which get appended to given list in order. Samples at from and to are
+     * always kept.
+     */
+    public static void reduce(float[] ticks, double[] values, int from, int to, double tolerance, List<Segment> segments, Report report)
+    {
+        int[] stack = new int[64];
+        int top = 0;
+        Segment fit = new Segment();
+
+        tolerance = getTolerance(values, from, to, tolerance);
+
+        report.samples += to - from + 1;
+        report.keyframes += 1;
+
+        stack[top++] = from;
+        stack[top++] = to;
+
+        while (top > 0)
+        {
+            int b = stack[--top];
+            int a = stack[--top];
+
+            fit.from = a;
+            fit.to = b;
+
+            /* Linear segment is preferred, as it's the cheapest one */
+            fit.bezier = false;
+
+            int split = evaluate(ticks, values, fit);
+
+            if (fit.maxError > tolerance && b - a >= 3)
+            {
+                fitTangents(ticks, values, fit);
+                evaluate(ticks, values, fit);
+            }
+
+            if (fit.maxError <= tolerance || b - a < 2)
+            {
+                Segment segment = fit.copy();
+
+                segments.add(segment);
+
+                report.keyframes += 1;
+                report.maxError = Math.max(report.maxError, segment.maxError);
+                report.errorSum += segment.errorSum;
+
+                continue;
+            }
+
+            if (top + 4 > stack.length)
+            {
+                int[] newStack = new int[stack.length * 2];
+
+                System.arraycopy(stack, 0, newStack, 0, top);
+                stack = newStack;
+            }
+
+            /* Right half goes first, so segments get added in order */
+            stack[top++] = split;
+            stack[top++] = b;
+            stack[top++] = a;
+            stack[top++] = split;
+        }
+    }
+
+    /**
+     * Compute errors of given segment, and return index of the sample that
+     * is the furthest from the linear chord.
+     */
+    private static int evaluate(float[] ticks, double[] values, Segment segment)
+    {
+        int a = segment.from;
+        int b = segment.to;
+        float duration = ticks[b] - ticks[a];
+        double y0 = values[a];
+        double y1 = values[b];
+        int split = (a + b) / 2;
+        double maxChord = -1;
+
+        segment.maxError = 0;
+        segment.errorSum = 0;
+
+        for (int i = a + 1; i < b; i++)
+        {
+            float x = (ticks[i] - ticks[a]) / duration;
+            double chord = y0 + (y1 - y0) * x;
+            double value = segment.bezier
+                ? BezierUtils.get(y0, y1, ticks[a], ticks[b], segment.rx, segment.ry, segment.lx, segment.ly, x)
+                : chord;
+            double error = Math.abs(value - values[i]);
+            double chordError = Math.abs(chord - values[i]);
+
+            segment.maxError = Math.max(segment.maxError, error);
+            segment.errorSum += error;
+
+            if (chordError > maxChord)
+            {
+                maxChord = chordError;
+                split = i;
+            }
+        }
+
+        return split;
+    }
+
+    /**
+     * Fit tangents at both ends of the segment, so the bezier curve (with
+     * handles at thirds, which makes it a cubic Hermite curve) passes as
+     * close as possible to the samples in between.
+     */
+    private static void fitTangents(float[] ticks, double[] values, Segment segment)
+    {
+        int a = segment.from;
+        int b = segment.to;
+        double w = ticks[b] - ticks[a];
+        double y0 = values[a];
+        double y1 = values[b];
+        double s00 = 0;
+        double s01 = 0;
+        double s11 = 0;
+        double r0 = 0;
+        double r1 = 0;
+
+        for (int i = a + 1; i < b; i++)
+        {
+            double t = (ticks[i] - ticks[a]) / w;
+            double t2 = t * t;
+            double t3 = t2 * t;
+            double h00 = 2 * t3 - 3 * t2 + 1;
+            double h01 = -2 * t3 + 3 * t2;
+            double h10 = (t3 - 2 * t2 + t) * w;
+            double h11 = (t3 - t2) * w;
+            double r = values[i] - h00 * y0 - h01 * y1;
+
+            s00 += h10 * h10;
+            s01 += h10 * h11;
+            s11 += h11 * h11;
+            r0 += h10 * r;
+            r1 += h11 * r;
+        }
+
+        double det = s00 * s11 - s01 * s01;
+        double m0;
+        double m1;
+
+        if (Math.abs(det) < 0.000000000001D)
+        {
+            m0 = m1 = (y1 - y0) / w;
+        }
+        else
+        {
+            m0 = (r0 * s11 - r1 * s01) / det;
+            m1 = (r1 * s00 - r0 * s01) / det;
+        }
+
+        segment.bezier = true;
+        segment.rx = (float) (w / 3);
+        segment.ry = (float) (m0 * w / 3);
+        segment.lx = (float) (w / 3);
+        segment.ly = (float) (-m1 * w / 3);
+    }
+
+    /**
+     * Reduced segment between two kept samples. Bezier handles belong to
+     * the keyframes at from (right handle) and to (left handle).
+     */
+    public static class Segment
+    {
+        public int from;
+        public int to;
+        public boolean bezier;
+        public float rx;
+        public float ry;
+        public float lx;
+        public float ly;
+
+        public double maxError;
+        public double errorSum;
+
+        public Segment copy()
+        {
+            Segment segment = new Segment();
+
+            segment.from = this.from;
+            segment.to = this.to;
+            segment.bezier = this.bezier;
+            segment.rx = this.rx;
+            segment.ry = this.ry;
+            segment.lx = this.lx;
+            segment.ly = this.ly;
+            segment.maxError = this.maxError;
+            segment.errorSum = this.errorSum;
+
+            return segment;
+        }
+    }
+
+    /**
+     * Statistics of a reduction, which can be accumulated over several
+     * ranges and channels.
+     */
+    public static class Report
+    {
+        public int samples;
+        public int keyframes;
+        public double maxError;
+        public double errorSum;
+
+        public double getMeanError()
+        {
+            return this.samples == 0 ? 0 : this.errorSum / this.samples;
+        }
+
+        public double getCompressionRatio()
+        {
+            return this.keyframes == 0 ? 1 : this.samples / (double) this.keyframes;
+        }
+
+        public void add(Report report)
+        {
+            this.samples += report.samples;
+            this.keyframes += report.keyframes;
+            this.maxError = Math.max(this.maxError, report.maxError);
+            this.errorSum += report.errorSum;
+        }
+
+        @Override
+        public String toString()
+        {
+            return this.samples + " samples -> " + this.keyframes + " keyframes (" + String.format("%.1f", this.getCompressionRatio()) + "x), max error " + String.format("%.5f", this.maxError) + ", mean error " + String.format("%.5f", this.getMeanError());
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package mchorse.bbs_mod.utils.keyframes;
+
+import com.ibm.icu.impl.Assert;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class KeyframeReducerTest
+{
+    public static void main(String[] args)
+    {
+        testLine();
+        testSteps();
+        testCurve();
+        testRecorded();
+        benchmark(20 * 60 * 30);
+    }
+
+    private static void testLine()
+    {
+        float[] ticks = ticks(100);
+        double[] values = new double[ticks.length];
+
+        for (int i = 0; i < values.length; i++)
+        {
+            values[i] = 5 + i * 0.25;
+        }
+
+        List<KeyframeReducer.Segment> segments = new ArrayList<>();
+        KeyframeReducer.Report report = reduce(ticks, values, 0D, segments);
+
+        /* A line is just two keyframes, even without any tolerance */
+        Assert.assrt(segments.size() == 1 && !segments.get(0).bezier);
+        Assert.assrt(report.samples == 100 && report.keyframes == 2);
+    }
+
+    private static void testSteps()
+    {
+        float[] ticks = ticks(60);
+        double[] values = new double[ticks.length];
+
+        for (int i = 0; i < values.length; i++)
+        {
+            values[i] = (i / 10) % 2;
+        }
+
+        List<KeyframeReducer.Segment> segments = new ArrayList<>();
+        KeyframeReducer.Report report = reduce(ticks, values, 0D, segments);
+
+        /* Toggled states are kept exactly, two keyframes per toggle */
+        Assert.assrt(report.maxError == 0 && report.keyframes == 12);
+
+        for (KeyframeReducer.Segment segment : segments)
+        {
+            Assert.assrt(!segment.bezier);
+        }
+    }
+
+    private static void testCurve()
+    {
+        float[] ticks = ticks(200);
+        double[] values = new double[ticks.length];
+
+        for (int i = 0; i < values.length; i++)
+        {
+            values[i] = Math.sin(i / 200D * Math.PI * 2) * 10;
+        }
+
+        List<KeyframeReducer.Segment> segments = new ArrayList<>();
+        KeyframeReducer.Report report = reduce(ticks, values, 0.01D, segments);
+        boolean bezier = false;
+
+        for (KeyframeReducer.Segment segment : segments)
+        {
+            bezier = bezier || segment.bezier;
+        }
+
+        /* Smooth curves need few bezier keyframes */
+        Assert.assrt(bezier && report.keyframes <= 8);
+
+        /* Lower tolerance never gives fewer keyframes */
+        KeyframeReducer.Report fine = reduce(ticks, values, 0.0001D, new ArrayList<>());
+
+        Assert.assrt(fine.keyframes >= report.keyframes && fine.maxError <= KeyframeReducer.getTolerance(values, 0, values.length - 1, 0.0001D));
+    }
+
+    /**
+     * Walking around with stops, jumps and sensor-like jitter, similar to
+     * what gets recorded from a player.
+     */
+    private static void testRecorded()
+    {
+        int count = 20 * 60;
+        float[] ticks = ticks(count);
+        double[] x = new double[count];
+        double[] y = new double[count];
+        double[] yaw = new double[count];
+        Random random = new Random(42);
+        double speed = 0;
+        double velocityY = 0;
+        double angle = 0;
+
+        for (int i = 1; i < count; i++)
+        {
+            boolean walking = (i / 80) % 3 != 2;
+
+            speed += ((walking ? 0.215 : 0) - speed) * 0.4;
+            angle += random.nextGaussian() * 0.8 + (i % 200 < 30 ? 3 : 0);
+            velocityY = y[i - 1] <= 64 && random.nextInt(60) == 0 ? 0.42 : velocityY - 0.08;
+
+            x[i] = x[i - 1] + Math.cos(Math.toRadians(angle)) * speed;
+            y[i] = Math.max(64, (i == 1 ? 64 : y[i - 1]) + velocityY);
+            yaw[i] = angle;
+
+            if (y[i] <= 64)
+            {
+                velocityY = 0;
+            }
+        }
+
+        y[0] = 64;
+
+        KeyframeReducer.Report total = new KeyframeReducer.Report();
+
+        total.add(reduce(ticks, x, 0.005D, new ArrayList<>()));
+        total.add(reduce(ticks, y, 0.005D, new ArrayList<>()));
+        total.add(reduce(ticks, yaw, 0.1D, new ArrayList<>()));
+
+        System.out.println("Recorded " + count + " ticks: " + total);
+
+        Assert.assrt(total.maxError <= 0.1D + 0.001D);
+        Assert.assrt(total.getMeanError() <= total.maxError);
+        Assert.assrt(total.getCompressionRatio() > 2);
+    }
+
+    private static void benchmark(int count)
+    {
+        float[] ticks = ticks(count);
+        double[] values = new double[count];
+        Random random = new Random(7);
+
+        for (int i = 1; i < count; i++)
+        {
+            values[i] = values[i - 1] + Math.sin(i / 50D) * 0.2 + random.nextGaussian() * 0.001;
+        }
+
+        long time = System.nanoTime();
+        KeyframeReducer.Report report = reduce(ticks, values, 0.005D, new ArrayList<>());
+
+        time = System.nanoTime() - time;
+
+        System.out.println("Reduced " + count + " samples in " + time / 1_000_000 + " ms: " + report);
+
+        Assert.assrt(report.maxError <= KeyframeReducer.getTolerance(values, 0, count - 1, 0.005D));
+    }
+
+    /**
+     * Reduce given samples, and check independently that every sample is
+     * within tolerance of reduced segments.
+     */
+    private static KeyframeReducer.Report reduce(float[] ticks, double[] values, double tolerance, List<KeyframeReducer.Segment> segments)
+    {
+        KeyframeReducer.Report report = new KeyframeReducer.Report();
+
+        KeyframeReducer.reduce(ticks, values, 0, ticks.length - 1, tolerance, segments, report);
+
+        tolerance = KeyframeReducer.getTolerance(values, 0, ticks.length - 1, tolerance);
+
+        Assert.assrt(segments.get(0).from == 0 && segments.get(segments.size() - 1).to == ticks.length - 1);
+        Assert.assrt(report.keyframes == segments.size() + 1);
+
+        int last = 0;
+
+        for (KeyframeReducer.Segment segment : segments)
+        {
+            Assert.assrt(segment.from == last && segment.to > segment.from);
+
+            for (int i = segment.from; i <= segment.to; i++)
+            {
+                float x = (ticks[i] - ticks[segment.from]) / (ticks[segment.to] - ticks[segment.from]);
+                double a = values[segment.from];
+                double b = values[segment.to];
+                double value = segment.bezier
+                    ? BezierUtils.get(a, b, ticks[segment.from], ticks[segment.to], segment.rx, segment.ry, segment.lx, segment.ly, x)
+                    : a + (b - a) * x;
+
+                Assert.assrt(Math.abs(value - values[i]) <= tolerance);
+            }
+
+            last = segment.to;
+        }
+
+        return report;
+    }
+
+    private static float[] ticks(int count)
+    {
+        float[] ticks = new float[count];
+
+        for (int i = 0; i < count; i++)
+        {
+            ticks[i] = i;
+        }
+
+        return ticks;
+    }
+}
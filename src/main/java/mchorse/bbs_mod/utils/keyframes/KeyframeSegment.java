@@ -35,13 +35,21 @@ public class KeyframeSegment <T>
     }
 
     public void fill(Keyframe<T> a, Keyframe<T> b)
+    {
+        KeyframeChannel<T> channel = (KeyframeChannel<T>) a.getParentValue();
+
+        this.fill(channel, a, b, channel.getKeyframes().indexOf(a));
+    }
+
+    /**
+     * Fill the segment with keyframes when the index of keyframe a is
+     * already known, which avoids a linear look up in the channel.
+     */
+    public void fill(KeyframeChannel<T> channel, Keyframe<T> a, Keyframe<T> b, int index)
     {
         this.a = a;
         this.b = b;
 
-        KeyframeChannel<T> channel = (KeyframeChannel<T>) a.getParentValue();
-        int index = channel.getKeyframes().indexOf(a);
-
         if (index >= 0)
         {
             Keyframe<T> preA = channel.get(index - 1);
@@ -6,7 +6,7 @@ import mchorse.bbs_mod.utils.interps.IInterp;
 
 public class AnchorKeyframeFactory implements IKeyframeFactory<Anchor>
 {
-    private Anchor i = new Anchor();
+    private final ThreadLocal<Anchor> i = ThreadLocal.withInitial(Anchor::new);
 
     @Override
     public Anchor fromData(BaseType data)
@@ -51,18 +51,20 @@ public class AnchorKeyframeFactory implements IKeyframeFactory<Anchor>
     @Override
     public Anchor interpolate(Anchor preA, Anchor a, Anchor b, Anchor postB, IInterp interpolation, float x)
     {
-        this.i.actor = b.actor;
-        this.i.attachment = b.attachment;
-        this.i.translate = b.translate;
-        this.i.scale = b.scale;
+        Anchor i = this.i.get();
 
-        this.i.previousActor = a.actor;
-        this.i.previousAttachment = a.attachment;
-        this.i.previousTranslate = a.translate;
-        this.i.previousScale = a.scale;
+        i.actor = b.actor;
+        i.attachment = b.attachment;
+        i.translate = b.translate;
+        i.scale = b.scale;
 
-        this.i.x = interpolation.interpolate(0F, 1F, x);
+        i.previousActor = a.actor;
+        i.previousAttachment = a.attachment;
+        i.previousTranslate = a.translate;
+        i.previousScale = a.scale;
 
-        return this.i;
+        i.x = interpolation.interpolate(0F, 1F, x);
+
+        return i;
     }
 }
\ No newline at end of file
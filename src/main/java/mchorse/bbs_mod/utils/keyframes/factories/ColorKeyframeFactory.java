@@ -9,7 +9,7 @@ import mchorse.bbs_mod.utils.interps.IInterp;
 
 public class ColorKeyframeFactory implements IKeyframeFactory<Color>
 {
-    private Color i = new Color();
+    private final ThreadLocal<Color> i = ThreadLocal.withInitial(Color::new);
 
     @Override
     public Color fromData(BaseType data)
@@ -43,11 +43,13 @@ public class ColorKeyframeFactory implements IKeyframeFactory<Color>
     @Override
     public Color interpolate(Color preA, Color a, Color b, Color postB, IInterp interpolation, float x)
     {
-        this.i.r = MathUtils.clamp((float) interpolation.interpolate(IInterp.context.set(preA.r, a.r, b.r, postB.r, x)), 0F, 1F);
-        this.i.g = MathUtils.clamp((float) interpolation.interpolate(IInterp.context.set(preA.g, a.g, b.g, postB.g, x)), 0F, 1F);
-        this.i.b = MathUtils.clamp((float) interpolation.interpolate(IInterp.context.set(preA.b, a.b, b.b, postB.b, x)), 0F, 1F);
-        this.i.a = MathUtils.clamp((float) interpolation.interpolate(IInterp.context.set(preA.a, a.a, b.a, postB.a, x)), 0F, 1F);
+        Color i = this.i.get();
 
-        return this.i;
+        i.r = MathUtils.clamp((float) interpolation.interpolate(preA.r, a.r, b.r, postB.r, x), 0F, 1F);
+        i.g = MathUtils.clamp((float) interpolation.interpolate(preA.g, a.g, b.g, postB.g, x), 0F, 1F);
+        i.b = MathUtils.clamp((float) interpolation.interpolate(preA.b, a.b, b.b, postB.b, x), 0F, 1F);
+        i.a = MathUtils.clamp((float) interpolation.interpolate(preA.a, a.a, b.a, postB.a, x), 0F, 1F);
+
+        return i;
     }
 }
\ No newline at end of file
@@ -53,7 +53,7 @@ public class DoubleKeyframeFactory implements IKeyframeFactory<Double>
     @Override
     public Double interpolate(Double preA, Double a, Double b, Double postB, IInterp interpolation, float x)
     {
-        return interpolation.interpolate(IInterp.context.set(preA, a, b, postB, x));
+        return interpolation.interpolate(preA, a, b, postB, x);
     }
 
     @Override
@@ -53,7 +53,7 @@ public class FloatKeyframeFactory implements IKeyframeFactory<Float>
     @Override
     public Float interpolate(Float preA, Float a, Float b, Float postB, IInterp interpolation, float x)
     {
-        return (float) interpolation.interpolate(IInterp.context.set(preA, a, b, postB, x));
+        return (float) interpolation.interpolate(preA, a, b, postB, x);
     }
 
     @Override
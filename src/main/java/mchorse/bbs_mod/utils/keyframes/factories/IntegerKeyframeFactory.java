@@ -53,7 +53,7 @@ public class IntegerKeyframeFactory implements IKeyframeFactory<Integer>
     @Override
     public Integer interpolate(Integer preA, Integer a, Integer b, Integer postB, IInterp interpolation, float x)
     {
-        return (int) interpolation.interpolate(IInterp.context.set(preA, a, b, postB, x));
+        return (int) interpolation.interpolate(preA, a, b, postB, x);
     }
 
     @Override
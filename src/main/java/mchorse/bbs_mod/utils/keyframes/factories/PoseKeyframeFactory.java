@@ -3,17 +3,23 @@ package mchorse.bbs_mod.utils.keyframes.factories;
 import mchorse.bbs_mod.data.types.BaseType;
 import mchorse.bbs_mod.utils.interps.IInterp;
 import mchorse.bbs_mod.utils.pose.Pose;
+import mchorse.bbs_mod.utils.pose.PoseLayout;
 import mchorse.bbs_mod.utils.pose.PoseTransform;
-import mchorse.bbs_mod.utils.pose.Transform;
 
-import java.util.HashSet;
-import java.util.Set;
+import java.util.Map;
 
 public class PoseKeyframeFactory implements IKeyframeFactory<Pose>
 {
-    private static Set<String> keys = new HashSet<>();
+    private static final ThreadLocal<PoseLayout> layout = ThreadLocal.withInitial(() ->
+    {
+        float[] defaults = new float[PoseTransform.STRIDE];
+
+        new PoseTransform().write(defaults, 0);
 
-    private Pose i = new Pose();
+        return new PoseLayout(defaults);
+    });
+
+    private final ThreadLocal<Pose> i = ThreadLocal.withInitial(Pose::new);
 
     @Override
     public Pose fromData(BaseType data)
@@ -49,29 +55,49 @@ public class PoseKeyframeFactory implements IKeyframeFactory<Pose>
     @Override
     public Pose interpolate(Pose preA, Pose a, Pose b, Pose postB, IInterp interpolation, float x)
     {
-        keys.clear();
+        Pose i = this.i.get();
+        PoseLayout layout = PoseKeyframeFactory.layout.get();
+
+        layout.begin();
 
-        if (preA != a && preA != null) keys.addAll(preA.transforms.keySet());
-        if (a != null) keys.addAll(a.transforms.keySet());
-        if (b != null) keys.addAll(b.transforms.keySet());
-        if (postB != b && postB != null) keys.addAll(postB.transforms.keySet());
+        /* Keyframe poses are only read, bones missing in some of them
+         * get interpolated from default values */
+        this.load(layout, 0, preA);
+        this.load(layout, 1, a);
+        this.load(layout, 2, b);
+        this.load(layout, 3, postB);
 
-        for (PoseTransform value : this.i.transforms.values())
+        layout.interpolate(interpolation, x);
+
+        for (PoseTransform value : i.transforms.values())
         {
             value.identity();
         }
 
-        for (String key : keys)
+        float[] output = layout.getOutput();
+
+        for (int j = 0, c = layout.getUsedCount(); j < c; j++)
         {
-            Transform transform = this.i.get(key);
-            Transform preATransform = preA.get(key);
-            Transform aTransform = a.get(key);
-            Transform bTransform = b.get(key);
-            Transform postBTransform = postB.get(key);
+            int index = layout.getUsed(j);
 
-            transform.lerp(preATransform, aTransform, bTransform, postBTransform, interpolation, x);
+            i.get(layout.getName(index)).read(output, index * PoseTransform.STRIDE);
         }
 
-        return this.i;
+        return i;
+    }
+
+    private void load(PoseLayout layout, int slot, Pose pose)
+    {
+        if (pose == null)
+        {
+            return;
+        }
+
+        for (Map.Entry<String, PoseTransform> entry : pose.transforms.entrySet())
+        {
+            int offset = layout.use(entry.getKey());
+
+            entry.getValue().write(layout.getSlot(slot), offset);
+        }
     }
 }
\ No newline at end of file
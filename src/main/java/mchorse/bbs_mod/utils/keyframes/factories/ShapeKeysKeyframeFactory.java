@@ -3,14 +3,14 @@ package mchorse.bbs_mod.utils.keyframes.factories;
 import mchorse.bbs_mod.data.types.BaseType;
 import mchorse.bbs_mod.obj.shapes.ShapeKeys;
 import mchorse.bbs_mod.utils.interps.IInterp;
+import mchorse.bbs_mod.utils.pose.PoseLayout;
 
-import java.util.HashSet;
-import java.util.Set;
+import java.util.Map;
 
 public class ShapeKeysKeyframeFactory implements IKeyframeFactory<ShapeKeys>
 {
-    private static Set<String> keys = new HashSet<>();
-    private ShapeKeys i = new ShapeKeys();
+    private static final ThreadLocal<PoseLayout> layout = ThreadLocal.withInitial(() -> new PoseLayout(new float[1]));
+    private final ThreadLocal<ShapeKeys> i = ThreadLocal.withInitial(ShapeKeys::new);
 
     @Override
     public ShapeKeys fromData(BaseType data)
@@ -43,32 +43,43 @@ public class ShapeKeysKeyframeFactory implements IKeyframeFactory<ShapeKeys>
     @Override
     public ShapeKeys interpolate(ShapeKeys preA, ShapeKeys a, ShapeKeys b, ShapeKeys postB, IInterp interpolation, float x)
     {
-        this.i.shapeKeys.clear();
+        ShapeKeys i = this.i.get();
+        PoseLayout layout = ShapeKeysKeyframeFactory.layout.get();
 
-        keys.clear();
+        i.shapeKeys.clear();
+        layout.begin();
 
-        if (preA != a && preA != null) keys.addAll(preA.shapeKeys.keySet());
-        if (a != null) keys.addAll(a.shapeKeys.keySet());
-        if (b != null) keys.addAll(b.shapeKeys.keySet());
-        if (postB != b && postB != null) keys.addAll(postB.shapeKeys.keySet());
+        this.load(layout, 0, preA);
+        this.load(layout, 1, a);
+        this.load(layout, 2, b);
+        this.load(layout, 3, postB);
 
-        for (String key : keys)
+        layout.interpolate(interpolation, x);
+
+        float[] output = layout.getOutput();
+
+        for (int j = 0, c = layout.getUsedCount(); j < c; j++)
+        {
+            int index = layout.getUsed(j);
+
+            i.shapeKeys.put(layout.getName(index), output[index]);
+        }
+
+        return i;
+    }
+
+    private void load(PoseLayout layout, int slot, ShapeKeys keys)
+    {
+        if (keys == null)
         {
-            Float fpreA = preA.shapeKeys.get(key);
-            Float fa = a.shapeKeys.get(key);
-            Float fb = b.shapeKeys.get(key);
-            Float fpostB = postB.shapeKeys.get(key);
-
-            this.i.shapeKeys.put(key, (float) interpolation.interpolate(
-                IInterp.context.set(
-                    fpreA == null ? 0F : fpreA,
-                    fa == null ? 0F : fa,
-                    fb == null ? 0F : fb,
-                    fpostB == null ? 0F : fpostB, x
-                )
-            ));
+            return;
         }
 
-        return this.i;
+        for (Map.Entry<String, Float> entry : keys.shapeKeys.entrySet())
+        {
+            int offset = layout.use(entry.getKey());
+
+            layout.getSlot(slot)[offset] = entry.getValue();
+        }
     }
 }
\ No newline at end of file
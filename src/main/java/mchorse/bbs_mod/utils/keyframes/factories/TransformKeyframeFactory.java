@@ -6,7 +6,7 @@ import mchorse.bbs_mod.utils.pose.Transform;
 
 public class TransformKeyframeFactory implements IKeyframeFactory<Transform>
 {
-    private Transform i = new Transform();
+    private final ThreadLocal<Transform> i = ThreadLocal.withInitial(Transform::new);
 
     @Override
     public Transform fromData(BaseType data)
@@ -42,8 +42,10 @@ public class TransformKeyframeFactory implements IKeyframeFactory<Transform>
     @Override
     public Transform interpolate(Transform preA, Transform a, Transform b, Transform postB, IInterp interpolation, float x)
     {
-        this.i.lerp(preA, a, b, postB, interpolation, x);
+        Transform i = this.i.get();
 
-        return this.i;
+        i.lerp(preA, a, b, postB, interpolation, x);
+
+        return i;
     }
 }
\ No newline at end of file
@@ -0,0 +1,252 @@
+package mchorse.bbs_mod.utils.pose;
+
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import mchorse.bbs_mod.utils.interps.IInterp;
+import mchorse.bbs_mod.utils.interps.InterpContext;
+import mchorse.bbs_mod.utils.interps.Interpolation;
+import mchorse.bbs_mod.utils.interps.Lerps;
+import mchorse.bbs_mod.utils.interps.types.EasingInterp;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Pose layout
+ *
+ * Interns bone (or shape key) names into dense indices, and keeps values
+ * of the four poses used by interpolation (pre A, A, B and post B) in flat
+ * float arrays, where every name takes stride amount of floats. This way
+ * interpolating poses is a loop over arrays instead of merging key sets
+ * and looking up transforms in maps for every bone.
+ *
+ * Layouts only grow as new names are encountered, so after the first few
+ * samples no allocations happen. They aren't thread-safe though, so every
+ * thread should use its own layout.
+ */
+public class PoseLayout
+{
+    public static final int SLOTS = 4;
+
+    private final int stride;
+    private final float[] defaults;
+
+    private final Object2IntOpenHashMap<String> indices = new Object2IntOpenHashMap<>();
+    private final List<String> names = new ArrayList<>();
+
+    private final float[][] slots = new float[SLOTS][];
+    private float[] output;
+
+    /* Own context saves a thread local look up for every value */
+    private final InterpContext context = new InterpContext();
+
+    /* Names used by the current sample */
+    private int[] stamps;
+    private int stamp;
+    private int[] used;
+    private int usedCount;
+
+    public PoseLayout(float[] defaults)
+    {
+        this.stride = defaults.length;
+        this.defaults = defaults;
+
+        this.indices.defaultReturnValue(-1);
+        this.allocate(16);
+    }
+
+    public int getStride()
+    {
+        return this.stride;
+    }
+
+    public int size()
+    {
+        return this.names.size();
+    }
+
+    public String getName(int index)
+    {
+        return this.names.get(index);
+    }
+
+    /**
+     * Get index of given name, interning it if it wasn't encountered
+     * before.
+     */
+    public int getIndex(String name)
+    {
+        int index = this.indices.getInt(name);
+
+        if (index >= 0)
+        {
+            return index;
+        }
+
+        index = this.names.size();
+
+        if (index == this.stamps.length)
+        {
+            this.allocate(index * 2);
+        }
+
+        this.indices.put(name, index);
+        this.names.add(name);
+
+        return index;
+    }
+
+    /**
+     * Get values array of given slot. Arrays get reallocated when new names
+     * are interned, so they shouldn't be kept around between {@link #use(String)}
+     * calls.
+     */
+    public float[] getSlot(int slot)
+    {
+        return this.slots[slot];
+    }
+
+    public float[] getOutput()
+    {
+        return this.output;
+    }
+
+    public int getUsedCount()
+    {
+        return this.usedCount;
+    }
+
+    public int getUsed(int i)
+    {
+        return this.used[i];
+    }
+
+    /**
+     * Start a new sample, i.e. forget which names were used.
+     */
+    public void begin()
+    {
+        this.stamp += 1;
+        this.usedCount = 0;
+
+        if (this.stamp == Integer.MAX_VALUE)
+        {
+            this.stamp = 1;
+
+            Arrays.fill(this.stamps, 0);
+        }
+    }
+
+    /**
+     * Mark given name as used by the current sample, and return offset of
+     * its values within slot arrays. First time a name is used during the
+     * sample, all slots get filled with default values, so poses that don't
+     * have it are interpolated from defaults.
+     */
+    public int use(String name)
+    {
+        int index = this.getIndex(name);
+        int offset = index * this.stride;
+
+        if (this.stamps[index] != this.stamp)
+        {
+            this.stamps[index] = this.stamp;
+            this.used[this.usedCount++] = index;
+
+            for (float[] slot : this.slots)
+            {
+                System.arraycopy(this.defaults, 0, slot, offset, this.stride);
+            }
+        }
+
+        return offset;
+    }
+
+    /**
+     * Interpolate values of all used names in the slots into output array.
+     */
+    public void interpolate(IInterp interp, float x)
+    {
+        float[] preA = this.slots[0];
+        float[] a = this.slots[1];
+        float[] b = this.slots[2];
+        float[] postB = this.slots[3];
+        float[] output = this.output;
+        InterpContext context = this.context.set(0D, 0D, 0D, 0D, x);
+        IInterp base = interp;
+
+        if (interp instanceof Interpolation interpolation)
+        {
+            base = interpolation.getInterp();
+
+            context.extra(interpolation.getV1(), interpolation.getV2(), interpolation.getV3(), interpolation.getV4());
+        }
+
+        /* Easings don't depend on values, so the factor can be computed
+         * only once for all of them */
+        if (base instanceof EasingInterp easingInterp)
+        {
+            double factor = easingInterp.easing.calculate(context.getArgs(), x);
+
+            for (int i = 0; i < this.usedCount; i++)
+            {
+                int offset = this.used[i] * this.stride;
+                int end = offset + this.stride;
+
+                for (int j = offset; j < end; j++)
+                {
+                    output[j] = (float) Lerps.lerp(a[j], b[j], factor);
+                }
+            }
+
+            return;
+        }
+
+        for (int i = 0; i < this.usedCount; i++)
+        {
+            int offset = this.used[i] * this.stride;
+            int end = offset + this.stride;
+
+            for (int j = offset; j < end; j++)
+            {
+                output[j] = (float) interp.interpolate(context.set(preA[j], a[j], b[j], postB[j], x));
+            }
+        }
+    }
+
+    private void allocate(int capacity)
+    {
+        int length = capacity * this.stride;
+
+        for (int i = 0; i < SLOTS; i++)
+        {
+            this.slots[i] = this.grow(this.slots[i], length);
+        }
+
+        this.output = this.grow(this.output, length);
+
+        int[] stamps = new int[capacity];
+        int[] used = new int[capacity];
+
+        if (this.stamps != null)
+        {
+            System.arraycopy(this.stamps, 0, stamps, 0, this.stamps.length);
+            System.arraycopy(this.used, 0, used, 0, this.usedCount);
+        }
+
+        this.stamps = stamps;
+        this.used = used;
+    }
+
+    private float[] grow(float[] array, int length)
+    {
+        float[] newArray = new float[length];
+
+        if (array != null)
+        {
+            System.arraycopy(array, 0, newArray, 0, array.length);
+        }
+
+        return newArray;
+    }
+}
@@ -0,0 +1,233 @@
+package mchorse.bbs_mod.utils.pose;
+
+import com.ibm.icu.impl.Assert;
+import mchorse.bbs_mod.obj.shapes.ShapeKeys;
+import mchorse.bbs_mod.utils.interps.IInterp;
+import mchorse.bbs_mod.utils.interps.Interpolation;
+import mchorse.bbs_mod.utils.interps.Interpolations;
+import mchorse.bbs_mod.utils.keyframes.factories.PoseKeyframeFactory;
+import mchorse.bbs_mod.utils.keyframes.factories.ShapeKeysKeyframeFactory;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+public class PoseLayoutTest
+{
+    public static void main(String[] args)
+    {
+        testPoses();
+        testShapeKeys();
+        benchmark(128, 20_000);
+    }
+
+    private static void testPoses()
+    {
+        PoseKeyframeFactory factory = new PoseKeyframeFactory();
+        Random random = new Random(42);
+        Interpolation back = new Interpolation("interp", Interpolations.MAP, Interpolations.BACK_OUT);
+        Interpolation cubic = new Interpolation("interp", Interpolations.MAP, Interpolations.CUBIC);
+
+        /* Keyframes pass interpolations with extra arguments */
+        back.setV1(0.5D);
+        cubic.setV1(0.25D);
+        cubic.setV2(-0.5D);
+
+        IInterp[] interps = {Interpolations.LINEAR, Interpolations.HERMITE, Interpolations.CUBIC, Interpolations.BEZIER, Interpolations.BOUNCE_INOUT, back, cubic};
+
+        for (int i = 0; i < 200; i++)
+        {
+            /* Poses have different (partially overlapping) bone sets */
+            Pose preA = createPose(random, 40, 0.6F);
+            Pose a = i % 5 == 0 ? preA : createPose(random, 40, 0.6F);
+            Pose b = createPose(random, 40, 0.6F);
+            Pose postB = i % 7 == 0 ? b : createPose(random, 40, 0.6F);
+            Pose[] sources = {preA, a, b, postB};
+            int[] sizes = new int[sources.length];
+
+            for (int j = 0; j < sources.length; j++)
+            {
+                sizes[j] = sources[j].transforms.size();
+            }
+
+            IInterp interp = interps[i % interps.length];
+            float x = random.nextFloat();
+            Pose expected = interpolateMaps(preA.copy(), a.copy(), b.copy(), postB.copy(), interp, x);
+            Pose result = factory.interpolate(preA, a, b, postB, interp, x);
+
+            Assert.assrt(result.equals(expected));
+
+            for (String key : expected.transforms.keySet())
+            {
+                Assert.assrt(result.get(key).equals(expected.get(key)));
+            }
+
+            /* Source keyframes don't get new bones added */
+            for (int j = 0; j < sources.length; j++)
+            {
+                Assert.assrt(sources[j].transforms.size() == sizes[j]);
+            }
+        }
+    }
+
+    private static void testShapeKeys()
+    {
+        ShapeKeysKeyframeFactory factory = new ShapeKeysKeyframeFactory();
+        Random random = new Random(7);
+
+        for (int i = 0; i < 200; i++)
+        {
+            ShapeKeys preA = createShapeKeys(random, 30);
+            ShapeKeys a = createShapeKeys(random, 30);
+            ShapeKeys b = createShapeKeys(random, 30);
+            ShapeKeys postB = createShapeKeys(random, 30);
+            float x = random.nextFloat();
+            ShapeKeys expected = interpolateMaps(preA, a, b, postB, Interpolations.HERMITE, x);
+
+            Assert.assrt(factory.interpolate(preA, a, b, postB, Interpolations.HERMITE, x).equals(expected));
+        }
+    }
+
+    /**
+     * Compare map-based pose interpolation against the layout one on a
+     * model with given amount of bones (best of several alternating
+     * rounds, so both get the same JIT and GC conditions).
+     */
+    private static void benchmark(int bones, int samples)
+    {
+        PoseKeyframeFactory factory = new PoseKeyframeFactory();
+        Random random = new Random(1);
+        Pose[] poses = new Pose[8];
+
+        for (int i = 0; i < poses.length; i++)
+        {
+            poses[i] = createPose(random, bones, 1F);
+        }
+
+        for (IInterp interp : new IInterp[] {Interpolations.LINEAR, Interpolations.HERMITE})
+        {
+            long maps = Long.MAX_VALUE;
+            long layout = Long.MAX_VALUE;
+
+            for (int round = 0; round < 6; round++)
+            {
+                maps = Math.min(maps, sample(factory, poses, interp, samples, false));
+                layout = Math.min(layout, sample(factory, poses, interp, samples, true));
+            }
+
+            System.out.println(interp.getKey() + " poses with " + bones + " bones: maps " + maps / samples + " ns, layout " + layout / samples + " ns per pose");
+
+            Assert.assrt(layout < maps);
+        }
+    }
+
+    private static long sample(PoseKeyframeFactory factory, Pose[] poses, IInterp interp, int samples, boolean layout)
+    {
+        long time = System.nanoTime();
+
+        for (int i = 0; i < samples; i++)
+        {
+            Pose preA = poses[i % poses.length];
+            Pose a = poses[(i + 1) % poses.length];
+            Pose b = poses[(i + 2) % poses.length];
+            Pose postB = poses[(i + 3) % poses.length];
+            float x = (i % 20) / 20F;
+
+            if (layout)
+            {
+                factory.interpolate(preA, a, b, postB, interp, x);
+            }
+            else
+            {
+                interpolateMaps(preA, a, b, postB, interp, x);
+            }
+        }
+
+        return System.nanoTime() - time;
+    }
+
+    private static Pose createPose(Random random, int bones, float chance)
+    {
+        Pose pose = new Pose();
+
+        for (int i = 0; i < bones; i++)
+        {
+            if (random.nextFloat() >= chance)
+            {
+                continue;
+            }
+
+            PoseTransform transform = pose.get("bone_" + i);
+
+            transform.translate.set(random.nextFloat() * 4 - 2, random.nextFloat() * 4 - 2, random.nextFloat() * 4 - 2);
+            transform.scale.set(0.5F + random.nextFloat(), 0.5F + random.nextFloat(), 0.5F + random.nextFloat());
+            transform.rotate.set(random.nextFloat() * 6 - 3, random.nextFloat() * 6 - 3, random.nextFloat() * 6 - 3);
+            transform.rotate2.set(0F, random.nextFloat(), 0F);
+            transform.fix = random.nextFloat();
+            transform.color.set(random.nextFloat(), random.nextFloat(), random.nextFloat(), random.nextFloat());
+            transform.lighting = random.nextFloat();
+        }
+
+        return pose;
+    }
+
+    private static ShapeKeys createShapeKeys(Random random, int keys)
+    {
+        ShapeKeys shapeKeys = new ShapeKeys();
+
+        for (int i = 0; i < keys; i++)
+        {
+            if (random.nextBoolean())
+            {
+                shapeKeys.shapeKeys.put("key_" + i, random.nextFloat());
+            }
+        }
+
+        return shapeKeys;
+    }
+
+    /**
+     * Map-based pose interpolation (how it was done before pose layouts).
+     * Missing bones get inserted into given poses.
+     */
+    private static Pose interpolateMaps(Pose preA, Pose a, Pose b, Pose postB, IInterp interp, float x)
+    {
+        Pose i = new Pose();
+        Set<String> keys = new HashSet<>();
+
+        keys.addAll(preA.transforms.keySet());
+        keys.addAll(a.transforms.keySet());
+        keys.addAll(b.transforms.keySet());
+        keys.addAll(postB.transforms.keySet());
+
+        for (String key : keys)
+        {
+            i.get(key).lerp(preA.get(key), a.get(key), b.get(key), postB.get(key), interp, x);
+        }
+
+        return i;
+    }
+
+    private static ShapeKeys interpolateMaps(ShapeKeys preA, ShapeKeys a, ShapeKeys b, ShapeKeys postB, IInterp interp, float x)
+    {
+        ShapeKeys i = new ShapeKeys();
+        Set<String> keys = new HashSet<>();
+
+        keys.addAll(preA.shapeKeys.keySet());
+        keys.addAll(a.shapeKeys.keySet());
+        keys.addAll(b.shapeKeys.keySet());
+        keys.addAll(postB.shapeKeys.keySet());
+
+        for (String key : keys)
+        {
+            i.shapeKeys.put(key, (float) interp.interpolate(
+                preA.shapeKeys.getOrDefault(key, 0F),
+                a.shapeKeys.getOrDefault(key, 0F),
+                b.shapeKeys.getOrDefault(key, 0F),
+                postB.shapeKeys.getOrDefault(key, 0F), x
+            ));
+        }
+
+        return i;
+    }
+}
@@ -11,6 +11,8 @@ public class PoseTransform extends Transform
 {
     private static PoseTransform DEFAULT = new PoseTransform();
 
+    public static final int STRIDE = Transform.STRIDE + 6;
+
     public float fix;
     public final Color color = new Color().set(Colors.WHITE);
     public float lighting;
@@ -54,16 +56,16 @@ public class PoseTransform extends Transform
             PoseTransform b1 = (PoseTransform) b;
             PoseTransform postB1 = (PoseTransform) postB;
 
-            this.fix = (float) interp.interpolate(IInterp.context.set(preA1.fix, a1.fix, b1.fix, postB1.fix, x));
+            this.fix = (float) interp.interpolate(preA1.fix, a1.fix, b1.fix, postB1.fix, x);
 
             this.color.set(
-                (float) MathUtils.clamp(interp.interpolate(IInterp.context.set(preA1.color.r, a1.color.r, b1.color.r, postB1.color.r, x)), 0F, 1F),
-                (float) MathUtils.clamp(interp.interpolate(IInterp.context.set(preA1.color.g, a1.color.g, b1.color.g, postB1.color.g, x)), 0F, 1F),
-                (float) MathUtils.clamp(interp.interpolate(IInterp.context.set(preA1.color.b, a1.color.b, b1.color.b, postB1.color.b, x)), 0F, 1F),
-                (float) MathUtils.clamp(interp.interpolate(IInterp.context.set(preA1.color.a, a1.color.a, b1.color.a, postB1.color.a, x)), 0F, 1F)
+                (float) MathUtils.clamp(interp.interpolate(preA1.color.r, a1.color.r, b1.color.r, postB1.color.r, x), 0F, 1F),
+                (float) MathUtils.clamp(interp.interpolate(preA1.color.g, a1.color.g, b1.color.g, postB1.color.g, x), 0F, 1F),
+                (float) MathUtils.clamp(interp.interpolate(preA1.color.b, a1.color.b, b1.color.b, postB1.color.b, x), 0F, 1F),
+                (float) MathUtils.clamp(interp.interpolate(preA1.color.a, a1.color.a, b1.color.a, postB1.color.a, x), 0F, 1F)
             );
 
-            this.lighting = (float) interp.interpolate(IInterp.context.set(preA1.lighting, a1.lighting, b1.lighting, postB1.lighting, x));
+            this.lighting = (float) interp.interpolate(preA1.lighting, a1.lighting, b1.lighting, postB1.lighting, x);
         }
     }
 
@@ -105,6 +107,38 @@ public class PoseTransform extends Transform
         super.copy(transform);
     }
 
+    @Override
+    public void write(float[] array, int offset)
+    {
+        super.write(array, offset);
+
+        offset += Transform.STRIDE;
+
+        array[offset] = this.fix;
+        array[offset + 1] = this.color.r;
+        array[offset + 2] = this.color.g;
+        array[offset + 3] = this.color.b;
+        array[offset + 4] = this.color.a;
+        array[offset + 5] = this.lighting;
+    }
+
+    @Override
+    public void read(float[] array, int offset)
+    {
+        super.read(array, offset);
+
+        offset += Transform.STRIDE;
+
+        this.fix = array[offset];
+        this.color.set(
+            MathUtils.clamp(array[offset + 1], 0F, 1F),
+            MathUtils.clamp(array[offset + 2], 0F, 1F),
+            MathUtils.clamp(array[offset + 3], 0F, 1F),
+            MathUtils.clamp(array[offset + 4], 0F, 1F)
+        );
+        this.lighting = array[offset + 5];
+    }
+
     @Override
     public void toData(MapType data)
     {
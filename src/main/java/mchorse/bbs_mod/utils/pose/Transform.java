@@ -16,6 +16,11 @@ public class Transform implements IMapSerializable
 
     public static final Transform DEFAULT = new Transform();
 
+    /**
+     * Amount of floats taken by a transform in a flat array.
+     */
+    public static final int STRIDE = 12;
+
     public final Vector3f translate = new Vector3f();
     public final Vector3f scale = new Vector3f(DEFAULT_SCALE);
     public final Vector3f rotate = new Vector3f();
@@ -39,9 +44,9 @@ public class Transform implements IMapSerializable
 
     private void lerp(Vector3f target, Vector3f preA, Vector3f a, Vector3f b, Vector3f postB, IInterp interp, float x)
     {
-        target.x = (float) interp.interpolate(IInterp.context.set(preA.x, a.x, b.x, postB.x, x));
-        target.y = (float) interp.interpolate(IInterp.context.set(preA.y, a.y, b.y, postB.y, x));
-        target.z = (float) interp.interpolate(IInterp.context.set(preA.z, a.z, b.z, postB.z, x));
+        target.x = (float) interp.interpolate(preA.x, a.x, b.x, postB.x, x);
+        target.y = (float) interp.interpolate(preA.y, a.y, b.y, postB.y, x);
+        target.z = (float) interp.interpolate(preA.z, a.z, b.z, postB.z, x);
     }
 
     public void identity()
@@ -128,6 +133,32 @@ public class Transform implements IMapSerializable
         return this.equals(DEFAULT);
     }
 
+    /**
+     * Write this transform's values into a flat array (see {@link PoseLayout}).
+     */
+    public void write(float[] array, int offset)
+    {
+        write(this.translate, array, offset);
+        write(this.scale, array, offset + 3);
+        write(this.rotate, array, offset + 6);
+        write(this.rotate2, array, offset + 9);
+    }
+
+    public void read(float[] array, int offset)
+    {
+        this.translate.set(array[offset], array[offset + 1], array[offset + 2]);
+        this.scale.set(array[offset + 3], array[offset + 4], array[offset + 5]);
+        this.rotate.set(array[offset + 6], array[offset + 7], array[offset + 8]);
+        this.rotate2.set(array[offset + 9], array[offset + 10], array[offset + 11]);
+    }
+
+    private static void write(Vector3f vector, float[] array, int offset)
+    {
+        array[offset] = vector.x;
+        array[offset + 1] = vector.y;
+        array[offset + 2] = vector.z;
+    }
+
     public void toRad()
     {
         this.rotate.x = MathUtils.toRad(this.rotate.x);
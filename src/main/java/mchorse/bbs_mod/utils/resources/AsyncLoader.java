@@ -0,0 +1,232 @@
+package mchorse.bbs_mod.utils.resources;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+
+/**
+ * Async loader
+ *
+ * Two stage loading pipeline: values get loaded (decoded) on given executor,
+ * and finished values get processed on owner's thread (see
+ * {@link #process(long, IProcessor)}) within given budget per call. Apart
+ * from the loading callable, everything should be called on owner's thread
+ * (for textures it's the render thread).
+ *
+ * Results of cancelled requests (i.e. invalidated while loading) are never
+ * processed, and get passed to {@link IProcessor#discard(Object, Object)}
+ * instead, so their resources could be freed.
+ */
+public class AsyncLoader <K, V>
+{
+    private final Executor executor;
+    private final Map<K, Integer> pending = new HashMap<>();
+    private final Queue<Result<K, V>> results = new ConcurrentLinkedQueue<>();
+    private int counter;
+
+    public AsyncLoader(Executor executor)
+    {
+        this.executor = executor;
+    }
+
+    public boolean isPending(K key)
+    {
+        return this.pending.containsKey(key);
+    }
+
+    public int getPending()
+    {
+        return this.pending.size();
+    }
+
+    /**
+     * Request given key to be loaded with given loader.
+     *
+     * @return false if given key is already being loaded.
+     */
+    public boolean request(K key, Callable<V> loader)
+    {
+        if (this.pending.containsKey(key))
+        {
+            return false;
+        }
+
+        int id = this.counter += 1;
+
+        this.pending.put(key, id);
+        this.executor.execute(() ->
+        {
+            try
+            {
+                this.add(new Result<>(key, id, loader.call(), null));
+            }
+            catch (Exception e)
+            {
+                this.add(new Result<>(key, id, null, e));
+            }
+        });
+
+        return true;
+    }
+
+    /**
+     * Forget about given key's request. If it's still being loaded, its
+     * result will be discarded.
+     */
+    public void cancel(K key)
+    {
+        this.pending.remove(key);
+    }
+
+    public void cancelAll()
+    {
+        this.pending.clear();
+    }
+
+    private void add(Result<K, V> result)
+    {
+        synchronized (this.results)
+        {
+            this.results.add(result);
+            this.results.notifyAll();
+        }
+    }
+
+    /**
+     * Process finished results until given budget is used up. At least one
+     * result gets processed per call (if there is any), so results that
+     * are bigger than the budget don't get stuck.
+     *
+     * @return amount of processed results.
+     */
+    public int process(long budget, IProcessor<K, V> processor)
+    {
+        long used = 0;
+        int count = 0;
+
+        while (count == 0 || used < budget)
+        {
+            Result<K, V> result = this.results.poll();
+
+            if (result == null)
+            {
+                break;
+            }
+
+            long size = this.process(result, processor);
+
+            if (size >= 0)
+            {
+                used += size;
+                count += 1;
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * Wait until given key is loaded, and process it right away regardless
+     * of the budget. Results that finish before it get processed as well,
+     * in the same order as {@link #process(long, IProcessor)} would.
+     *
+     * @return false if given key isn't being loaded.
+     */
+    public boolean finish(K key, IProcessor<K, V> processor)
+    {
+        if (!this.pending.containsKey(key))
+        {
+            return false;
+        }
+
+        while (this.pending.containsKey(key))
+        {
+            Result<K, V> result;
+
+            synchronized (this.results)
+            {
+                while ((result = this.results.poll()) == null)
+                {
+                    try
+                    {
+                        this.results.wait();
+                    }
+                    catch (InterruptedException e)
+                    {
+                        Thread.currentThread().interrupt();
+
+                        return false;
+                    }
+                }
+            }
+
+            this.process(result, processor);
+        }
+
+        return true;
+    }
+
+    /**
+     * @return how much of the budget processing given result took, or -1
+     *         if it was discarded.
+     */
+    private long process(Result<K, V> result, IProcessor<K, V> processor)
+    {
+        Integer id = this.pending.get(result.key);
+
+        if (id == null || id != result.id)
+        {
+            if (result.value != null)
+            {
+                processor.discard(result.key, result.value);
+            }
+
+            return -1;
+        }
+
+        this.pending.remove(result.key);
+
+        if (result.error != null)
+        {
+            processor.fail(result.key, result.error);
+
+            return 0;
+        }
+
+        return processor.process(result.key, result.value);
+    }
+
+    public static interface IProcessor <K, V>
+    {
+        /**
+         * Process loaded value.
+         *
+         * @return how much of the budget it took.
+         */
+        public long process(K key, V value);
+
+        public void fail(K key, Exception e);
+
+        public default void discard(K key, V value)
+        {}
+    }
+
+    private static class Result <K, V>
+    {
+        public final K key;
+        public final int id;
+        public final V value;
+        public final Exception error;
+
+        public Result(K key, int id, V value, Exception error)
+        {
+            this.key = key;
+            this.id = id;
+            this.value = value;
+            this.error = error;
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package mchorse.bbs_mod.utils.resources;
+
+import com.ibm.icu.impl.Assert;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class AsyncLoaderTest
+{
+    public static void main(String[] args) throws Exception
+    {
+        testDeduplication();
+        testBudget();
+        testCancel();
+        testFailure();
+        testFinish();
+    }
+
+    private static void testDeduplication()
+    {
+        ManualExecutor executor = new ManualExecutor();
+        AsyncLoader<String, int[]> loader = new AsyncLoader<>(executor);
+
+        Assert.assrt(loader.request("a", () -> new int[4]));
+        Assert.assrt(!loader.request("a", () -> new int[4]));
+        Assert.assrt(executor.tasks.size() == 1);
+        Assert.assrt(loader.isPending("a"));
+
+        executor.runAll();
+
+        Recorder recorder = new Recorder();
+
+        Assert.assrt(loader.process(Long.MAX_VALUE, recorder) == 1);
+        Assert.assrt(!loader.isPending("a"));
+        Assert.assrt(recorder.processed.equals(List.of("a")));
+    }
+
+    private static void testBudget()
+    {
+        ManualExecutor executor = new ManualExecutor();
+        AsyncLoader<String, int[]> loader = new AsyncLoader<>(executor);
+        Recorder recorder = new Recorder();
+
+        loader.request("a", () -> new int[10]);
+        loader.request("b", () -> new int[10]);
+        loader.request("c", () -> new int[100]);
+        loader.request("d", () -> new int[1]);
+
+        /* Nothing is decoded yet */
+        Assert.assrt(loader.process(100, recorder) == 0);
+
+        /* Decoding order defines processing order */
+        executor.run(2);
+        executor.run(0);
+        executor.run(0);
+        executor.run(0);
+
+        /* Result bigger than the budget still gets processed */
+        Assert.assrt(loader.process(15, recorder) == 1);
+        Assert.assrt(loader.process(15, recorder) == 2);
+        Assert.assrt(loader.process(15, recorder) == 1);
+        Assert.assrt(loader.process(15, recorder) == 0);
+        Assert.assrt(recorder.processed.toString(), recorder.processed.equals(List.of("c", "a", "b", "d")));
+        Assert.assrt(loader.getPending() == 0);
+    }
+
+    private static void testCancel()
+    {
+        ManualExecutor executor = new ManualExecutor();
+        AsyncLoader<String, int[]> loader = new AsyncLoader<>(executor);
+        Recorder recorder = new Recorder();
+
+        loader.request("a", () -> new int[1]);
+        loader.cancel("a");
+
+        /* Request after invalidation while the old one is still decoding */
+        loader.request("a", () -> new int[2]);
+        loader.request("b", () -> new int[1]);
+        loader.cancelAll();
+        executor.runAll();
+
+        Assert.assrt(loader.process(Long.MAX_VALUE, recorder) == 0);
+        Assert.assrt(recorder.discarded.size() == 3);
+
+        loader.request("a", () -> new int[3]);
+        executor.runAll();
+        loader.process(Long.MAX_VALUE, recorder);
+
+        Assert.assrt(recorder.processed.equals(List.of("a")));
+        Assert.assrt(recorder.lastSize == 3);
+    }
+
+    private static void testFailure()
+    {
+        ManualExecutor executor = new ManualExecutor();
+        AsyncLoader<String, int[]> loader = new AsyncLoader<>(executor);
+        Recorder recorder = new Recorder();
+
+        loader.request("a", () ->
+        {
+            throw new IllegalStateException("Broken");
+        });
+        executor.runAll();
+
+        Assert.assrt(loader.process(Long.MAX_VALUE, recorder) == 1);
+        Assert.assrt(recorder.failed.equals(List.of("a")));
+        Assert.assrt(!loader.isPending("a"));
+
+        /* Failed keys can be requested again */
+        Assert.assrt(loader.request("a", () -> new int[1]));
+    }
+
+    private static void testFinish() throws Exception
+    {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        AsyncLoader<String, int[]> loader = new AsyncLoader<>(executor);
+        Recorder recorder = new Recorder();
+
+        try
+        {
+            Assert.assrt(!loader.finish("a", recorder));
+
+            loader.request("a", () -> new int[1]);
+            loader.request("b", () ->
+            {
+                Thread.sleep(50);
+
+                return new int[2];
+            });
+            loader.request("c", () -> new int[3]);
+
+            /* Waits for b, and processes everything that finished before it */
+            Assert.assrt(loader.finish("b", recorder));
+            Assert.assrt(recorder.processed.equals(List.of("a", "b")));
+            Assert.assrt(loader.isPending("c") && !loader.isPending("b"));
+
+            /* Cancelled results don't count */
+            loader.cancel("c");
+            loader.request("d", () -> new int[4]);
+
+            Assert.assrt(loader.finish("d", recorder));
+            Assert.assrt(recorder.processed.equals(List.of("a", "b", "d")));
+            Assert.assrt(recorder.discarded.equals(List.of("c")));
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
+
+    private static class ManualExecutor implements Executor
+    {
+        public final List<Runnable> tasks = new ArrayList<>();
+
+        @Override
+        public void execute(Runnable command)
+        {
+            this.tasks.add(command);
+        }
+
+        public void run(int index)
+        {
+            this.tasks.remove(index).run();
+        }
+
+        public void runAll()
+        {
+            while (!this.tasks.isEmpty())
+            {
+                this.run(0);
+            }
+        }
+    }
+
+    private static class Recorder implements AsyncLoader.IProcessor<String, int[]>
+    {
+        public final List<String> processed = new ArrayList<>();
+        public final List<String> failed = new ArrayList<>();
+        public final List<String> discarded = new ArrayList<>();
+        public int lastSize;
+
+        @Override
+        public long process(String key, int[] value)
+        {
+            this.processed.add(key);
+            this.lastSize = value.length;
+
+            return value.length;
+        }
+
+        @Override
+        public void fail(String key, Exception e)
+        {
+            this.failed.add(key);
+        }
+
+        @Override
+        public void discard(String key, int[] value)
+        {
+            this.discarded.add(key);
+        }
+    }
+}
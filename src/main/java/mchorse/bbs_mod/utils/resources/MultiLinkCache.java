@@ -0,0 +1,498 @@
+package mchorse.bbs_mod.utils.resources;
+
+import mchorse.bbs_mod.data.DataToString;
+import mchorse.bbs_mod.resources.AssetProvider;
+import mchorse.bbs_mod.resources.Link;
+import org.lwjgl.system.MemoryUtil;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Multi-link cache
+ *
+ * Content addressed cache of composited {@link MultiLink} textures. Entries
+ * are keyed by a hash of multi-link's canonical data and stamps (last
+ * modification time and size) of its source files, so identical multi-links
+ * share the same composite, and composites of modified files are never
+ * returned. Composites are kept in memory within a byte budget (least
+ * recently used ones get evicted first), and can be also written to disk, so
+ * they survive restarts.
+ *
+ * Can be used from several threads at once. Disk reads and writes happen
+ * outside of the lock, so a thread that reads or writes composites doesn't
+ * block other threads.
+ */
+public class MultiLinkCache
+{
+    private AssetProvider provider;
+    private Function<MultiLink, Pixels> processor;
+
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75F, true);
+    private final Map<Link, Map<String, MultiLink>> dependencies = new HashMap<>();
+    private long size;
+
+    private long budget;
+    private File folder;
+    private long diskBudget;
+
+    private int hits;
+    private int misses;
+
+    /* Disk usage, guarded by its own lock, -1 when it's not known yet */
+    private final Object diskLock = new Object();
+    private long diskSize = -1;
+
+    public MultiLinkCache(AssetProvider provider)
+    {
+        this(provider, TextureProcessor::process);
+    }
+
+    public MultiLinkCache(AssetProvider provider, Function<MultiLink, Pixels> processor)
+    {
+        this.provider = provider;
+        this.processor = processor;
+    }
+
+    /**
+     * Configure the cache.
+     *
+     * @param budget Maximum amount of bytes kept in memory (0 disables the cache).
+     * @param folder Folder where composites are written to, or null to keep them only in memory.
+     * @param diskBudget Maximum amount of bytes kept on disk.
+     */
+    public synchronized void setup(long budget, File folder, long diskBudget)
+    {
+        this.budget = budget;
+        this.folder = folder;
+        this.diskBudget = diskBudget;
+
+        synchronized (this.diskLock)
+        {
+            this.diskSize = -1;
+        }
+
+        this.evict();
+    }
+
+    public synchronized int getHits()
+    {
+        return this.hits;
+    }
+
+    public synchronized int getMisses()
+    {
+        return this.misses;
+    }
+
+    public synchronized long getSize()
+    {
+        return this.size;
+    }
+
+    public synchronized boolean isEnabled()
+    {
+        return this.budget > 0;
+    }
+
+    /**
+     * Get composite of given multi-link, composited by {@link TextureProcessor}
+     * unless it's already cached. Returned pixels are owned by the caller.
+     */
+    public Pixels get(MultiLink link)
+    {
+        if (!this.isEnabled())
+        {
+            return this.processor.apply(link);
+        }
+
+        String key = this.getKey(link);
+        MultiLink copy = (MultiLink) link.copy();
+        Pixels pixels = this.getCached(key, copy);
+
+        if (pixels != null)
+        {
+            return pixels;
+        }
+
+        pixels = this.processor.apply(link);
+
+        this.put(key, copy, pixels);
+
+        return pixels;
+    }
+
+    /**
+     * Canonical key of given multi-link.
+     */
+    public String getKey(MultiLink link)
+    {
+        StringBuilder builder = new StringBuilder(DataToString.toString(link.toData()));
+
+        for (FilteredLink child : link.children)
+        {
+            File file = this.provider.getFile(child.path);
+
+            builder.append('\n');
+
+            if (file != null && file.isFile())
+            {
+                builder.append(file.lastModified()).append(':').append(file.length());
+            }
+        }
+
+        try
+        {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            StringBuilder hex = new StringBuilder();
+
+            for (byte b : digest.digest(builder.toString().getBytes(StandardCharsets.UTF_8)))
+            {
+                hex.append(Character.forDigit(b >> 4 & 0xf, 16));
+                hex.append(Character.forDigit(b & 0xf, 16));
+            }
+
+            return hex.toString();
+        }
+        catch (Exception e)
+        {
+            return Integer.toHexString(builder.toString().hashCode());
+        }
+    }
+
+    private Pixels getCached(String key, MultiLink link)
+    {
+        Entry entry;
+        File folder;
+
+        synchronized (this)
+        {
+            entry = this.entries.get(key);
+            folder = this.folder;
+        }
+
+        if (entry == null && folder != null)
+        {
+            entry = read(folder, key, link);
+        }
+
+        synchronized (this)
+        {
+            if (entry == null)
+            {
+                this.misses += 1;
+
+                return null;
+            }
+
+            if (!this.entries.containsKey(key))
+            {
+                this.store(key, entry);
+            }
+
+            this.hits += 1;
+        }
+
+        ByteBuffer buffer = MemoryUtil.memAlloc(entry.data.length);
+
+        buffer.put(entry.data);
+        buffer.flip();
+
+        return new Pixels(buffer, entry.width, entry.height);
+    }
+
+    private void put(String key, MultiLink link, Pixels pixels)
+    {
+        ByteBuffer buffer = pixels.getBuffer();
+
+        if (buffer == null || pixels.bits != 4)
+        {
+            return;
+        }
+
+        byte[] data = new byte[pixels.width * pixels.height * 4];
+
+        buffer.get(0, data);
+
+        Entry entry = new Entry(link, pixels.width, pixels.height, data);
+        File folder;
+        long diskBudget;
+
+        synchronized (this)
+        {
+            this.store(key, entry);
+
+            folder = this.folder;
+            diskBudget = this.diskBudget;
+        }
+
+        if (folder != null)
+        {
+            this.write(folder, key, entry, diskBudget);
+        }
+    }
+
+    private void store(String key, Entry entry)
+    {
+        Entry old = this.entries.put(key, entry);
+
+        if (old != null)
+        {
+            this.size -= old.data.length;
+        }
+
+        this.size += entry.data.length;
+
+        for (FilteredLink child : entry.link.children)
+        {
+            this.dependencies.computeIfAbsent(child.path, (k) -> new HashMap<>()).put(key, entry.link);
+        }
+
+        this.evict();
+    }
+
+    private void evict()
+    {
+        Iterator<Map.Entry<String, Entry>> it = this.entries.entrySet().iterator();
+
+        while (this.size > this.budget && it.hasNext())
+        {
+            Map.Entry<String, Entry> next = it.next();
+
+            it.remove();
+            this.remove(next.getKey(), next.getValue());
+        }
+    }
+
+    /**
+     * Account for removal of given entry from the map, and forget its
+     * dependencies.
+     */
+    private void remove(String key, Entry entry)
+    {
+        this.size -= entry.data.length;
+
+        for (FilteredLink child : entry.link.children)
+        {
+            Map<String, MultiLink> keys = this.dependencies.get(child.path);
+
+            if (keys != null)
+            {
+                keys.remove(key);
+
+                if (keys.isEmpty())
+                {
+                    this.dependencies.remove(child.path);
+                }
+            }
+        }
+    }
+
+    /**
+     * Drop composites that use given source file. Composites on disk that
+     * were already evicted from memory can't be returned anymore either,
+     * because their keys contain stamps of the source files.
+     *
+     * @return multi-links whose composites were dropped.
+     */
+    public List<MultiLink> invalidate(Link source)
+    {
+        List<MultiLink> links = new ArrayList<>();
+        List<String> removed = new ArrayList<>();
+        File folder;
+
+        synchronized (this)
+        {
+            Map<String, MultiLink> keys = this.dependencies.get(source);
+
+            if (keys == null)
+            {
+                return links;
+            }
+
+            for (String key : new ArrayList<>(keys.keySet()))
+            {
+                Entry entry = this.entries.remove(key);
+
+                if (entry != null)
+                {
+                    this.remove(key, entry);
+                    links.add(entry.link);
+                    removed.add(key);
+                }
+            }
+
+            folder = this.folder;
+        }
+
+        if (folder != null)
+        {
+            for (String key : removed)
+            {
+                new File(folder, key + ".bin").delete();
+            }
+        }
+
+        return links;
+    }
+
+    public synchronized void clear()
+    {
+        this.entries.clear();
+        this.dependencies.clear();
+        this.size = 0;
+    }
+
+    /* Disk */
+
+    private static Entry read(File folder, String key, MultiLink link)
+    {
+        File file = new File(folder, key + ".bin");
+
+        if (!file.isFile())
+        {
+            return null;
+        }
+
+        try (DataInputStream stream = new DataInputStream(new GZIPInputStream(new FileInputStream(file))))
+        {
+            int w = stream.readInt();
+            int h = stream.readInt();
+            byte[] data = new byte[w * h * 4];
+
+            stream.readFully(data);
+            file.setLastModified(System.currentTimeMillis());
+
+            return new Entry(link, w, h, data);
+        }
+        catch (Exception e)
+        {
+            file.delete();
+        }
+
+        return null;
+    }
+
+    /**
+     * Write given entry into a temporary file first, and move it in place,
+     * so other threads never read partially written composites.
+     */
+    private void write(File folder, String key, Entry entry, long diskBudget)
+    {
+        folder.mkdirs();
+
+        File file = new File(folder, key + ".bin");
+        File temporary = null;
+
+        try
+        {
+            temporary = File.createTempFile(key, ".tmp", folder);
+
+            try (DataOutputStream stream = new DataOutputStream(new GZIPOutputStream(new FileOutputStream(temporary))))
+            {
+                stream.writeInt(entry.width);
+                stream.writeInt(entry.height);
+                stream.write(entry.data);
+            }
+
+            Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        catch (Exception e)
+        {
+            e.printStackTrace();
+
+            if (temporary != null)
+            {
+                temporary.delete();
+            }
+
+            return;
+        }
+
+        this.trimDisk(folder, file.length(), diskBudget);
+    }
+
+    /**
+     * Delete least recently used composites on disk that don't fit into
+     * disk budget. The folder is listed only when disk usage isn't known
+     * yet, or when it goes over the budget.
+     */
+    private void trimDisk(File folder, long written, long diskBudget)
+    {
+        synchronized (this.diskLock)
+        {
+            if (this.diskSize >= 0)
+            {
+                this.diskSize += written;
+
+                if (this.diskSize <= diskBudget)
+                {
+                    return;
+                }
+            }
+
+            File[] files = folder.listFiles((f) -> f.getName().endsWith(".bin"));
+
+            if (files == null)
+            {
+                return;
+            }
+
+            long total = 0;
+            long kept = 0;
+
+            Arrays.sort(files, Comparator.comparingLong(File::lastModified).reversed());
+
+            for (File file : files)
+            {
+                total += file.length();
+
+                if (total > diskBudget)
+                {
+                    file.delete();
+                }
+                else
+                {
+                    kept = total;
+                }
+            }
+
+            this.diskSize = kept;
+        }
+    }
+
+    private static class Entry
+    {
+        public final MultiLink link;
+        public final int width;
+        public final int height;
+        public final byte[] data;
+
+        public Entry(MultiLink link, int width, int height, byte[] data)
+        {
+            this.link = link;
+            this.width = width;
+            this.height = height;
+            this.data = data;
+        }
+    }
+}
@@ -0,0 +1,242 @@
+package mchorse.bbs_mod.utils.resources;
+
+import com.ibm.icu.impl.Assert;
+import mchorse.bbs_mod.resources.AssetProvider;
+import mchorse.bbs_mod.resources.Link;
+import mchorse.bbs_mod.resources.packs.ExternalAssetsSourcePack;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Random;
+
+public class MultiLinkCacheTest
+{
+    private static int processed;
+
+    public static void main(String[] args) throws Exception
+    {
+        File folder = Files.createTempDirectory("bbs_multiskin").toFile();
+
+        try
+        {
+            AssetProvider provider = new AssetProvider();
+            File assets = new File(folder, "assets");
+
+            assets.mkdirs();
+            provider.register(new ExternalAssetsSourcePack("assets", assets).providesFiles());
+
+            for (int i = 0; i < 8; i++)
+            {
+                Files.write(new File(assets, i + ".png").toPath(), new byte[i + 1]);
+            }
+
+            testEviction(provider);
+            testDependencies(provider);
+            testDisk(provider, assets, new File(folder, "cache"));
+        }
+        finally
+        {
+            delete(folder);
+        }
+    }
+
+    /**
+     * Least recently used composites get evicted once they don't fit into
+     * the budget.
+     */
+    private static void testEviction(AssetProvider provider)
+    {
+        MultiLinkCache cache = new MultiLinkCache(provider, MultiLinkCacheTest::process);
+        int size = 16 * 16 * 4;
+
+        cache.setup(size * 2, null, 0);
+
+        MultiLink a = link(0, 1);
+        MultiLink b = link(1, 2);
+        MultiLink c = link(2, 3);
+
+        check(cache, a, true);
+        check(cache, b, true);
+        check(cache, a, false);
+        Assert.assrt(cache.getSize() == size * 2);
+
+        /* b is least recently used now */
+        check(cache, c, true);
+        check(cache, a, false);
+        check(cache, b, true);
+        Assert.assrt(cache.getSize() == size * 2);
+        Assert.assrt(cache.getHits() == 2 && cache.getMisses() == 4);
+
+        /* Identical multi-links share the composite */
+        check(cache, link(1, 2), false);
+
+        /* Shrinking the budget evicts right away, and zero disables it */
+        cache.setup(size, null, 0);
+        Assert.assrt(cache.getSize() == size);
+
+        cache.setup(0, null, 0);
+        check(cache, b, true);
+        check(cache, b, true);
+    }
+
+    /**
+     * Invalidating a source drops composites that use it, and evicted
+     * composites don't keep their dependencies around.
+     */
+    private static void testDependencies(AssetProvider provider)
+    {
+        MultiLinkCache cache = new MultiLinkCache(provider, MultiLinkCacheTest::process);
+        int size = 16 * 16 * 4;
+
+        cache.setup(size * 3, null, 0);
+
+        MultiLink a = link(0, 1);
+        MultiLink b = link(1, 2);
+        MultiLink c = link(3, 4);
+
+        check(cache, a, true);
+        check(cache, b, true);
+        check(cache, c, true);
+
+        List<MultiLink> links = cache.invalidate(link(1));
+
+        Assert.assrt(links.size() == 2 && links.contains(a) && links.contains(b));
+        Assert.assrt(cache.getSize() == size);
+        Assert.assrt(cache.invalidate(link(1)).isEmpty());
+
+        check(cache, a, true);
+        check(cache, c, false);
+
+        /* Lots of composites that got evicted only leave the last ones */
+        for (int i = 0; i < 1000; i++)
+        {
+            MultiLink link = link(5, 6);
+
+            link.children.get(0).color = i;
+            check(cache, link, true);
+        }
+
+        Assert.assrt(cache.invalidate(link(0)).isEmpty());
+        Assert.assrt(cache.invalidate(link(3)).isEmpty());
+        Assert.assrt(cache.invalidate(link(5)).size() == 3);
+        Assert.assrt(cache.getSize() == 0);
+    }
+
+    /**
+     * Composites written to disk survive restarts, are trimmed to the disk
+     * budget, and aren't used once their source files change.
+     */
+    private static void testDisk(AssetProvider provider, File assets, File folder) throws Exception
+    {
+        MultiLinkCache cache = new MultiLinkCache(provider, MultiLinkCacheTest::process);
+        MultiLink a = link(0, 1);
+
+        cache.setup(1024 * 1024, folder, 1024 * 1024);
+        check(cache, a, true);
+
+        /* Nothing but composites is left in the folder */
+        Assert.assrt(folder.listFiles().length == 1 && folder.listFiles()[0].getName().endsWith(".bin"));
+
+        MultiLinkCache restarted = new MultiLinkCache(provider, MultiLinkCacheTest::process);
+
+        restarted.setup(1024 * 1024, folder, 1024 * 1024);
+        check(restarted, a, false);
+
+        /* Modified source file gives another key */
+        Files.write(new File(assets, "1.png").toPath(), new byte[100]);
+
+        check(restarted, a, true);
+
+        /* Random pixels barely compress, so only few composites fit */
+        long length = folder.listFiles()[0].length();
+        long budget = length * 3 + length / 2;
+        MultiLinkCache trimmed = new MultiLinkCache(provider, MultiLinkCacheTest::process);
+
+        trimmed.setup(1024 * 1024, folder, budget);
+
+        for (int i = 0; i < 20; i++)
+        {
+            MultiLink link = link(6, 7);
+
+            link.children.get(1).color = i;
+            check(trimmed, link, true);
+            Thread.sleep(5);
+
+            Assert.assrt("Disk: " + size(folder), size(folder) <= budget);
+        }
+
+        Assert.assrt(folder.listFiles().length == 3);
+    }
+
+    private static void check(MultiLinkCache cache, MultiLink link, boolean process)
+    {
+        int processed = MultiLinkCacheTest.processed;
+        Pixels pixels = cache.get(link);
+
+        Assert.assrt(pixels.width == 16 && pixels.height == 16);
+        Assert.assrt(pixels.getBuffer().get(0) == (byte) link.children.hashCode());
+        Assert.assrt(MultiLinkCacheTest.processed - processed == (process ? 1 : 0));
+    }
+
+    private static Pixels process(MultiLink link)
+    {
+        ByteBuffer buffer = ByteBuffer.allocate(16 * 16 * 4);
+        Random random = new Random(link.children.hashCode());
+
+        while (buffer.hasRemaining())
+        {
+            buffer.put((byte) random.nextInt());
+        }
+
+        buffer.put(0, (byte) link.children.hashCode());
+        processed += 1;
+
+        return new Pixels(buffer, 16, 16);
+    }
+
+    private static MultiLink link(int... indices)
+    {
+        MultiLink link = new MultiLink();
+
+        for (int index : indices)
+        {
+            link.children.add(new FilteredLink(link(index)));
+        }
+
+        return link;
+    }
+
+    private static Link link(int index)
+    {
+        return new Link("assets", index + ".png");
+    }
+
+    private static long size(File folder)
+    {
+        long size = 0;
+
+        for (File file : folder.listFiles())
+        {
+            size += file.length();
+        }
+
+        return size;
+    }
+
+    private static void delete(File file)
+    {
+        File[] files = file.listFiles();
+
+        if (files != null)
+        {
+            for (File child : files)
+            {
+                delete(child);
+            }
+        }
+
+        file.delete();
+    }
+}
@@ -0,0 +1,334 @@
+package mchorse.bbs_mod.utils.resources;
+
+import mchorse.bbs_mod.utils.colors.Color;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * Bulk pixel operations
+ *
+ * Operations over RGBA {@link Pixels}, which work with whole rows as packed
+ * ints (R in the lowest byte, A in the highest) instead of going through
+ * {@link Color} per pixel, and which process rows in parallel for big
+ * images. Results are bit-exact with per pixel implementations in
+ * {@link Pixels} and {@link TextureProcessor}: the same float math is
+ * performed in the same order, only reading and writing is different.
+ */
+public class PixelOps
+{
+    /**
+     * Minimum amount of processed pixels to process rows in parallel.
+     */
+    public static final int PARALLEL_THRESHOLD = 128 * 128;
+
+    /**
+     * Channel byte to float, same as {@code (byte & 0xff) / 255F}.
+     */
+    private static final float[] UNIT = new float[256];
+
+    /**
+     * Channel byte after being read and written back as float.
+     */
+    private static final int[] ROUND_TRIP = new int[256];
+
+    public static boolean parallel = true;
+
+    static
+    {
+        for (int i = 0; i < 256; i++)
+        {
+            UNIT[i] = i / 255F;
+            ROUND_TRIP[i] = toByte(UNIT[i]);
+        }
+    }
+
+    /**
+     * Whether bulk operations can be used on given pixels (only RGBA pixels
+     * are supported).
+     */
+    public static boolean isSupported(Pixels pixels)
+    {
+        return pixels.bits == 4 && pixels.getBuffer() != null;
+    }
+
+    /**
+     * Same as {@code (byte) (value * 0xff) & 0xff}, which is how
+     * {@link Pixels#setColor(int, Color)} writes channels.
+     */
+    private static int toByte(float value)
+    {
+        return (int) (value * 0xff) & 0xff;
+    }
+
+    private static int pack(float r, float g, float b, float a)
+    {
+        return toByte(r) | toByte(g) << 8 | toByte(b) << 16 | toByte(a) << 24;
+    }
+
+    private static IntBuffer view(Pixels pixels)
+    {
+        ByteBuffer buffer = pixels.getBuffer().duplicate();
+
+        buffer.clear();
+
+        return buffer.order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+    }
+
+    private static void forEach(int tasks, long pixels, IntConsumer task)
+    {
+        if (parallel && tasks > 1 && pixels >= PARALLEL_THRESHOLD)
+        {
+            IntStream.range(0, tasks).parallel().forEach(task);
+        }
+        else
+        {
+            for (int i = 0; i < tasks; i++)
+            {
+                task.accept(i);
+            }
+        }
+    }
+
+    /**
+     * Alpha blend source pixels over destination pixels, see
+     * {@link Pixels#draw(Pixels, int, int)}.
+     */
+    public static void blend(Pixels destination, Pixels source, int x, int y)
+    {
+        blend(destination, source, x, y, source.width, source.height, false);
+    }
+
+    /**
+     * Alpha blend source pixels scaled to given size over destination
+     * pixels, see {@link Pixels#draw(Pixels, int, int, int, int)}.
+     */
+    public static void blend(Pixels destination, Pixels source, int x, int y, int w, int h)
+    {
+        blend(destination, source, x, y, w, h, true);
+    }
+
+    private static void blend(Pixels destination, Pixels source, int x, int y, int w, int h, boolean scale)
+    {
+        int x1 = Math.max(x, 0);
+        int x2 = Math.min(x + w, destination.width);
+        int y1 = Math.max(y, 0);
+        int y2 = Math.min(y + h, destination.height);
+
+        if (x1 >= x2 || y1 >= y2)
+        {
+            return;
+        }
+
+        int[] columns = columns(source, x, w, x1, x2, scale);
+        IntBuffer dst = view(destination);
+        IntBuffer src = view(source);
+        int count = x2 - x1;
+
+        forEach(y2 - y1, (long) count * (y2 - y1), (row) ->
+        {
+            int j = y1 + row;
+            int py = scale ? (int) (source.height * ((j - y) / (float) h)) : j - y;
+            int[] target = new int[source.width];
+            int[] pixels = new int[count];
+
+            src.get(py * source.width, target);
+            dst.get(j * destination.width + x1, pixels);
+
+            for (int k = 0; k < count; k++)
+            {
+                int s = target[columns[k]];
+                int d = pixels[k];
+                float ta = UNIT[s >>> 24];
+                float sa = UNIT[d >>> 24];
+                float a = 1 - (1 - ta) * (1 - sa);
+                float r = UNIT[s & 0xff] * ta / a + UNIT[d & 0xff] * sa * (1 - ta) / a;
+                float g = UNIT[s >> 8 & 0xff] * ta / a + UNIT[d >> 8 & 0xff] * sa * (1 - ta) / a;
+                float b = UNIT[s >> 16 & 0xff] * ta / a + UNIT[d >> 16 & 0xff] * sa * (1 - ta) / a;
+
+                pixels[k] = pack(r, g, b, a);
+            }
+
+            dst.put(j * destination.width + x1, pixels);
+        });
+    }
+
+    /**
+     * Source column for every destination column in given range.
+     */
+    private static int[] columns(Pixels source, int x, int w, int x1, int x2, boolean scale)
+    {
+        int[] columns = new int[x2 - x1];
+
+        for (int i = x1; i < x2; i++)
+        {
+            columns[i - x1] = scale ? (int) (source.width * ((i - x) / (float) w)) : i - x;
+        }
+
+        return columns;
+    }
+
+    /**
+     * Fill a rectangle with given ARGB color, see
+     * {@link Pixels#drawRect(int, int, int, int, int)}.
+     */
+    public static void fill(Pixels destination, int x, int y, int w, int h, int color)
+    {
+        int x1 = Math.max(x, 0);
+        int x2 = Math.min(x + w, destination.width);
+        int y1 = Math.max(y, 0);
+        int y2 = Math.min(y + h, destination.height);
+
+        if (x1 >= x2 || y1 >= y2)
+        {
+            return;
+        }
+
+        Color c = new Color().set(color);
+        int packed = pack(c.r, c.g, c.b, c.a);
+        int[] row = new int[x2 - x1];
+        IntBuffer dst = view(destination);
+
+        Arrays.fill(row, packed);
+
+        for (int j = y1; j < y2; j++)
+        {
+            dst.put(j * destination.width + x1, row);
+        }
+    }
+
+    /**
+     * Make image's pixels transparent wherever opaque pixels of the mask
+     * scaled to given size are, see {@link TextureProcessor}'s erase filter.
+     */
+    public static void erase(Pixels image, Pixels mask, int x, int y, int w, int h)
+    {
+        int x1 = Math.max(x, 0);
+        int x2 = Math.min(x + w, image.width);
+        int y1 = Math.max(y, 0);
+        int y2 = Math.min(y + h, image.height);
+
+        if (x1 >= x2 || y1 >= y2)
+        {
+            return;
+        }
+
+        int[] columns = columns(mask, x, w, x1, x2, true);
+        IntBuffer dst = view(image);
+        IntBuffer src = view(mask);
+        int count = x2 - x1;
+
+        forEach(y2 - y1, (long) count * (y2 - y1), (row) ->
+        {
+            int j = y1 + row;
+            int py = (int) (mask.height * ((j - y) / (float) h));
+            int[] target = new int[mask.width];
+            int[] pixels = new int[count];
+
+            src.get(py * mask.width, target);
+            dst.get(j * image.width + x1, pixels);
+
+            for (int k = 0; k < count; k++)
+            {
+                /* Mask's alpha after being blended over a transparent pixel */
+                float ta = UNIT[target[columns[k]] >>> 24];
+                int a = toByte(1 - (1 - ta) * (1 - UNIT[0]));
+
+                if (UNIT[a] > 0.999F)
+                {
+                    int d = pixels[k];
+
+                    pixels[k] = ROUND_TRIP[d & 0xff] | ROUND_TRIP[d >> 8 & 0xff] << 8 | ROUND_TRIP[d >> 16 & 0xff] << 16;
+                }
+            }
+
+            dst.put(j * image.width + x1, pixels);
+        });
+    }
+
+    /**
+     * Multiply pixels by given ARGB color, optionally pixelating the image
+     * first (every pixel takes the color of its block's top left pixel), see
+     * {@link TextureProcessor}'s color and pixelate filters.
+     */
+    public static void tint(Pixels pixels, int color, int pixelate)
+    {
+        Color filter = new Color().set(color);
+        IntBuffer view = view(pixels);
+        int width = pixels.width;
+        int height = pixels.height;
+
+        if (pixelate <= 1)
+        {
+            forEach(height, (long) width * height, (j) ->
+            {
+                int[] row = new int[width];
+
+                view.get(j * width, row);
+
+                for (int i = 0; i < width; i++)
+                {
+                    row[i] = tint(row[i], filter);
+                }
+
+                view.put(j * width, row);
+            });
+
+            return;
+        }
+
+        /* Every band of rows depends only on its first row, so bands can be
+         * processed independently */
+        int bands = (height + pixelate - 1) / pixelate;
+
+        forEach(bands, (long) width * height, (band) ->
+        {
+            int y1 = band * pixelate;
+            int y2 = Math.min(y1 + pixelate, height);
+            int[] row = new int[width];
+            int[] origin = new int[width];
+
+            view.get(y1 * width, row);
+
+            for (int i = 0; i < width; i++)
+            {
+                int tinted = tint(row[i - i % pixelate], filter);
+
+                /* Block's origin gets tinted, and the rest of the block
+                 * copies origin's (already written) tinted color */
+                origin[i] = i % pixelate == 0 ? tinted : roundTrip(tinted);
+            }
+
+            view.put(y1 * width, origin);
+
+            for (int i = 0; i < width; i++)
+            {
+                row[i] = roundTrip(origin[i - i % pixelate]);
+            }
+
+            for (int j = y1 + 1; j < y2; j++)
+            {
+                view.put(j * width, row);
+            }
+        });
+    }
+
+    private static int tint(int pixel, Color filter)
+    {
+        return pack(
+            UNIT[pixel & 0xff] * filter.r,
+            UNIT[pixel >> 8 & 0xff] * filter.g,
+            UNIT[pixel >> 16 & 0xff] * filter.b,
+            UNIT[pixel >>> 24] * filter.a
+        );
+    }
+
+    private static int roundTrip(int pixel)
+    {
+        return ROUND_TRIP[pixel & 0xff] | ROUND_TRIP[pixel >> 8 & 0xff] << 8 | ROUND_TRIP[pixel >> 16 & 0xff] << 16 | ROUND_TRIP[pixel >>> 24] << 24;
+    }
+}
@@ -0,0 +1,180 @@
+package mchorse.bbs_mod.utils.resources;
+
+import com.ibm.icu.impl.Assert;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.function.Consumer;
+
+/**
+ * Compares per pixel implementations of pixel operations with
+ * {@link PixelOps} on synthetic images: checks that results are bit-exact,
+ * and prints how long both paths take.
+ */
+public class PixelOpsBenchmark
+{
+    private static final int RUNS = 5;
+
+    public static void main(String[] args)
+    {
+        for (int size : new int[] {64, 256, 1024})
+        {
+            System.out.println("Image size " + size + "x" + size + ":");
+
+            benchmark("blend", size, (p) -> p.a.drawScalar(p.b, 3, -2), (p) -> PixelOps.blend(p.a, p.b, 3, -2));
+            benchmark("blend (scaled)", size, (p) -> p.a.drawScalar(p.c, 0, 0, size, size), (p) -> PixelOps.blend(p.a, p.c, 0, 0, size, size));
+            benchmark("fill", size, (p) -> p.a.drawRectScalar(-1, 2, size / 2, size, 0x80ff4020), (p) -> PixelOps.fill(p.a, -1, 2, size / 2, size, 0x80ff4020));
+            benchmark("erase", size, (p) -> TextureProcessor.processEraseScalar(p.a, p.c, erase(1, 1), size - 1, size), (p) -> PixelOps.erase(p.a, p.c, 1, 1, size - 1, size));
+            benchmark("tint", size, (p) -> TextureProcessor.processImageScalar(p.a, filter(0xcc8040ff, 0)), (p) -> PixelOps.tint(p.a, 0xcc8040ff, 0));
+            benchmark("tint (pixelate)", size, (p) -> TextureProcessor.processImageScalar(p.a, filter(0xff40c080, 3)), (p) -> PixelOps.tint(p.a, 0xff40c080, 3));
+            benchmark("composite (8 layers)", size, (p) -> composite(p, true), (p) -> composite(p, false));
+        }
+    }
+
+    private static void composite(Images images, boolean scalar)
+    {
+        for (int i = 0; i < 8; i++)
+        {
+            Pixels layer = i % 2 == 0 ? images.b : images.c;
+
+            if (scalar)
+            {
+                TextureProcessor.processImageScalar(layer, filter(0xffffffff - i * 0x101010, i % 3 + 1));
+                images.a.drawScalar(layer, i, i, images.a.width, images.a.height);
+            }
+            else
+            {
+                PixelOps.tint(layer, 0xffffffff - i * 0x101010, i % 3 + 1);
+                PixelOps.blend(images.a, layer, i, i, images.a.width, images.a.height);
+            }
+        }
+    }
+
+    private static void benchmark(String name, int size, Consumer<Images> scalar, Consumer<Images> bulk)
+    {
+        long scalarTime = Long.MAX_VALUE;
+        long serialTime = Long.MAX_VALUE;
+        long parallelTime = Long.MAX_VALUE;
+
+        for (int run = 0; run < RUNS; run++)
+        {
+            Images expected = new Images(size, run);
+            Images serial = new Images(size, run);
+            Images parallel = new Images(size, run);
+            long time = System.nanoTime();
+
+            scalar.accept(expected);
+            scalarTime = Math.min(scalarTime, System.nanoTime() - time);
+
+            PixelOps.parallel = false;
+            time = System.nanoTime();
+            bulk.accept(serial);
+            serialTime = Math.min(serialTime, System.nanoTime() - time);
+
+            PixelOps.parallel = true;
+            time = System.nanoTime();
+            bulk.accept(parallel);
+            parallelTime = Math.min(parallelTime, System.nanoTime() - time);
+
+            compare(name, expected, serial);
+            compare(name, expected, parallel);
+
+            expected.delete();
+            serial.delete();
+            parallel.delete();
+        }
+
+        System.out.printf("  %-22s scalar %8.3f ms, bulk %8.3f ms, parallel %8.3f ms%n", name, scalarTime / 1_000_000D, serialTime / 1_000_000D, parallelTime / 1_000_000D);
+    }
+
+    private static void compare(String name, Images expected, Images actual)
+    {
+        compare(name, expected.a, actual.a);
+        compare(name, expected.b, actual.b);
+        compare(name, expected.c, actual.c);
+    }
+
+    private static void compare(String name, Pixels expected, Pixels actual)
+    {
+        ByteBuffer a = expected.getBuffer();
+        ByteBuffer b = actual.getBuffer();
+
+        for (int i = 0, c = a.capacity(); i < c; i++)
+        {
+            if (a.get(i) != b.get(i))
+            {
+                Assert.fail(name + ": byte " + i + " differs (" + (a.get(i) & 0xff) + " != " + (b.get(i) & 0xff) + ")");
+            }
+        }
+    }
+
+    private static FilteredLink filter(int color, int pixelate)
+    {
+        FilteredLink link = new FilteredLink();
+
+        link.color = color;
+        link.pixelate = pixelate;
+
+        return link;
+    }
+
+    private static FilteredLink erase(int x, int y)
+    {
+        FilteredLink link = new FilteredLink();
+
+        link.erase = true;
+        link.shiftX = x;
+        link.shiftY = y;
+
+        return link;
+    }
+
+    private static Pixels random(int w, int h, Random random)
+    {
+        Pixels pixels = Pixels.fromSize(w, h);
+        ByteBuffer buffer = pixels.getBuffer();
+
+        for (int i = 0, c = buffer.capacity(); i < c; i++)
+        {
+            int value = random.nextInt(256);
+
+            /* Make sure that fully transparent and fully opaque pixels
+             * are common enough */
+            if (i % 4 == 3 && value < 64)
+            {
+                value = 0;
+            }
+            else if (i % 4 == 3 && value > 192)
+            {
+                value = 255;
+            }
+
+            buffer.put(i, (byte) value);
+        }
+
+        return pixels;
+    }
+
+    private static class Images
+    {
+        public final Pixels a;
+        public final Pixels b;
+        public final Pixels c;
+
+        public Images(int size, int seed)
+        {
+            Random random = new Random(seed);
+
+            this.a = random(size, size, random);
+            this.b = random(size - 5, size + 3, random);
+            this.c = random(size / 2 + 1, size / 3 + 2, random);
+        }
+
+        public void delete()
+        {
+            this.a.delete();
+            this.b.delete();
+            this.c.delete();
+        }
+    }
+}
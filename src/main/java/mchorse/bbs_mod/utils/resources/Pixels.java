@@ -194,6 +194,22 @@ public class Pixels
     }
 
     public void draw(Pixels pixels, int x, int y)
+    {
+        if (this.canUseBulk(pixels))
+        {
+            PixelOps.blend(this, pixels, x, y);
+        }
+        else
+        {
+            this.drawScalar(pixels, x, y);
+        }
+    }
+
+    /**
+     * Per pixel implementation of {@link #draw(Pixels, int, int)}, used for
+     * non RGBA pixels (and as a reference for {@link PixelOps}).
+     */
+    void drawScalar(Pixels pixels, int x, int y)
     {
         Color color = new Color();
 
@@ -218,6 +234,21 @@ public class Pixels
     }
 
     public void draw(Pixels pixels, int x, int y, int w, int h)
+    {
+        if (this.canUseBulk(pixels))
+        {
+            PixelOps.blend(this, pixels, x, y, w, h);
+        }
+        else
+        {
+            this.drawScalar(pixels, x, y, w, h);
+        }
+    }
+
+    /**
+     * Per pixel implementation of {@link #draw(Pixels, int, int, int, int)}.
+     */
+    void drawScalar(Pixels pixels, int x, int y, int w, int h)
     {
         Color color = new Color();
 
@@ -244,6 +275,21 @@ public class Pixels
     }
 
     public void drawRect(int x, int y, int w, int h, int c)
+    {
+        if (PixelOps.isSupported(this))
+        {
+            PixelOps.fill(this, x, y, w, h, c);
+        }
+        else
+        {
+            this.drawRectScalar(x, y, w, h, c);
+        }
+    }
+
+    /**
+     * Per pixel implementation of {@link #drawRect(int, int, int, int, int)}.
+     */
+    void drawRectScalar(int x, int y, int w, int h, int c)
     {
         Color color = new Color().set(c);
 
@@ -297,6 +343,11 @@ public class Pixels
         }
     }
 
+    private boolean canUseBulk(Pixels pixels)
+    {
+        return pixels != this && PixelOps.isSupported(this) && PixelOps.isSupported(pixels);
+    }
+
     public int[] getARGB()
     {
         int[] colors = new int[this.width * this.height * 4];
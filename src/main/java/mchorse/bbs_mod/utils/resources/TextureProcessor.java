@@ -85,10 +85,26 @@ public class TextureProcessor
      * Apply erasing
      */
     private static void processErase(Pixels image, Pixels pixels, FilteredLink filter, int iw, int ih)
+    {
+        if (PixelOps.isSupported(image) && PixelOps.isSupported(pixels))
+        {
+            PixelOps.erase(image, pixels, filter.shiftX, filter.shiftY, iw, ih);
+        }
+        else
+        {
+            processEraseScalar(image, pixels, filter, iw, ih);
+        }
+    }
+
+    /**
+     * Per pixel implementation of erasing, used for non RGBA pixels (and as
+     * a reference for {@link PixelOps}).
+     */
+    static void processEraseScalar(Pixels image, Pixels pixels, FilteredLink filter, int iw, int ih)
     {
         Pixels mask = Pixels.fromSize(image.width, image.height);
 
-        mask.draw(pixels, filter.shiftX, filter.shiftY, iw, ih);
+        mask.drawScalar(pixels, filter.shiftX, filter.shiftY, iw, ih);
 
         for (int p = 0, c = mask.getCount(); p < c; p++)
         {
@@ -109,6 +125,21 @@ public class TextureProcessor
      * Apply filters
      */
     private static void processImage(Pixels pixels, FilteredLink link)
+    {
+        if (PixelOps.isSupported(pixels))
+        {
+            PixelOps.tint(pixels, link.color, link.pixelate);
+        }
+        else
+        {
+            processImageScalar(pixels, link);
+        }
+    }
+
+    /**
+     * Per pixel implementation of filters.
+     */
+    static void processImageScalar(Pixels pixels, FilteredLink link)
     {
         Color filter = new Color().set(link.color);
         Color pixel = new Color();
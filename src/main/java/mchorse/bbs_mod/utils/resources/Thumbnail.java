@@ -0,0 +1,168 @@
+package mchorse.bbs_mod.utils.resources;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Thumbnail
+ *
+ * Small RGBA image (4 bytes per pixel, row by row) kept on the heap, so it
+ * can be created, downscaled, saved and loaded without GL or native memory.
+ */
+public class Thumbnail
+{
+    public final int width;
+    public final int height;
+    public final byte[] data;
+
+    public Thumbnail(int width, int height, byte[] data)
+    {
+        if (data.length != width * height * 4)
+        {
+            throw new IllegalArgumentException("Thumbnail data doesn't match its size (" + width + "x" + height + ")!");
+        }
+
+        this.width = width;
+        this.height = height;
+        this.data = data;
+    }
+
+    /**
+     * Copy RGBA or RGB pixels into a thumbnail (without freeing them).
+     */
+    public static Thumbnail fromPixels(Pixels pixels)
+    {
+        int count = pixels.width * pixels.height;
+        byte[] data = new byte[count * 4];
+
+        pixels.rewindBuffer();
+
+        if (pixels.bits == 4)
+        {
+            pixels.getBuffer().get(0, data);
+        }
+        else
+        {
+            for (int i = 0; i < count; i++)
+            {
+                int index = i * pixels.bits;
+
+                data[i * 4] = pixels.getBuffer().get(index);
+                data[i * 4 + 1] = pixels.getBuffer().get(index + 1);
+                data[i * 4 + 2] = pixels.getBuffer().get(index + 2);
+                data[i * 4 + 3] = (byte) 0xff;
+            }
+        }
+
+        return new Thumbnail(pixels.width, pixels.height, data);
+    }
+
+    /**
+     * Size of given image fit into a square of given size (keeping aspect
+     * ratio). Images that already fit keep their size.
+     */
+    public static int[] fit(int width, int height, int size)
+    {
+        if (width <= size && height <= size)
+        {
+            return new int[] {width, height};
+        }
+
+        if (width >= height)
+        {
+            return new int[] {size, Math.max(1, (int) ((long) height * size / width))};
+        }
+
+        return new int[] {Math.max(1, (int) ((long) width * size / height)), size};
+    }
+
+    /**
+     * Downscale this image to fit into a square of given size. Every
+     * thumbnail's pixel is an average of source pixels it covers (alpha
+     * weighted, so colors of transparent pixels don't bleed). Only integer
+     * math is used, so the result is the same on every machine.
+     */
+    public Thumbnail downscale(int size)
+    {
+        int[] fit = fit(this.width, this.height, size);
+        int w = fit[0];
+        int h = fit[1];
+
+        if (w == this.width && h == this.height)
+        {
+            return this;
+        }
+
+        byte[] data = new byte[w * h * 4];
+
+        for (int y = 0; y < h; y++)
+        {
+            int y1 = (int) ((long) y * this.height / h);
+            int y2 = Math.max(y1 + 1, (int) ((long) (y + 1) * this.height / h));
+
+            for (int x = 0; x < w; x++)
+            {
+                int x1 = (int) ((long) x * this.width / w);
+                int x2 = Math.max(x1 + 1, (int) ((long) (x + 1) * this.width / w));
+
+                long r = 0;
+                long g = 0;
+                long b = 0;
+                long a = 0;
+
+                for (int sy = y1; sy < y2; sy++)
+                {
+                    int index = (sy * this.width + x1) * 4;
+
+                    for (int sx = x1; sx < x2; sx++, index += 4)
+                    {
+                        int alpha = this.data[index + 3] & 0xff;
+
+                        r += (this.data[index] & 0xff) * alpha;
+                        g += (this.data[index + 1] & 0xff) * alpha;
+                        b += (this.data[index + 2] & 0xff) * alpha;
+                        a += alpha;
+                    }
+                }
+
+                int count = (x2 - x1) * (y2 - y1);
+                int index = (y * w + x) * 4;
+
+                if (a > 0)
+                {
+                    data[index] = (byte) ((r + a / 2) / a);
+                    data[index + 1] = (byte) ((g + a / 2) / a);
+                    data[index + 2] = (byte) ((b + a / 2) / a);
+                    data[index + 3] = (byte) ((a + count / 2) / count);
+                }
+            }
+        }
+
+        return new Thumbnail(w, h, data);
+    }
+
+    public void write(DataOutputStream stream) throws IOException
+    {
+        stream.writeInt(this.width);
+        stream.writeInt(this.height);
+        stream.write(this.data);
+    }
+
+    public static Thumbnail read(DataInputStream stream) throws IOException
+    {
+        int width = stream.readInt();
+        int height = stream.readInt();
+
+        if (width <= 0 || height <= 0 || width > 4096 || height > 4096)
+        {
+            throw new IOException("Invalid thumbnail size " + width + "x" + height + "!");
+        }
+
+        byte[] data = new byte[width * height * 4];
+
+        stream.readFully(data);
+
+        return new Thumbnail(width, height, data);
+    }
+}
@@ -0,0 +1,158 @@
+package mchorse.bbs_mod.utils.resources;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Thumbnail atlas
+ *
+ * Keeps track of a fixed grid of square cells in an atlas texture, where
+ * every cell holds one thumbnail. When all cells are taken, the least
+ * recently used thumbnail gets evicted to make room for a new one. It
+ * doesn't touch the texture itself, so the owner has to upload thumbnails
+ * to the regions it gets.
+ */
+public class ThumbnailAtlas <K>
+{
+    public final int columns;
+    public final int rows;
+    public final int cell;
+
+    private final LinkedHashMap<K, Region> regions = new LinkedHashMap<>(16, 0.75F, true);
+    private final Deque<Integer> free = new ArrayDeque<>();
+
+    /* Statistics */
+    private int evicted;
+
+    public ThumbnailAtlas(int columns, int rows, int cell)
+    {
+        this.columns = columns;
+        this.rows = rows;
+        this.cell = cell;
+
+        this.clear();
+    }
+
+    public int getWidth()
+    {
+        return this.columns * this.cell;
+    }
+
+    public int getHeight()
+    {
+        return this.rows * this.cell;
+    }
+
+    public int getCapacity()
+    {
+        return this.columns * this.rows;
+    }
+
+    public int size()
+    {
+        return this.regions.size();
+    }
+
+    /**
+     * Amount of thumbnails that were evicted so far.
+     */
+    public int getEvicted()
+    {
+        return this.evicted;
+    }
+
+    public boolean has(K key)
+    {
+        return this.regions.containsKey(key);
+    }
+
+    /**
+     * Get region of given key's thumbnail (marking it as recently used), or
+     * null if it isn't in the atlas.
+     */
+    public Region get(K key)
+    {
+        return this.regions.get(key);
+    }
+
+    /**
+     * Take a cell for given key's thumbnail of given size (which has to
+     * fit into a cell), evicting the least recently used one if needed.
+     */
+    public Region allocate(K key, int width, int height)
+    {
+        if (width > this.cell || height > this.cell)
+        {
+            throw new IllegalArgumentException("Thumbnail " + width + "x" + height + " doesn't fit into a cell of " + this.cell + "!");
+        }
+
+        Region region = this.regions.remove(key);
+        int slot;
+
+        if (region != null)
+        {
+            slot = region.slot;
+        }
+        else if (!this.free.isEmpty())
+        {
+            slot = this.free.pop();
+        }
+        else
+        {
+            Iterator<Map.Entry<K, Region>> it = this.regions.entrySet().iterator();
+
+            slot = it.next().getValue().slot;
+            it.remove();
+
+            this.evicted += 1;
+        }
+
+        region = new Region(slot, (slot % this.columns) * this.cell, (slot / this.columns) * this.cell, width, height);
+
+        this.regions.put(key, region);
+
+        return region;
+    }
+
+    public void remove(K key)
+    {
+        Region region = this.regions.remove(key);
+
+        if (region != null)
+        {
+            this.free.push(region.slot);
+        }
+    }
+
+    public void clear()
+    {
+        this.regions.clear();
+        this.free.clear();
+
+        for (int i = this.getCapacity() - 1; i >= 0; i--)
+        {
+            this.free.push(i);
+        }
+    }
+
+    public static class Region
+    {
+        public final int slot;
+        public final int x;
+        public final int y;
+        public final int width;
+        public final int height;
+
+        public Region(int slot, int x, int y, int width, int height)
+        {
+            this.slot = slot;
+            this.x = x;
+            this.y = y;
+            this.width = width;
+            this.height = height;
+        }
+    }
+}
@@ -0,0 +1,262 @@
+package mchorse.bbs_mod.utils.resources;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Objects;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Thumbnail cache
+ *
+ * Creates thumbnails of images (decoding and downscaling them), and keeps
+ * them on disk, keyed by image's path, its stamps (last modification time
+ * and size) and thumbnail size, so thumbnails of modified images are never
+ * returned. Least recently used thumbnails get deleted once the cache
+ * doesn't fit into disk budget.
+ *
+ * Can be used from several threads at once.
+ */
+public class ThumbnailCache
+{
+    /**
+     * How many thumbnails have to be written before disk budget gets
+     * checked again (it requires listing the whole cache folder).
+     */
+    private static final int TRIM_INTERVAL = 64;
+
+    private final int size;
+    private File folder;
+    private long diskBudget;
+    private int writes;
+
+    /* Statistics */
+    private int hits;
+    private int decoded;
+
+    public ThumbnailCache(int size)
+    {
+        this.size = size;
+    }
+
+    public int getSize()
+    {
+        return this.size;
+    }
+
+    /**
+     * Configure disk cache.
+     *
+     * @param folder Folder where thumbnails are written to, or null to not cache them.
+     * @param diskBudget Maximum amount of bytes kept on disk.
+     */
+    public synchronized void setup(File folder, long diskBudget)
+    {
+        if (Objects.equals(this.folder, folder) && this.diskBudget == diskBudget)
+        {
+            return;
+        }
+
+        this.folder = folder;
+        this.diskBudget = diskBudget;
+
+        this.trimDisk();
+    }
+
+    /**
+     * Amount of thumbnails that were read from the disk.
+     */
+    public synchronized int getHits()
+    {
+        return this.hits;
+    }
+
+    /**
+     * Amount of thumbnails that had to be decoded.
+     */
+    public synchronized int getDecoded()
+    {
+        return this.decoded;
+    }
+
+    public String getKey(String path, long modified, long length)
+    {
+        String string = path + "\n" + modified + ":" + length + "\n" + this.size;
+
+        try
+        {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            StringBuilder hex = new StringBuilder();
+
+            for (byte b : digest.digest(string.getBytes(StandardCharsets.UTF_8)))
+            {
+                hex.append(Character.forDigit(b >> 4 & 0xf, 16));
+                hex.append(Character.forDigit(b & 0xf, 16));
+            }
+
+            return hex.toString();
+        }
+        catch (Exception e)
+        {
+            return Integer.toHexString(string.hashCode());
+        }
+    }
+
+    /**
+     * Get a thumbnail of given image.
+     *
+     * @param path Unique path of the image (e.g. link).
+     * @param modified Last modification time of the image, or a negative
+     *     value if it's unknown (in that case it isn't cached on disk).
+     * @param length Size of the image's file.
+     * @param decoder Decoder of the full image, which is called only if there
+     *     is no thumbnail on disk.
+     */
+    public Thumbnail get(String path, long modified, long length, IDecoder decoder) throws Exception
+    {
+        File file = null;
+
+        synchronized (this)
+        {
+            if (this.folder != null && modified >= 0)
+            {
+                file = new File(this.folder, this.getKey(path, modified, length) + ".bin");
+            }
+        }
+
+        if (file != null)
+        {
+            Thumbnail thumbnail = this.read(file);
+
+            if (thumbnail != null)
+            {
+                synchronized (this)
+                {
+                    this.hits += 1;
+                }
+
+                return thumbnail;
+            }
+        }
+
+        Thumbnail thumbnail = decoder.decode().downscale(this.size);
+
+        synchronized (this)
+        {
+            this.decoded += 1;
+        }
+
+        if (file != null)
+        {
+            this.write(file, thumbnail);
+        }
+
+        return thumbnail;
+    }
+
+    /* Disk */
+
+    private Thumbnail read(File file)
+    {
+        if (!file.isFile())
+        {
+            return null;
+        }
+
+        try (DataInputStream stream = new DataInputStream(new GZIPInputStream(new FileInputStream(file))))
+        {
+            Thumbnail thumbnail = Thumbnail.read(stream);
+
+            file.setLastModified(System.currentTimeMillis());
+
+            return thumbnail;
+        }
+        catch (Exception e)
+        {
+            file.delete();
+        }
+
+        return null;
+    }
+
+    private void write(File file, Thumbnail thumbnail)
+    {
+        file.getParentFile().mkdirs();
+
+        /* Write to a temporary file first, so other threads never read a
+         * half written thumbnail */
+        File temp = new File(file.getParentFile(), file.getName() + "." + Thread.currentThread().getId() + ".tmp");
+
+        try (DataOutputStream stream = new DataOutputStream(new GZIPOutputStream(new FileOutputStream(temp))))
+        {
+            thumbnail.write(stream);
+        }
+        catch (Exception e)
+        {
+            e.printStackTrace();
+            temp.delete();
+
+            return;
+        }
+
+        if (!temp.renameTo(file))
+        {
+            temp.delete();
+        }
+
+        synchronized (this)
+        {
+            this.writes += 1;
+
+            if (this.writes >= TRIM_INTERVAL)
+            {
+                this.trimDisk();
+            }
+        }
+    }
+
+    /**
+     * Delete least recently used thumbnails on disk that don't fit into
+     * disk budget.
+     */
+    private void trimDisk()
+    {
+        this.writes = 0;
+
+        File[] files = this.folder == null ? null : this.folder.listFiles((f) -> f.getName().endsWith(".bin"));
+
+        if (files == null)
+        {
+            return;
+        }
+
+        long total = 0;
+
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified).reversed());
+
+        for (File file : files)
+        {
+            total += file.length();
+
+            if (total > this.diskBudget)
+            {
+                file.delete();
+            }
+        }
+    }
+
+    public static interface IDecoder
+    {
+        /**
+         * Decode full image.
+         */
+        public Thumbnail decode() throws Exception;
+    }
+}
@@ -0,0 +1,264 @@
+package mchorse.bbs_mod.utils.resources;
+
+import com.ibm.icu.impl.Assert;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+
+public class ThumbnailTest
+{
+    public static void main(String[] args) throws Exception
+    {
+        testDownscale();
+        testAtlas();
+
+        File folder = Files.createTempDirectory("bbs_thumbnails").toFile();
+
+        try
+        {
+            testCache(folder);
+            benchmark(new File(folder, "benchmark"), 64);
+        }
+        finally
+        {
+            delete(folder);
+        }
+    }
+
+    private static void testDownscale()
+    {
+        /* Images that fit aren't touched */
+        Thumbnail small = image(64, 64, 1);
+
+        Assert.assrt(small.downscale(128) == small);
+        Assert.assrt(Arrays.equals(Thumbnail.fit(64, 32, 128), new int[] {64, 32}));
+        Assert.assrt(Arrays.equals(Thumbnail.fit(512, 256, 128), new int[] {128, 64}));
+        Assert.assrt(Arrays.equals(Thumbnail.fit(100, 4000, 128), new int[] {3, 128}));
+
+        /* 2x2 blocks get averaged */
+        byte[] data = new byte[4 * 2 * 4];
+
+        set(data, 0, 255, 0, 0, 255);
+        set(data, 1, 0, 255, 0, 255);
+        set(data, 4, 0, 0, 255, 255);
+        set(data, 5, 255, 255, 255, 255);
+        set(data, 2, 10, 20, 30, 255);
+        set(data, 3, 10, 20, 30, 255);
+        set(data, 6, 200, 0, 0, 0);
+        set(data, 7, 10, 20, 30, 255);
+
+        Thumbnail thumbnail = new Thumbnail(4, 2, data).downscale(2);
+
+        Assert.assrt(thumbnail.width == 2 && thumbnail.height == 1);
+        Assert.assrt(Arrays.equals(get(thumbnail, 0), new int[] {128, 128, 128, 255}));
+
+        /* Color of transparent pixel doesn't bleed, but alpha is averaged */
+        Assert.assrt(Arrays.equals(get(thumbnail, 1), new int[] {10, 20, 30, 191}));
+
+        /* Fully transparent area stays transparent black */
+        Thumbnail transparent = new Thumbnail(4, 4, new byte[4 * 4 * 4]).downscale(2);
+
+        Assert.assrt(Arrays.equals(transparent.data, new byte[2 * 2 * 4]));
+
+        /* Same input gives the same output */
+        Thumbnail big = image(1000, 700, 7);
+
+        Assert.assrt(Arrays.equals(big.downscale(128).data, image(1000, 700, 7).downscale(128).data));
+        Assert.assrt(big.downscale(128).width == 128 && big.downscale(128).height == 89);
+    }
+
+    private static void testAtlas()
+    {
+        ThumbnailAtlas<String> atlas = new ThumbnailAtlas<>(2, 2, 16);
+
+        ThumbnailAtlas.Region a = atlas.allocate("a", 16, 16);
+        ThumbnailAtlas.Region b = atlas.allocate("b", 8, 16);
+
+        atlas.allocate("c", 16, 16);
+        atlas.allocate("d", 16, 16);
+
+        Assert.assrt(a.x == 0 && a.y == 0 && b.x == 16 && b.y == 0 && b.width == 8);
+        Assert.assrt(atlas.getWidth() == 32 && atlas.size() == 4);
+
+        /* Using "a" makes "b" the least recently used one */
+        Assert.assrt(atlas.get("a") == a);
+
+        ThumbnailAtlas.Region e = atlas.allocate("e", 4, 4);
+
+        Assert.assrt(!atlas.has("b") && atlas.has("a") && e.slot == b.slot);
+        Assert.assrt(atlas.getEvicted() == 1);
+
+        /* Removed cells are reused before evicting */
+        atlas.remove("c");
+        atlas.allocate("f", 16, 16);
+
+        Assert.assrt(atlas.getEvicted() == 1 && atlas.has("a") && atlas.has("d"));
+
+        try
+        {
+            atlas.allocate("g", 17, 1);
+            Assert.fail("Thumbnail bigger than a cell was allocated!");
+        }
+        catch (IllegalArgumentException exception)
+        {}
+    }
+
+    private static void testCache(File folder) throws Exception
+    {
+        ThumbnailCache cache = new ThumbnailCache(32);
+        int[] decoded = new int[1];
+        ThumbnailCache.IDecoder decoder = () ->
+        {
+            decoded[0] += 1;
+
+            return image(256, 128, 3);
+        };
+
+        cache.setup(folder, 1024 * 1024);
+
+        Thumbnail first = cache.get("assets:skins/steve.png", 1000, 50, decoder);
+        Thumbnail second = cache.get("assets:skins/steve.png", 1000, 50, decoder);
+
+        /* Second time it's read from the disk */
+        Assert.assrt(decoded[0] == 1 && cache.getHits() == 1 && cache.getDecoded() == 1);
+        Assert.assrt(first.width == 32 && first.height == 16 && Arrays.equals(first.data, second.data));
+
+        /* Modified file gets decoded again */
+        cache.get("assets:skins/steve.png", 2000, 50, decoder);
+        cache.get("assets:skins/steve.png", 2000, 51, decoder);
+
+        Assert.assrt(decoded[0] == 3);
+
+        /* Unknown modification time isn't cached */
+        cache.get("http:example.com/a.png", -1, 0, decoder);
+        cache.get("http:example.com/a.png", -1, 0, decoder);
+
+        Assert.assrt(decoded[0] == 5);
+
+        /* Corrupted thumbnail gets decoded again */
+        File file = new File(folder, cache.getKey("assets:skins/steve.png", 1000, 50) + ".bin");
+
+        Files.write(file.toPath(), new byte[] {1, 2, 3});
+
+        Assert.assrt(Arrays.equals(cache.get("assets:skins/steve.png", 1000, 50, decoder).data, first.data));
+        Assert.assrt(decoded[0] == 6);
+
+        /* Lowering the budget trims the disk cache */
+        cache.setup(folder, 1);
+
+        Assert.assrt(folder.listFiles((f) -> f.getName().endsWith(".bin")).length == 0);
+
+        /* Disabled disk cache always decodes */
+        cache.setup(null, 0);
+        cache.get("assets:skins/steve.png", 1000, 50, decoder);
+
+        Assert.assrt(decoded[0] == 7);
+    }
+
+    /**
+     * Compare decoding and downscaling big images against reading their
+     * thumbnails from the disk cache.
+     */
+    private static void benchmark(File folder, int count) throws Exception
+    {
+        ThumbnailCache cache = new ThumbnailCache(128);
+        Thumbnail[] images = new Thumbnail[count];
+
+        for (int i = 0; i < count; i++)
+        {
+            images[i] = image(1024, 1024, i);
+        }
+
+        cache.setup(folder, 64 * 1024 * 1024);
+
+        long time = System.nanoTime();
+
+        for (int i = 0; i < count; i++)
+        {
+            Thumbnail image = images[i];
+
+            cache.get("assets:skins/" + i + ".png", i, 0, () -> image);
+        }
+
+        long cold = System.nanoTime() - time;
+
+        time = System.nanoTime();
+
+        for (int i = 0; i < count; i++)
+        {
+            cache.get("assets:skins/" + i + ".png", i, 0, () ->
+            {
+                throw new IOException("Thumbnail should be cached!");
+            });
+        }
+
+        long warm = System.nanoTime() - time;
+
+        long bytes = 0;
+
+        for (File file : folder.listFiles())
+        {
+            bytes += file.length();
+        }
+
+        System.out.println(count + " 1024x1024 images: downscaled in " + cold / 1_000_000 + " ms, read from cache in " + warm / 1_000_000 + " ms, " + bytes / 1024 + " KB on disk (" + count * 4 + " MB decoded)");
+
+        Assert.assrt(cache.getHits() == count);
+        Assert.assrt(warm < cold);
+    }
+
+    private static Thumbnail image(int width, int height, int seed)
+    {
+        Random random = new Random(seed);
+        byte[] data = new byte[width * height * 4];
+
+        /* Noisy gradient, so it doesn't compress too well */
+        for (int y = 0; y < height; y++)
+        {
+            for (int x = 0; x < width; x++)
+            {
+                set(data, y * width + x, x * 255 / width, y * 255 / height, random.nextInt(64), random.nextInt(4) == 0 ? 0 : 255);
+            }
+        }
+
+        return new Thumbnail(width, height, data);
+    }
+
+    private static void set(byte[] data, int pixel, int r, int g, int b, int a)
+    {
+        data[pixel * 4] = (byte) r;
+        data[pixel * 4 + 1] = (byte) g;
+        data[pixel * 4 + 2] = (byte) b;
+        data[pixel * 4 + 3] = (byte) a;
+    }
+
+    private static int[] get(Thumbnail thumbnail, int pixel)
+    {
+        int[] color = new int[4];
+
+        for (int i = 0; i < 4; i++)
+        {
+            color[i] = thumbnail.data[pixel * 4 + i] & 0xff;
+        }
+
+        return color;
+    }
+
+    private static void delete(File folder)
+    {
+        File[] files = folder.listFiles();
+
+        if (files != null)
+        {
+            for (File file : files)
+            {
+                delete(file);
+            }
+        }
+
+        folder.delete();
+    }
+}
@@ -140,6 +140,19 @@ public class CompoundUndo <T> implements IUndo<T>
         }
     }
 
+    @Override
+    public long getSize()
+    {
+        long size = 0L;
+
+        for (IUndo<T> undo : this.undos)
+        {
+            size += undo.getSize();
+        }
+
+        return size;
+    }
+
     @Override
     public void undo(T context)
     {
@@ -0,0 +1,367 @@
+package mchorse.bbs_mod.utils.undo;
+
+import mchorse.bbs_mod.data.types.BaseType;
+import mchorse.bbs_mod.data.types.ByteArrayType;
+import mchorse.bbs_mod.data.types.IntArrayType;
+import mchorse.bbs_mod.data.types.ListType;
+import mchorse.bbs_mod.data.types.MapType;
+import mchorse.bbs_mod.data.types.ShortArrayType;
+import mchorse.bbs_mod.data.types.StringType;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Data delta
+ *
+ * Structural difference between two data trees. Instead of keeping full
+ * copies of both states, only changed map keys and changed list ranges are
+ * stored. A delta can be applied to the new state to get the old one (and
+ * vice versa), so it's enough for undo/redo as long as it's applied to the
+ * state it was computed for.
+ */
+public abstract class DataDelta
+{
+    public static final DataDelta EMPTY = new DataDelta()
+    {
+        @Override
+        public BaseType apply(BaseType data, boolean forward)
+        {
+            return data;
+        }
+
+        @Override
+        public long getSize()
+        {
+            return 0;
+        }
+    };
+
+    /**
+     * Compute a delta which transforms data a into data b.
+     */
+    public static DataDelta diff(BaseType a, BaseType b)
+    {
+        if (Objects.equals(a, b))
+        {
+            return EMPTY;
+        }
+
+        if (a instanceof MapType mapA && b instanceof MapType mapB)
+        {
+            return MapDelta.diff(mapA, mapB);
+        }
+
+        if (a instanceof ListType listA && b instanceof ListType listB)
+        {
+            return ListDelta.diff(listA, listB);
+        }
+
+        return new ReplaceDelta(a, b);
+    }
+
+    /**
+     * Roughly estimate how many bytes does given data take in memory.
+     */
+    public static long estimate(BaseType data)
+    {
+        if (data == null)
+        {
+            return 0;
+        }
+
+        if (data instanceof MapType map)
+        {
+            long size = 48;
+
+            for (Map.Entry<String, BaseType> entry : map)
+            {
+                size += 32 + 40 + entry.getKey().length() * 2L + estimate(entry.getValue());
+            }
+
+            return size;
+        }
+        else if (data instanceof ListType list)
+        {
+            long size = 40;
+
+            for (BaseType element : list)
+            {
+                size += 8 + estimate(element);
+            }
+
+            return size;
+        }
+        else if (data instanceof StringType string)
+        {
+            return 56 + string.value.length() * 2L;
+        }
+        else if (data instanceof ByteArrayType array)
+        {
+            return 32 + array.value.length;
+        }
+        else if (data instanceof ShortArrayType array)
+        {
+            return 32 + array.value.length * 2L;
+        }
+        else if (data instanceof IntArrayType array)
+        {
+            return 32 + array.value.length * 4L;
+        }
+
+        return 24;
+    }
+
+    private static BaseType copy(BaseType data)
+    {
+        return data == null ? null : data.copy();
+    }
+
+    /**
+     * Apply this delta to given data. Given data may be modified in place,
+     * so the returned data should be used instead.
+     *
+     * @param forward whether to transform old state into new state (redo),
+     *                or new state into old state (undo).
+     */
+    public abstract BaseType apply(BaseType data, boolean forward);
+
+    /**
+     * Roughly estimated memory usage of this delta in bytes.
+     */
+    public abstract long getSize();
+
+    /**
+     * Full replacement of a value, used for primitives or when types
+     * of values differ.
+     */
+    public static class ReplaceDelta extends DataDelta
+    {
+        public final BaseType oldValue;
+        public final BaseType newValue;
+
+        public ReplaceDelta(BaseType oldValue, BaseType newValue)
+        {
+            this.oldValue = oldValue;
+            this.newValue = newValue;
+        }
+
+        @Override
+        public BaseType apply(BaseType data, boolean forward)
+        {
+            return copy(forward ? this.newValue : this.oldValue);
+        }
+
+        @Override
+        public long getSize()
+        {
+            return 24 + estimate(this.oldValue) + estimate(this.newValue);
+        }
+    }
+
+    /**
+     * Changed, added or removed keys of a map.
+     */
+    public static class MapDelta extends DataDelta
+    {
+        public final Map<String, DataDelta> changes = new LinkedHashMap<>();
+
+        public static DataDelta diff(MapType a, MapType b)
+        {
+            MapDelta delta = new MapDelta();
+
+            for (Map.Entry<String, BaseType> entry : a)
+            {
+                BaseType other = b.get(entry.getKey());
+
+                if (other == null)
+                {
+                    delta.changes.put(entry.getKey(), new ReplaceDelta(entry.getValue(), null));
+                }
+                else if (!entry.getValue().equals(other))
+                {
+                    delta.changes.put(entry.getKey(), DataDelta.diff(entry.getValue(), other));
+                }
+            }
+
+            for (Map.Entry<String, BaseType> entry : b)
+            {
+                if (!a.has(entry.getKey()))
+                {
+                    delta.changes.put(entry.getKey(), new ReplaceDelta(null, entry.getValue()));
+                }
+            }
+
+            return delta.changes.isEmpty() ? EMPTY : delta;
+        }
+
+        @Override
+        public BaseType apply(BaseType data, boolean forward)
+        {
+            if (!(data instanceof MapType map))
+            {
+                return data;
+            }
+
+            for (Map.Entry<String, DataDelta> entry : this.changes.entrySet())
+            {
+                BaseType result = entry.getValue().apply(map.get(entry.getKey()), forward);
+
+                if (result == null)
+                {
+                    map.remove(entry.getKey());
+                }
+                else
+                {
+                    map.put(entry.getKey(), result);
+                }
+            }
+
+            return map;
+        }
+
+        @Override
+        public long getSize()
+        {
+            long size = 48;
+
+            for (Map.Entry<String, DataDelta> entry : this.changes.entrySet())
+            {
+                size += 32 + 40 + entry.getKey().length() * 2L + entry.getValue().getSize();
+            }
+
+            return size;
+        }
+    }
+
+    /**
+     * Changed range of a list. When the range has the same amount of
+     * elements in both states, per element deltas are stored (e.g. moved or
+     * edited keyframes), otherwise the range gets replaced (inserted or
+     * removed elements).
+     */
+    public static class ListDelta extends DataDelta
+    {
+        public final int start;
+        public final List<DataDelta> elements;
+        public final List<BaseType> oldRange;
+        public final List<BaseType> newRange;
+
+        public static DataDelta diff(ListType a, ListType b)
+        {
+            int sizeA = a.size();
+            int sizeB = b.size();
+            int prefix = 0;
+            int suffix = 0;
+
+            while (prefix < sizeA && prefix < sizeB && a.get(prefix).equals(b.get(prefix)))
+            {
+                prefix += 1;
+            }
+
+            while (suffix < sizeA - prefix && suffix < sizeB - prefix && a.get(sizeA - 1 - suffix).equals(b.get(sizeB - 1 - suffix)))
+            {
+                suffix += 1;
+            }
+
+            int countA = sizeA - prefix - suffix;
+            int countB = sizeB - prefix - suffix;
+
+            if (countA == 0 && countB == 0)
+            {
+                return EMPTY;
+            }
+
+            if (countA == countB)
+            {
+                List<DataDelta> elements = new ArrayList<>(countA);
+
+                for (int i = 0; i < countA; i++)
+                {
+                    elements.add(DataDelta.diff(a.get(prefix + i), b.get(prefix + i)));
+                }
+
+                return new ListDelta(prefix, elements, null, null);
+            }
+
+            return new ListDelta(prefix, null, new ArrayList<>(a.elements.subList(prefix, prefix + countA)), new ArrayList<>(b.elements.subList(prefix, prefix + countB)));
+        }
+
+        public ListDelta(int start, List<DataDelta> elements, List<BaseType> oldRange, List<BaseType> newRange)
+        {
+            this.start = start;
+            this.elements = elements;
+            this.oldRange = oldRange;
+            this.newRange = newRange;
+        }
+
+        @Override
+        public BaseType apply(BaseType data, boolean forward)
+        {
+            if (!(data instanceof ListType list))
+            {
+                return data;
+            }
+
+            if (this.elements != null)
+            {
+                for (int i = 0; i < this.elements.size(); i++)
+                {
+                    int index = this.start + i;
+
+                    if (list.has(index))
+                    {
+                        list.elements.set(index, this.elements.get(i).apply(list.get(index), forward));
+                    }
+                }
+
+                return list;
+            }
+
+            List<BaseType> remove = forward ? this.oldRange : this.newRange;
+            List<BaseType> insert = forward ? this.newRange : this.oldRange;
+            int start = Math.min(this.start, list.size());
+            int end = Math.min(start + remove.size(), list.size());
+
+            list.elements.subList(start, end).clear();
+
+            for (int i = 0; i < insert.size(); i++)
+            {
+                list.elements.add(start + i, copy(insert.get(i)));
+            }
+
+            return list;
+        }
+
+        @Override
+        public long getSize()
+        {
+            long size = 40;
+
+            if (this.elements != null)
+            {
+                for (DataDelta delta : this.elements)
+                {
+                    size += 8 + delta.getSize();
+                }
+            }
+            else
+            {
+                for (BaseType element : this.oldRange)
+                {
+                    size += 8 + estimate(element);
+                }
+
+                for (BaseType element : this.newRange)
+                {
+                    size += 8 + estimate(element);
+                }
+            }
+
+            return size;
+        }
+    }
+}
@@ -0,0 +1,234 @@
+package mchorse.bbs_mod.utils.undo;
+
+import com.ibm.icu.impl.Assert;
+import mchorse.bbs_mod.data.types.BaseType;
+import mchorse.bbs_mod.data.types.FloatType;
+import mchorse.bbs_mod.data.types.IntType;
+import mchorse.bbs_mod.data.types.ListType;
+import mchorse.bbs_mod.data.types.MapType;
+import mchorse.bbs_mod.data.types.StringType;
+
+import java.util.Random;
+
+public class DataDeltaTest
+{
+    public static void main(String[] args)
+    {
+        testMaps();
+        testListEdits();
+        testListRanges();
+        testTypeChanges();
+        testRandom();
+        testSize();
+    }
+
+    private static void testMaps()
+    {
+        MapType a = new MapType();
+        MapType b;
+
+        a.putInt("kept", 1);
+        a.putInt("changed", 2);
+        a.putString("removed", "bye");
+        a.put("nested", keyframe(0F, 1F));
+
+        b = (MapType) a.copy();
+        b.putInt("changed", 3);
+        b.remove("removed");
+        b.putString("added", "hi");
+        b.getMap("nested").putFloat("value", 5F);
+
+        DataDelta delta = roundTrip(a, b);
+
+        Assert.assrt(delta instanceof DataDelta.MapDelta);
+
+        /* Unchanged keys aren't stored, changed nested maps are deltas too */
+        DataDelta.MapDelta map = (DataDelta.MapDelta) delta;
+
+        Assert.assrt(!map.changes.containsKey("kept") && map.changes.size() == 4);
+        Assert.assrt(map.changes.get("nested") instanceof DataDelta.MapDelta);
+        Assert.assrt(DataDelta.diff(a, a.copy()) == DataDelta.EMPTY);
+    }
+
+    /**
+     * Edited keyframes (same amount of elements) are stored as per element
+     * deltas of only the changed range.
+     */
+    private static void testListEdits()
+    {
+        ListType a = keyframes(100);
+        ListType b = (ListType) a.copy();
+
+        b.getMap(40).putFloat("tick", 40.5F);
+        b.getMap(42).putFloat("value", -1F);
+
+        DataDelta delta = roundTrip(a, b);
+
+        Assert.assrt(delta instanceof DataDelta.ListDelta);
+
+        DataDelta.ListDelta list = (DataDelta.ListDelta) delta;
+
+        Assert.assrt(list.start == 40 && list.elements != null && list.elements.size() == 3);
+        Assert.assrt(list.elements.get(1) == DataDelta.EMPTY);
+    }
+
+    /**
+     * Inserted and removed elements are stored as replaced ranges.
+     */
+    private static void testListRanges()
+    {
+        ListType a = keyframes(50);
+        ListType inserted = (ListType) a.copy();
+        ListType removed = (ListType) a.copy();
+        ListType both = (ListType) a.copy();
+
+        inserted.add(10, keyframe(9.5F, 3F));
+        inserted.add(11, keyframe(9.75F, 4F));
+        removed.remove(0);
+        removed.remove(removed.size() - 1);
+        both.remove(20);
+        both.add(30, keyframe(30.5F, 0F));
+        both.add(keyframe(60F, 0F));
+
+        DataDelta.ListDelta insert = (DataDelta.ListDelta) roundTrip(a, inserted);
+
+        Assert.assrt(insert.elements == null && insert.start == 10);
+        Assert.assrt(insert.oldRange.isEmpty() && insert.newRange.size() == 2);
+
+        roundTrip(a, removed);
+        roundTrip(a, both);
+        roundTrip(a, new ListType());
+        roundTrip(new ListType(), a);
+    }
+
+    private static void testTypeChanges()
+    {
+        MapType a = new MapType();
+        MapType b = new MapType();
+
+        a.putInt("value", 1);
+        a.put("list", keyframes(3));
+        a.putString("string", "a");
+        b.putString("value", "1");
+        b.put("list", keyframe(0F, 0F));
+        b.put("string", keyframes(2));
+
+        DataDelta.MapDelta delta = (DataDelta.MapDelta) roundTrip(a, b);
+
+        for (DataDelta change : delta.changes.values())
+        {
+            Assert.assrt(change instanceof DataDelta.ReplaceDelta);
+        }
+
+        roundTrip(new IntType(1), new StringType("1"));
+        roundTrip(keyframes(2), new MapType());
+    }
+
+    /**
+     * Random edits of keyframe lists nested in maps.
+     */
+    private static void testRandom()
+    {
+        Random random = new Random(5);
+
+        for (int i = 0; i < 500; i++)
+        {
+            MapType a = new MapType();
+
+            a.put("keyframes", keyframes(random.nextInt(30)));
+            a.putString("type", "float");
+
+            MapType b = (MapType) a.copy();
+            ListType list = b.getList("keyframes");
+            int edits = 1 + random.nextInt(4);
+
+            for (int j = 0; j < edits; j++)
+            {
+                int action = random.nextInt(4);
+
+                if (action == 0 || list.isEmpty())
+                {
+                    list.add(random.nextInt(list.size() + 1), keyframe(random.nextFloat() * 30, random.nextFloat()));
+                }
+                else if (action == 1)
+                {
+                    list.remove(random.nextInt(list.size()));
+                }
+                else if (action == 2)
+                {
+                    list.getMap(random.nextInt(list.size())).putFloat("value", random.nextFloat());
+                }
+                else
+                {
+                    list.getMap(random.nextInt(list.size())).putInt("interp", random.nextInt(3));
+                }
+            }
+
+            if (random.nextInt(10) == 0)
+            {
+                b.putString("type", "double");
+            }
+
+            roundTrip(a, b);
+        }
+    }
+
+    /**
+     * Delta of a small edit in a big list takes a fraction of the list.
+     */
+    private static void testSize()
+    {
+        ListType a = keyframes(20000);
+        ListType b = (ListType) a.copy();
+
+        b.getMap(10000).putFloat("value", 100F);
+
+        DataDelta delta = DataDelta.diff(a, b);
+
+        Assert.assrt(delta.getSize() * 1000 < DataDelta.estimate(a));
+    }
+
+    /**
+     * Check that the delta turns a into b, and b back into a, without
+     * modifying delta's own data (so it can be applied many times).
+     */
+    private static DataDelta roundTrip(BaseType a, BaseType b)
+    {
+        DataDelta delta = DataDelta.diff(a, b);
+
+        for (int i = 0; i < 2; i++)
+        {
+            BaseType forward = delta.apply(a.copy(), true);
+
+            Assert.assrt(forward.equals(b));
+
+            BaseType backward = delta.apply(forward, false);
+
+            Assert.assrt(backward.equals(a));
+        }
+
+        return delta;
+    }
+
+    private static ListType keyframes(int count)
+    {
+        ListType list = new ListType();
+
+        for (int i = 0; i < count; i++)
+        {
+            list.add(keyframe(i, i * 0.5F));
+        }
+
+        return list;
+    }
+
+    private static MapType keyframe(float tick, float value)
+    {
+        MapType map = new MapType();
+
+        map.putFloat("tick", tick);
+        map.put("value", new FloatType(value));
+
+        return map;
+    }
+}
@@ -33,4 +33,13 @@ public interface IUndo <T>
      * Redo changes made to given context
      */
     public void redo(T context);
+
+    /**
+     * Roughly estimated amount of memory (in bytes) this undo takes, which
+     * is used by the undo manager to keep history within memory limit
+     */
+    public default long getSize()
+    {
+        return 0L;
+    }
 }
@@ -1,6 +1,6 @@
 package mchorse.bbs_mod.utils.undo;
 
-import java.util.LinkedList;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -11,10 +11,11 @@ import java.util.List;
  */
 public class UndoManager<T>
 {
-    private List<IUndo<T>> undos = new LinkedList<>();
+    private List<IUndo<T>> undos = new ArrayList<>();
     private int position = -1;
 
     private int limit = 20;
+    private long memoryLimit;
     private IUndoListener<T> callback;
     private boolean simpleMerge;
 
@@ -44,6 +45,20 @@ public class UndoManager<T>
         return this;
     }
 
+    /**
+     * Set memory limit (in bytes) of undo history, based on estimated size
+     * of undos. Zero or negative value means no memory limit.
+     */
+    public void setMemoryLimit(long memoryLimit)
+    {
+        this.memoryLimit = memoryLimit;
+    }
+
+    public long getMemoryLimit()
+    {
+        return this.memoryLimit;
+    }
+
     public IUndoListener<T> getCallback()
     {
         return this.callback;
@@ -81,6 +96,21 @@ public class UndoManager<T>
         return this.undos.size();
     }
 
+    /**
+     * Get estimated memory usage (in bytes) of all undos in the history
+     */
+    public long getMemoryUsage()
+    {
+        long size = 0L;
+
+        for (IUndo<T> undo : this.undos)
+        {
+            size += undo.getSize();
+        }
+
+        return size;
+    }
+
     /**
      * Push the undo, and apply it immediately
      */
@@ -109,7 +139,7 @@ public class UndoManager<T>
         }
         else
         {
-            if (this.position + 1 >= this.limit)
+            if (this.limit > 0 && this.position + 1 >= this.limit)
             {
                 this.undos.remove(0);
             }
@@ -123,9 +153,31 @@ public class UndoManager<T>
             this.undos.add(undo);
         }
 
+        this.trimToMemoryLimit();
+
         return present;
     }
 
+    /**
+     * Remove the oldest undos until the history fits into memory limit.
+     * Current undo is always kept.
+     */
+    protected void trimToMemoryLimit()
+    {
+        if (this.memoryLimit <= 0)
+        {
+            return;
+        }
+
+        long usage = this.getMemoryUsage();
+
+        while (usage > this.memoryLimit && this.position > 0)
+        {
+            usage -= this.undos.remove(0).getSize();
+            this.position -= 1;
+        }
+    }
+
     private boolean checkMergeability(IUndo<T> present, IUndo<T> undo)
     {
         if (this.simpleMerge)
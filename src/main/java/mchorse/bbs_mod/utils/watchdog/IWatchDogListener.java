@@ -1,8 +1,21 @@
 package mchorse.bbs_mod.utils.watchdog;
 
 import java.nio.file.Path;
+import java.util.List;
 
 public interface IWatchDogListener
 {
     public void accept(Path path, WatchDogEvent event);
+
+    /**
+     * Accept a batch of changes (every path appears at most once). By
+     * default, changes are passed one by one to {@link #accept(Path, WatchDogEvent)}.
+     */
+    public default void accept(List<WatchDogChange> changes)
+    {
+        for (WatchDogChange change : changes)
+        {
+            this.accept(change.path, change.event);
+        }
+    }
 }
\ No newline at end of file
@@ -14,6 +14,7 @@ import java.nio.file.WatchKey;
 import java.nio.file.WatchService;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
@@ -23,6 +24,7 @@ public class WatchDog implements Runnable
     private Path folder;
     private Consumer<Runnable> spawner;
     private WatchDogProxy proxy = new WatchDogProxy();
+    private WatchDogPipeline pipeline = new WatchDogPipeline();
 
     private WatchService service;
     private Map<WatchKey, Path> keys = new HashMap<>();
@@ -43,6 +45,11 @@ public class WatchDog implements Runnable
         return this.proxy;
     }
 
+    public WatchDogPipeline getPipeline()
+    {
+        return this.pipeline;
+    }
+
     public void registerFolder(Path path)
     {
         try
@@ -129,7 +136,9 @@ public class WatchDog implements Runnable
 
         try
         {
-            key = this.service.poll(1, TimeUnit.SECONDS);
+            long wait = this.pipeline.getWaitTime();
+
+            key = this.service.poll(wait < 0 ? 1000 : Math.max(wait, 1), TimeUnit.MILLISECONDS);
         }
         catch (InterruptedException x)
         {
@@ -138,6 +147,8 @@ public class WatchDog implements Runnable
 
         if (key == null)
         {
+            this.dispatch();
+
             return true;
         }
 
@@ -156,11 +167,6 @@ public class WatchDog implements Runnable
             Path filename = e.context();
             Path file = folder.resolve(filename);
 
-            if (Files.isRegularFile(file, LinkOption.NOFOLLOW_LINKS) && file.toFile().length() == 0)
-            {
-                continue;
-            }
-
             if (kind == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(file, LinkOption.NOFOLLOW_LINKS) && !this.onlyTop)
             {
                 try
@@ -178,12 +184,7 @@ public class WatchDog implements Runnable
             if (kind == StandardWatchEventKinds.ENTRY_MODIFY) type = WatchDogEvent.MODIFIED;
             else if (kind == StandardWatchEventKinds.ENTRY_DELETE) type = WatchDogEvent.DELETED;
 
-            final WatchDogEvent finalType = type;
-
-            this.spawner.accept(() ->
-            {
-                this.proxy.accept(file, finalType);
-            });
+            this.pipeline.submit(file, type);
         }
 
         if (!key.reset())
@@ -196,6 +197,21 @@ public class WatchDog implements Runnable
             }
         }
 
+        this.dispatch();
+
         return true;
     }
+
+    /**
+     * Pass settled changes as one batch to the listeners.
+     */
+    private void dispatch()
+    {
+        List<WatchDogChange> changes = this.pipeline.poll();
+
+        if (!changes.isEmpty())
+        {
+            this.spawner.accept(() -> this.proxy.accept(changes));
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,43 @@
+package mchorse.bbs_mod.utils.watchdog;
+
+import java.nio.file.Path;
+import java.util.Objects;
+
+/**
+ * Logical change of a file (after raw file system events of the file were
+ * debounced and coalesced).
+ */
+public class WatchDogChange
+{
+    public final Path path;
+    public final WatchDogEvent event;
+
+    public WatchDogChange(Path path, WatchDogEvent event)
+    {
+        this.path = path;
+        this.event = event;
+    }
+
+    @Override
+    public boolean equals(Object obj)
+    {
+        if (obj instanceof WatchDogChange change)
+        {
+            return Objects.equals(this.path, change.path) && this.event == change.event;
+        }
+
+        return false;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Objects.hash(this.path, this.event);
+    }
+
+    @Override
+    public String toString()
+    {
+        return this.event + " " + this.path;
+    }
+}
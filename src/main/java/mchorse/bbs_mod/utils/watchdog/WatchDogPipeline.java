@@ -0,0 +1,309 @@
+package mchorse.bbs_mod.utils.watchdog;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Watch dog pipeline
+ *
+ * Turns raw file system events into batches of logical changes:
+ *
+ * - Events are debounced per path, a path is reported only once it was
+ *   quiet for the debounce time (or, if it keeps changing, after the
+ *   maximum delay).
+ * - All events of a path within that window are coalesced into one change
+ *   by comparing whether the file existed before the first event and
+ *   whether it exists after the last one (so create + modify is a creation,
+ *   delete + create is a modification, and create + delete is nothing).
+ * - Modifications which didn't change file's content hash (compared to the
+ *   last reported content) are dropped.
+ *
+ * Time and hashing are injected, so the pipeline can be tested without
+ * a file system.
+ */
+public class WatchDogPipeline
+{
+    public static final long DEBOUNCE = 300;
+    public static final long MAX_DELAY = 3000;
+
+    /**
+     * Files larger than this are identified by their size and modification
+     * time instead of hashing their content.
+     */
+    public static final long MAX_HASHED_SIZE = 64 * 1024 * 1024;
+
+    private final LongSupplier clock;
+    private final Function<Path, String> hasher;
+    private final long debounce;
+    private final long maxDelay;
+
+    private final Map<Path, Pending> pending = new HashMap<>();
+    private final Map<Path, String> hashes = new HashMap<>();
+
+    /* Statistics */
+    private int events;
+    private int changes;
+
+    public WatchDogPipeline()
+    {
+        this(System::currentTimeMillis, WatchDogPipeline::hashFile, DEBOUNCE, MAX_DELAY);
+    }
+
+    public WatchDogPipeline(LongSupplier clock, Function<Path, String> hasher, long debounce, long maxDelay)
+    {
+        this.clock = clock;
+        this.hasher = hasher;
+        this.debounce = debounce;
+        this.maxDelay = maxDelay;
+    }
+
+    /**
+     * @return content hash of given file, or null if it's not a file.
+     */
+    public static String hashFile(Path path)
+    {
+        try
+        {
+            if (!Files.isRegularFile(path, LinkOption.NOFOLLOW_LINKS))
+            {
+                return null;
+            }
+
+            long size = Files.size(path);
+
+            if (size > MAX_HASHED_SIZE)
+            {
+                return size + ":" + Files.getLastModifiedTime(path).toMillis();
+            }
+
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            byte[] buffer = new byte[8192];
+
+            try (InputStream stream = Files.newInputStream(path))
+            {
+                int read;
+
+                while ((read = stream.read(buffer)) > 0)
+                {
+                    digest.update(buffer, 0, read);
+                }
+            }
+
+            StringBuilder builder = new StringBuilder();
+
+            for (byte b : digest.digest())
+            {
+                builder.append(String.format("%02x", b));
+            }
+
+            return builder.toString();
+        }
+        catch (Exception e)
+        {
+            return null;
+        }
+    }
+
+    /**
+     * Amount of raw events that were submitted.
+     */
+    public synchronized int getEvents()
+    {
+        return this.events;
+    }
+
+    /**
+     * Amount of logical changes that were reported.
+     */
+    public synchronized int getChanges()
+    {
+        return this.changes;
+    }
+
+    /**
+     * Amount of files which content hashes are remembered.
+     */
+    public synchronized int getHashes()
+    {
+        return this.hashes.size();
+    }
+
+    public synchronized boolean isEmpty()
+    {
+        return this.pending.isEmpty();
+    }
+
+    public synchronized void submit(Path path, WatchDogEvent event)
+    {
+        long now = this.clock.getAsLong();
+        Pending pending = this.pending.get(path);
+
+        this.events += 1;
+
+        if (pending == null)
+        {
+            this.pending.put(path, new Pending(event, now));
+        }
+        else
+        {
+            pending.last = event;
+            pending.lastTime = now;
+        }
+    }
+
+    /**
+     * How long (in milliseconds) until the next pending path settles, or
+     * -1 if nothing is pending.
+     */
+    public synchronized long getWaitTime()
+    {
+        long now = this.clock.getAsLong();
+        long wait = -1;
+
+        for (Pending pending : this.pending.values())
+        {
+            long time = Math.max(0, pending.getDeadline(this.debounce, this.maxDelay) - now);
+
+            wait = wait < 0 ? time : Math.min(wait, time);
+        }
+
+        return wait;
+    }
+
+    /**
+     * Collect changes of all paths that settled down.
+     *
+     * @return batch of logical changes (sorted by path), can be empty.
+     */
+    public List<WatchDogChange> poll()
+    {
+        List<Map.Entry<Path, WatchDogEvent>> settled = new ArrayList<>();
+
+        synchronized (this)
+        {
+            long now = this.clock.getAsLong();
+            Iterator<Map.Entry<Path, Pending>> it = this.pending.entrySet().iterator();
+
+            while (it.hasNext())
+            {
+                Map.Entry<Path, Pending> entry = it.next();
+                Pending pending = entry.getValue();
+
+                if (now < pending.getDeadline(this.debounce, this.maxDelay))
+                {
+                    continue;
+                }
+
+                it.remove();
+
+                WatchDogEvent event = pending.coalesce();
+
+                if (event != null)
+                {
+                    settled.add(Map.entry(entry.getKey(), event));
+                }
+            }
+        }
+
+        List<WatchDogChange> changes = new ArrayList<>();
+
+        /* Hashing is done outside of the lock, so events can be submitted
+         * in the meantime */
+        for (Map.Entry<Path, WatchDogEvent> entry : settled)
+        {
+            Path path = entry.getKey();
+            WatchDogEvent event = entry.getValue();
+
+            if (event == WatchDogEvent.DELETED)
+            {
+                /* Deleted folder doesn't necessarily report its files, so
+                 * their hashes are dropped along with it */
+                synchronized (this)
+                {
+                    this.hashes.keySet().removeIf((key) -> key.startsWith(path));
+                }
+
+                changes.add(new WatchDogChange(path, event));
+
+                continue;
+            }
+
+            String hash = this.hasher.apply(path);
+
+            synchronized (this)
+            {
+                String old = hash == null ? this.hashes.remove(path) : this.hashes.put(path, hash);
+
+                if (hash != null && hash.equals(old))
+                {
+                    continue;
+                }
+            }
+
+            changes.add(new WatchDogChange(path, event));
+        }
+
+        changes.sort((a, b) -> a.path.compareTo(b.path));
+
+        synchronized (this)
+        {
+            this.changes += changes.size();
+        }
+
+        return changes;
+    }
+
+    private static class Pending
+    {
+        public final WatchDogEvent first;
+        public final long firstTime;
+        public WatchDogEvent last;
+        public long lastTime;
+
+        public Pending(WatchDogEvent event, long time)
+        {
+            this.first = this.last = event;
+            this.firstTime = this.lastTime = time;
+        }
+
+        public long getDeadline(long debounce, long maxDelay)
+        {
+            return Math.min(this.lastTime + debounce, this.firstTime + maxDelay);
+        }
+
+        /**
+         * @return logical change, or null if the file didn't exist before
+         *         and doesn't exist anymore.
+         */
+        public WatchDogEvent coalesce()
+        {
+            boolean existed = this.first != WatchDogEvent.CREATED;
+            boolean exists = this.last != WatchDogEvent.DELETED;
+
+            if (existed && exists)
+            {
+                return WatchDogEvent.MODIFIED;
+            }
+            else if (existed)
+            {
+                return WatchDogEvent.DELETED;
+            }
+            else if (exists)
+            {
+                return WatchDogEvent.CREATED;
+            }
+
+            return null;
+        }
+    }
+}
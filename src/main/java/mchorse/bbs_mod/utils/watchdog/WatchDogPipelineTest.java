@@ -0,0 +1,220 @@
+package mchorse.bbs_mod.utils.watchdog;
+
+import com.ibm.icu.impl.Assert;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class WatchDogPipelineTest
+{
+    private static final Path MODEL = Paths.get("assets/models/cat/model.bbmodel");
+    private static final Path TEXTURE = Paths.get("assets/models/cat/cat.png");
+    private static final Path TEMP = Paths.get("assets/models/cat/model.bbmodel~");
+
+    public static void main(String[] args)
+    {
+        testDebounce();
+        testCoalesce();
+        testHashes();
+        testDeletedFolder();
+        testMaxDelay();
+    }
+
+    private static void testDebounce()
+    {
+        Simulation sim = new Simulation();
+
+        sim.files.put(MODEL, "a");
+        sim.files.put(TEXTURE, "b");
+
+        sim.pipeline.submit(MODEL, WatchDogEvent.MODIFIED);
+        sim.advance(100);
+        sim.pipeline.submit(MODEL, WatchDogEvent.MODIFIED);
+        sim.pipeline.submit(TEXTURE, WatchDogEvent.MODIFIED);
+
+        Assert.assrt(sim.pipeline.getWaitTime() == 300);
+
+        /* Not quiet for long enough yet */
+        sim.advance(200);
+
+        Assert.assrt(sim.pipeline.poll().isEmpty());
+
+        sim.advance(100);
+
+        List<WatchDogChange> changes = sim.pipeline.poll();
+
+        /* One batch with one change per path, sorted by path */
+        Assert.assrt(changes.size() == 2);
+        Assert.assrt(changes.get(0).equals(new WatchDogChange(TEXTURE, WatchDogEvent.MODIFIED)));
+        Assert.assrt(changes.get(1).equals(new WatchDogChange(MODEL, WatchDogEvent.MODIFIED)));
+        Assert.assrt(sim.pipeline.isEmpty());
+        Assert.assrt(sim.pipeline.getWaitTime() == -1);
+        Assert.assrt(sim.pipeline.getEvents() == 3 && sim.pipeline.getChanges() == 2);
+    }
+
+    private static void testCoalesce()
+    {
+        Simulation sim = new Simulation();
+
+        /* Atomic save: write temp file, delete original, rename temp file */
+        sim.files.put(MODEL, "old");
+        sim.pipeline.poll();
+
+        sim.pipeline.submit(TEMP, WatchDogEvent.CREATED);
+        sim.pipeline.submit(TEMP, WatchDogEvent.MODIFIED);
+        sim.pipeline.submit(MODEL, WatchDogEvent.DELETED);
+        sim.pipeline.submit(TEMP, WatchDogEvent.DELETED);
+        sim.pipeline.submit(MODEL, WatchDogEvent.CREATED);
+        sim.files.put(MODEL, "new");
+        sim.advance(1000);
+
+        List<WatchDogChange> changes = sim.pipeline.poll();
+
+        /* Temp file never existed as far as listeners are concerned, and
+         * model was modified rather than deleted and created */
+        Assert.assrt(changes.size() == 1);
+        Assert.assrt(changes.get(0).equals(new WatchDogChange(MODEL, WatchDogEvent.MODIFIED)));
+
+        /* New file */
+        sim.files.put(TEXTURE, "png");
+        sim.pipeline.submit(TEXTURE, WatchDogEvent.CREATED);
+        sim.pipeline.submit(TEXTURE, WatchDogEvent.MODIFIED);
+        sim.advance(1000);
+
+        changes = sim.pipeline.poll();
+
+        Assert.assrt(changes.size() == 1 && changes.get(0).event == WatchDogEvent.CREATED);
+
+        /* Removed file */
+        sim.files.remove(TEXTURE);
+        sim.pipeline.submit(TEXTURE, WatchDogEvent.MODIFIED);
+        sim.pipeline.submit(TEXTURE, WatchDogEvent.DELETED);
+        sim.advance(1000);
+
+        changes = sim.pipeline.poll();
+
+        Assert.assrt(changes.size() == 1 && changes.get(0).event == WatchDogEvent.DELETED);
+    }
+
+    private static void testHashes()
+    {
+        Simulation sim = new Simulation();
+
+        sim.files.put(MODEL, "a");
+        sim.pipeline.submit(MODEL, WatchDogEvent.MODIFIED);
+        sim.advance(1000);
+
+        Assert.assrt(sim.pipeline.poll().size() == 1);
+
+        /* Touched (or checked out) without changing the content */
+        sim.pipeline.submit(MODEL, WatchDogEvent.MODIFIED);
+        sim.advance(1000);
+
+        Assert.assrt(sim.pipeline.poll().isEmpty());
+
+        sim.files.put(MODEL, "b");
+        sim.pipeline.submit(MODEL, WatchDogEvent.MODIFIED);
+        sim.advance(1000);
+
+        Assert.assrt(sim.pipeline.poll().size() == 1);
+
+        /* Deleted and recreated with the same content later is reported */
+        sim.files.remove(MODEL);
+        sim.pipeline.submit(MODEL, WatchDogEvent.DELETED);
+        sim.advance(1000);
+
+        Assert.assrt(sim.pipeline.poll().size() == 1);
+
+        sim.files.put(MODEL, "b");
+        sim.pipeline.submit(MODEL, WatchDogEvent.CREATED);
+        sim.advance(1000);
+
+        Assert.assrt(sim.pipeline.poll().size() == 1);
+        Assert.assrt(sim.hashed == 4);
+    }
+
+    private static void testDeletedFolder()
+    {
+        Simulation sim = new Simulation();
+        Path other = Paths.get("assets/models/dog/model.bbmodel");
+
+        sim.files.put(MODEL, "a");
+        sim.files.put(TEXTURE, "b");
+        sim.files.put(other, "c");
+        sim.pipeline.submit(MODEL, WatchDogEvent.MODIFIED);
+        sim.pipeline.submit(TEXTURE, WatchDogEvent.MODIFIED);
+        sim.pipeline.submit(other, WatchDogEvent.MODIFIED);
+        sim.advance(1000);
+        sim.pipeline.poll();
+
+        Assert.assrt(sim.pipeline.getHashes() == 3);
+
+        /* Only the folder itself gets reported */
+        sim.files.remove(MODEL);
+        sim.files.remove(TEXTURE);
+        sim.pipeline.submit(MODEL.getParent(), WatchDogEvent.DELETED);
+        sim.advance(1000);
+
+        Assert.assrt(sim.pipeline.poll().size() == 1);
+        Assert.assrt(sim.pipeline.getHashes() == 1);
+
+        /* Restored with the same content is reported */
+        sim.files.put(MODEL, "a");
+        sim.pipeline.submit(MODEL, WatchDogEvent.CREATED);
+        sim.advance(1000);
+
+        Assert.assrt(sim.pipeline.poll().size() == 1);
+    }
+
+    private static void testMaxDelay()
+    {
+        Simulation sim = new Simulation();
+        int batches = 0;
+
+        sim.files.put(MODEL, "0");
+
+        /* File that is written continuously still gets reported */
+        for (int i = 0; i < 100; i++)
+        {
+            sim.files.put(MODEL, String.valueOf(i));
+            sim.pipeline.submit(MODEL, WatchDogEvent.MODIFIED);
+            sim.advance(100);
+
+            if (!sim.pipeline.poll().isEmpty())
+            {
+                batches += 1;
+            }
+        }
+
+        Assert.assrt(batches == 3);
+    }
+
+    /**
+     * Simulated clock and file contents.
+     */
+    private static class Simulation
+    {
+        public final Map<Path, String> files = new HashMap<>();
+        public final WatchDogPipeline pipeline;
+        public long time;
+        public int hashed;
+
+        public Simulation()
+        {
+            this.pipeline = new WatchDogPipeline(() -> this.time, (path) ->
+            {
+                this.hashed += 1;
+
+                return this.files.get(path);
+            }, 300, 3000);
+        }
+
+        public void advance(long time)
+        {
+            this.time += time;
+        }
+    }
+}
@@ -44,4 +44,13 @@ public class WatchDogProxy implements IWatchDogListener
             listener.accept(path, event);
         }
     }
+
+    @Override
+    public void accept(List<WatchDogChange> changes)
+    {
+        for (IWatchDogListener listener : this.listeners)
+        {
+            listener.accept(changes);
+        }
+    }
 }
\ No newline at end of file